@@ -1,5 +1,6 @@
 package com.financial.fix.stresstest;
 
+import com.finance.fix.tester.BoundedMessageStoreFactory;
 import quickfix.*;
 import quickfix.field.*;
 import quickfix.fix44.NewOrderSingle;
@@ -7,10 +8,10 @@ import quickfix.fix44.OrderCancelReject;
 import quickfix.fix44.ExecutionReport;
 
 import java.io.FileInputStream;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * FIX客户端任务，实现并发测试
@@ -19,17 +20,20 @@ public class FixClientTask implements Application, Callable<Void> {
     private final String configFile;
     private final String senderCompId;
     private final int messagesToSend;
-    private final List<FixTestResult> results = new ArrayList<>();
+    // 已发送未应答的消息，收到响应后移除并计入汇总
+    private final Map<String, FixTestResult> pending = new ConcurrentHashMap<>();
+    private final ResultAggregator aggregator;
     private SessionID sessionId;
     private Initiator initiator;
     private final Random random = new Random();
     private int messagesSent = 0;
     private int messagesReceived = 0;
 
-    public FixClientTask(String configFile, String senderCompId, int messagesToSend) {
+    public FixClientTask(String configFile, String senderCompId, int messagesToSend, ResultAggregator aggregator) {
         this.configFile = configFile;
         this.senderCompId = senderCompId;
         this.messagesToSend = messagesToSend;
+        this.aggregator = aggregator;
     }
 
     @Override
@@ -42,7 +46,7 @@ public class FixClientTask implements Application, Callable<Void> {
             settings.set(defaults);
 
             // 初始化FIX客户端
-            initiator = new SocketInitiator(this, new FileStoreFactory(settings), 
+            initiator = new SocketInitiator(this, new BoundedMessageStoreFactory(),
                                            settings, new FileLogFactory(settings));
             
             initiator.start();
@@ -79,16 +83,14 @@ public class FixClientTask implements Application, Callable<Void> {
         
         while (messagesSent < messagesToSend) {
             NewOrderSingle newOrder = createNewOrderSingle();
+            // 先登记再发送，避免响应先于登记到达
+            String clOrdId = newOrder.getClOrdID().getValue();
+            long sendTime = System.currentTimeMillis();
+            pending.put(clOrdId, new FixTestResult(clOrdId, sendTime, false, 0, null));
             Session.sendToTarget(newOrder, sessionId);
             
             // 记录发送时间
-            results.add(new FixTestResult(
-                newOrder.getClOrdID().getValue(),
-                System.currentTimeMillis(),
-                false,
-                0,
-                null
-            ));
+            aggregator.recordSent(sendTime);
             
             messagesSent++;
             
@@ -118,10 +120,10 @@ public class FixClientTask implements Application, Callable<Void> {
     }
 
     /**
-     * 获取测试结果
+     * 已发送但仍未收到响应的消息数
      */
-    public List<FixTestResult> getResults() {
-        return results;
+    public int getUnansweredCount() {
+        return pending.size();
     }
 
     // QuickFIX/J Application接口方法实现
@@ -176,20 +178,40 @@ public class FixClientTask implements Application, Callable<Void> {
         String clOrdId = report.getClOrdID().getValue();
         char ordStatus = report.getOrdStatus().getValue();
         
-        // 查找对应的发送记录并更新
-        for (FixTestResult result : results) {
-            if (result.getClOrdId().equals(clOrdId) && !result.isSuccess()) {
-                long responseTime = System.currentTimeMillis() - result.getSendTimeMs();
-                boolean success = ordStatus == OrdStatus.NEW || ordStatus == OrdStatus.FILLED;
-                String errorMessage = success ? null : "Order status: " + ordStatus;
-                
-                result.setSuccess(success);
-                result.setResponseTimeMs(responseTime);
-                result.setErrorMessage(errorMessage);
-                
-                messagesReceived++;
-                break;
-            }
+        // 中间状态（如PendingNew后才回New）不是最终应答，保留发送记录等待后续执行报告
+        if (!isTerminal(ordStatus)) {
+            return;
+        }
+        // 取出对应的发送记录并计入汇总
+        FixTestResult result = pending.remove(clOrdId);
+        if (result == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long responseTime = now - result.getSendTimeMs();
+        boolean success = ordStatus == OrdStatus.NEW || ordStatus == OrdStatus.FILLED;
+        if (success) {
+            aggregator.recordSuccess(now, responseTime);
+        } else {
+            aggregator.recordFailure(now, "Order status: " + ordStatus, responseTime);
+        }
+        messagesReceived++;
+    }
+
+    /**
+     * 是否为可计入结果的应答状态，Pending*、部分成交等中间状态之后还会有执行报告
+     */
+    private static boolean isTerminal(char ordStatus) {
+        switch (ordStatus) {
+            case OrdStatus.PENDING_NEW:
+            case OrdStatus.PENDING_CANCEL:
+            case OrdStatus.PENDING_REPLACE:
+            case OrdStatus.PARTIALLY_FILLED:
+            case OrdStatus.ACCEPTED_FOR_BIDDING:
+            case OrdStatus.CALCULATED:
+                return false;
+            default:
+                return true;
         }
     }
 
@@ -199,18 +221,14 @@ public class FixClientTask implements Application, Callable<Void> {
     private void handleOrderCancelReject(OrderCancelReject reject) throws FieldNotFound {
         String clOrdId = reject.getClOrdID().getValue();
         
-        // 查找对应的发送记录并标记为失败
-        for (FixTestResult result : results) {
-            if (result.getClOrdId().equals(clOrdId) && !result.isSuccess()) {
-                long responseTime = System.currentTimeMillis() - result.getSendTimeMs();
-                result.setSuccess(false);
-                result.setResponseTimeMs(responseTime);
-                result.setErrorMessage("Order cancelled: " + reject.getText().getValue());
-                
-                messagesReceived++;
-                break;
-            }
+        // 取出对应的发送记录并计为失败
+        FixTestResult result = pending.remove(clOrdId);
+        if (result == null) {
+            return;
         }
+        long now = System.currentTimeMillis();
+        aggregator.recordFailure(now, "Order cancelled: " + reject.getText().getValue(), now - result.getSendTimeMs());
+        messagesReceived++;
     }
 }
     
\ No newline at end of file
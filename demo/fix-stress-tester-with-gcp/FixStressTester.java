@@ -1,5 +1,6 @@
 package com.financial.fix.stresstest;
 
+import com.finance.fix.tester.LatencyHistogram;
 import quickfix.ConfigError;
 import quickfix.RuntimeError;
 import quickfix.SessionSettings;
@@ -29,6 +30,11 @@ public class FixStressTester {
     private final List<FixClientTask> clientTasks = new ArrayList<>();
     private Instant testStartTime;
     private Instant testEndTime;
+    private MetricsTimeline timeline;
+    private ResultAggregator aggregator;
+    private HostMetricsSampler hostSampler;
+    private GcpMetricsCollector gcpCollector;
+    private TargetMetricsPoller targetPoller;
 
     public FixStressTester(String configFile, int numClients, int messagesPerClient,
                           String gcpProjectId, String vmInstanceId, String gcpZone) {
@@ -50,15 +56,20 @@ public class FixStressTester {
         System.out.println("Messages per client: " + messagesPerClient);
         System.out.println("Total messages: " + numClients * messagesPerClient);
 
+        // 开始测试计时
+        testStartTime = Instant.now();
+        timeline = new MetricsTimeline(testStartTime.toEpochMilli());
+        aggregator = new ResultAggregator(timeline);
+        aggregator.start();
+
         // 初始化客户端任务
         for (int i = 0; i < numClients; i++) {
             String senderCompId = "TEST-SENDER-" + i;
-            FixClientTask clientTask = new FixClientTask(configFile, senderCompId, messagesPerClient);
+            FixClientTask clientTask = new FixClientTask(configFile, senderCompId, messagesPerClient, aggregator);
             clientTasks.add(clientTask);
         }
-
-        // 开始测试计时
-        testStartTime = Instant.now();
+        startHostMetrics();
+        startTargetMetrics();
         
         // 提交所有客户端任务
         List<Future<Void>> futures = clientTasks.stream()
@@ -77,6 +88,12 @@ public class FixStressTester {
         
         // 测试结束
         testEndTime = Instant.now();
+        if (hostSampler != null) {
+            hostSampler.stop();
+        }
+        if (targetPoller != null) {
+            targetPoller.stop();
+        }
         executor.shutdown();
         executor.awaitTermination(1, TimeUnit.MINUTES);
         
@@ -84,6 +101,37 @@ public class FixStressTester {
         analyzeResults();
     }
 
+    /**
+     * 启动本机指标采样，间隔由HOST_METRICS_INTERVAL_MS指定（默认250ms）
+     */
+    private void startHostMetrics() {
+        HostMetricsSource source = HostMetricsSource.load();
+        if (source == null) {
+            System.out.println("No host metrics source available, skipping host metrics");
+            return;
+        }
+        String interval = System.getenv("HOST_METRICS_INTERVAL_MS");
+        long intervalMs = interval != null && !interval.isEmpty() ? Long.parseLong(interval) : 250;
+        hostSampler = new HostMetricsSampler(source, timeline, intervalMs);
+        hostSampler.start();
+        System.out.println("Host metrics: " + source.name() + ", sampling every " + intervalMs + " ms");
+    }
+
+    /**
+     * 配置了GCP时在测试期间轮询目标侧指标，间隔由GCP_POLL_INTERVAL_MS指定（默认60s，与GCP指标采样周期一致）
+     */
+    private void startTargetMetrics() throws Exception {
+        if (gcpProjectId == null || gcpProjectId.isEmpty()) {
+            return;
+        }
+        gcpCollector = new GcpMetricsCollector(gcpProjectId, vmInstanceId, gcpZone);
+        String interval = System.getenv("GCP_POLL_INTERVAL_MS");
+        long intervalMs = interval != null && !interval.isEmpty() ? Long.parseLong(interval) : 60000;
+        targetPoller = TargetMetricsPoller.forGcp(gcpCollector, timeline, intervalMs);
+        targetPoller.start(testStartTime.toEpochMilli());
+        System.out.println("Polling GCP target metrics every " + intervalMs + " ms");
+    }
+
     /**
      * 分析测试结果，包括GCP指标
      */
@@ -97,15 +145,15 @@ public class FixStressTester {
         System.out.println("Total test duration: " + totalDurationMs + " ms (" + 
                           String.format("%.2f", totalDurationSec) + " seconds)");
 
-        // 收集应用层指标
-        List<FixTestResult> allResults = new ArrayList<>();
+        // 测试结束时仍未应答的消息计为失败
         for (FixClientTask client : clientTasks) {
-            allResults.addAll(client.getResults());
+            aggregator.recordFailures(testEndTime.toEpochMilli(), ResultAggregator.NO_RESPONSE, client.getUnansweredCount());
         }
+        aggregator.stop();
 
-        long totalMessages = allResults.size();
-        long successfulMessages = allResults.stream().filter(FixTestResult::isSuccess).count();
-        double successRate = (double) successfulMessages / totalMessages * 100;
+        long totalMessages = aggregator.getSent();
+        long successfulMessages = aggregator.getSuccesses();
+        double successRate = totalMessages > 0 ? (double) successfulMessages / totalMessages * 100 : 0;
         
         System.out.println("\n=== Application Layer Metrics ===");
         System.out.println("Total messages sent: " + totalMessages);
@@ -113,38 +161,49 @@ public class FixStressTester {
                           String.format("%.2f", successRate) + "%)");
         
         // 计算吞吐量
-        double throughput = totalMessages / totalDurationSec;
+        double throughput = aggregator.getThroughput(totalDurationMs);
         System.out.println("Throughput: " + String.format("%.2f", throughput) + " messages/second");
 
-        // 计算响应时间统计
-        List<Long> responseTimes = allResults.stream()
-                .filter(FixTestResult::isSuccess)
-                .map(FixTestResult::getResponseTimeMs)
-                .collect(Collectors.toList());
-
-        if (!responseTimes.isEmpty()) {
-            long minResponse = responseTimes.stream().mapToLong(v -> v).min().orElse(0);
-            long maxResponse = responseTimes.stream().mapToLong(v -> v).max().orElse(0);
-            double avgResponse = responseTimes.stream().mapToLong(v -> v).average().orElse(0);
-            
+        // 响应时间统计直接取自流式汇总
+        LatencyHistogram responseTimes = aggregator.getResponseTimes();
+        if (responseTimes.getCount() > 0) {
             System.out.println("\nResponse Time Statistics (ms):");
-            System.out.println("Min: " + minResponse);
-            System.out.println("Max: " + maxResponse);
-            System.out.println("Average: " + String.format("%.2f", avgResponse));
-            
-            // 计算百分位数
-            responseTimes.sort(Long::compareTo);
-            System.out.println("P90: " + calculatePercentile(responseTimes, 90));
-            System.out.println("P95: " + calculatePercentile(responseTimes, 95));
-            System.out.println("P99: " + calculatePercentile(responseTimes, 99));
+            System.out.println("Min: " + responseTimes.getMin());
+            System.out.println("Max: " + responseTimes.getMax());
+            System.out.println("Average: " + String.format("%.2f", responseTimes.getMean()));
+            System.out.println("P90: " + responseTimes.getValueAtPercentile(90));
+            System.out.println("P95: " + responseTimes.getValueAtPercentile(95));
+            System.out.println("P99: " + responseTimes.getValueAtPercentile(99));
+        }
+
+        // 本机主机指标
+        if (hostSampler != null) {
+            System.out.println("\n=== Host Metrics (" + hostSampler.getSourceName() + ") ===");
+            String[] names = hostSampler.getMetricNames();
+            for (int i = 0; i < names.length; i++) {
+                double[] summary = timeline.summarize(names[i]);
+                if (summary == null) {
+                    continue;
+                }
+                System.out.println(String.format("%-26s avg %12.2f  max/s %12.2f  peak %12.2f",
+                                  names[i], summary[0], summary[1], hostSampler.getPeak(i)));
+            }
         }
 
+        Map<String, Double> gcpMetrics = null;
+        if (targetPoller != null) {
+            gcpMetrics = targetPoller.summarize(testStartTime, testEndTime);
+            gcpCollector.close();
+        }
+
+        String timelineFile = "stress-timeline-" + testStartTime.toEpochMilli() + ".csv";
+        timeline.writeCsv(timelineFile);
+        System.out.println("\nPer-second timeline written to " + timelineFile);
+
         // 收集并展示GCP指标
-        if (gcpProjectId != null && !gcpProjectId.isEmpty()) {
+        if (gcpMetrics != null) {
             System.out.println("\n=== GCP Infrastructure Metrics ===");
-            GcpMetricsCollector metricsCollector = new GcpMetricsCollector(gcpProjectId, vmInstanceId, gcpZone);
-            Map<String, Double> gcpMetrics = metricsCollector.collectMetrics(testStartTime, testEndTime);
-            metricsCollector.close();
+            System.out.println("Polls: " + targetPoller.getPolls() + ", points fetched: " + targetPoller.getFetchedPoints());
 
             System.out.println("Average CPU usage: " + String.format("%.2f%%", gcpMetrics.get("cpu_usage_average") * 100));
             System.out.println("Network receive rate: " + String.format("%.2f KB/s", 
@@ -158,33 +217,17 @@ public class FixStressTester {
         }
 
         // 错误分析
-        long errorCount = totalMessages - successfulMessages;
+        long errorCount = aggregator.getFailures();
         if (errorCount > 0) {
             System.out.println("\n=== Error Analysis ===");
             System.out.println("Total errors: " + errorCount);
             
-            // 简单的错误分类统计
-            Map<String, Long> errorTypes = allResults.stream()
-                    .filter(r -> !r.isSuccess())
-                    .collect(Collectors.groupingBy(
-                            FixTestResult::getErrorMessage,
-                            Collectors.counting()
-                    ));
-            
-            errorTypes.forEach((error, count) -> 
+            // 错误分类统计
+            aggregator.getFailureReasons().forEach((error, count) -> 
                 System.out.println("- " + error + ": " + count + " occurrences"));
         }
     }
 
-    /**
-     * 计算响应时间百分位数
-     */
-    private long calculatePercentile(List<Long> sortedTimes, int percentile) {
-        int index = (int) Math.ceil(percentile / 100.0 * sortedTimes.size()) - 1;
-        index = Math.max(0, Math.min(index, sortedTimes.size() - 1));
-        return sortedTimes.get(index);
-    }
-
     public static void main(String[] args) {
         try {
             // 读取配置参数
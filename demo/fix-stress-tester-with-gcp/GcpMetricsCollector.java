@@ -1,7 +1,9 @@
 package com.financial.fix.stresstest;
 
-import com.google.api.gax.rpc.UnaryCallable;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.InstantiatingGrpcChannelProvider;
 import com.google.cloud.monitoring.v3.MetricServiceClient;
+import com.google.cloud.monitoring.v3.MetricServiceSettings;
 import com.google.monitoring.v3.ListTimeSeriesRequest;
 import com.google.monitoring.v3.ProjectName;
 import com.google.monitoring.v3.TimeInterval;
@@ -10,142 +12,172 @@ import com.google.monitoring.v3.TypedValue;
 import com.google.protobuf.util.Timestamps;
 
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * GCP指标收集器，用于从GCP监控服务获取相关资源指标
  */
-public class GcpMetricsCollector {
+public class GcpMetricsCollector implements TargetMetricsFetcher {
     private final String projectId;
     private final MetricServiceClient metricClient;
     private final String vmInstanceId; // 被测试的FIX引擎所在VM实例ID
     private final String zone; // VM所在区域
+    // 各指标并发查询
+    private final ExecutorService queryExecutor;
 
     // 要收集的GCP指标名称
-    private static final String CPU_USAGE_METRIC = "compute.googleapis.com/instance/cpu/utilization";
-    private static final String NETWORK_RX_METRIC = "compute.googleapis.com/instance/network/received_bytes_count";
-    private static final String NETWORK_TX_METRIC = "compute.googleapis.com/instance/network/sent_bytes_count";
-    private static final String NETWORK_LATENCY_METRIC = "compute.googleapis.com/instance/network/effective_rtt";
-    private static final String FIREWALL_DROPPED_METRIC = "compute.googleapis.com/firewall/dropped_bytes_count";
+    public static final String CPU_USAGE_METRIC = "compute.googleapis.com/instance/cpu/utilization";
+    public static final String NETWORK_RX_METRIC = "compute.googleapis.com/instance/network/received_bytes_count";
+    public static final String NETWORK_TX_METRIC = "compute.googleapis.com/instance/network/sent_bytes_count";
+    public static final String NETWORK_LATENCY_METRIC = "compute.googleapis.com/instance/network/effective_rtt";
+    public static final String FIREWALL_DROPPED_METRIC = "compute.googleapis.com/firewall/dropped_bytes_count";
+    public static final List<String> METRIC_TYPES = Arrays.asList(CPU_USAGE_METRIC, NETWORK_RX_METRIC,
+            NETWORK_TX_METRIC, NETWORK_LATENCY_METRIC, FIREWALL_DROPPED_METRIC);
 
     public GcpMetricsCollector(String projectId, String vmInstanceId, String zone) throws Exception {
+        this(projectId, vmInstanceId, zone, createClient(System.getenv("GCP_MONITORING_ENDPOINT")));
+    }
+
+    public GcpMetricsCollector(String projectId, String vmInstanceId, String zone, MetricServiceClient metricClient) {
         this.projectId = projectId;
         this.vmInstanceId = vmInstanceId;
         this.zone = zone;
-        this.metricClient = MetricServiceClient.create();
+        this.metricClient = metricClient;
+        this.queryExecutor = Executors.newFixedThreadPool(METRIC_TYPES.size(), r -> {
+            Thread thread = new Thread(r, "gcp-metrics-query");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
-     * 收集指定时间段内的GCP指标
+     * 创建监控客户端；指定endpoint（host:port）时以明文、无凭据连接，用于本地的假监控服务
      */
-    public Map<String, Double> collectMetrics(Instant startTime, Instant endTime) {
-        Map<String, Double> metrics = new HashMap<>();
-        
-        // 构建时间区间
-        TimeInterval interval = TimeInterval.newBuilder()
-                .setStartTime(Timestamps.fromMillis(startTime.toEpochMilli()))
-                .setEndTime(Timestamps.fromMillis(endTime.toEpochMilli()))
+    public static MetricServiceClient createClient(String endpoint) throws Exception {
+        if (endpoint == null || endpoint.isEmpty()) {
+            return MetricServiceClient.create();
+        }
+        MetricServiceSettings settings = MetricServiceSettings.newBuilder()
+                .setEndpoint(endpoint)
+                .setCredentialsProvider(NoCredentialsProvider.create())
+                .setTransportChannelProvider(InstantiatingGrpcChannelProvider.newBuilder()
+                        .setEndpoint(endpoint)
+                        .setChannelConfigurator(builder -> builder.usePlaintext())
+                        .build())
                 .build();
+        return MetricServiceClient.create(settings);
+    }
+
+    /**
+     * 收集指定时间段内的GCP指标，各指标并发查询
+     */
+    public Map<String, Double> collectMetrics(Instant startTime, Instant endTime) {
+        long start = startTime.toEpochMilli();
+        long end = endTime.toEpochMilli();
 
+        Map<String, CompletableFuture<List<Point>>> futures = new LinkedHashMap<>();
+        for (String metricType : METRIC_TYPES) {
+            futures.put(metricType, CompletableFuture.supplyAsync(() -> fetchOrEmpty(metricType, start, end), queryExecutor));
+        }
+        Map<String, List<Point>> points = new HashMap<>();
+        futures.forEach((metricType, future) -> points.put(metricType, future.join()));
+        return summarize(points, start, end);
+    }
+
+    /**
+     * 按指标类型汇总数据点，轮询器从缓存汇总时使用同一口径
+     */
+    public static Map<String, Double> summarize(Map<String, List<Point>> points, long startMillis, long endMillis) {
+        Map<String, Double> metrics = new HashMap<>();
         // 收集CPU使用率
-        double cpuUsage = getMetricAverage(CPU_USAGE_METRIC, interval);
-        metrics.put("cpu_usage_average", cpuUsage);
-        
+        metrics.put("cpu_usage_average", average(points.get(CPU_USAGE_METRIC)));
         // 收集网络接收速率
-        double networkRx = getMetricRate(NETWORK_RX_METRIC, interval);
-        metrics.put("network_receive_bytes_per_sec", networkRx);
-        
+        metrics.put("network_receive_bytes_per_sec", rate(points.get(NETWORK_RX_METRIC), startMillis, endMillis));
         // 收集网络发送速率
-        double networkTx = getMetricRate(NETWORK_TX_METRIC, interval);
-        metrics.put("network_transmit_bytes_per_sec", networkTx);
-        
+        metrics.put("network_transmit_bytes_per_sec", rate(points.get(NETWORK_TX_METRIC), startMillis, endMillis));
         // 收集网络延迟
-        double networkLatency = getMetricAverage(NETWORK_LATENCY_METRIC, interval);
-        metrics.put("network_latency_ms", networkLatency);
-        
+        metrics.put("network_latency_ms", average(points.get(NETWORK_LATENCY_METRIC)));
         // 收集防火墙丢弃字节数
-        double firewallDropped = getMetricRate(FIREWALL_DROPPED_METRIC, interval);
-        metrics.put("firewall_dropped_bytes_per_sec", firewallDropped);
-        
+        metrics.put("firewall_dropped_bytes_per_sec", rate(points.get(FIREWALL_DROPPED_METRIC), startMillis, endMillis));
         return metrics;
     }
 
     /**
-     * 获取指标的平均值
+     * 查询(startMillis, endMillis]内的数据点，逐页读取全部结果
      */
-    private double getMetricAverage(String metricType, TimeInterval interval) {
+    @Override
+    public List<Point> fetch(String metricType, long startMillis, long endMillis) {
+        TimeInterval interval = TimeInterval.newBuilder()
+                .setStartTime(Timestamps.fromMillis(startMillis))
+                .setEndTime(Timestamps.fromMillis(endMillis))
+                .build();
         ListTimeSeriesRequest request = buildTimeSeriesRequest(metricType, interval);
-        UnaryCallable<ListTimeSeriesRequest, List<TimeSeries>> callable = metricClient.listTimeSeriesCallable();
-        
-        try {
-            List<TimeSeries> timeSeriesList = callable.call(request);
-            if (timeSeriesList.isEmpty()) {
-                return 0.0;
-            }
-            
-            // 计算平均值
-            double sum = 0.0;
-            int count = 0;
-            
-            for (TimeSeries ts : timeSeriesList) {
-                for (var point : ts.getPointsList()) {
-                    TypedValue value = point.getValue();
-                    if (value.hasDoubleValue()) {
-                        sum += value.getDoubleValue();
-                        count++;
-                    }
+
+        List<Point> points = new ArrayList<>();
+        for (TimeSeries ts : metricClient.listTimeSeries(request).iterateAll()) {
+            String series = ts.getResource().getLabelsMap() + "/" + ts.getMetric().getLabelsMap();
+            for (var point : ts.getPointsList()) {
+                TypedValue value = point.getValue();
+                double v;
+                if (value.hasDoubleValue()) {
+                    v = value.getDoubleValue();
+                } else if (value.hasInt64Value()) {
+                    v = value.getInt64Value();
+                } else {
+                    continue;
                 }
+                points.add(new Point(series,
+                        Timestamps.toMillis(point.getInterval().getStartTime()),
+                        Timestamps.toMillis(point.getInterval().getEndTime()), v));
             }
-            
-            return count > 0 ? sum / count : 0.0;
+        }
+        return points;
+    }
+
+    private List<Point> fetchOrEmpty(String metricType, long startMillis, long endMillis) {
+        try {
+            return fetch(metricType, startMillis, endMillis);
         } catch (Exception e) {
             System.err.println("Error collecting metric " + metricType + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * 数据点的平均值
+     */
+    static double average(List<Point> points) {
+        if (points == null || points.isEmpty()) {
             return 0.0;
         }
+        double sum = 0.0;
+        for (Point point : points) {
+            sum += point.getValue();
+        }
+        return sum / points.size();
     }
 
     /**
-     * 获取指标的速率（每秒变化量）
+     * 速率（总变化量 / 时间秒数）
      */
-    private double getMetricRate(String metricType, TimeInterval interval) {
-        ListTimeSeriesRequest request = buildTimeSeriesRequest(metricType, interval);
-        
-        try {
-            List<TimeSeries> timeSeriesList = metricClient.listTimeSeries(request);
-            if (timeSeriesList.isEmpty()) {
-                return 0.0;
-            }
-            
-            // 计算速率 (总变化量 / 时间秒数)
-            long startTime = Timestamps.toMillis(interval.getStartTime());
-            long endTime = Timestamps.toMillis(interval.getEndTime());
-            double durationSec = (endTime - startTime) / 1000.0;
-            
-            if (durationSec <= 0) {
-                return 0.0;
-            }
-            
-            double totalValue = 0.0;
-            for (TimeSeries ts : timeSeriesList) {
-                for (var point : ts.getPointsList()) {
-                    TypedValue value = point.getValue();
-                    if (value.hasInt64Value()) {
-                        totalValue += value.getInt64Value();
-                    } else if (value.hasDoubleValue()) {
-                        totalValue += value.getDoubleValue();
-                    }
-                }
-            }
-            
-            return totalValue / durationSec;
-        } catch (Exception e) {
-            System.err.println("Error collecting metric rate " + metricType + ": " + e.getMessage());
+    static double rate(List<Point> points, long startMillis, long endMillis) {
+        double durationSec = (endMillis - startMillis) / 1000.0;
+        if (points == null || durationSec <= 0) {
             return 0.0;
         }
+        double totalValue = 0.0;
+        for (Point point : points) {
+            totalValue += point.getValue();
+        }
+        return totalValue / durationSec;
     }
 
     /**
@@ -156,7 +188,7 @@ public class GcpMetricsCollector {
             "metric.type=\"%s\" AND resource.labels.instance_id=\"%s\" AND resource.labels.zone=\"%s\"",
             metricType, vmInstanceId, zone
         );
-        
+
         return ListTimeSeriesRequest.newBuilder()
                 .setName(ProjectName.of(projectId).toString())
                 .setFilter(filter)
@@ -169,9 +201,9 @@ public class GcpMetricsCollector {
      * 关闭客户端释放资源
      */
     public void close() {
+        queryExecutor.shutdown();
         if (metricClient != null) {
             metricClient.close();
         }
     }
 }
-    
\ No newline at end of file
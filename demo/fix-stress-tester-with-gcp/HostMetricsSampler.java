@@ -0,0 +1,95 @@
+package com.financial.fix.stresstest;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 测试期间按固定间隔（可低于1秒）采样主机指标，写入测试时间线；
+ * 同时保留每个指标的亚秒级峰值，时间线按秒平均后会被抹平
+ */
+public class HostMetricsSampler {
+    private final HostMetricsSource source;
+    private final MetricsTimeline timeline;
+    private final long intervalMillis;
+    private final String[] names;
+    private final int[] columns;
+    private final double[] values;
+    private final double[] peaks;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "host-metrics-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public HostMetricsSampler(HostMetricsSource source, MetricsTimeline timeline, long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Sampling interval must be positive: " + intervalMillis);
+        }
+        this.source = source;
+        this.timeline = timeline;
+        this.intervalMillis = intervalMillis;
+        this.names = source.metricNames();
+        this.columns = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            columns[i] = timeline.column(names[i], MetricsTimeline.Aggregation.MEAN);
+        }
+        this.values = new double[names.length];
+        this.peaks = new double[names.length];
+        Arrays.fill(peaks, Double.NaN);
+    }
+
+    public void start() {
+        // 先建立基准，第一个周期即可得到速率
+        source.sample(values);
+        scheduler.scheduleAtFixedRate(this::sampleOnce, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void sampleOnce() {
+        try {
+            long now = System.currentTimeMillis();
+            if (!source.sample(values)) {
+                return;
+            }
+            for (int i = 0; i < values.length; i++) {
+                double v = values[i];
+                if (Double.isNaN(v)) {
+                    continue;
+                }
+                timeline.record(now, columns[i], v);
+                if (Double.isNaN(peaks[i]) || v > peaks[i]) {
+                    peaks[i] = v;
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Host metrics sampling failed: " + e.getMessage());
+        }
+    }
+
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        source.close();
+    }
+
+    public String getSourceName() {
+        return source.name();
+    }
+
+    public String[] getMetricNames() {
+        return names.clone();
+    }
+
+    /**
+     * 指标的亚秒级峰值，采样线程停止后调用
+     */
+    public double getPeak(int index) {
+        return peaks[index];
+    }
+}
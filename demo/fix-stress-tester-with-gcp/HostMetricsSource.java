@@ -0,0 +1,50 @@
+package com.financial.fix.stresstest;
+
+import java.util.ServiceLoader;
+
+/**
+ * 主机指标来源SPI
+ * 实现类通过ServiceLoader注册（META-INF/services/com.financial.fix.stresstest.HostMetricsSource），
+ * 未注册任何可用实现时在Linux上使用内置的procfs实现。
+ * 采样线程按固定间隔调用sample，实现应复用内部缓冲，不在采样路径上分配对象
+ */
+public interface HostMetricsSource {
+
+    /**
+     * 来源名称，用于报告输出
+     */
+    String name();
+
+    /**
+     * 指标名称，顺序与sample写入的下标一致，调用期间不变
+     */
+    String[] metricNames();
+
+    /**
+     * 打开底层资源
+     * @return 当前环境不支持时返回false
+     */
+    boolean open();
+
+    /**
+     * 采样一次，把各指标当前值写入out，无法计算的值写Double.NaN
+     * @return 本次只建立了基准（例如首次采样无法计算速率）时返回false
+     */
+    boolean sample(double[] out);
+
+    void close();
+
+    /**
+     * 选择第一个可用的主机指标来源
+     * @return 没有可用来源时返回null
+     */
+    static HostMetricsSource load() {
+        for (HostMetricsSource source : ServiceLoader.load(HostMetricsSource.class)) {
+            if (source.open()) {
+                return source;
+            }
+        }
+        HostMetricsSource procfs = new ProcfsHostMetricsSource();
+        return procfs.open() ? procfs : null;
+    }
+}
@@ -0,0 +1,163 @@
+package com.financial.fix.stresstest;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 按秒对齐的测试时间线
+ * 应用层指标（发送、响应、响应时间）与主机指标写入同一时间线，以测试开始为第0秒，
+ * 每列按秒聚合：计数类列求和，采样类列取平均
+ */
+public class MetricsTimeline {
+
+    public enum Aggregation { SUM, MEAN }
+
+    private final long startMillis;
+    private final List<String> columns = new ArrayList<>();
+    private final List<Aggregation> aggregations = new ArrayList<>();
+    private final Map<String, Integer> columnIndex = new HashMap<>();
+    // 秒偏移 -> 该秒的聚合
+    private final TreeMap<Long, Row> rows = new TreeMap<>();
+
+    private static class Row {
+        double[] sums;
+        int[] counts;
+
+        Row(int width) {
+            sums = new double[width];
+            counts = new int[width];
+        }
+
+        void ensure(int width) {
+            if (sums.length < width) {
+                sums = Arrays.copyOf(sums, width);
+                counts = Arrays.copyOf(counts, width);
+            }
+        }
+    }
+
+    public MetricsTimeline(long startMillis) {
+        this.startMillis = startMillis;
+    }
+
+    /**
+     * 注册一列，已存在时返回原下标
+     */
+    public synchronized int column(String name, Aggregation aggregation) {
+        Integer index = columnIndex.get(name);
+        if (index != null) {
+            return index;
+        }
+        columns.add(name);
+        aggregations.add(aggregation);
+        columnIndex.put(name, columns.size() - 1);
+        return columns.size() - 1;
+    }
+
+    /**
+     * 记录某一时刻的值，早于测试开始的记录计入第0秒
+     */
+    public synchronized void record(long timestampMillis, int column, double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        add(secondOf(timestampMillis), column, value, 1);
+    }
+
+    /**
+     * 合并一批已在调用方按秒累加好的记录：sum为这批值之和，count为记录条数
+     */
+    public synchronized void add(long second, int column, double sum, long count) {
+        if (count <= 0) {
+            return;
+        }
+        Row row = rows.get(second);
+        if (row == null) {
+            row = new Row(columns.size());
+            rows.put(second, row);
+        }
+        row.ensure(columns.size());
+        row.sums[column] += sum;
+        row.counts[column] += (int) count;
+    }
+
+    /**
+     * 时间戳所在的秒偏移，早于测试开始的计为第0秒
+     */
+    public long secondOf(long timestampMillis) {
+        return Math.max(0, (timestampMillis - startMillis) / 1000);
+    }
+
+    /**
+     * 指定列在某一秒的值，该秒没有记录时返回NaN（求和列返回0）
+     */
+    public synchronized double value(long second, int column) {
+        Row row = rows.get(second);
+        boolean sum = aggregations.get(column) == Aggregation.SUM;
+        if (row == null || column >= row.sums.length || row.counts[column] == 0) {
+            return sum ? 0 : Double.NaN;
+        }
+        return sum ? row.sums[column] : row.sums[column] / row.counts[column];
+    }
+
+    /**
+     * 指定列各秒值的平均与最大值，没有数据时返回null
+     */
+    public synchronized double[] summarize(String name) {
+        Integer column = columnIndex.get(name);
+        if (column == null || rows.isEmpty()) {
+            return null;
+        }
+        double total = 0;
+        double max = Double.NEGATIVE_INFINITY;
+        int seconds = 0;
+        for (long second = rows.firstKey(); second <= rows.lastKey(); second++) {
+            double v = value(second, column);
+            if (Double.isNaN(v)) {
+                continue;
+            }
+            total += v;
+            max = Math.max(max, v);
+            seconds++;
+        }
+        return seconds == 0 ? null : new double[] {total / seconds, max};
+    }
+
+    public synchronized List<String> getColumns() {
+        return new ArrayList<>(columns);
+    }
+
+    /**
+     * 以CSV输出完整时间线，没有记录的秒也输出一行，便于与其他数据源对齐
+     */
+    public synchronized void writeCsv(String file) throws IOException {
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("second,epoch_ms");
+            for (String column : columns) {
+                writer.write("," + column);
+            }
+            writer.write("\n");
+            if (rows.isEmpty()) {
+                return;
+            }
+            for (long second = 0; second <= rows.lastKey(); second++) {
+                StringBuilder line = new StringBuilder();
+                line.append(second).append(',').append(startMillis + second * 1000);
+                for (int c = 0; c < columns.size(); c++) {
+                    double v = value(second, c);
+                    line.append(',');
+                    if (!Double.isNaN(v)) {
+                        line.append(String.format("%.2f", v));
+                    }
+                }
+                writer.write(line.append('\n').toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.financial.fix.stresstest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于Linux procfs的主机指标来源
+ * 读取/proc/stat、/proc/net/dev、/proc/net/snmp、/proc/net/sockstat：
+ * 文件只打开一次，每次采样用pread从偏移0重读到复用的直接缓冲区，逐字节解析数字，采样路径上不分配对象
+ */
+public class ProcfsHostMetricsSource implements HostMetricsSource {
+
+    private static final String[] METRICS = {
+        "host_cpu_pct",
+        "host_cpu_iowait_pct",
+        "host_cpu_steal_pct",
+        "net_rx_bytes_per_sec",
+        "net_tx_bytes_per_sec",
+        "net_rx_packets_per_sec",
+        "net_tx_packets_per_sec",
+        "net_drops_per_sec",
+        "tcp_out_segs_per_sec",
+        "tcp_retrans_segs_per_sec",
+        "tcp_retrans_pct",
+        "tcp_sockets_inuse",
+        "tcp_sockets_orphan",
+        "tcp_sockets_tw",
+        "tcp_mem_pages"
+    };
+
+    private static final byte[] CPU = ascii("cpu ");
+    private static final byte[] LOOPBACK = ascii("lo:");
+    private static final byte[] TCP_SNMP = ascii("Tcp:");
+    private static final byte[] OUT_SEGS = ascii("OutSegs");
+    private static final byte[] RETRANS_SEGS = ascii("RetransSegs");
+    private static final byte[] TCP_SOCKSTAT = ascii("TCP:");
+    private static final byte[] INUSE = ascii("inuse");
+    private static final byte[] ORPHAN = ascii("orphan");
+    private static final byte[] TW = ascii("tw");
+    private static final byte[] MEM = ascii("mem");
+
+    private final Path procRoot;
+    private FileChannel stat;
+    private FileChannel netDev;
+    private FileChannel snmp;
+    private FileChannel sockstat;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private int length;
+    // 解析游标，parseLong等方法从此处读取并推进
+    private int pos;
+
+    // 上次采样的累计值
+    private boolean hasBaseline;
+    private long lastNanos;
+    private long lastCpuTotal;
+    private long lastCpuIdle;
+    private long lastCpuIowait;
+    private long lastCpuSteal;
+    private long lastRxBytes;
+    private long lastTxBytes;
+    private long lastRxPackets;
+    private long lastTxPackets;
+    private long lastDrops;
+    private long lastOutSegs;
+    private long lastRetransSegs;
+
+    public ProcfsHostMetricsSource() {
+        this(Paths.get("/proc"));
+    }
+
+    /**
+     * @param procRoot procfs挂载点，容器中可指向宿主机的/proc
+     */
+    public ProcfsHostMetricsSource(Path procRoot) {
+        this.procRoot = procRoot;
+    }
+
+    @Override
+    public String name() {
+        return "procfs(" + procRoot + ")";
+    }
+
+    @Override
+    public String[] metricNames() {
+        return METRICS.clone();
+    }
+
+    @Override
+    public boolean open() {
+        try {
+            stat = FileChannel.open(procRoot.resolve("stat"), StandardOpenOption.READ);
+            netDev = FileChannel.open(procRoot.resolve("net/dev"), StandardOpenOption.READ);
+            snmp = FileChannel.open(procRoot.resolve("net/snmp"), StandardOpenOption.READ);
+            sockstat = FileChannel.open(procRoot.resolve("net/sockstat"), StandardOpenOption.READ);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            close();
+            return false;
+        }
+    }
+
+    @Override
+    public boolean sample(double[] out) {
+        long nanos = System.nanoTime();
+        try {
+            // cpu行: user nice system idle iowait irq softirq steal
+            read(stat);
+            long cpuTotal = 0;
+            long cpuIdle = 0;
+            long cpuIowait = 0;
+            long cpuSteal = 0;
+            if (startsWith(0, CPU)) {
+                pos = CPU.length;
+                for (int i = 0; i < 8; i++) {
+                    long value = parseLong();
+                    cpuTotal += value;
+                    if (i == 3) {
+                        cpuIdle = value;
+                    } else if (i == 4) {
+                        cpuIowait = value;
+                    } else if (i == 7) {
+                        cpuSteal = value;
+                    }
+                }
+            }
+
+            // 跳过两行表头，汇总除lo以外所有网卡
+            read(netDev);
+            long rxBytes = 0;
+            long txBytes = 0;
+            long rxPackets = 0;
+            long txPackets = 0;
+            long drops = 0;
+            int line = nextLine(nextLine(0));
+            while (line < length) {
+                int name = skipSpaces(line);
+                int colon = indexOf(name, (byte) ':');
+                if (colon < 0) {
+                    break;
+                }
+                if (!startsWith(name, LOOPBACK)) {
+                    pos = colon + 1;
+                    for (int i = 0; i < 12; i++) {
+                        long value = parseLong();
+                        switch (i) {
+                            case 0: rxBytes += value; break;
+                            case 1: rxPackets += value; break;
+                            case 3: drops += value; break;
+                            case 8: txBytes += value; break;
+                            case 9: txPackets += value; break;
+                            case 11: drops += value; break;
+                            default: break;
+                        }
+                    }
+                }
+                line = nextLine(colon);
+            }
+
+            // Tcp:表头行给出列名，紧接的Tcp:行是对应的值
+            read(snmp);
+            long outSegs = 0;
+            long retransSegs = 0;
+            int header = findLine(0, TCP_SNMP);
+            if (header >= 0) {
+                int outSegsColumn = -1;
+                int retransColumn = -1;
+                int column = 0;
+                int end = nextLine(header);
+                pos = header + TCP_SNMP.length;
+                while (true) {
+                    pos = skipSpaces(pos);
+                    if (pos >= end || buffer.get(pos) == '\n') {
+                        break;
+                    }
+                    if (tokenEquals(pos, OUT_SEGS)) {
+                        outSegsColumn = column;
+                    } else if (tokenEquals(pos, RETRANS_SEGS)) {
+                        retransColumn = column;
+                    }
+                    pos = skipToken(pos);
+                    column++;
+                }
+                int values = findLine(end, TCP_SNMP);
+                if (values >= 0) {
+                    pos = values + TCP_SNMP.length;
+                    for (int i = 0; i < column; i++) {
+                        long value = parseLong();
+                        if (i == outSegsColumn) {
+                            outSegs = value;
+                        } else if (i == retransColumn) {
+                            retransSegs = value;
+                        }
+                    }
+                }
+            }
+
+            // TCP: inuse N orphan N tw N alloc N mem N
+            read(sockstat);
+            int tcp = findLine(0, TCP_SOCKSTAT);
+            out[11] = Double.NaN;
+            out[12] = Double.NaN;
+            out[13] = Double.NaN;
+            out[14] = Double.NaN;
+            if (tcp >= 0) {
+                int end = nextLine(tcp);
+                pos = tcp + TCP_SOCKSTAT.length;
+                while (true) {
+                    pos = skipSpaces(pos);
+                    if (pos >= end || buffer.get(pos) == '\n') {
+                        break;
+                    }
+                    int key = pos;
+                    pos = skipToken(pos);
+                    long value = parseLong();
+                    if (tokenEquals(key, INUSE)) {
+                        out[11] = value;
+                    } else if (tokenEquals(key, ORPHAN)) {
+                        out[12] = value;
+                    } else if (tokenEquals(key, TW)) {
+                        out[13] = value;
+                    } else if (tokenEquals(key, MEM)) {
+                        out[14] = value;
+                    }
+                }
+            }
+
+            boolean hadBaseline = hasBaseline;
+            if (hadBaseline) {
+                double seconds = (nanos - lastNanos) / 1_000_000_000.0;
+                long cpuDelta = cpuTotal - lastCpuTotal;
+                out[0] = cpuDelta > 0 ? 100.0 * (cpuDelta - (cpuIdle - lastCpuIdle) - (cpuIowait - lastCpuIowait)) / cpuDelta : Double.NaN;
+                out[1] = cpuDelta > 0 ? 100.0 * (cpuIowait - lastCpuIowait) / cpuDelta : Double.NaN;
+                out[2] = cpuDelta > 0 ? 100.0 * (cpuSteal - lastCpuSteal) / cpuDelta : Double.NaN;
+                out[3] = (rxBytes - lastRxBytes) / seconds;
+                out[4] = (txBytes - lastTxBytes) / seconds;
+                out[5] = (rxPackets - lastRxPackets) / seconds;
+                out[6] = (txPackets - lastTxPackets) / seconds;
+                out[7] = (drops - lastDrops) / seconds;
+                long outDelta = outSegs - lastOutSegs;
+                long retransDelta = retransSegs - lastRetransSegs;
+                out[8] = outDelta / seconds;
+                out[9] = retransDelta / seconds;
+                out[10] = outDelta > 0 ? 100.0 * retransDelta / outDelta : 0.0;
+            }
+
+            hasBaseline = true;
+            lastNanos = nanos;
+            lastCpuTotal = cpuTotal;
+            lastCpuIdle = cpuIdle;
+            lastCpuIowait = cpuIowait;
+            lastCpuSteal = cpuSteal;
+            lastRxBytes = rxBytes;
+            lastTxBytes = txBytes;
+            lastRxPackets = rxPackets;
+            lastTxPackets = txPackets;
+            lastDrops = drops;
+            lastOutSegs = outSegs;
+            lastRetransSegs = retransSegs;
+            return hadBaseline;
+        } catch (IOException e) {
+            System.err.println("Error reading procfs metrics: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        for (FileChannel channel : new FileChannel[] {stat, netDev, snmp, sockstat}) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * 从偏移0重读整个文件；procfs内容由内核按读取生成，文件大小恒为0，只能读到EOF为止
+     */
+    private void read(FileChannel channel) throws IOException {
+        buffer.clear();
+        long offset = 0;
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                // 网卡很多时扩容，只在首次遇到时发生
+                ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            int n = channel.read(buffer, offset);
+            if (n <= 0) {
+                break;
+            }
+            offset += n;
+        }
+        length = buffer.position();
+    }
+
+    private long parseLong() {
+        int i = skipSpaces(pos);
+        boolean negative = false;
+        if (i < length && buffer.get(i) == '-') {
+            negative = true;
+            i++;
+        }
+        long value = 0;
+        while (i < length) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            value = value * 10 + (b - '0');
+            i++;
+        }
+        pos = i;
+        return negative ? -value : value;
+    }
+
+    private int skipSpaces(int i) {
+        while (i < length && buffer.get(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private int skipToken(int i) {
+        while (i < length) {
+            byte b = buffer.get(i);
+            if (b == ' ' || b == '\n') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private int nextLine(int i) {
+        while (i < length && buffer.get(i) != '\n') {
+            i++;
+        }
+        return i + 1;
+    }
+
+    private int indexOf(int i, byte target) {
+        while (i < length) {
+            byte b = buffer.get(i);
+            if (b == target) {
+                return i;
+            }
+            if (b == '\n') {
+                return -1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private int findLine(int from, byte[] prefix) {
+        int line = from;
+        while (line < length) {
+            if (startsWith(line, prefix)) {
+                return line;
+            }
+            line = nextLine(line);
+        }
+        return -1;
+    }
+
+    private boolean startsWith(int i, byte[] prefix) {
+        if (i + prefix.length > length) {
+            return false;
+        }
+        for (int k = 0; k < prefix.length; k++) {
+            if (buffer.get(i + k) != prefix[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean tokenEquals(int i, byte[] token) {
+        if (!startsWith(i, token)) {
+            return false;
+        }
+        int end = i + token.length;
+        return end >= length || buffer.get(end) == ' ' || buffer.get(end) == '\n';
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,168 @@
+package com.financial.fix.stresstest;
+
+import com.finance.fix.tester.LatencyHistogram;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单遍流式结果汇总
+ * 客户端在发送和收到响应时各更新一次计数和直方图，不保留逐条结果；
+ * 时间线列先累加到按秒分的LongAdder中，热路径上不取时间线的锁，后台线程每秒把已结束的秒合并进时间线。
+ * 测试结束时直接读取汇总值，耗时与消息总数无关
+ */
+public class ResultAggregator {
+    public static final String NO_RESPONSE = "No response";
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final Map<String, LongAdder> failureReasons = new ConcurrentHashMap<>();
+    // 成功响应的响应时间（毫秒）
+    private final LatencyHistogram responseTimes = new LatencyHistogram();
+
+    private final MetricsTimeline timeline;
+    private final int sentColumn;
+    private final int respondedColumn;
+    private final int failedColumn;
+    private final int responseColumn;
+
+    // 时间线秒偏移 -> 该秒尚未合并进时间线的累加值
+    private final Map<Long, SecondCounters> seconds = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService folder = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "result-aggregator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 一秒内各时间线列的累加值
+     */
+    private static class SecondCounters {
+        final LongAdder sent = new LongAdder();
+        final LongAdder responded = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder responseMsSum = new LongAdder();
+    }
+
+    public ResultAggregator(MetricsTimeline timeline) {
+        this.timeline = timeline;
+        this.sentColumn = timeline.column("app_sent", MetricsTimeline.Aggregation.SUM);
+        this.respondedColumn = timeline.column("app_responded", MetricsTimeline.Aggregation.SUM);
+        this.failedColumn = timeline.column("app_failed", MetricsTimeline.Aggregation.SUM);
+        this.responseColumn = timeline.column("app_response_ms", MetricsTimeline.Aggregation.MEAN);
+    }
+
+    /**
+     * 每秒把已结束的秒合并进时间线
+     */
+    public void start() {
+        folder.scheduleAtFixedRate(() -> fold(false), 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 停止后台合并并把剩余的秒全部合并进时间线，在读取时间线之前调用
+     */
+    public void stop() {
+        folder.shutdown();
+        try {
+            folder.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        fold(true);
+    }
+
+    public void recordSent(long timestampMillis) {
+        sent.increment();
+        counters(timestampMillis).sent.increment();
+    }
+
+    public void recordSuccess(long timestampMillis, long responseTimeMs) {
+        successes.increment();
+        responseTimes.record(responseTimeMs);
+        SecondCounters counters = counters(timestampMillis);
+        counters.responded.increment();
+        counters.responseMsSum.add(responseTimeMs);
+    }
+
+    /**
+     * 记录收到的失败响应
+     */
+    public void recordFailure(long timestampMillis, String reason, long responseTimeMs) {
+        recordFailures(timestampMillis, reason, 1);
+        SecondCounters counters = counters(timestampMillis);
+        counters.responded.increment();
+        counters.responseMsSum.add(responseTimeMs);
+    }
+
+    /**
+     * 记录一批没有响应的失败，例如测试结束时仍未应答的消息
+     */
+    public void recordFailures(long timestampMillis, String reason, long count) {
+        if (count <= 0) {
+            return;
+        }
+        failures.add(count);
+        failureReasons.computeIfAbsent(reason, r -> new LongAdder()).add(count);
+        counters(timestampMillis).failed.add(count);
+    }
+
+    private SecondCounters counters(long timestampMillis) {
+        return seconds.computeIfAbsent(timeline.secondOf(timestampMillis), s -> new SecondCounters());
+    }
+
+    /**
+     * 合并已结束的秒；记录时间戳取自调用时刻，多留一秒给取了时间戳还没累加完的线程
+     */
+    private void fold(boolean all) {
+        long current = timeline.secondOf(System.currentTimeMillis());
+        Iterator<Map.Entry<Long, SecondCounters>> iterator = seconds.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, SecondCounters> entry = iterator.next();
+            long second = entry.getKey();
+            if (!all && second >= current - 1) {
+                continue;
+            }
+            iterator.remove();
+            SecondCounters counters = entry.getValue();
+            long responded = counters.responded.sum();
+            timeline.add(second, sentColumn, counters.sent.sum(), counters.sent.sum());
+            timeline.add(second, respondedColumn, responded, responded);
+            timeline.add(second, failedColumn, counters.failed.sum(), counters.failed.sum());
+            timeline.add(second, responseColumn, counters.responseMsSum.sum(), responded);
+        }
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getSuccesses() {
+        return successes.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public Map<String, Long> getFailureReasons() {
+        Map<String, Long> reasons = new LinkedHashMap<>();
+        failureReasons.forEach((reason, count) -> reasons.put(reason, count.sum()));
+        return reasons;
+    }
+
+    public LatencyHistogram getResponseTimes() {
+        return responseTimes;
+    }
+
+    public double getThroughput(long durationMillis) {
+        return durationMillis > 0 ? sent.sum() * 1000.0 / durationMillis : 0;
+    }
+}
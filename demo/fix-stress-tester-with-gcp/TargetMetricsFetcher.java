@@ -0,0 +1,51 @@
+package com.financial.fix.stresstest;
+
+import java.util.List;
+
+/**
+ * 被测目标侧指标的查询接口
+ * GcpMetricsCollector是基于Cloud Monitoring的实现，本地联调时可替换为假实现
+ */
+public interface TargetMetricsFetcher {
+
+    /**
+     * 查询指标在(startMillis, endMillis]内的数据点
+     */
+    List<Point> fetch(String metricType, long startMillis, long endMillis) throws Exception;
+
+    /**
+     * 一个数据点；累计类（DELTA）指标的value是[startMillis, endMillis]区间内的增量
+     */
+    class Point {
+        private final String series;
+        private final long startMillis;
+        private final long endMillis;
+        private final double value;
+
+        /**
+         * @param series 所属时间序列的标识（资源与指标标签），同一指标可能有多条序列
+         */
+        public Point(String series, long startMillis, long endMillis, double value) {
+            this.series = series;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.value = value;
+        }
+
+        public String getSeries() {
+            return series;
+        }
+
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        public long getEndMillis() {
+            return endMillis;
+        }
+
+        public double getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.financial.fix.stresstest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 测试期间持续拉取被测目标侧指标
+ * 每个周期对所有指标并发查询，每条序列只查询上次拉取到的最后一个点之后的新数据；
+ * 拉取到的点按指标缓存并写入测试时间线，与本机和应用层指标对齐，测试结束时直接从缓存汇总，不再整段重查
+ */
+public class TargetMetricsPoller {
+
+    private static class MetricDef {
+        final String type;
+        final String column;
+        // 累计类指标的点是区间增量，写入时间线前换算为每秒速率
+        final boolean delta;
+        final double scale;
+        int timelineColumn;
+
+        MetricDef(String type, String column, boolean delta, double scale) {
+            this.type = type;
+            this.column = column;
+            this.delta = delta;
+            this.scale = scale;
+        }
+    }
+
+    /**
+     * 单个指标的缓存：序列 -> (点结束时间 -> 点)
+     */
+    private static class MetricCache {
+        final Map<String, TreeMap<Long, TargetMetricsFetcher.Point>> series = new HashMap<>();
+        // 下一次查询的起点，取各序列最后一个点的最小结束时间
+        long watermark;
+
+        MetricCache(long watermark) {
+            this.watermark = watermark;
+        }
+    }
+
+    private final TargetMetricsFetcher fetcher;
+    private final MetricsTimeline timeline;
+    private final long pollIntervalMillis;
+    private final List<MetricDef> metrics = new ArrayList<>();
+    private final Map<String, MetricCache> caches = new ConcurrentHashMap<>();
+    private final ExecutorService fetchExecutor;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "target-metrics-poller");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile long polls = 0;
+    private final AtomicLong fetchedPoints = new AtomicLong();
+
+    public TargetMetricsPoller(TargetMetricsFetcher fetcher, MetricsTimeline timeline, long pollIntervalMillis) {
+        if (pollIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Poll interval must be positive: " + pollIntervalMillis);
+        }
+        this.fetcher = fetcher;
+        this.timeline = timeline;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.fetchExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "target-metrics-fetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 使用GcpMetricsCollector的指标创建轮询器
+     */
+    public static TargetMetricsPoller forGcp(TargetMetricsFetcher fetcher, MetricsTimeline timeline, long pollIntervalMillis) {
+        TargetMetricsPoller poller = new TargetMetricsPoller(fetcher, timeline, pollIntervalMillis);
+        poller.addGauge(GcpMetricsCollector.CPU_USAGE_METRIC, "target_cpu_pct", 100);
+        poller.addDelta(GcpMetricsCollector.NETWORK_RX_METRIC, "target_net_rx_bytes_per_sec");
+        poller.addDelta(GcpMetricsCollector.NETWORK_TX_METRIC, "target_net_tx_bytes_per_sec");
+        poller.addGauge(GcpMetricsCollector.NETWORK_LATENCY_METRIC, "target_rtt_ms", 1);
+        poller.addDelta(GcpMetricsCollector.FIREWALL_DROPPED_METRIC, "target_fw_dropped_bytes_per_sec");
+        return poller;
+    }
+
+    public void addGauge(String metricType, String column, double scale) {
+        metrics.add(new MetricDef(metricType, column, false, scale));
+    }
+
+    public void addDelta(String metricType, String column) {
+        metrics.add(new MetricDef(metricType, column, true, 1));
+    }
+
+    /**
+     * 从startMillis开始拉取，之后每个周期拉取一次
+     */
+    public void start(long startMillis) {
+        for (MetricDef metric : metrics) {
+            metric.timelineColumn = timeline.column(metric.column, MetricsTimeline.Aggregation.MEAN);
+            caches.put(metric.type, new MetricCache(startMillis));
+        }
+        scheduler.scheduleWithFixedDelay(this::pollOnce, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止周期拉取并做最后一次拉取
+     */
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pollOnce();
+        fetchExecutor.shutdown();
+    }
+
+    /**
+     * 拉取一轮：所有指标并发查询，等待全部完成
+     */
+    synchronized void pollOnce() {
+        long now = System.currentTimeMillis();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (MetricDef metric : metrics) {
+            MetricCache cache = caches.get(metric.type);
+            long from = cache.watermark;
+            if (from >= now) {
+                continue;
+            }
+            futures.add(CompletableFuture
+                .supplyAsync(() -> {
+                    try {
+                        return fetcher.fetch(metric.type, from, now);
+                    } catch (Exception e) {
+                        System.err.println("Error polling target metric " + metric.type + ": " + e.getMessage());
+                        return new ArrayList<TargetMetricsFetcher.Point>();
+                    }
+                }, fetchExecutor)
+                .thenAccept(points -> merge(metric, cache, points)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        polls++;
+    }
+
+    private void merge(MetricDef metric, MetricCache cache, List<TargetMetricsFetcher.Point> points) {
+        synchronized (cache) {
+            for (TargetMetricsFetcher.Point point : points) {
+                TreeMap<Long, TargetMetricsFetcher.Point> series =
+                    cache.series.computeIfAbsent(point.getSeries(), s -> new TreeMap<>());
+                // 查询区间两端闭合时边界点会重复返回，按结束时间去重
+                if (series.put(point.getEndMillis(), point) != null) {
+                    continue;
+                }
+                fetchedPoints.incrementAndGet();
+                double value = point.getValue() * metric.scale;
+                if (metric.delta) {
+                    long spanMillis = point.getEndMillis() - point.getStartMillis();
+                    if (spanMillis <= 0) {
+                        continue;
+                    }
+                    value = value * 1000.0 / spanMillis;
+                }
+                timeline.record(point.getEndMillis(), metric.timelineColumn, value);
+            }
+            if (!cache.series.isEmpty()) {
+                long watermark = Long.MAX_VALUE;
+                for (TreeMap<Long, TargetMetricsFetcher.Point> series : cache.series.values()) {
+                    watermark = Math.min(watermark, series.lastKey());
+                }
+                cache.watermark = Math.max(cache.watermark, watermark);
+            }
+        }
+    }
+
+    /**
+     * 缓存中结束时间落在(startMillis, endMillis]内的点
+     */
+    public Map<String, List<TargetMetricsFetcher.Point>> getCachedPoints(long startMillis, long endMillis) {
+        Map<String, List<TargetMetricsFetcher.Point>> result = new LinkedHashMap<>();
+        for (MetricDef metric : metrics) {
+            MetricCache cache = caches.get(metric.type);
+            List<TargetMetricsFetcher.Point> points = new ArrayList<>();
+            if (cache != null) {
+                synchronized (cache) {
+                    for (TreeMap<Long, TargetMetricsFetcher.Point> series : cache.series.values()) {
+                        points.addAll(series.subMap(startMillis, false, endMillis, true).values());
+                    }
+                }
+            }
+            result.put(metric.type, points);
+        }
+        return result;
+    }
+
+    /**
+     * 按GcpMetricsCollector.collectMetrics的口径从缓存汇总
+     */
+    public Map<String, Double> summarize(Instant startTime, Instant endTime) {
+        long start = startTime.toEpochMilli();
+        long end = endTime.toEpochMilli();
+        return GcpMetricsCollector.summarize(getCachedPoints(start, end), start, end);
+    }
+
+    public long getPolls() {
+        return polls;
+    }
+
+    public long getFetchedPoints() {
+        return fetchedPoints.get();
+    }
+}
@@ -6,13 +6,11 @@ import quickfix.fix44.Heartbeat;
 import quickfix.fix44.TestRequest;
 import org.apache.commons.cli.*;
 
-import java.io.File;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
 
 public class FixPressureTester {
     private final String configTemplatePath;
@@ -24,9 +22,9 @@ public class FixPressureTester {
     
     // 全局统计
     private final AtomicInteger totalSent = new AtomicInteger(0);
-    private final AtomicInteger totalReceived = new AtomicInteger(0);
     private final AtomicInteger totalTimeout = new AtomicInteger(0);
-    private final ConcurrentLinkedQueue<Long> responseTimes = new ConcurrentLinkedQueue<>();
+    // 响应时间流式汇总，不保留逐条数据
+    private final ResultAggregator results = new ResultAggregator();
     
     public FixPressureTester(String configTemplatePath, int numSessions, 
                             int messagesPerSession, int messagesPerSecond, int durationMinutes) {
@@ -48,15 +46,22 @@ public class FixPressureTester {
         List<SessionManager> sessionManagers = new ArrayList<>();
         ExecutorService executor = Executors.newFixedThreadPool(numSessions);
         
+        // 模板只解析一次，各会话配置在内存中派生
+        SessionSettingsBuilder settingsBuilder = SessionSettingsBuilder.fromFile(configTemplatePath);
+        
+        // 所有会话共用一个异步二进制日志，避免逐条同步打印到控制台；每次运行写入新目录
+        BinaryLogFactory logFactory = new BinaryLogFactory("fixlogs_" + System.currentTimeMillis());
+        
         // 启动所有会话
         for (int i = 0; i < numSessions; i++) {
             SessionManager manager = new SessionManager(
-                createSessionConfig(i), 
+                settingsBuilder.build(i), 
                 messagesPerSession,
                 messagesPerSecond,
                 durationMinutes,
                 timeoutMillis,
-                this::onResponseReceived
+                this::onResponseReceived,
+                logFactory
             );
             sessionManagers.add(manager);
             executor.submit(manager);
@@ -65,6 +70,7 @@ public class FixPressureTester {
         // 等待所有会话完成
         executor.shutdown();
         executor.awaitTermination(durationMinutes > 0 ? durationMinutes + 5 : 60, TimeUnit.MINUTES);
+        logFactory.close();
         
         // 检查超时的请求
         checkTimeouts(sessionManagers);
@@ -73,27 +79,8 @@ public class FixPressureTester {
         generateReport();
     }
     
-    private SessionSettings createSessionConfig(int sessionId) throws Exception {
-        // 基于模板创建会话配置，为每个会话设置唯一ID
-        SessionSettings baseSettings = new SessionSettings(new File(configTemplatePath));
-        SessionSettings sessionSettings = new SessionSettings();
-        
-        // 复制基础配置并修改会话ID
-        for (Dictionary dict : baseSettings) {
-            Dictionary newDict = new Dictionary();
-            newDict.putAll(dict);
-            newDict.setString(SessionID.BEGINSTRING, dict.getString(SessionID.BEGINSTRING));
-            newDict.setString(SessionID.SENDERCOMPID, dict.getString(SessionID.SENDERCOMPID) + "_" + sessionId);
-            newDict.setString(SessionID.TARGETCOMPID, dict.getString(SessionID.TARGETCOMPID));
-            sessionSettings.set(new SessionID(newDict), newDict);
-        }
-        
-        return sessionSettings;
-    }
-    
     private void onResponseReceived(long responseTime) {
-        totalReceived.incrementAndGet();
-        responseTimes.add(responseTime);
+        results.recordResponse(responseTime);
     }
     
     private void checkTimeouts(List<SessionManager> sessionManagers) {
@@ -107,22 +94,18 @@ public class FixPressureTester {
     private void generateReport() {
         System.out.println("\n===== 测试报告 =====");
         System.out.println("总发送消息数: " + totalSent.get());
-        System.out.println("总接收响应数: " + totalReceived.get());
+        System.out.println("总接收响应数: " + results.getResponses());
         System.out.println("超时消息数: " + totalTimeout.get());
         System.out.println("响应率: " + String.format("%.2f%%", 
-            totalSent.get() > 0 ? (double)totalReceived.get() / totalSent.get() * 100 : 0));
+            totalSent.get() > 0 ? (double)results.getResponses() / totalSent.get() * 100 : 0));
         
-        if (!responseTimes.isEmpty()) {
-            List<Long> sortedTimes = responseTimes.stream().sorted().collect(Collectors.toList());
-            long min = sortedTimes.get(0);
-            long max = sortedTimes.get(sortedTimes.size() - 1);
-            long avg = (long) sortedTimes.stream().mapToLong(Long::longValue).average().orElse(0);
-            
-            int p95Index = (int) (sortedTimes.size() * 0.95);
-            long p95 = sortedTimes.get(p95Index);
-            
-            int p99Index = (int) (sortedTimes.size() * 0.99);
-            long p99 = sortedTimes.get(p99Index);
+        LatencyHistogram responseTimes = results.getResponseTimes();
+        if (responseTimes.getCount() > 0) {
+            long min = responseTimes.getMin();
+            long max = responseTimes.getMax();
+            long avg = (long) responseTimes.getMean();
+            long p95 = responseTimes.getValueAtPercentile(95);
+            long p99 = responseTimes.getValueAtPercentile(99);
             
             System.out.println("\n响应时间统计 (毫秒):");
             System.out.println("最小值: " + min);
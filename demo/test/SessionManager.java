@@ -21,7 +21,7 @@ public class SessionManager implements Runnable {
     
     private Initiator initiator;
     private final MessageStoreFactory messageStoreFactory = new MemoryStoreFactory();
-    private final LogFactory logFactory = new ScreenLogFactory(true, true, true);
+    private final LogFactory logFactory;
     private final MessageFactory messageFactory = new DefaultMessageFactory();
     
     // 跟踪请求的映射表: TestReqID -> 发送时间
@@ -31,13 +31,15 @@ public class SessionManager implements Runnable {
     
     public SessionManager(SessionSettings settings, int messagesPerSession, 
                          int messagesPerSecond, int durationMinutes,
-                         long timeoutMillis, ResponseListener responseListener) {
+                         long timeoutMillis, ResponseListener responseListener,
+                         LogFactory logFactory) {
         this.settings = settings;
         this.messagesPerSession = messagesPerSession;
         this.messagesPerSecond = messagesPerSecond;
         this.durationMinutes = durationMinutes;
         this.timeoutMillis = timeoutMillis;
         this.responseListener = responseListener;
+        this.logFactory = logFactory;
     }
     
     @Override
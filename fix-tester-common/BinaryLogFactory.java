@@ -0,0 +1,240 @@
+package com.finance.fix.tester;
+
+import org.quickfixj.CharsetSupport;
+import quickfix.Log;
+import quickfix.LogFactory;
+import quickfix.SessionID;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步二进制FIX日志工厂，替代ScreenLogFactory
+ * I/O线程把消息编码进无锁环形缓冲区的预分配槽位并记下纳秒时间戳，后台线程只负责拷贝到段文件，
+ * 落盘格式见MappedLogSegmentWriter，可用BinaryLogRenderer离线还原为文本。
+ * 支持按级别过滤与按比例采样消息，缓冲区满时丢弃而不阻塞会话线程
+ */
+public class BinaryLogFactory implements LogFactory {
+    public static final byte TYPE_SESSION = 0;
+    public static final byte TYPE_INCOMING = 1;
+    public static final byte TYPE_OUTGOING = 2;
+    public static final byte TYPE_EVENT = 3;
+    public static final byte TYPE_ERROR = 4;
+
+    /**
+     * 日志级别，高级别包含低级别的内容
+     */
+    public enum Level {
+        OFF,      // 不记录
+        ERROR,    // 仅错误事件
+        EVENT,    // 错误与会话事件
+        MESSAGE   // 事件及收发消息原文
+    }
+
+    private static final int DRAIN_BATCH = 4096;
+    private static final long IDLE_PARK_NANOS = 100_000;
+    // 槽位大小覆盖常见的会话层与订单消息，更长的消息单独分配
+    private static final int RING_SLOT_SIZE = 256;
+
+    private final Level level;
+    private final int sampleRate;
+    private final LogRingBuffer ringBuffer;
+    private final MappedLogSegmentWriter segmentWriter;
+    private final Charset charset = CharsetSupport.getCharsetInstance();
+
+    // 会话编号与SessionID的对应关系，每个段文件内首次出现时写入一条会话定义记录
+    private final Map<SessionID, Integer> sessionIndexes = new ConcurrentHashMap<>();
+    private final List<byte[]> sessionNames = new ArrayList<>();
+    private final BitSet definedInSegment = new BitSet();
+
+    private final Thread drainThread;
+    private volatile boolean running = true;
+    private volatile long recordsWritten = 0;
+    private final long epochOffsetNanos;
+
+    public BinaryLogFactory(String directory) throws IOException {
+        this(directory, Level.MESSAGE, 1, 1 << 16, 64 * 1024 * 1024);
+    }
+
+    /**
+     * @param directory 段文件目录，每次运行使用一个不含段文件的目录
+     * @param level 日志级别
+     * @param sampleRate 消息采样率，每N条收发消息记录1条，1表示全部记录
+     * @param ringCapacity 环形缓冲区槽位数（2的幂）
+     * @param segmentSize 单个段文件字节数
+     */
+    public BinaryLogFactory(String directory, Level level, int sampleRate, int ringCapacity,
+                            int segmentSize) throws IOException {
+        this.level = level;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.ringBuffer = new LogRingBuffer(ringCapacity, RING_SLOT_SIZE, charset);
+        this.segmentWriter = new MappedLogSegmentWriter(new File(directory), "fixlog", segmentSize);
+        // nanoTime只有相对意义，换算为纪元纳秒便于离线对齐其他数据
+        this.epochOffsetNanos = System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+
+        drainThread = new Thread(this::drainLoop, "binary-log-writer");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    @Override
+    public Log create(SessionID sessionID) {
+        return new BinaryLog(sessionIndexOf(sessionID));
+    }
+
+    /**
+     * 停止后台线程，写完缓冲区中剩余记录并刷盘
+     */
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(drainThread);
+        try {
+            drainThread.join(10000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            segmentWriter.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close binary log segment: " + e.getMessage());
+        }
+        System.out.println("Binary log closed: " + recordsWritten + " records, "
+                + segmentWriter.getSegmentCount() + " segments, " + ringBuffer.getDropped() + " dropped");
+    }
+
+    public long getRecordsWritten() {
+        return recordsWritten;
+    }
+
+    public long getRecordsDropped() {
+        return ringBuffer.getDropped();
+    }
+
+    private int sessionIndexOf(SessionID sessionID) {
+        return sessionIndexes.computeIfAbsent(sessionID, id -> {
+            synchronized (sessionNames) {
+                sessionNames.add(id.toString().getBytes(charset));
+                return sessionNames.size() - 1;
+            }
+        });
+    }
+
+    private void drainLoop() {
+        while (true) {
+            int drained = drainBatch();
+            if (drained == 0) {
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        // 关闭后把剩余记录全部写完
+        while (drainBatch() > 0) {
+        }
+    }
+
+    private int drainBatch() {
+        int drained = 0;
+        LogRingBuffer.Entry entry;
+        while (drained < DRAIN_BATCH && (entry = ringBuffer.peek()) != null) {
+            try {
+                write(entry);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Binary log write failed: " + e.getMessage());
+            } finally {
+                ringBuffer.release();
+            }
+            drained++;
+        }
+        if (drained > 0) {
+            recordsWritten += drained;
+        }
+        return drained;
+    }
+
+    private void write(LogRingBuffer.Entry entry) throws IOException {
+        int sessionIndex = entry.sessionIndex;
+        byte[] sessionName = sessionName(sessionIndex);
+
+        // 按“会话定义+记录”预留空间，保证两者落在同一个段内
+        int required = segmentWriter.recordSize(sessionName.length) + segmentWriter.recordSize(entry.length);
+        if (segmentWriter.ensureCapacity(required)) {
+            definedInSegment.clear();
+        }
+        if (!definedInSegment.get(sessionIndex)) {
+            segmentWriter.append(TYPE_SESSION, entry.timestampNanos, sessionIndex, sessionName);
+            definedInSegment.set(sessionIndex);
+        }
+        segmentWriter.append(entry.type, entry.timestampNanos, sessionIndex, entry.payload, entry.length);
+    }
+
+    private byte[] sessionName(int sessionIndex) {
+        synchronized (sessionNames) {
+            return sessionNames.get(sessionIndex);
+        }
+    }
+
+    /**
+     * 单个会话的日志，所有方法只做过滤与入队
+     */
+    private class BinaryLog implements Log {
+        private final int sessionIndex;
+
+        BinaryLog(int sessionIndex) {
+            this.sessionIndex = sessionIndex;
+        }
+
+        @Override
+        public void clear() {
+            // 段文件按追加方式写入，不支持清除
+        }
+
+        @Override
+        public void onIncoming(String message) {
+            if (level == Level.MESSAGE && sampled()) {
+                append(TYPE_INCOMING, message);
+            }
+        }
+
+        @Override
+        public void onOutgoing(String message) {
+            if (level == Level.MESSAGE && sampled()) {
+                append(TYPE_OUTGOING, message);
+            }
+        }
+
+        @Override
+        public void onEvent(String text) {
+            if (level.compareTo(Level.EVENT) >= 0) {
+                append(TYPE_EVENT, text);
+            }
+        }
+
+        @Override
+        public void onErrorEvent(String text) {
+            if (level.compareTo(Level.ERROR) >= 0) {
+                append(TYPE_ERROR, text);
+            }
+        }
+
+        private boolean sampled() {
+            return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+        }
+
+        private void append(byte type, String payload) {
+            ringBuffer.offer(epochOffsetNanos + System.nanoTime(), sessionIndex, type, payload);
+        }
+    }
+}
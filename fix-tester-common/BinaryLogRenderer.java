@@ -0,0 +1,138 @@
+package com.finance.fix.tester;
+
+import org.quickfixj.CharsetSupport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 二进制日志离线渲染工具：把BinaryLogFactory生成的段文件还原为文本
+ * 用法：BinaryLogRenderer <段文件或目录>... [--session 过滤串]
+ */
+public class BinaryLogRenderer {
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSSSSS").withZone(ZoneId.systemDefault());
+    private static final String[] TYPE_NAMES = {"SESSION", "IN", "OUT", "EVENT", "ERROR"};
+
+    private final Charset charset = CharsetSupport.getCharsetInstance();
+    private final PrintStream out;
+    private final String sessionFilter;
+
+    public BinaryLogRenderer(PrintStream out, String sessionFilter) {
+        this.out = out;
+        this.sessionFilter = sessionFilter;
+    }
+
+    /**
+     * 渲染单个段文件，返回输出的记录数
+     */
+    public long render(File segment) throws IOException {
+        long rendered = 0;
+        try (RandomAccessFile file = new RandomAccessFile(segment, "r")) {
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            if (buffer.remaining() < MappedLogSegmentWriter.FILE_HEADER_SIZE
+                    || buffer.getInt() != MappedLogSegmentWriter.MAGIC) {
+                System.err.println("Not a binary log segment: " + segment);
+                return 0;
+            }
+            int version = buffer.getInt();
+            if (version != MappedLogSegmentWriter.VERSION) {
+                System.err.println("Unsupported segment version " + version + ": " + segment);
+                return 0;
+            }
+
+            // 会话定义只在本段内有效
+            Map<Integer, String> sessions = new HashMap<>();
+            while (buffer.remaining() >= MappedLogSegmentWriter.RECORD_HEADER_SIZE) {
+                int recordLength = buffer.getInt();
+                int length = recordLength - MappedLogSegmentWriter.RECORD_HEADER_SIZE;
+                if (length < 0 || length > buffer.remaining() - (MappedLogSegmentWriter.RECORD_HEADER_SIZE - 4)) {
+                    break;
+                }
+                byte type = buffer.get();
+                long timestampNanos = buffer.getLong();
+                int sessionIndex = buffer.getInt();
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                String text = new String(payload, charset);
+
+                if (type == BinaryLogFactory.TYPE_SESSION) {
+                    sessions.put(sessionIndex, text);
+                    continue;
+                }
+                String session = sessions.getOrDefault(sessionIndex, "#" + sessionIndex);
+                if (sessionFilter != null && !session.contains(sessionFilter)) {
+                    continue;
+                }
+                out.println(formatTime(timestampNanos) + " " + typeName(type) + " " + session + " "
+                        + text.replace('\u0001', '|'));
+                rendered++;
+            }
+        }
+        return rendered;
+    }
+
+    private static String formatTime(long epochNanos) {
+        return TIME_FORMAT.format(Instant.ofEpochSecond(epochNanos / 1_000_000_000L, epochNanos % 1_000_000_000L));
+    }
+
+    private static String typeName(byte type) {
+        return type >= 0 && type < TYPE_NAMES.length ? TYPE_NAMES[type] : "TYPE" + type;
+    }
+
+    /**
+     * 展开参数中的目录并按文件名排序，保证段按写入顺序输出
+     */
+    private static List<File> collectSegments(List<String> paths) {
+        List<File> segments = new ArrayList<>();
+        for (String path : paths) {
+            File file = new File(path);
+            if (file.isDirectory()) {
+                File[] children = file.listFiles((dir, name) -> name.endsWith(MappedLogSegmentWriter.SEGMENT_SUFFIX));
+                if (children != null) {
+                    Arrays.sort(children);
+                    segments.addAll(Arrays.asList(children));
+                }
+            } else {
+                segments.add(file);
+            }
+        }
+        return segments;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> paths = new ArrayList<>();
+        String sessionFilter = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--session".equals(args[i]) && i + 1 < args.length) {
+                sessionFilter = args[++i];
+            } else {
+                paths.add(args[i]);
+            }
+        }
+        if (paths.isEmpty()) {
+            System.err.println("Usage: BinaryLogRenderer <segment-file-or-directory>... [--session filter]");
+            System.exit(1);
+        }
+
+        BinaryLogRenderer renderer = new BinaryLogRenderer(System.out, sessionFilter);
+        long total = 0;
+        for (File segment : collectSegments(paths)) {
+            total += renderer.render(segment);
+        }
+        System.err.println(total + " records rendered");
+    }
+}
@@ -0,0 +1,190 @@
+package com.finance.fix.tester;
+
+import org.quickfixj.CharsetSupport;
+import quickfix.MessageStore;
+import quickfix.SystemTime;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * 压测专用的非持久化消息存储
+ * 只保存收发序列号，外加一个定长环形缓冲区保存最近发出的消息原文用于重发；
+ * 缓冲区默认分配在堆外，容量固定，被覆盖的旧消息在重发时由QuickFIX/J以GapFill代替。
+ * 不写磁盘、不随运行时长增长，避免存储成为隐性的吞吐瓶颈或堆内存泄漏
+ */
+public class BoundedMessageStore implements MessageStore {
+    private final Charset charset = CharsetSupport.getCharsetInstance();
+
+    // 消息原文环形字节缓冲区
+    private final ByteBuffer buffer;
+    private final int capacityBytes;
+    private long writeCursor = 0;
+
+    // 按 seqNum % maxMessages 定位的槽位索引
+    private final int maxMessages;
+    private final int[] slotSeqNums;
+    private final long[] slotStarts;
+    private final int[] slotLengths;
+
+    private int nextSenderMsgSeqNum;
+    private int nextTargetMsgSeqNum;
+    private Calendar creationTime;
+
+    private long storedCount = 0;
+    private long droppedCount = 0;
+
+    public BoundedMessageStore(int maxMessages, int capacityBytes, boolean offHeap) {
+        if (maxMessages <= 0 || capacityBytes <= 0) {
+            throw new IllegalArgumentException("消息槽位数和缓冲区容量必须大于0");
+        }
+        this.maxMessages = maxMessages;
+        this.capacityBytes = capacityBytes;
+        this.buffer = offHeap ? ByteBuffer.allocateDirect(capacityBytes) : ByteBuffer.allocate(capacityBytes);
+        this.slotSeqNums = new int[maxMessages];
+        this.slotStarts = new long[maxMessages];
+        this.slotLengths = new int[maxMessages];
+        reset();
+    }
+
+    @Override
+    public synchronized boolean set(int sequence, String message) {
+        byte[] bytes = message.getBytes(charset);
+        if (bytes.length > capacityBytes) {
+            // 单条消息超过缓冲区容量，不保留，重发时以GapFill代替
+            droppedCount++;
+            return true;
+        }
+
+        long start = writeCursor;
+        int position = (int) (start % capacityBytes);
+        int firstPart = Math.min(bytes.length, capacityBytes - position);
+        putBytes(position, bytes, 0, firstPart);
+        if (firstPart < bytes.length) {
+            putBytes(0, bytes, firstPart, bytes.length - firstPart);
+        }
+        writeCursor += bytes.length;
+
+        int slot = slotOf(sequence);
+        slotSeqNums[slot] = sequence;
+        slotStarts[slot] = start;
+        slotLengths[slot] = bytes.length;
+        storedCount++;
+        return true;
+    }
+
+    @Override
+    public synchronized void get(int startSequence, int endSequence, Collection<String> messages) {
+        for (int sequence = startSequence; sequence <= endSequence; sequence++) {
+            int slot = slotOf(sequence);
+            if (slotSeqNums[slot] != sequence) {
+                continue;
+            }
+            long start = slotStarts[slot];
+            int length = slotLengths[slot];
+            // 该消息所在的字节区域已被后续写入覆盖
+            if (writeCursor - start > capacityBytes) {
+                continue;
+            }
+
+            byte[] bytes = new byte[length];
+            int position = (int) (start % capacityBytes);
+            int firstPart = Math.min(length, capacityBytes - position);
+            getBytes(position, bytes, 0, firstPart);
+            if (firstPart < length) {
+                getBytes(0, bytes, firstPart, length - firstPart);
+            }
+            messages.add(new String(bytes, charset));
+        }
+    }
+
+    @Override
+    public synchronized int getNextSenderMsgSeqNum() {
+        return nextSenderMsgSeqNum;
+    }
+
+    @Override
+    public synchronized int getNextTargetMsgSeqNum() {
+        return nextTargetMsgSeqNum;
+    }
+
+    @Override
+    public synchronized void setNextSenderMsgSeqNum(int next) {
+        nextSenderMsgSeqNum = next;
+    }
+
+    @Override
+    public synchronized void setNextTargetMsgSeqNum(int next) {
+        nextTargetMsgSeqNum = next;
+    }
+
+    @Override
+    public synchronized void incrNextSenderMsgSeqNum() {
+        nextSenderMsgSeqNum++;
+    }
+
+    @Override
+    public synchronized void incrNextTargetMsgSeqNum() {
+        nextTargetMsgSeqNum++;
+    }
+
+    @Override
+    public synchronized Date getCreationTime() {
+        return creationTime.getTime();
+    }
+
+    @Override
+    public synchronized void reset() {
+        nextSenderMsgSeqNum = 1;
+        nextTargetMsgSeqNum = 1;
+        writeCursor = 0;
+        Arrays.fill(slotSeqNums, 0);
+        creationTime = SystemTime.getUtcCalendar();
+    }
+
+    @Override
+    public void refresh() {
+        // 纯内存存储，无需从外部介质重新加载
+    }
+
+    /**
+     * 当前仍可用于重发的消息数
+     */
+    public synchronized int getRetainedCount() {
+        int retained = 0;
+        for (int slot = 0; slot < maxMessages; slot++) {
+            if (slotSeqNums[slot] != 0 && writeCursor - slotStarts[slot] <= capacityBytes) {
+                retained++;
+            }
+        }
+        return retained;
+    }
+
+    public synchronized long getStoredCount() {
+        return storedCount;
+    }
+
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    private int slotOf(int sequence) {
+        return Math.floorMod(sequence, maxMessages);
+    }
+
+    private void putBytes(int position, byte[] src, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.put(src, offset, length);
+    }
+
+    private void getBytes(int position, byte[] dst, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.get(dst, offset, length);
+    }
+}
@@ -0,0 +1,37 @@
+package com.finance.fix.tester;
+
+import quickfix.MessageStore;
+import quickfix.MessageStoreFactory;
+import quickfix.SessionID;
+
+/**
+ * 有界消息存储工厂，每个会话一个独立的环形缓冲区
+ */
+public class BoundedMessageStoreFactory implements MessageStoreFactory {
+    public static final int DEFAULT_MAX_MESSAGES = 1024;
+    public static final int DEFAULT_CAPACITY_BYTES = 256 * 1024;
+
+    private final int maxMessages;
+    private final int capacityBytes;
+    private final boolean offHeap;
+
+    public BoundedMessageStoreFactory() {
+        this(DEFAULT_MAX_MESSAGES, DEFAULT_CAPACITY_BYTES, true);
+    }
+
+    /**
+     * @param maxMessages 最多保留用于重发的消息条数
+     * @param capacityBytes 每个会话消息原文缓冲区字节数
+     * @param offHeap 是否在堆外分配缓冲区
+     */
+    public BoundedMessageStoreFactory(int maxMessages, int capacityBytes, boolean offHeap) {
+        this.maxMessages = maxMessages;
+        this.capacityBytes = capacityBytes;
+        this.offHeap = offHeap;
+    }
+
+    @Override
+    public MessageStore create(SessionID sessionID) {
+        return new BoundedMessageStore(maxMessages, capacityBytes, offHeap);
+    }
+}
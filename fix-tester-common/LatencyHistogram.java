@@ -0,0 +1,146 @@
+package com.finance.fix.tester;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁对数-线性分桶直方图
+ * 每个2的幂区间再细分为32个子桶，相对误差约3%，记录时只做一次原子自增
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalSum = new LongAdder();
+    private final AtomicLong minValue = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxValue = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * 记录一个非负数值，负数按0处理
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(indexOf(value));
+        totalCount.increment();
+        totalSum.add(value);
+
+        long currentMin;
+        while (value < (currentMin = minValue.get()) && !minValue.compareAndSet(currentMin, value)) {
+            // 重试直到更新成功
+        }
+        long currentMax;
+        while (value > (currentMax = maxValue.get()) && !maxValue.compareAndSet(currentMax, value)) {
+            // 重试直到更新成功
+        }
+    }
+
+    /**
+     * 合并另一个直方图的数据
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = other.counts.get(i);
+            if (c > 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        totalCount.add(other.totalCount.sum());
+        totalSum.add(other.totalSum.sum());
+        if (other.getCount() > 0) {
+            long otherMin = other.minValue.get();
+            long currentMin;
+            while (otherMin < (currentMin = minValue.get()) && !minValue.compareAndSet(currentMin, otherMin)) {
+                // 重试直到更新成功
+            }
+            long otherMax = other.maxValue.get();
+            long currentMax;
+            while (otherMax > (currentMax = maxValue.get()) && !maxValue.compareAndSet(currentMax, otherMax)) {
+                // 重试直到更新成功
+            }
+        }
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getSum() {
+        return totalSum.sum();
+    }
+
+    public double getMean() {
+        long count = totalCount.sum();
+        return count == 0 ? 0 : (double) totalSum.sum() / count;
+    }
+
+    public long getMin() {
+        return getCount() == 0 ? 0 : minValue.get();
+    }
+
+    public long getMax() {
+        return getCount() == 0 ? 0 : maxValue.get();
+    }
+
+    /**
+     * 获取指定百分位的值（取所在桶的上界，不超过最大值）
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * 获取桶计数的副本，供外部序列化或合并
+     */
+    public long[] getBucketCounts() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+        }
+        return copy;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long lowestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return ((long) (SUB_BUCKET_COUNT + subBucket)) << shift;
+    }
+
+    static long highestEquivalentValue(int index) {
+        return index + 1 >= BUCKET_COUNT ? Long.MAX_VALUE : lowestEquivalentValue(index + 1) - 1;
+    }
+
+    static int bucketCount() {
+        return BUCKET_COUNT;
+    }
+}
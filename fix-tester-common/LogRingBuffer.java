@@ -0,0 +1,149 @@
+package com.finance.fix.tester;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁多生产者单消费者环形缓冲区
+ * 生产者（QuickFIX/J的I/O线程与发送线程）通过CAS占位后，直接把消息编码进该槽位预分配的字节数组，
+ * 缓冲区满时直接丢弃并计数，从不阻塞；唯一的消费者是后台落盘线程，只做字节拷贝。
+ * 超过槽位大小的消息单独分配数组，释放槽位时恢复为预分配数组
+ */
+public class LogRingBuffer {
+    /**
+     * 单条日志记录，槽位预先分配并循环复用
+     */
+    public static class Entry {
+        long timestampNanos;
+        int sessionIndex;
+        byte type;
+        final byte[] slotBytes;
+        byte[] payload;
+        int length;
+
+        Entry(int slotSize) {
+            this.slotBytes = new byte[slotSize];
+            this.payload = slotBytes;
+        }
+    }
+
+    private final int mask;
+    private final Entry[] entries;
+    // 每个槽位的序号：等于写入位置表示空闲，等于写入位置+1表示已发布
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong(0);
+    private long head = 0;
+    private final AtomicLong dropped = new AtomicLong(0);
+    private final Charset charset;
+    // CharsetEncoder不是线程安全的，每个生产者线程一个
+    private final ThreadLocal<CharsetEncoder> encoders;
+
+    /**
+     * @param capacity 槽位数（2的幂）
+     * @param slotSize 每个槽位预分配的字节数
+     * @param charset 消息编码字符集
+     */
+    public LogRingBuffer(int capacity, int slotSize, Charset charset) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("环形缓冲区容量必须是2的幂: " + capacity);
+        }
+        if (slotSize <= 0) {
+            throw new IllegalArgumentException("槽位大小必须为正数: " + slotSize);
+        }
+        this.mask = capacity - 1;
+        this.entries = new Entry[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new Entry(slotSize);
+            sequences.set(i, i);
+        }
+        this.charset = charset;
+        this.encoders = ThreadLocal.withInitial(() -> charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE));
+    }
+
+    /**
+     * 写入一条记录，消息在调用线程上编码
+     * @return 缓冲区已满时返回false，记录被丢弃
+     */
+    public boolean offer(long timestampNanos, int sessionIndex, byte type, String payload) {
+        long position;
+        int slot;
+        while (true) {
+            position = tail.get();
+            slot = (int) (position & mask);
+            long sequence = sequences.get(slot);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (sequence < position) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            // 其他生产者已抢占该位置，重新读取tail
+        }
+
+        Entry entry = entries[slot];
+        entry.timestampNanos = timestampNanos;
+        entry.sessionIndex = sessionIndex;
+        entry.type = type;
+        encode(entry, payload);
+        sequences.lazySet(slot, position + 1);
+        return true;
+    }
+
+    private void encode(Entry entry, String payload) {
+        ByteBuffer out = ByteBuffer.wrap(entry.slotBytes);
+        CharsetEncoder encoder = encoders.get().reset();
+        CoderResult result = encoder.encode(CharBuffer.wrap(payload), out, true);
+        if (!result.isOverflow()) {
+            result = encoder.flush(out);
+        }
+        if (result.isOverflow()) {
+            // 超长消息单独分配，不截断
+            entry.payload = payload.getBytes(charset);
+            entry.length = entry.payload.length;
+        } else {
+            entry.length = out.position();
+        }
+    }
+
+    /**
+     * 取出下一条已发布的记录，仅由消费者线程调用；处理完后必须调用release()
+     * @return 暂无可读记录时返回null
+     */
+    public Entry peek() {
+        int slot = (int) (head & mask);
+        if (sequences.get(slot) != head + 1) {
+            return null;
+        }
+        return entries[slot];
+    }
+
+    /**
+     * 释放peek()返回的槽位供生产者复用
+     */
+    public void release() {
+        int slot = (int) (head & mask);
+        Entry entry = entries[slot];
+        entry.payload = entry.slotBytes;
+        sequences.lazySet(slot, head + mask + 1);
+        head++;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+}
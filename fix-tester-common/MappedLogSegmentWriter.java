@@ -0,0 +1,131 @@
+package com.finance.fix.tester;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 内存映射日志段文件写入器
+ * 段文件格式：文件头 [MAGIC(int) VERSION(int)]，随后为连续记录
+ * [recordLength(int) type(byte) timestampNanos(long) sessionIndex(int) payload(bytes)]，
+ * recordLength包含记录头，因此空消息也不为0；为0表示段结束（段文件创建时清零）。写满后滚动到下一个段文件。
+ * 段文件编号每次从1开始，目录中已有同前缀的段文件时拒绝创建，避免覆盖或混入上一次运行的记录
+ */
+public class MappedLogSegmentWriter {
+    public static final int MAGIC = 0x46495831; // "FIX1"
+    public static final int VERSION = 2;
+    public static final int FILE_HEADER_SIZE = 8;
+    public static final int RECORD_HEADER_SIZE = 4 + 1 + 8 + 4;
+    public static final String SEGMENT_SUFFIX = ".seg";
+    public static final int MIN_SEGMENT_SIZE = 64 * 1024;
+    // 为同段内的会话定义记录预留的空间
+    private static final int SESSION_DEFINITION_RESERVE = 1024;
+
+    private final File directory;
+    private final String prefix;
+    private final int segmentSize;
+
+    private int segmentNumber = 0;
+    private RandomAccessFile currentFile;
+    private MappedByteBuffer currentBuffer;
+    private long bytesWritten = 0;
+
+    public MappedLogSegmentWriter(File directory, String prefix, int segmentSize) throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("段文件过小: " + segmentSize);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("无法创建日志目录: " + directory);
+        }
+        String[] existing = directory.list((dir, name) -> name.startsWith(prefix + "-")
+                && name.endsWith(SEGMENT_SUFFIX));
+        if (existing != null && existing.length > 0) {
+            throw new IOException("日志目录中已有" + existing.length + "个段文件，请为本次运行指定新目录或先清空: "
+                    + directory);
+        }
+        this.directory = directory;
+        this.prefix = prefix;
+        this.segmentSize = segmentSize;
+        roll();
+    }
+
+    /**
+     * 确保当前段还能容纳指定字节数的记录，不足时滚动到新段
+     * @return 是否发生了段滚动（调用方需在新段中重新写入会话定义）
+     */
+    public boolean ensureCapacity(int recordBytes) throws IOException {
+        if (currentBuffer.remaining() < recordBytes + 4) {
+            roll();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 单条记录占用的字节数（超过单段容量的消息会被截断）
+     */
+    public int recordSize(int payloadLength) {
+        return RECORD_HEADER_SIZE + Math.min(payloadLength, maxPayload());
+    }
+
+    /**
+     * 追加一条记录，调用前需先通过ensureCapacity()预留空间
+     */
+    public void append(byte type, long timestampNanos, int sessionIndex, byte[] payload) {
+        append(type, timestampNanos, sessionIndex, payload, payload.length);
+    }
+
+    /**
+     * 追加一条记录，只写入payload的前payloadLength个字节
+     */
+    public void append(byte type, long timestampNanos, int sessionIndex, byte[] payload, int payloadLength) {
+        int length = Math.min(payloadLength, maxPayload());
+        currentBuffer.putInt(RECORD_HEADER_SIZE + length);
+        currentBuffer.put(type);
+        currentBuffer.putLong(timestampNanos);
+        currentBuffer.putInt(sessionIndex);
+        currentBuffer.put(payload, 0, length);
+        bytesWritten += RECORD_HEADER_SIZE + length;
+    }
+
+    public void force() {
+        if (currentBuffer != null) {
+            currentBuffer.force();
+        }
+    }
+
+    public void close() throws IOException {
+        if (currentFile != null) {
+            currentBuffer.force();
+            currentFile.close();
+            currentFile = null;
+        }
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public int getSegmentCount() {
+        return segmentNumber;
+    }
+
+    private int maxPayload() {
+        return segmentSize - FILE_HEADER_SIZE - RECORD_HEADER_SIZE - 4 - SESSION_DEFINITION_RESERVE;
+    }
+
+    private void roll() throws IOException {
+        close();
+        segmentNumber++;
+        File file = new File(directory, String.format("%s-%06d%s", prefix, segmentNumber, SEGMENT_SUFFIX));
+        currentFile = new RandomAccessFile(file, "rw");
+        // 先截断再扩展，保证未写入的区域为0，不残留旧内容
+        currentFile.setLength(0);
+        currentFile.setLength(segmentSize);
+        currentBuffer = currentFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        currentBuffer.putInt(MAGIC);
+        currentBuffer.putInt(VERSION);
+    }
+}
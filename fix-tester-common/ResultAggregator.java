@@ -0,0 +1,103 @@
+package com.finance.fix.tester;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单遍流式结果汇总
+ * 发送、响应、失败在发生时各更新一次计数与直方图，不保留逐条结果；
+ * 报告生成时直接读取汇总值，耗时与消息总数无关
+ */
+public class ResultAggregator {
+    private final LongAdder sent = new LongAdder();
+    private final LatencyHistogram responseTimes = new LatencyHistogram();
+    private final LongAdder failures = new LongAdder();
+    private final Map<String, LongAdder> failureReasons = new ConcurrentHashMap<>();
+
+    // 响应吞吐：当前秒的计数与已结束各秒的峰值
+    private final AtomicLong windowSecond = new AtomicLong();
+    private final AtomicLong windowCount = new AtomicLong();
+    private final AtomicLong peakPerSecond = new AtomicLong();
+
+    public void recordSent() {
+        sent.increment();
+    }
+
+    /**
+     * 记录一个响应
+     * @param responseTimeMillis 往返时间（毫秒）
+     */
+    public void recordResponse(long responseTimeMillis) {
+        responseTimes.record(responseTimeMillis);
+
+        long second = System.currentTimeMillis() / 1000;
+        long current = windowSecond.get();
+        if (second != current && windowSecond.compareAndSet(current, second)) {
+            long finished = windowCount.getAndSet(0);
+            peakPerSecond.accumulateAndGet(finished, Math::max);
+        }
+        windowCount.incrementAndGet();
+    }
+
+    /**
+     * 记录一次失败，按原因分类计数
+     */
+    public void recordFailure(String reason) {
+        failures.increment();
+        failureReasons.computeIfAbsent(reason, r -> new LongAdder()).increment();
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getResponses() {
+        return responseTimes.getCount();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getFailures(String reason) {
+        LongAdder count = failureReasons.get(reason);
+        return count != null ? count.sum() : 0;
+    }
+
+    public Map<String, Long> getFailureReasons() {
+        Map<String, Long> reasons = new LinkedHashMap<>();
+        failureReasons.forEach((reason, count) -> reasons.put(reason, count.sum()));
+        return reasons;
+    }
+
+    /**
+     * 响应时间直方图（毫秒）
+     */
+    public LatencyHistogram getResponseTimes() {
+        return responseTimes;
+    }
+
+    /**
+     * 按测试时长计算的平均发送吞吐
+     */
+    public double getSendThroughput(long durationMillis) {
+        return durationMillis > 0 ? sent.sum() * 1000.0 / durationMillis : 0;
+    }
+
+    /**
+     * 按测试时长计算的平均响应吞吐
+     */
+    public double getResponseThroughput(long durationMillis) {
+        return durationMillis > 0 ? responseTimes.getCount() * 1000.0 / durationMillis : 0;
+    }
+
+    /**
+     * 单秒响应数的峰值，包含尚未结束的当前秒
+     */
+    public long getPeakResponsesPerSecond() {
+        return Math.max(peakPerSecond.get(), windowCount.get());
+    }
+}
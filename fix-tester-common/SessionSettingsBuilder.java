@@ -0,0 +1,152 @@
+package com.finance.fix.tester;
+
+import quickfix.ConfigError;
+import quickfix.Dictionary;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 会话配置构建器
+ * 模板只解析一次，之后在内存中为每个会话派生SessionSettings，不再写入和回读临时配置文件。
+ * 模板只能有一个[SESSION]段，所有会话都由它派生。
+ * CompID按模式生成（{sender}/{target}替换为模板值，其中的%会被转义，再以会话序号做String.format），
+ * 连接地址可按会话序号轮询分片到多个host:port
+ */
+public class SessionSettingsBuilder {
+    private static final String SOCKET_CONNECT_HOST = "SocketConnectHost";
+    private static final String SOCKET_CONNECT_PORT = "SocketConnectPort";
+
+    private final SessionID templateId;
+    private final Map<Object, Object> defaultProperties;
+    private final Map<Object, Object> sectionProperties;
+
+    private String senderCompIdPattern = "{sender}_%d";
+    private String targetCompIdPattern = "{target}";
+    private List<String[]> endpoints = Collections.emptyList();
+    private final Map<String, String> overrides = new LinkedHashMap<>();
+
+    private SessionSettingsBuilder(SessionSettings template) throws ConfigError {
+        Iterator<SessionID> sections = template.sectionIterator();
+        if (!sections.hasNext()) {
+            throw new ConfigError("配置模板中没有[SESSION]段");
+        }
+        this.templateId = sections.next();
+        if (sections.hasNext()) {
+            int count = 1;
+            while (sections.hasNext()) {
+                sections.next();
+                count++;
+            }
+            throw new ConfigError("配置模板中有" + count + "个[SESSION]段，只支持一个模板段");
+        }
+        this.defaultProperties = new LinkedHashMap<>(template.getDefaultProperties());
+        this.sectionProperties = new LinkedHashMap<>(template.get(templateId).toMap());
+    }
+
+    /**
+     * 从模板文件解析（仅此一次磁盘读取）
+     */
+    public static SessionSettingsBuilder fromFile(String templatePath) throws ConfigError {
+        return new SessionSettingsBuilder(new SessionSettings(templatePath));
+    }
+
+    public static SessionSettingsBuilder fromStream(InputStream templateStream) throws ConfigError {
+        return new SessionSettingsBuilder(new SessionSettings(templateStream));
+    }
+
+    /**
+     * SenderCompID模式，例如 "{sender}_%d"、"CLIENT_%03d"
+     */
+    public SessionSettingsBuilder senderCompIdPattern(String pattern) {
+        this.senderCompIdPattern = pattern;
+        return this;
+    }
+
+    /**
+     * TargetCompID模式，默认沿用模板中的值
+     */
+    public SessionSettingsBuilder targetCompIdPattern(String pattern) {
+        this.targetCompIdPattern = pattern;
+        return this;
+    }
+
+    /**
+     * 连接地址分片，格式为 "host:port"，会话n使用第 n % size 个地址
+     */
+    public SessionSettingsBuilder endpoints(List<String> hostPorts) {
+        List<String[]> parsed = new ArrayList<>(hostPorts.size());
+        for (String hostPort : hostPorts) {
+            int idx = hostPort.lastIndexOf(':');
+            if (idx <= 0 || idx == hostPort.length() - 1) {
+                throw new IllegalArgumentException("无效的连接地址: " + hostPort);
+            }
+            parsed.add(new String[] {hostPort.substring(0, idx).trim(), hostPort.substring(idx + 1).trim()});
+        }
+        this.endpoints = parsed;
+        return this;
+    }
+
+    /**
+     * 覆盖所有会话的某个配置项
+     */
+    public SessionSettingsBuilder set(String key, String value) {
+        overrides.put(key, value);
+        return this;
+    }
+
+    /**
+     * 第n个会话的SessionID
+     */
+    public SessionID sessionId(int n) {
+        return new SessionID(templateId.getBeginString(),
+                applyPattern(senderCompIdPattern, n), applyPattern(targetCompIdPattern, n));
+    }
+
+    /**
+     * 只包含第n个会话的配置，供每会话独立的initiator使用
+     */
+    public SessionSettings build(int n) throws ConfigError {
+        return buildAll(n, n + 1);
+    }
+
+    /**
+     * 包含 [from, to) 范围内所有会话的配置，供共享initiator使用
+     */
+    public SessionSettings buildAll(int from, int to) throws ConfigError {
+        SessionSettings settings = new SessionSettings();
+        settings.set(new Dictionary(null, defaultProperties));
+        for (int n = from; n < to; n++) {
+            SessionID sessionID = sessionId(n);
+            Dictionary dictionary = new Dictionary(null, sectionProperties);
+            dictionary.setString(SessionSettings.BEGINSTRING, sessionID.getBeginString());
+            dictionary.setString(SessionSettings.SENDERCOMPID, sessionID.getSenderCompID());
+            dictionary.setString(SessionSettings.TARGETCOMPID, sessionID.getTargetCompID());
+            if (!endpoints.isEmpty()) {
+                String[] endpoint = endpoints.get(n % endpoints.size());
+                dictionary.setString(SOCKET_CONNECT_HOST, endpoint[0]);
+                dictionary.setString(SOCKET_CONNECT_PORT, endpoint[1]);
+            }
+            for (Map.Entry<String, String> override : overrides.entrySet()) {
+                dictionary.setString(override.getKey(), override.getValue());
+            }
+            settings.set(sessionID, dictionary);
+        }
+        return settings;
+    }
+
+    private String applyPattern(String pattern, int n) {
+        // 模板CompID中的%按字面处理，不能被String.format当作格式符
+        String resolved = pattern
+                .replace("{sender}", templateId.getSenderCompID().replace("%", "%%"))
+                .replace("{target}", templateId.getTargetCompID().replace("%", "%%"));
+        return resolved.contains("%") ? String.format(resolved, n) : resolved;
+    }
+}
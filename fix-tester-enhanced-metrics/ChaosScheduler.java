@@ -0,0 +1,456 @@
+package com.finance.fix.tester;
+
+import org.apache.mina.core.session.IoSession;
+import quickfix.Responder;
+import quickfix.Session;
+import quickfix.SessionID;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 断线重连混沌调度器
+ * 测试过程中按固定间隔随机中断一定比例的已登录会话（关闭socket、发送Logout或半开挂起），
+ * 统计重新登录耗时、ResendRequest数量、补发消息吞吐量，以及中断期间其余会话的响应延迟变化。
+ * 会话处于中断中时发送线程跳过发送并单独计数，不计为发送失败，每次中断结束时只打印一行汇总
+ */
+public class ChaosScheduler implements TestSessionApplication.SessionEventListener {
+    /**
+     * 中断方式
+     */
+    public enum DisruptionMode {
+        SOCKET_CLOSE,     // 直接关闭socket，不发送Logout，由initiator按ReconnectInterval重连
+        LOGOUT,           // 正常登出，挂起一段时间后重新登录
+        HALF_OPEN_STALL   // 暂停socket读写但不关闭连接，模拟半开连接，挂起结束后恢复
+    }
+
+    // 重新登录后超过该时长没有补发消息，认为该次恢复已完成
+    private static final long REPLAY_QUIET_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final double disruptFraction;
+    private final long intervalMillis;
+    private final long stallMillis;
+    private final List<DisruptionMode> modes;
+
+    private final Map<Integer, Target> targets = new ConcurrentHashMap<>();
+    private final Map<Integer, Disruption> disruptions = new ConcurrentHashMap<>();
+    private final Map<Integer, IoSession> stalledSessions = new ConcurrentHashMap<>();
+    private final AtomicInteger outstandingOutages = new AtomicInteger(0);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chaos-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 恢复耗时（微秒，中断至重新登录；半开挂起为中断至恢复响应）与延迟对比直方图（微秒）
+    private final LatencyHistogram relogonHistogram = new LatencyHistogram();
+    private final LatencyHistogram replayDurationHistogram = new LatencyHistogram();
+    private final LatencyHistogram baselineLatencyHistogram = new LatencyHistogram();
+    private final LatencyHistogram peerLatencyDuringOutageHistogram = new LatencyHistogram();
+
+    private final Map<DisruptionMode, AtomicLong> disruptionCounts = new EnumMap<>(DisruptionMode.class);
+    private final AtomicLong disruptionFailures = new AtomicLong(0);
+    private final AtomicLong recoveries = new AtomicLong(0);
+    private final AtomicLong unrecovered = new AtomicLong(0);
+    private final LongAdder resendRequestsSent = new LongAdder();
+    private final LongAdder resendRequestsReceived = new LongAdder();
+    private final LongAdder resendRangeSent = new LongAdder();
+    private final LongAdder resendRangeReceived = new LongAdder();
+    private final LongAdder replayedInbound = new LongAdder();
+    private final LongAdder replayedOutbound = new LongAdder();
+    private final LongAdder gapFills = new LongAdder();
+    private final LongAdder replayedDuringRecovery = new LongAdder();
+    private final LongAdder replayNanosDuringRecovery = new LongAdder();
+    private final LongAdder skippedSends = new LongAdder();
+
+    private static class Target {
+        final SessionID sessionID;
+        final TestSessionApplication application;
+
+        Target(SessionID sessionID, TestSessionApplication application) {
+            this.sessionID = sessionID;
+            this.application = application;
+        }
+    }
+
+    private static class Disruption {
+        final int sessionId;
+        final DisruptionMode mode;
+        final long startNanos;
+        volatile long relogonNanos = 0;
+        volatile long lastReplayNanos = 0;
+        final AtomicLong replayed = new AtomicLong(0);
+        final AtomicLong skippedSends = new AtomicLong(0);
+
+        Disruption(int sessionId, DisruptionMode mode, long startNanos) {
+            this.sessionId = sessionId;
+            this.mode = mode;
+            this.startNanos = startNanos;
+        }
+    }
+
+    /**
+     * @param disruptFraction 每轮中断的会话比例（0~1）
+     * @param intervalMillis 两轮中断之间的间隔
+     * @param stallMillis LOGOUT与HALF_OPEN_STALL方式的挂起时长
+     * @param modes 可选的中断方式，每次随机选取
+     */
+    public ChaosScheduler(double disruptFraction, long intervalMillis, long stallMillis, DisruptionMode... modes) {
+        if (disruptFraction <= 0 || disruptFraction > 1) {
+            throw new IllegalArgumentException("中断比例必须在(0, 1]之间: " + disruptFraction);
+        }
+        if (modes.length == 0) {
+            throw new IllegalArgumentException("至少需要一种中断方式");
+        }
+        this.disruptFraction = disruptFraction;
+        this.intervalMillis = intervalMillis;
+        this.stallMillis = stallMillis;
+        List<DisruptionMode> modeList = new ArrayList<>();
+        Collections.addAll(modeList, modes);
+        this.modes = modeList;
+        for (DisruptionMode mode : DisruptionMode.values()) {
+            disruptionCounts.put(mode, new AtomicLong(0));
+        }
+    }
+
+    /**
+     * 登记可被中断的会话
+     */
+    public void register(int sessionId, SessionID sessionID, TestSessionApplication application) {
+        targets.put(sessionId, new Target(sessionID, application));
+        application.addEventListener(this);
+    }
+
+    /**
+     * 启动调度，首轮中断在initialDelayMillis之后进行
+     */
+    public void start(long initialDelayMillis) {
+        scheduler.scheduleWithFixedDelay(this::tick, initialDelayMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        System.out.println("Chaos scheduler started: " + (disruptFraction * 100) + "% of sessions every "
+                + intervalMillis + "ms, modes=" + modes);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+        // 恢复仍处于挂起状态的连接
+        for (IoSession ioSession : stalledSessions.values()) {
+            resume(ioSession);
+        }
+        stalledSessions.clear();
+        for (Disruption disruption : disruptions.values()) {
+            if (disruption.relogonNanos == 0) {
+                unrecovered.incrementAndGet();
+                System.out.println("Chaos: session " + disruption.sessionId + " (" + disruption.mode
+                        + ") not recovered at stop, " + disruption.skippedSends.get() + " sends skipped");
+            } else {
+                completeRecovery(disruption);
+            }
+        }
+        disruptions.clear();
+    }
+
+    private void tick() {
+        try {
+            completeQuietRecoveries();
+            disruptRandomSessions();
+        } catch (RuntimeException e) {
+            System.err.println("Chaos scheduler error: " + e.getMessage());
+        }
+    }
+
+    private void completeQuietRecoveries() {
+        long now = System.nanoTime();
+        Iterator<Disruption> iterator = disruptions.values().iterator();
+        while (iterator.hasNext()) {
+            Disruption disruption = iterator.next();
+            if (disruption.relogonNanos == 0) {
+                continue;
+            }
+            long lastActivity = Math.max(disruption.relogonNanos, disruption.lastReplayNanos);
+            if (now - lastActivity >= REPLAY_QUIET_NANOS) {
+                completeRecovery(disruption);
+                iterator.remove();
+            }
+        }
+    }
+
+    private void completeRecovery(Disruption disruption) {
+        long replayed = disruption.replayed.get();
+        if (replayed > 0) {
+            long replayNanos = Math.max(disruption.lastReplayNanos - disruption.relogonNanos, 1);
+            replayDurationHistogram.record(replayNanos / 1000);
+            replayedDuringRecovery.add(replayed);
+            replayNanosDuringRecovery.add(replayNanos);
+        }
+        recoveries.incrementAndGet();
+    }
+
+    private void disruptRandomSessions() {
+        List<Integer> candidates = new ArrayList<>();
+        for (Map.Entry<Integer, Target> entry : targets.entrySet()) {
+            if (entry.getValue().application.isConnected() && !disruptions.containsKey(entry.getKey())) {
+                candidates.add(entry.getKey());
+            }
+        }
+        Collections.shuffle(candidates);
+        int count = Math.min(candidates.size(), (int) Math.ceil(targets.size() * disruptFraction));
+        for (int i = 0; i < count; i++) {
+            disrupt(candidates.get(i), modes.get(ThreadLocalRandom.current().nextInt(modes.size())));
+        }
+    }
+
+    private void disrupt(int sessionId, DisruptionMode mode) {
+        Target target = targets.get(sessionId);
+        Session session = Session.lookupSession(target.sessionID);
+        if (session == null) {
+            disruptionFailures.incrementAndGet();
+            return;
+        }
+
+        IoSession ioSession = null;
+        if (mode == DisruptionMode.HALF_OPEN_STALL) {
+            ioSession = ioSessionOf(session);
+            if (ioSession == null) {
+                // 取不到底层连接时退化为直接关闭socket
+                mode = DisruptionMode.SOCKET_CLOSE;
+            }
+        }
+
+        disruptions.put(sessionId, new Disruption(sessionId, mode, System.nanoTime()));
+        outstandingOutages.incrementAndGet();
+        disruptionCounts.get(mode).incrementAndGet();
+        System.out.println("Chaos: disrupting session " + sessionId + " (" + mode + ")");
+
+        try {
+            switch (mode) {
+                case SOCKET_CLOSE:
+                    session.disconnect("Chaos: socket close", false);
+                    break;
+                case LOGOUT:
+                    session.logout("Chaos: logout");
+                    scheduler.schedule(session::logon, stallMillis, TimeUnit.MILLISECONDS);
+                    break;
+                case HALF_OPEN_STALL:
+                    ioSession.suspendRead();
+                    ioSession.suspendWrite();
+                    stalledSessions.put(sessionId, ioSession);
+                    scheduler.schedule(() -> {
+                        IoSession stalled = stalledSessions.remove(sessionId);
+                        if (stalled != null) {
+                            resume(stalled);
+                        }
+                    }, stallMillis, TimeUnit.MILLISECONDS);
+                    break;
+                default:
+                    break;
+            }
+        } catch (Exception e) {
+            System.err.println("Chaos: failed to disrupt session " + sessionId + ": " + e.getMessage());
+            if (disruptions.remove(sessionId) != null) {
+                outstandingOutages.decrementAndGet();
+            }
+            disruptionFailures.incrementAndGet();
+        }
+    }
+
+    // IoSessionResponder.getIoSession()不是公开方法，通过反射获取底层MINA会话
+    private static IoSession ioSessionOf(Session session) {
+        Responder responder = session.getResponder();
+        if (responder == null) {
+            return null;
+        }
+        try {
+            Method method = responder.getClass().getDeclaredMethod("getIoSession");
+            method.setAccessible(true);
+            return (IoSession) method.invoke(responder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void resume(IoSession ioSession) {
+        if (!ioSession.isClosing()) {
+            ioSession.resumeRead();
+            ioSession.resumeWrite();
+        }
+    }
+
+    @Override
+    public void onLogon(int sessionId) {
+        markRecovered(disruptions.get(sessionId));
+    }
+
+    private void markRecovered(Disruption disruption) {
+        if (disruption == null) {
+            return;
+        }
+        synchronized (disruption) {
+            if (disruption.relogonNanos != 0) {
+                return;
+            }
+            disruption.relogonNanos = System.nanoTime();
+        }
+        long outageNanos = disruption.relogonNanos - disruption.startNanos;
+        relogonHistogram.record(outageNanos / 1000);
+        outstandingOutages.decrementAndGet();
+        System.out.println("Chaos: session " + disruption.sessionId + " (" + disruption.mode + ") recovered after "
+                + outageNanos / 1_000_000 + "ms, " + disruption.skippedSends.get() + " sends skipped");
+    }
+
+    /**
+     * 会话是否处于中断中，发送线程据此跳过发送。
+     * 半开挂起只在挂起期间算中断，恢复读写后需要继续发送才能收到作为恢复标志的响应
+     */
+    public boolean isDisrupted(int sessionId) {
+        if (stalledSessions.containsKey(sessionId)) {
+            return true;
+        }
+        Disruption disruption = disruptions.get(sessionId);
+        return disruption != null && disruption.mode != DisruptionMode.HALF_OPEN_STALL
+                && disruption.relogonNanos == 0;
+    }
+
+    /**
+     * 记录一次因会话中断而跳过的发送
+     */
+    public void recordSkippedSend(int sessionId) {
+        skippedSends.increment();
+        Disruption disruption = disruptions.get(sessionId);
+        if (disruption != null) {
+            disruption.skippedSends.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onResponse(int sessionId, long responseTimeMillis) {
+        // 半开挂起恢复读写后连接可能仍然有效，不会重新登录，以挂起结束后的首个响应作为恢复标志
+        Disruption disruption = disruptions.get(sessionId);
+        if (disruption != null && disruption.mode == DisruptionMode.HALF_OPEN_STALL
+                && !stalledSessions.containsKey(sessionId)) {
+            markRecovered(disruption);
+        }
+        if (outstandingOutages.get() == 0) {
+            baselineLatencyHistogram.record(responseTimeMillis * 1000);
+        } else if (!disruptions.containsKey(sessionId)) {
+            // 其他会话中断期间，未受中断会话的响应延迟
+            peerLatencyDuringOutageHistogram.record(responseTimeMillis * 1000);
+        }
+    }
+
+    @Override
+    public void onResendRequest(int sessionId, boolean inbound, int beginSeqNo, int endSeqNo) {
+        if (inbound) {
+            resendRequestsReceived.increment();
+            if (endSeqNo > 0) {
+                resendRangeReceived.add(endSeqNo - beginSeqNo + 1);
+            }
+        } else {
+            resendRequestsSent.increment();
+            if (endSeqNo > 0) {
+                resendRangeSent.add(endSeqNo - beginSeqNo + 1);
+            }
+        }
+    }
+
+    @Override
+    public void onReplayedMessage(int sessionId, boolean inbound, boolean gapFill) {
+        if (inbound) {
+            replayedInbound.increment();
+        } else {
+            replayedOutbound.increment();
+        }
+        if (gapFill) {
+            gapFills.increment();
+        }
+        Disruption disruption = disruptions.get(sessionId);
+        if (disruption != null && disruption.relogonNanos > 0) {
+            disruption.replayed.incrementAndGet();
+            disruption.lastReplayNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * 恢复阶段补发吞吐量（条/秒）：所有已完成恢复中补发消息总数除以补发耗时总和
+     */
+    public double getReplayThroughput() {
+        long nanos = replayNanosDuringRecovery.sum();
+        return nanos == 0 ? 0 : replayedDuringRecovery.sum() * 1_000_000_000.0 / nanos;
+    }
+
+    public long getDisruptionCount(DisruptionMode mode) {
+        return disruptionCounts.get(mode).get();
+    }
+
+    public long getDisruptionFailures() {
+        return disruptionFailures.get();
+    }
+
+    public long getRecoveries() {
+        return recoveries.get();
+    }
+
+    public long getUnrecovered() {
+        return unrecovered.get();
+    }
+
+    public long getResendRequestsSent() {
+        return resendRequestsSent.sum();
+    }
+
+    public long getResendRequestsReceived() {
+        return resendRequestsReceived.sum();
+    }
+
+    public long getResendRangeSent() {
+        return resendRangeSent.sum();
+    }
+
+    public long getResendRangeReceived() {
+        return resendRangeReceived.sum();
+    }
+
+    public long getReplayedInbound() {
+        return replayedInbound.sum();
+    }
+
+    public long getReplayedOutbound() {
+        return replayedOutbound.sum();
+    }
+
+    public long getGapFills() {
+        return gapFills.sum();
+    }
+
+    public long getSkippedSends() {
+        return skippedSends.sum();
+    }
+
+    public LatencyHistogram getRelogonHistogram() {
+        return relogonHistogram;
+    }
+
+    public LatencyHistogram getReplayDurationHistogram() {
+        return replayDurationHistogram;
+    }
+
+    public LatencyHistogram getBaselineLatencyHistogram() {
+        return baselineLatencyHistogram;
+    }
+
+    public LatencyHistogram getPeerLatencyDuringOutageHistogram() {
+        return peerLatencyDuringOutageHistogram;
+    }
+}
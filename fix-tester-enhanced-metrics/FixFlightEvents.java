@@ -0,0 +1,126 @@
+package com.finance.fix.tester;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 发送与接收热路径上的JFR自定义事件
+ * 没有录制在进行时isEnabled()为false，事件对象经逃逸分析消除，开销可忽略；
+ * 事件不采集调用栈，字段只有会话、消息类型和一个耗时
+ */
+public final class FixFlightEvents {
+
+    public static final String SCHEDULED = "com.finance.fix.MessageScheduled";
+    public static final String SENT = "com.finance.fix.MessageSent";
+    public static final String ACKED = "com.finance.fix.MessageAcked";
+    public static final String TIMED_OUT = "com.finance.fix.MessageTimedOut";
+    public static final String LOGON = "com.finance.fix.SessionLogon";
+    public static final String LOGOUT = "com.finance.fix.SessionLogout";
+
+    private FixFlightEvents() {
+    }
+
+    @Category({"FIX", "Load Generator"})
+    @StackTrace(false)
+    abstract static class FixEvent extends Event {
+        @Label("Session")
+        String session;
+
+        @Label("Message Type")
+        String msgType;
+
+        @Label("Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+    }
+
+    @Name(SCHEDULED)
+    @Label("Message Scheduled")
+    @Description("一条消息到达计划发送时刻，latency为实际开始发送相对计划时刻的滞后")
+    static class MessageScheduled extends FixEvent {
+    }
+
+    @Name(SENT)
+    @Label("Message Sent")
+    @Description("消息交给会话发送，latency为sendToTarget耗时")
+    static class MessageSent extends FixEvent {
+    }
+
+    @Name(ACKED)
+    @Label("Message Acked")
+    @Description("收到匹配的响应，latency为请求往返时间")
+    static class MessageAcked extends FixEvent {
+    }
+
+    @Name(TIMED_OUT)
+    @Label("Message Timed Out")
+    @Description("请求超时未收到响应，latency为判定超时时的等待时间")
+    static class MessageTimedOut extends FixEvent {
+    }
+
+    @Name(LOGON)
+    @Label("Session Logon")
+    @Description("会话登录成功，latency为Logon发送到确认的时间")
+    static class SessionLogon extends FixEvent {
+    }
+
+    @Name(LOGOUT)
+    @Label("Session Logout")
+    @Description("会话登出，latency为本次登录的在线时长")
+    static class SessionLogout extends FixEvent {
+    }
+
+    public static void scheduled(String session, String msgType, long latencyNanos) {
+        MessageScheduled event = new MessageScheduled();
+        if (event.isEnabled()) {
+            commit(event, session, msgType, latencyNanos);
+        }
+    }
+
+    public static void sent(String session, String msgType, long latencyNanos) {
+        MessageSent event = new MessageSent();
+        if (event.isEnabled()) {
+            commit(event, session, msgType, latencyNanos);
+        }
+    }
+
+    public static void acked(String session, String msgType, long latencyNanos) {
+        MessageAcked event = new MessageAcked();
+        if (event.isEnabled()) {
+            commit(event, session, msgType, latencyNanos);
+        }
+    }
+
+    public static void timedOut(String session, String msgType, long latencyNanos) {
+        MessageTimedOut event = new MessageTimedOut();
+        if (event.isEnabled()) {
+            commit(event, session, msgType, latencyNanos);
+        }
+    }
+
+    public static void logon(String session, long latencyNanos) {
+        SessionLogon event = new SessionLogon();
+        if (event.isEnabled()) {
+            commit(event, session, "A", latencyNanos);
+        }
+    }
+
+    public static void logout(String session, long latencyNanos) {
+        SessionLogout event = new SessionLogout();
+        if (event.isEnabled()) {
+            commit(event, session, "5", latencyNanos);
+        }
+    }
+
+    private static void commit(FixEvent event, String session, String msgType, long latencyNanos) {
+        event.session = session;
+        event.msgType = msgType;
+        event.latency = latencyNanos;
+        event.commit();
+    }
+}
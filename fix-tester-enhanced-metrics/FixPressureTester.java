@@ -5,7 +5,6 @@ import quickfix.field.*;
 import quickfix.fix44.Heartbeat;
 import quickfix.fix44.TestRequest;
 
-import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
@@ -31,16 +30,57 @@ public class FixPressureTester {
     private final AtomicLong totalConnectionsSucceeded = new AtomicLong(0);
     private final AtomicLong totalConnectionsFailed = new AtomicLong(0);
     private final AtomicLong totalReconnections = new AtomicLong(0);
-    private final AtomicLong totalMessagesSent = new AtomicLong(0);
-    private final AtomicLong totalResponsesReceived = new AtomicLong(0);
-    private final AtomicLong totalTimeouts = new AtomicLong(0);
-    private final List<Long> allResponseTimes = new CopyOnWriteArrayList<>();
-    private final List<Long> connectionEstablishmentTimes = new CopyOnWriteArrayList<>();
+    // 发送、响应、超时按发生时汇总，不保留逐条响应时间
+    private static final String FAILURE_TIMEOUT = "响应超时";
+    private static final String FAILURE_SEND = "发送失败";
+    private final ResultAggregator results = new ResultAggregator();
+    private final TestSessionApplication.SessionEventListener resultListener = new TestSessionApplication.SessionEventListener() {
+        @Override
+        public void onTimeout(int sessionId, long waitedMillis) {
+            results.recordFailure(FAILURE_TIMEOUT);
+        }
+    };
     private final Map<String, Integer> connectionFailureReasons = new ConcurrentHashMap<>();
     
+    // 登录编排：限制并发登录数与登录速率，避免测试端自身造成连接风暴
+    private LogonOrchestrator logonOrchestrator = new LogonOrchestrator(50, 100, 3, 1000, 30000);
+    
+    // 会话宿主模式：为null时每个会话独立创建SocketInitiator，否则所有会话共享一个initiator
+    private SessionHost.EventModel sessionHostModel = null;
+    private int hostIoThreads = Runtime.getRuntime().availableProcessors();
+    private SessionHost sessionHost;
+    private SessionSettings hostSettings;
+    
+    // 会话配置构建器：模板只解析一次，按会话序号在内存中派生配置
+    private SessionSettingsBuilder settingsBuilder;
+    private final List<SessionID> hostSessionIds = new ArrayList<>();
+    
+    // FIX消息日志：异步写入二进制段文件，所有会话共用一个工厂
+    // 默认每次运行使用新的日志目录，日志写入器不会覆盖已有段文件
+    private String messageLogDirectory = "fixlogs_" + System.currentTimeMillis();
+    private BinaryLogFactory.Level messageLogLevel = BinaryLogFactory.Level.MESSAGE;
+    private int messageLogSampleRate = 1;
+    private BinaryLogFactory logFactory;
+    
+    // 逐条消息事件日志：为null时不记录，只保留汇总统计
+    private MessageJournal messageJournal;
+    
+    // 断线重连混沌测试：为null时不主动中断会话
+    private ChaosScheduler chaosScheduler;
+    private long chaosInitialDelayMillis = 30000;
+    
+    // 序列号缺口/重发恢复场景：为null时不注入
+    private SequenceRecoveryScenario recoveryScenario;
+    private long recoveryInitialDelayMillis = 30000;
+    
+    // JFR事件流：为null时只在外部录制开启时产生事件，不做实时汇总与SLO转储
+    private FlightRecorderMonitor flightRecorderMonitor;
+    
     // 系统资源监控
     private final ScheduledExecutorService systemMonitor = Executors.newScheduledThreadPool(1);
     private final List<SystemMetrics> systemMetricsList = new CopyOnWriteArrayList<>();
+    // 压测端JVM自身遥测（每秒一个时间片），发送线程以fix-sender-命名
+    private final JvmTelemetry telemetry = new JvmTelemetry("fix-sender-");
     private final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
     public FixPressureTester(String configTemplatePath, int sessionCount, int messagesPerSession, 
@@ -54,6 +94,43 @@ public class FixPressureTester {
         this.outputReportPath = outputReportPath;
     }
 
+    public void setLogonOrchestrator(LogonOrchestrator logonOrchestrator) {
+        this.logonOrchestrator = logonOrchestrator;
+    }
+
+    public void setSessionHostMode(SessionHost.EventModel eventModel, int ioThreads) {
+        this.sessionHostModel = eventModel;
+        this.hostIoThreads = ioThreads;
+    }
+
+    public void setSessionSettingsBuilder(SessionSettingsBuilder settingsBuilder) {
+        this.settingsBuilder = settingsBuilder;
+    }
+
+    public void setChaosScheduler(ChaosScheduler chaosScheduler, long initialDelayMillis) {
+        this.chaosScheduler = chaosScheduler;
+        this.chaosInitialDelayMillis = initialDelayMillis;
+    }
+
+    public void setRecoveryScenario(SequenceRecoveryScenario recoveryScenario, long initialDelayMillis) {
+        this.recoveryScenario = recoveryScenario;
+        this.recoveryInitialDelayMillis = initialDelayMillis;
+    }
+
+    public void setMessageLog(String directory, BinaryLogFactory.Level level, int sampleRate) {
+        this.messageLogDirectory = directory;
+        this.messageLogLevel = level;
+        this.messageLogSampleRate = sampleRate;
+    }
+
+    public void setMessageJournal(MessageJournal messageJournal) {
+        this.messageJournal = messageJournal;
+    }
+
+    public void setFlightRecorderMonitor(FlightRecorderMonitor flightRecorderMonitor) {
+        this.flightRecorderMonitor = flightRecorderMonitor;
+    }
+
     public void startTest() throws Exception {
         System.out.println("Starting FIX pressure test with " + sessionCount + " sessions...");
         System.out.println("Configuration: " + (isDurationMode ? 
@@ -62,9 +139,27 @@ public class FixPressureTester {
         
         // 启动系统资源监控（每5秒采集一次）
         systemMonitor.scheduleAtFixedRate(this::recordSystemMetrics, 0, 5, TimeUnit.SECONDS);
+        telemetry.start();
+        systemMonitor.scheduleAtFixedRate(this::sampleTelemetry, 1, 1, TimeUnit.SECONDS);
+        if (flightRecorderMonitor != null) {
+            flightRecorderMonitor.start();
+            systemMonitor.scheduleAtFixedRate(flightRecorderMonitor::checkSlo, 1, 1, TimeUnit.SECONDS);
+        }
+        
+        if (settingsBuilder == null) {
+            settingsBuilder = SessionSettingsBuilder.fromFile(configTemplatePath);
+        }
+        logFactory = new BinaryLogFactory(messageLogDirectory, messageLogLevel, messageLogSampleRate,
+                1 << 16, 64 * 1024 * 1024);
+        
+        // 共享initiator模式下先启动宿主，会话随后由登录编排器逐个接入
+        if (sessionHostModel != null) {
+            startSessionHost();
+        }
         
         // 启动所有会话
-        ExecutorService sessionExecutor = Executors.newFixedThreadPool(sessionCount);
+        ExecutorService sessionExecutor = Executors.newFixedThreadPool(sessionCount,
+            SessionHost.namedThreadFactory("fix-sender-"));
         List<Future<?>> sessionFutures = new ArrayList<>();
         
         long testStartTime = System.currentTimeMillis();
@@ -75,7 +170,11 @@ public class FixPressureTester {
             final int sessionId = i;
             Future<?> future = sessionExecutor.submit(() -> {
                 try {
-                    runSession(sessionId, testEndTime);
+                    if (sessionHost != null) {
+                        runHostedSession(sessionId, testEndTime);
+                    } else {
+                        runSession(sessionId, testEndTime);
+                    }
                 } catch (Exception e) {
                     System.err.println("Session " + sessionId + " failed: " + e.getMessage());
                     e.printStackTrace();
@@ -84,6 +183,13 @@ public class FixPressureTester {
             sessionFutures.add(future);
         }
         
+        if (chaosScheduler != null) {
+            chaosScheduler.start(chaosInitialDelayMillis);
+        }
+        if (recoveryScenario != null) {
+            recoveryScenario.start(recoveryInitialDelayMillis);
+        }
+        
         // 等待所有会话完成
         for (Future<?> future : sessionFutures) {
             try {
@@ -93,9 +199,30 @@ public class FixPressureTester {
             }
         }
         
+        if (chaosScheduler != null) {
+            chaosScheduler.stop();
+        }
+        if (recoveryScenario != null) {
+            recoveryScenario.stop();
+        }
+        if (sessionHost != null) {
+            sessionHost.stop();
+        }
+        logFactory.close();
+        if (messageJournal != null) {
+            messageJournal.close();
+        }
+        
         // 停止系统监控
         systemMonitor.shutdown();
         systemMonitor.awaitTermination(1, TimeUnit.MINUTES);
+        telemetry.stop();
+        if (flightRecorderMonitor != null) {
+            flightRecorderMonitor.stop();
+        }
+        String telemetryPath = outputReportPath.replaceFirst("\\.txt$", "") + "_telemetry.csv";
+        telemetry.writeTimeline(telemetryPath);
+        System.out.println("JVM telemetry timeline written to " + telemetryPath);
         
         // 生成测试报告
         generateTestReport(testStartTime, System.currentTimeMillis());
@@ -104,83 +231,160 @@ public class FixPressureTester {
     }
 
     private void runSession(int sessionId, long testEndTime) throws Exception {
-        String sessionConfigPath = createSessionConfig(sessionId);
-        SessionSettings settings = new SessionSettings(new File(sessionConfigPath));
+        SessionSettings settings = settingsBuilder.build(sessionId);
         
         // 连接状态跟踪
-        long connectionAttemptTime = System.currentTimeMillis();
         totalConnectionsAttempted.incrementAndGet();
         
         TestSessionApplication application = new TestSessionApplication(sessionId, timeoutMillis,
                 this::onResponseReceived, this::onConnectionEstablished, this::onConnectionFailed,
                 this::onReconnection);
+        application.addEventListener(resultListener);
+        application.setMessageJournal(messageJournal);
         
-        MessageStoreFactory storeFactory = new MemoryStoreFactory();
-        LogFactory logFactory = new ScreenLogFactory(true, true, true);
+        MessageStoreFactory storeFactory = new BoundedMessageStoreFactory();
         MessageFactory messageFactory = new DefaultMessageFactory();
         
         Initiator initiator = new SocketInitiator(application, storeFactory, settings, logFactory, messageFactory);
         
         try {
-            initiator.start();
-            System.out.println("Session " + sessionId + " started. Waiting for logon...");
-            
-            // 等待连接建立或超时（30秒）
-            if (!application.waitForLogon(30000)) {
-                String reason = "Logon timeout after 30 seconds";
+            // 由登录编排器控制并发与速率，超时后按退避策略重试
+            System.out.println("Session " + sessionId + " waiting for logon slot...");
+            if (!logonOrchestrator.logon(sessionId, initiator, settings, application)) {
+                String reason = "Logon timeout after " + logonOrchestrator.getLogonTimeoutMillis() + "ms with retries";
                 recordConnectionFailure(reason);
                 System.err.println("Session " + sessionId + " failed to logon: " + reason);
                 return;
             }
             
-            // 连接成功，记录建立时间
-            long connectionEstablishedTime = System.currentTimeMillis() - connectionAttemptTime;
-            connectionEstablishmentTimes.add(connectionEstablishedTime);
+            SessionID sessionID = initiator.getSessions().get(0);
+            if (chaosScheduler != null) {
+                chaosScheduler.register(sessionId, sessionID, application);
+            }
+            if (recoveryScenario != null) {
+                recoveryScenario.register(sessionId, sessionID, application);
+            }
+            sendMessages(sessionId, sessionID, application, testEndTime);
+            
+        } finally {
+            initiator.stop();
+        }
+    }
+    
+    // 共享initiator模式下的单个会话：注册到宿主，由登录编排器接入后发送消息
+    private void runHostedSession(int sessionId, long testEndTime) throws Exception {
+        SessionID sessionID = hostSessionIds.get(sessionId);
+        totalConnectionsAttempted.incrementAndGet();
+        
+        TestSessionApplication application = new TestSessionApplication(sessionId, timeoutMillis,
+                this::onResponseReceived, this::onConnectionEstablished, this::onConnectionFailed,
+                this::onReconnection);
+        application.addEventListener(resultListener);
+        application.setMessageJournal(messageJournal);
+        sessionHost.register(sessionID, application);
+        
+        try {
+            if (!logonOrchestrator.logon(sessionId, sessionID, hostSettings, application,
+                    sessionHost.logonStarter(sessionID))) {
+                String reason = "Logon timeout after " + logonOrchestrator.getLogonTimeoutMillis() + "ms with retries";
+                recordConnectionFailure(reason);
+                System.err.println("Session " + sessionId + " failed to logon: " + reason);
+                return;
+            }
             
-            // 开始发送消息
-            RateLimiter rateLimiter = new RateLimiter(tps);
-            int messagesSent = 0;
+            if (chaosScheduler != null) {
+                chaosScheduler.register(sessionId, sessionID, application);
+            }
+            if (recoveryScenario != null) {
+                recoveryScenario.register(sessionId, sessionID, application);
+            }
+            sendMessages(sessionId, sessionID, application, testEndTime);
+        } finally {
+            sessionHost.disconnect(sessionID);
+            application.shutdown();
+        }
+    }
+    
+    // 按速率发送TestRequest，直到达到消息数或测试结束时间
+    private void sendMessages(int sessionId, SessionID sessionID, TestSessionApplication application,
+                              long testEndTime) throws Exception {
+        // 计划发送时刻固定为 起点 + n·间隔，发送落后时连续追赶，计划时刻不随实际发送推迟
+        Pacer pacer = new Pacer(tps, true);
+        int messagesSent = 0;
+        int seq = 0;
+        String sessionName = sessionID.toString();
+        
+        while ((!isDurationMode && messagesSent < messagesPerSession) || 
+               (isDurationMode && System.currentTimeMillis() < testEndTime)) {
+            // 控制发送速率，scheduledNanos为本条消息的计划发送时刻
+            long scheduledNanos = pacer.acquire();
+            long sendStart = System.nanoTime();
+            // 调度滞后：实际开始发送相对计划时刻的落后量，压测端跟得上时接近0
+            FixFlightEvents.scheduled(sessionName, MsgType.TEST_REQUEST, Math.max(0, sendStart - scheduledNanos));
             
-            while ((!isDurationMode && messagesSent < messagesPerSession) || 
-                   (isDurationMode && System.currentTimeMillis() < testEndTime)) {
-                // 控制发送速率
-                rateLimiter.acquire();
-                
-                // 创建并发送TestRequest
-                String testReqID = "TEST_" + sessionId + "_" + System.currentTimeMillis();
-                TestRequest testRequest = new TestRequest();
-                testRequest.set(new TestReqID(testReqID));
-                
-                SessionID sessionID = initiator.getSessions().get(0);
-                if (Session.sendToTarget(testRequest, sessionID)) {
-                    totalMessagesSent.incrementAndGet();
-                    messagesSent++;
-                    application.trackRequest(testReqID, System.currentTimeMillis());
-                    
-                    // 每100条消息打印一次进度
-                    if (messagesSent % 100 == 0) {
-                        System.out.println("Session " + sessionId + " sent " + messagesSent + " messages");
-                    }
-                } else {
-                    System.err.println("Session " + sessionId + " failed to send message " + messagesSent);
-                }
+            // 混沌调度器有意中断的会话跳过发送，单独计数，不刷屏也不计入发送失败
+            if (chaosScheduler != null && chaosScheduler.isDisrupted(sessionId)) {
+                chaosScheduler.recordSkippedSend(sessionId);
+                continue;
             }
             
-            System.out.println("Session " + sessionId + " finished. Sent " + messagesSent + " messages");
+            // 序列号恢复场景的注入在本发送线程中执行，避免与正常发送争抢序号
+            if (recoveryScenario != null) {
+                recoveryScenario.beforeSend(sessionId);
+            }
             
-            // 等待剩余响应（最长超时时间）
-            Thread.sleep(timeoutMillis);
+            // 创建并发送TestRequest
+            String testReqID = "TEST_" + sessionId + "_" + System.currentTimeMillis();
+            TestRequest testRequest = new TestRequest();
+            testRequest.set(new TestReqID(testReqID));
             
-        } finally {
-            initiator.stop();
-            new File(sessionConfigPath).delete(); // 清理临时配置文件
+            seq++;
+            boolean sent = Session.sendToTarget(testRequest, sessionID);
+            long sentNanos = System.nanoTime();
+            FixFlightEvents.sent(sessionName, MsgType.TEST_REQUEST, sentNanos - sendStart);
+            if (messageJournal != null) {
+                messageJournal.append(sessionId, MsgType.TEST_REQUEST, seq, scheduledNanos, sentNanos, 0,
+                        sent ? MessageJournal.STATUS_SENT : MessageJournal.STATUS_SEND_FAILED);
+            }
+            if (sent) {
+                results.recordSent();
+                messagesSent++;
+                application.trackRequest(testReqID, System.currentTimeMillis(), seq, scheduledNanos, sentNanos);
+                
+                // 每100条消息打印一次进度
+                if (messagesSent % 100 == 0) {
+                    System.out.println("Session " + sessionId + " sent " + messagesSent + " messages");
+                }
+            } else {
+                results.recordFailure(FAILURE_SEND);
+                System.err.println("Session " + sessionId + " failed to send message " + messagesSent);
+            }
+        }
+        
+        System.out.println("Session " + sessionId + " finished. Sent " + messagesSent + " messages");
+        
+        // 等待剩余响应（最长超时时间）
+        Thread.sleep(timeoutMillis);
+    }
+    
+    // 创建共享initiator，所有会话的配置一次性在内存中生成
+    private void startSessionHost() throws ConfigError {
+        hostSettings = settingsBuilder.buildAll(0, sessionCount);
+        for (int i = 0; i < sessionCount; i++) {
+            hostSessionIds.add(settingsBuilder.sessionId(i));
         }
+        
+        sessionHost = new SessionHost(hostSettings, new BoundedMessageStoreFactory(), logFactory,
+                new DefaultMessageFactory(), sessionHostModel, hostIoThreads, 10000);
+        logonOrchestrator.attach(sessionHost.getInitiator());
+        sessionHost.start();
+        System.out.println("Session host started (" + sessionHostModel + ", " + hostIoThreads + " I/O threads)");
     }
     
     // 回调方法：处理响应接收
     private void onResponseReceived(long responseTime) {
-        totalResponsesReceived.incrementAndGet();
-        allResponseTimes.add(responseTime);
+        results.recordResponse(responseTime);
+        telemetry.recordLatency(responseTime);
     }
     
     // 回调方法：处理连接建立
@@ -217,22 +421,31 @@ public class FixPressureTester {
         systemMetricsList.add(metrics);
     }
     
+    // 采集一个JVM遥测时间片，异常不能中断周期任务
+    private void sampleTelemetry() {
+        try {
+            telemetry.sample();
+        } catch (Exception e) {
+            System.err.println("JVM telemetry sample failed: " + e.getMessage());
+        }
+    }
+    
     // 生成测试报告
     private void generateTestReport(long startTime, long endTime) throws IOException {
         try (FileWriter writer = new FileWriter(outputReportPath)) {
             long testDuration = endTime - startTime;
             
-            // 计算响应时间统计
-            double avgResponseTime = allResponseTimes.stream().mapToLong(l -> l).average().orElse(0);
-            long minResponseTime = allResponseTimes.stream().mapToLong(l -> l).min().orElse(0);
-            long maxResponseTime = allResponseTimes.stream().mapToLong(l -> l).max().orElse(0);
-            long p95ResponseTime = calculatePercentile(allResponseTimes, 95);
-            long p99ResponseTime = calculatePercentile(allResponseTimes, 99);
+            // 响应时间统计直接取自流式汇总
+            long sent = results.getSent();
+            long responses = results.getResponses();
+            long timeouts = results.getFailures(FAILURE_TIMEOUT);
+            LatencyHistogram responseTimes = results.getResponseTimes();
             
-            // 计算连接时间统计
-            double avgConnectionTime = connectionEstablishmentTimes.stream().mapToLong(l -> l).average().orElse(0);
-            long minConnectionTime = connectionEstablishmentTimes.stream().mapToLong(l -> l).min().orElse(0);
-            long maxConnectionTime = connectionEstablishmentTimes.stream().mapToLong(l -> l).max().orElse(0);
+            // 计算连接时间统计（直方图以微秒记录）
+            LatencyHistogram totalLogon = logonOrchestrator.getTotalLogonHistogram();
+            double avgConnectionTime = totalLogon.getMean() / 1000.0;
+            long minConnectionTime = totalLogon.getMin() / 1000;
+            long maxConnectionTime = totalLogon.getMax() / 1000;
             
             // 汇总系统资源指标
             double avgCpuUsage = systemMetricsList.stream().mapToDouble(m -> m.cpuUsage).average().orElse(0);
@@ -259,24 +472,111 @@ public class FixPressureTester {
             writer.write("  最小连接建立时间: " + minConnectionTime + "ms\n");
             writer.write("  最大连接建立时间: " + maxConnectionTime + "ms\n\n");
             
+            writer.write("登录风暴统计:\n");
+            writer.write("  最大并发登录数: " + logonOrchestrator.getMaxConcurrentLogons() + "\n");
+            writer.write("  登录放行速率: " + (logonOrchestrator.isRampLimited()
+                    ? logonOrchestrator.getLogonsPerSecond() + " 次/秒\n" : "不限速\n"));
+            writer.write("  登录重试次数: " + logonOrchestrator.getLogonRetries() + "\n");
+            writer.write("  登录最终失败数: " + logonOrchestrator.getLogonFailed() + "\n");
+            if (logonOrchestrator.isRampLimited()) {
+                writer.write("  引擎最大登录吞吐量: 未测量（受登录放行速率限制，放行速率设为0时测量）\n");
+            } else {
+                writer.write("  引擎最大登录吞吐量: " + logonOrchestrator.getMaxLogonThroughput() + " 次/秒\n");
+            }
+            writer.write("  平均登录吞吐量: " + String.format("%.2f", logonOrchestrator.getAverageLogonThroughput()) + " 次/秒\n");
+            writeHistogram(writer, "启动至TCP建连", logonOrchestrator.getTcpConnectHistogram());
+            writeHistogram(writer, "TLS握手", logonOrchestrator.getTlsHandshakeHistogram());
+            writeHistogram(writer, "启动至Logon发送", logonOrchestrator.getConnectPhaseHistogram());
+            writeHistogram(writer, "Logon发送至确认", logonOrchestrator.getLogonAckHistogram());
+            writeHistogram(writer, "登录总耗时", totalLogon);
+            writer.write("\n");
+            
+            if (chaosScheduler != null) {
+                writer.write("断线重连混沌统计:\n");
+                for (ChaosScheduler.DisruptionMode mode : ChaosScheduler.DisruptionMode.values()) {
+                    writer.write("  中断次数(" + mode + "): " + chaosScheduler.getDisruptionCount(mode) + "\n");
+                }
+                writer.write("  中断失败次数: " + chaosScheduler.getDisruptionFailures() + "\n");
+                writer.write("  中断期间跳过发送: " + chaosScheduler.getSkippedSends() + " 条\n");
+                writer.write("  已恢复/未恢复: " + chaosScheduler.getRecoveries() + "/" + chaosScheduler.getUnrecovered() + "\n");
+                writer.write("  ResendRequest 发送/接收: " + chaosScheduler.getResendRequestsSent() + "/"
+                        + chaosScheduler.getResendRequestsReceived() + "\n");
+                writer.write("  ResendRequest 请求范围 发送/接收: " + chaosScheduler.getResendRangeSent() + "/"
+                        + chaosScheduler.getResendRangeReceived() + " 条\n");
+                writer.write("  补发消息 接收/发送: " + chaosScheduler.getReplayedInbound() + "/"
+                        + chaosScheduler.getReplayedOutbound() + " (其中GapFill " + chaosScheduler.getGapFills() + ")\n");
+                writer.write("  恢复阶段补发吞吐量: " + String.format("%.2f", chaosScheduler.getReplayThroughput()) + " 条/秒\n");
+                writeHistogram(writer, "中断至恢复", chaosScheduler.getRelogonHistogram());
+                writeHistogram(writer, "重新登录后补发耗时", chaosScheduler.getReplayDurationHistogram());
+                writeHistogram(writer, "无中断时响应延迟", chaosScheduler.getBaselineLatencyHistogram());
+                writeHistogram(writer, "中断期间其余会话响应延迟", chaosScheduler.getPeerLatencyDuringOutageHistogram());
+                writer.write("\n");
+            }
+            
+            if (recoveryScenario != null) {
+                writer.write("序列号恢复场景统计 (" + recoveryScenario.getType() + ", 强度=" + recoveryScenario.getMagnitude() + "):\n");
+                writer.write("  注入次数: " + recoveryScenario.getInjections() + "\n");
+                writer.write("  注入失败次数: " + recoveryScenario.getInjectionFailures() + "\n");
+                writer.write("  恢复超时次数: " + recoveryScenario.getRecoveryTimeouts() + "\n");
+                writer.write("  ResendRequest 发送/接收: " + recoveryScenario.getResendRequestsSent() + "/"
+                        + recoveryScenario.getResendRequestsReceived() + "\n");
+                writer.write("  发送GapFill数: " + recoveryScenario.getGapFillsSent() + "\n");
+                writer.write("  收到补发消息数: " + recoveryScenario.getReplayedInbound() + "\n");
+                writer.write("  健康会话吞吐量 平稳/恢复期间: "
+                        + String.format("%.2f", recoveryScenario.getHealthyThroughputSteady()) + "/"
+                        + String.format("%.2f", recoveryScenario.getHealthyThroughputDuringRecovery()) + " 响应/秒\n");
+                writeHistogram(writer, "恢复耗时", recoveryScenario.getRecoveryHistogram());
+                writeHistogram(writer, "健康会话平稳期延迟", recoveryScenario.getHealthyLatencySteady());
+                writeHistogram(writer, "健康会话恢复期间延迟", recoveryScenario.getHealthyLatencyDuringRecovery());
+                writer.write("\n");
+            }
+            
             writer.write("消息统计:\n");
-            writer.write("  总发送消息数: " + totalMessagesSent.get() + "\n");
-            writer.write("  总响应消息数: " + totalResponsesReceived.get() + " (" + 
-                       String.format("%.2f", (totalResponsesReceived.get() * 100.0 / totalMessagesSent.get())) + "%)\n");
-            writer.write("  超时消息数: " + totalTimeouts.get() + " (" + 
-                       String.format("%.2f", (totalTimeouts.get() * 100.0 / totalMessagesSent.get())) + "%)\n");
-            writer.write("  平均响应时间: " + String.format("%.2f", avgResponseTime) + "ms\n");
-            writer.write("  最小响应时间: " + minResponseTime + "ms\n");
-            writer.write("  最大响应时间: " + maxResponseTime + "ms\n");
-            writer.write("  95%响应时间: " + p95ResponseTime + "ms\n");
-            writer.write("  99%响应时间: " + p99ResponseTime + "ms\n");
-            writer.write("  实际吞吐量: " + String.format("%.2f", 
-                       (totalMessagesSent.get() * 1000.0 / testDuration)) + " TPS\n\n");
+            writer.write("  总发送消息数: " + sent + "\n");
+            writer.write("  总响应消息数: " + responses + " (" + 
+                       String.format("%.2f", (responses * 100.0 / sent)) + "%)\n");
+            writer.write("  超时消息数: " + timeouts + " (" + 
+                       String.format("%.2f", (timeouts * 100.0 / sent)) + "%)\n");
+            for (Map.Entry<String, Long> entry : results.getFailureReasons().entrySet()) {
+                if (!FAILURE_TIMEOUT.equals(entry.getKey())) {
+                    writer.write("  " + entry.getKey() + ": " + entry.getValue() + "\n");
+                }
+            }
+            writer.write("  平均响应时间: " + String.format("%.2f", responseTimes.getMean()) + "ms\n");
+            writer.write("  最小响应时间: " + responseTimes.getMin() + "ms\n");
+            writer.write("  最大响应时间: " + responseTimes.getMax() + "ms\n");
+            writer.write("  95%响应时间: " + responseTimes.getValueAtPercentile(95) + "ms\n");
+            writer.write("  99%响应时间: " + responseTimes.getValueAtPercentile(99) + "ms\n");
+            writer.write("  实际吞吐量: " + String.format("%.2f", results.getSendThroughput(testDuration)) + " TPS\n");
+            writer.write("  响应吞吐量 平均/峰值: " + String.format("%.2f", results.getResponseThroughput(testDuration))
+                       + "/" + results.getPeakResponsesPerSecond() + " 条/秒\n\n");
             
             writer.write("系统资源统计:\n");
             writer.write("  平均CPU使用率: " + String.format("%.2f", avgCpuUsage) + "%\n");
             writer.write("  平均堆内存使用: " + String.format("%.2f", avgHeapUsage / (1024 * 1024)) + "MB\n\n");
             
+            writer.write("压测端JVM遥测:\n");
+            telemetry.writeSummary(writer);
+            writer.write("\n");
+            
+            if (flightRecorderMonitor != null) {
+                writer.write("JFR事件流统计:\n");
+                flightRecorderMonitor.writeSummary(writer);
+                writeHistogram(writer, "调度滞后(实际-计划发送)", flightRecorderMonitor.getScheduleLag());
+                writeHistogram(writer, "请求往返", flightRecorderMonitor.getAckLatency());
+                writeHistogram(writer, "Logon发送至确认", flightRecorderMonitor.getLogonLatency());
+                writer.write("\n");
+            }
+            
+            if (messageJournal != null) {
+                writer.write("消息事件日志:\n");
+                writer.write("  目录: " + messageJournal.getDirectory() + "\n");
+                writer.write("  记录数: " + messageJournal.getRecordCount() + "\n");
+                writer.write("  写入线程/段文件数: " + messageJournal.getWriterCount() + "/"
+                        + messageJournal.getSegmentCount() + "\n");
+                writer.write("  丢弃记录数: " + messageJournal.getDropped() + "\n\n");
+            }
+            
             if (!connectionFailureReasons.isEmpty()) {
                 writer.write("连接失败原因分析:\n");
                 for (Map.Entry<String, Integer> entry : connectionFailureReasons.entrySet()) {
@@ -290,39 +590,18 @@ public class FixPressureTester {
         }
     }
     
-    // 计算百分位值
-    private long calculatePercentile(List<Long> values, double percentile) {
-        if (values.isEmpty()) return 0;
-        Collections.sort(values);
-        int index = (int) Math.ceil(percentile / 100.0 * values.size()) - 1;
-        return values.get(Math.max(0, Math.min(index, values.size() - 1)));
-    }
-    
-    // 创建会话配置文件
-    private String createSessionConfig(int sessionId) throws IOException {
-        // 读取模板并替换会话特定参数
-        List<String> lines = new ArrayList<>();
-        Scanner scanner = new Scanner(new File(configTemplatePath));
-        while (scanner.hasNextLine()) {
-            String line = scanner.nextLine();
-            // 替换SenderCompID，添加会话ID后缀
-            if (line.startsWith("SenderCompID=")) {
-                line += "_" + sessionId;
-            }
-            lines.add(line);
+    // 写入直方图摘要（微秒记录，毫秒输出）
+    private void writeHistogram(FileWriter writer, String name, LatencyHistogram histogram) throws IOException {
+        if (histogram.getCount() == 0) {
+            writer.write("  " + name + ": 无数据\n");
+            return;
         }
-        scanner.close();
-        
-        // 写入临时配置文件
-        String tempConfigPath = "fixconfig_session_" + sessionId + ".cfg";
-        try (FileWriter writer = new FileWriter(tempConfigPath)) {
-            for (String line : lines) {
-                writer.write(line + "\n");
-            }
-        }
-        return tempConfigPath;
+        writer.write(String.format("  %s: 次数=%d, 平均=%.2fms, P50=%.2fms, P95=%.2fms, P99=%.2fms, 最大=%.2fms%n",
+            name, histogram.getCount(), histogram.getMean() / 1000.0,
+            histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(95) / 1000.0,
+            histogram.getValueAtPercentile(99) / 1000.0, histogram.getMax() / 1000.0));
     }
-
+    
     public static void main(String[] args) throws Exception {
         // 解析命令行参数（使用commons-cli库实现，简化代码未展示）
         String configTemplatePath = "fixconfig.template";
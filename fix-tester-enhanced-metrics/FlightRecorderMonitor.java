@@ -0,0 +1,239 @@
+package com.finance.fix.tester;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 常驻的JFR事件流消费者
+ * 通过RecordingStream订阅FixFlightEvents，实时汇总各类事件计数与往返延迟；
+ * 往返延迟按事件结束时间归入所在的秒，事件流越过某一秒（留一秒余量等待乱序事件）后才检查该秒的P99，
+ * 超过SLO时把环形缓冲中最近maxAge的录制数据转储为.jfr文件，
+ * 同时录制GC、安全点和长时间锁等待等JDK事件，便于事后定位尖峰原因
+ */
+public class FlightRecorderMonitor {
+
+    // 事件流越过某一秒后再等待的秒数，等线程缓冲中晚到的事件
+    private static final long LATE_EVENT_GRACE_SECONDS = 1;
+
+    private final double sloP99Millis;
+    private final String dumpDirectory;
+    private final Duration maxAge;
+    private final long dumpCooldownMillis;
+
+    private RecordingStream stream;
+    private final ExecutorService dumpExecutor = Executors.newSingleThreadExecutor(
+        SessionHost.namedThreadFactory("jfr-dump-"));
+
+    // 事件名 -> 计数
+    private final Map<String, LongAdder> eventCounts = new ConcurrentHashMap<>();
+    // 全程往返延迟与调度滞后（实际相对计划发送时刻，微秒）
+    private final LatencyHistogram ackLatency = new LatencyHistogram();
+    private final LatencyHistogram scheduleLag = new LatencyHistogram();
+    private final LatencyHistogram logonLatency = new LatencyHistogram();
+    // 事件结束时间所在秒（纪元秒） -> 该秒的往返延迟（微秒）
+    private final ConcurrentNavigableMap<Long, LatencyHistogram> windowLatency = new ConcurrentSkipListMap<>();
+    // 事件流已到达的最大结束时间（纪元秒）
+    private final AtomicLong streamSecond = new AtomicLong(Long.MIN_VALUE);
+    // 已检查过的最后一秒，之后到达的更早事件不再计入窗口
+    private volatile long checkedThroughSecond = Long.MIN_VALUE;
+
+    private final List<String> dumps = new CopyOnWriteArrayList<>();
+    private volatile long lastDumpMillis = 0;
+    private volatile long sloBreaches = 0;
+    private volatile double lastWindowP99Millis = 0;
+
+    /**
+     * @param sloP99Millis 每秒往返延迟P99的SLO（毫秒）
+     * @param dumpDirectory 违反SLO时转储文件的目录
+     * @param maxAge 环形缓冲保留的时长
+     * @param dumpCooldownMillis 两次转储之间的最小间隔，避免持续违反时反复转储
+     */
+    public FlightRecorderMonitor(double sloP99Millis, String dumpDirectory, Duration maxAge, long dumpCooldownMillis) {
+        if (sloP99Millis <= 0) {
+            throw new IllegalArgumentException("SLO must be positive: " + sloP99Millis);
+        }
+        this.sloP99Millis = sloP99Millis;
+        this.dumpDirectory = dumpDirectory;
+        this.maxAge = maxAge;
+        this.dumpCooldownMillis = dumpCooldownMillis;
+    }
+
+    public void start() {
+        new File(dumpDirectory).mkdirs();
+        stream = new RecordingStream();
+        stream.setMaxAge(maxAge);
+        stream.setMaxSize(256L * 1024 * 1024);
+
+        for (String name : new String[] {FixFlightEvents.SCHEDULED, FixFlightEvents.SENT, FixFlightEvents.ACKED,
+                FixFlightEvents.TIMED_OUT, FixFlightEvents.LOGON, FixFlightEvents.LOGOUT}) {
+            stream.enable(name);
+            stream.onEvent(name, this::onFixEvent);
+        }
+        // 转储文件中用于归因的JDK事件
+        stream.enable("jdk.GarbageCollection");
+        stream.enable("jdk.GCPhasePause");
+        stream.enable("jdk.SafepointBegin");
+        stream.enable("jdk.JavaMonitorEnter").withThreshold(Duration.ofMillis(10));
+        stream.enable("jdk.ThreadPark").withThreshold(Duration.ofMillis(10));
+        stream.enable("jdk.SocketWrite").withThreshold(Duration.ofMillis(10));
+        stream.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(20));
+
+        // 每次刷新后此前提交的事件都已送达，没有FIX事件时也能推进窗口
+        stream.onFlush(() -> advanceStreamSecond(System.currentTimeMillis() / 1000));
+
+        stream.startAsync();
+        System.out.println("JFR event stream started (SLO P99=" + sloP99Millis + "ms, ring buffer " + maxAge.getSeconds() + "s)");
+    }
+
+    private void onFixEvent(RecordedEvent event) {
+        String name = event.getEventType().getName();
+        eventCounts.computeIfAbsent(name, n -> new LongAdder()).increment();
+        long micros = event.getLong("latency") / 1000;
+        long second = event.getEndTime().getEpochSecond();
+        advanceStreamSecond(second);
+        if (FixFlightEvents.ACKED.equals(name)) {
+            ackLatency.record(micros);
+            if (second > checkedThroughSecond) {
+                windowLatency.computeIfAbsent(second, s -> new LatencyHistogram()).record(micros);
+            }
+        } else if (FixFlightEvents.SCHEDULED.equals(name)) {
+            scheduleLag.record(micros);
+        } else if (FixFlightEvents.LOGON.equals(name)) {
+            logonLatency.record(micros);
+        }
+    }
+
+    private void advanceStreamSecond(long second) {
+        streamSecond.accumulateAndGet(second, Math::max);
+    }
+
+    /**
+     * 检查事件流已越过的各秒的SLO，由外部调度线程每秒调用
+     */
+    public void checkSlo() {
+        long current = streamSecond.get();
+        if (current == Long.MIN_VALUE) {
+            return;
+        }
+        long closedThrough = current - 1 - LATE_EVENT_GRACE_SECONDS;
+        if (closedThrough <= checkedThroughSecond) {
+            return;
+        }
+        // 先推进检查位置，之后到达的已检查秒内的事件不再建立新窗口
+        checkedThroughSecond = closedThrough;
+        ConcurrentNavigableMap<Long, LatencyHistogram> closed = windowLatency.headMap(closedThrough, true);
+        boolean breached = false;
+        double worstP99 = 0;
+        double lastP99 = 0;
+        for (Map.Entry<Long, LatencyHistogram> entry : closed.entrySet()) {
+            double p99 = entry.getValue().getValueAtPercentile(99) / 1000.0;
+            if (entry.getKey() == closedThrough) {
+                lastP99 = p99;
+            }
+            if (p99 > sloP99Millis) {
+                sloBreaches++;
+                breached = true;
+                worstP99 = Math.max(worstP99, p99);
+            }
+        }
+        closed.clear();
+        // 最后一个已结束的秒没有确认事件时为0
+        lastWindowP99Millis = lastP99;
+        if (!breached) {
+            return;
+        }
+        double p99 = worstP99;
+        long now = System.currentTimeMillis();
+        if (now - lastDumpMillis < dumpCooldownMillis) {
+            return;
+        }
+        lastDumpMillis = now;
+        String file = dumpDirectory + File.separator + "slo-breach-"
+            + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(now)) + ".jfr";
+        // 转储可能耗时数百毫秒，不占用调度线程和事件流线程
+        dumpExecutor.submit(() -> {
+            try {
+                stream.dump(Path.of(file));
+                dumps.add(file);
+                System.out.println("SLO breached (P99=" + String.format("%.2f", p99) + "ms > " + sloP99Millis
+                    + "ms), flight recording dumped to " + file);
+            } catch (IOException e) {
+                System.err.println("Failed to dump flight recording: " + e.getMessage());
+            }
+        });
+    }
+
+    public void stop() {
+        dumpExecutor.shutdown();
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    public long getEventCount(String name) {
+        LongAdder count = eventCounts.get(name);
+        return count != null ? count.sum() : 0;
+    }
+
+    public double getLastWindowP99Millis() {
+        return lastWindowP99Millis;
+    }
+
+    public long getSloBreaches() {
+        return sloBreaches;
+    }
+
+    public List<String> getDumps() {
+        return new ArrayList<>(dumps);
+    }
+
+    public LatencyHistogram getAckLatency() {
+        return ackLatency;
+    }
+
+    public LatencyHistogram getScheduleLag() {
+        return scheduleLag;
+    }
+
+    public LatencyHistogram getLogonLatency() {
+        return logonLatency;
+    }
+
+    public double getSloP99Millis() {
+        return sloP99Millis;
+    }
+
+    /**
+     * 写入报告摘要
+     */
+    public void writeSummary(FileWriter writer) throws IOException {
+        writer.write("  事件数 调度/发送/确认/超时: " + getEventCount(FixFlightEvents.SCHEDULED) + "/"
+            + getEventCount(FixFlightEvents.SENT) + "/" + getEventCount(FixFlightEvents.ACKED) + "/"
+            + getEventCount(FixFlightEvents.TIMED_OUT) + "\n");
+        writer.write("  事件数 登录/登出: " + getEventCount(FixFlightEvents.LOGON) + "/"
+            + getEventCount(FixFlightEvents.LOGOUT) + "\n");
+        writer.write("  SLO(每秒P99<=" + sloP99Millis + "ms) 违反秒数: " + sloBreaches + "\n");
+        for (String dump : dumps) {
+            writer.write("  录制转储: " + dump + "\n");
+        }
+    }
+}
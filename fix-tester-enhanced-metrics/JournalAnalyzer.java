@@ -0,0 +1,614 @@
+package com.finance.fix.tester;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 消息事件日志离线分析工具：按分组键统计MessageJournal记录的次数、超时与延迟分位
+ * 段文件拆分到ForkJoinPool并行扫描，每个任务为各分组累积独立的直方图，子任务结果两两合并，
+ * 延迟以微秒记入直方图（分桶与LatencyHistogram相同），输出CSV或JSON。
+ * 时间窗口按发送时刻的墙钟时间划分，与墙钟整点对齐。
+ * 用法：JournalAnalyzer <段文件或目录>... [--group session,window,msgtype,step] [--window 秒]
+ *       [--latency sent|scheduled] [--top N] [--format csv|json] [--output 文件] [--threads N]
+ */
+public class JournalAnalyzer {
+
+    /**
+     * 分组维度
+     */
+    public enum Dimension {
+        SESSION,   // 会话序号
+        WINDOW,    // 时间窗口
+        MSG_TYPE,  // FIX消息类型
+        STEP;      // 负载阶梯序号
+
+        public static Dimension parse(String name) {
+            switch (name.trim().toLowerCase(Locale.ROOT)) {
+                case "session":
+                    return SESSION;
+                case "window":
+                    return WINDOW;
+                case "msgtype":
+                case "msg_type":
+                    return MSG_TYPE;
+                case "step":
+                    return STEP;
+                default:
+                    throw new IllegalArgumentException("未知的分组维度: " + name);
+            }
+        }
+    }
+
+    /**
+     * 延迟起点：sent为实际发出时刻，scheduled为发送节奏中的计划时刻（包含落后于计划的时间，可暴露协调遗漏）
+     */
+    public enum LatencyOrigin {
+        SENT,
+        SCHEDULED
+    }
+
+    // 分组键打包为long：会话20位、窗口20位、消息类型16位、阶梯8位，未参与分组的维度为0
+    private static final int SESSION_BITS = 20;
+    private static final int WINDOW_BITS = 20;
+    private static final int MSG_TYPE_BITS = 16;
+    private static final int STEP_BITS = 8;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Set<Dimension> groupBy;
+    private final long windowNanos;
+    private final LatencyOrigin latencyOrigin;
+    private final int parallelism;
+    private final LongAdder recordsScanned = new LongAdder();
+
+    public JournalAnalyzer(Set<Dimension> groupBy, long windowMillis, LatencyOrigin latencyOrigin, int parallelism) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("时间窗口必须大于0: " + windowMillis);
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("并行度必须大于0: " + parallelism);
+        }
+        this.groupBy = groupBy.isEmpty() ? EnumSet.noneOf(Dimension.class) : EnumSet.copyOf(groupBy);
+        this.windowNanos = windowMillis * 1_000_000L;
+        this.latencyOrigin = latencyOrigin;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 并行分析一组段文件
+     * @return 按分组键排序的统计结果
+     */
+    public List<Group> analyze(List<File> files) throws IOException {
+        List<Segment> segments = readHeaders(files);
+        if (segments.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 窗口从最早一个段的起始时刻所在的整窗口开始
+        long origin = segments.stream().mapToLong(s -> s.baseEpochNanos).min().getAsLong();
+        origin -= Math.floorMod(origin, windowNanos);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Map<Long, Group> merged;
+        try {
+            merged = pool.invoke(new ScanTask(segments, 0, segments.size(), origin));
+        } finally {
+            pool.shutdown();
+        }
+
+        List<Group> groups = new ArrayList<>(merged.values());
+        groups.sort((a, b) -> Long.compareUnsigned(a.key, b.key));
+        for (Group group : groups) {
+            group.decode(origin, windowNanos);
+        }
+        return groups;
+    }
+
+    public long getRecordsScanned() {
+        return recordsScanned.sum();
+    }
+
+    /**
+     * 按P99从高到低取前n个分组，如按会话分组时即为最差的n个会话
+     */
+    public static List<Group> worst(List<Group> groups, int n) {
+        List<Group> sorted = new ArrayList<>(groups);
+        sorted.sort(Comparator.comparingLong((Group g) -> g.histogram.getValueAtPercentile(99))
+                .thenComparingLong(g -> g.histogram.getMax())
+                .thenComparingLong(g -> g.timedOut).reversed());
+        return sorted.subList(0, Math.min(n, sorted.size()));
+    }
+
+    public void writeCsv(List<Group> groups, Writer writer) throws IOException {
+        StringBuilder header = new StringBuilder();
+        for (Dimension dimension : groupBy) {
+            header.append(columnName(dimension)).append(',');
+        }
+        header.append("sent,acked,timed_out,send_failed,mean_ms,p50_ms,p90_ms,p99_ms,p999_ms,max_ms\n");
+        writer.write(header.toString());
+
+        for (Group group : groups) {
+            StringBuilder line = new StringBuilder();
+            for (Dimension dimension : groupBy) {
+                line.append(dimensionValue(group, dimension)).append(',');
+            }
+            line.append(group.sent).append(',').append(group.acked).append(',')
+                .append(group.timedOut).append(',').append(group.sendFailed).append(',')
+                .append(millis(group.histogram.getMean()));
+            for (double percentile : PERCENTILES) {
+                line.append(',').append(millis(group.histogram.getValueAtPercentile(percentile)));
+            }
+            line.append(',').append(millis(group.histogram.getMax())).append('\n');
+            writer.write(line.toString());
+        }
+    }
+
+    public void writeJson(List<Group> groups, Writer writer) throws IOException {
+        writer.write("[\n");
+        for (int i = 0; i < groups.size(); i++) {
+            Group group = groups.get(i);
+            StringBuilder line = new StringBuilder("  {");
+            for (Dimension dimension : groupBy) {
+                String value = dimensionValue(group, dimension);
+                boolean quoted = dimension == Dimension.WINDOW || dimension == Dimension.MSG_TYPE;
+                line.append('"').append(columnName(dimension)).append("\": ")
+                    .append(quoted ? "\"" + value + "\"" : value).append(", ");
+            }
+            line.append("\"sent\": ").append(group.sent)
+                .append(", \"acked\": ").append(group.acked)
+                .append(", \"timed_out\": ").append(group.timedOut)
+                .append(", \"send_failed\": ").append(group.sendFailed)
+                .append(", \"mean_ms\": ").append(millis(group.histogram.getMean()))
+                .append(", \"p50_ms\": ").append(millis(group.histogram.getValueAtPercentile(50)))
+                .append(", \"p90_ms\": ").append(millis(group.histogram.getValueAtPercentile(90)))
+                .append(", \"p99_ms\": ").append(millis(group.histogram.getValueAtPercentile(99)))
+                .append(", \"p999_ms\": ").append(millis(group.histogram.getValueAtPercentile(99.9)))
+                .append(", \"max_ms\": ").append(millis(group.histogram.getMax()))
+                .append(i + 1 < groups.size() ? "},\n" : "}\n");
+            writer.write(line.toString());
+        }
+        writer.write("]\n");
+    }
+
+    // 只读取文件头，校验格式并取出墙钟/单调时钟对应关系
+    private static List<Segment> readHeaders(List<File> files) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(MessageJournal.FILE_HEADER_SIZE);
+        for (File file : files) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                header.clear();
+                if (raf.getChannel().read(header, 0) < MessageJournal.FILE_HEADER_SIZE) {
+                    System.err.println("Not a journal segment: " + file);
+                    continue;
+                }
+                header.flip();
+                if (header.getInt() != MessageJournal.MAGIC) {
+                    System.err.println("Not a journal segment: " + file);
+                    continue;
+                }
+                int version = header.getInt();
+                int recordSize = header.getInt();
+                if (version != MessageJournal.VERSION || recordSize != MessageJournal.RECORD_SIZE) {
+                    System.err.println("Unsupported journal version " + version + ": " + file);
+                    continue;
+                }
+                header.getInt(); // writerId
+                long baseEpochNanos = header.getLong();
+                long baseNanoTime = header.getLong();
+                segments.add(new Segment(file, baseEpochNanos, baseEpochNanos - baseNanoTime));
+            }
+        }
+        return segments;
+    }
+
+    private static String columnName(Dimension dimension) {
+        switch (dimension) {
+            case SESSION:
+                return "session";
+            case WINDOW:
+                return "window_start";
+            case MSG_TYPE:
+                return "msg_type";
+            default:
+                return "step";
+        }
+    }
+
+    private static String dimensionValue(Group group, Dimension dimension) {
+        switch (dimension) {
+            case SESSION:
+                return String.valueOf(group.session);
+            case WINDOW:
+                return Instant.ofEpochMilli(group.windowStartMillis).toString();
+            case MSG_TYPE:
+                return group.msgType;
+            default:
+                return String.valueOf(group.step);
+        }
+    }
+
+    private static String millis(double micros) {
+        return String.format(Locale.ROOT, "%.3f", micros / 1000.0);
+    }
+
+    /**
+     * 段文件及其纳秒时间到墙钟时间的偏移
+     */
+    private static final class Segment {
+        final File file;
+        final long baseEpochNanos;
+        final long epochOffsetNanos;
+
+        Segment(File file, long baseEpochNanos, long epochOffsetNanos) {
+            this.file = file;
+            this.baseEpochNanos = baseEpochNanos;
+            this.epochOffsetNanos = epochOffsetNanos;
+        }
+    }
+
+    /**
+     * 二分段文件列表，单个段在当前线程扫描
+     */
+    private final class ScanTask extends RecursiveTask<Map<Long, Group>> {
+        private final List<Segment> segments;
+        private final int from;
+        private final int to;
+        private final long originNanos;
+
+        ScanTask(List<Segment> segments, int from, int to, long originNanos) {
+            this.segments = segments;
+            this.from = from;
+            this.to = to;
+            this.originNanos = originNanos;
+        }
+
+        @Override
+        protected Map<Long, Group> compute() {
+            if (to - from == 1) {
+                try {
+                    return scan(segments.get(from));
+                } catch (IOException e) {
+                    System.err.println("Failed to scan " + segments.get(from).file + ": " + e.getMessage());
+                    e.printStackTrace();
+                    return new HashMap<>();
+                }
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(segments, from, middle, originNanos);
+            left.fork();
+            Map<Long, Group> right = new ScanTask(segments, middle, to, originNanos).compute();
+            return merge(left.join(), right);
+        }
+
+        private Map<Long, Group> scan(Segment segment) throws IOException {
+            Map<Long, Group> groups = new HashMap<>();
+            long scanned = 0;
+            try (RandomAccessFile file = new RandomAccessFile(segment.file, "r")) {
+                MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+                int limit = buffer.limit() - MessageJournal.RECORD_SIZE;
+                long lastKey = 0;
+                Group last = null;
+                for (int pos = MessageJournal.FILE_HEADER_SIZE; pos <= limit; pos += MessageJournal.RECORD_SIZE) {
+                    byte status = buffer.get(pos + 36);
+                    if (status == 0) {
+                        break;
+                    }
+                    int sessionIndex = buffer.getInt(pos);
+                    long scheduledNanos = buffer.getLong(pos + 8);
+                    long sentNanos = buffer.getLong(pos + 16);
+                    long ackNanos = buffer.getLong(pos + 24);
+                    short msgType = buffer.getShort(pos + 32);
+                    short step = buffer.getShort(pos + 34);
+                    scanned++;
+
+                    long key = key(sessionIndex, window(sentNanos + segment.epochOffsetNanos), msgType, step);
+                    Group group = last != null && key == lastKey ? last : groups.computeIfAbsent(key, Group::new);
+                    lastKey = key;
+                    last = group;
+                    switch (status) {
+                        case MessageJournal.STATUS_SENT:
+                            group.sent++;
+                            break;
+                        case MessageJournal.STATUS_ACKED:
+                            group.acked++;
+                            long start = latencyOrigin == LatencyOrigin.SCHEDULED && scheduledNanos != 0
+                                    ? scheduledNanos : sentNanos;
+                            group.histogram.record((ackNanos - start) / 1000);
+                            break;
+                        case MessageJournal.STATUS_TIMED_OUT:
+                            group.timedOut++;
+                            break;
+                        case MessageJournal.STATUS_SEND_FAILED:
+                            group.sendFailed++;
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+            recordsScanned.add(scanned);
+            return groups;
+        }
+
+        private int window(long epochNanos) {
+            return groupBy.contains(Dimension.WINDOW) ? (int) Math.max(0, (epochNanos - originNanos) / windowNanos) : 0;
+        }
+
+        private long key(int sessionIndex, int window, short msgType, short step) {
+            long key = groupBy.contains(Dimension.SESSION) ? sessionIndex & ((1L << SESSION_BITS) - 1) : 0;
+            key = (key << WINDOW_BITS) | (window & ((1L << WINDOW_BITS) - 1));
+            key = (key << MSG_TYPE_BITS) | (groupBy.contains(Dimension.MSG_TYPE) ? msgType & 0xFFFFL : 0);
+            key = (key << STEP_BITS) | (groupBy.contains(Dimension.STEP) ? step & ((1L << STEP_BITS) - 1) : 0);
+            return key;
+        }
+    }
+
+    // 把较小的结果并入较大的结果
+    private static Map<Long, Group> merge(Map<Long, Group> a, Map<Long, Group> b) {
+        Map<Long, Group> target = a.size() >= b.size() ? a : b;
+        Map<Long, Group> source = target == a ? b : a;
+        for (Group group : source.values()) {
+            Group existing = target.putIfAbsent(group.key, group);
+            if (existing != null) {
+                existing.add(group);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * 一个分组的统计结果
+     */
+    public static final class Group {
+        final long key;
+        long sent;
+        long acked;
+        long timedOut;
+        long sendFailed;
+        final Histogram histogram = new Histogram();
+        // 以下由分组键解码，analyze()返回前填充
+        int session;
+        long windowStartMillis;
+        String msgType;
+        int step;
+
+        Group(long key) {
+            this.key = key;
+        }
+
+        void add(Group other) {
+            sent += other.sent;
+            acked += other.acked;
+            timedOut += other.timedOut;
+            sendFailed += other.sendFailed;
+            histogram.add(other.histogram);
+        }
+
+        void decode(long originNanos, long windowNanos) {
+            step = (int) (key & ((1L << STEP_BITS) - 1));
+            short type = (short) ((key >>> STEP_BITS) & 0xFFFF);
+            msgType = type == 0 ? "" : MessageJournal.decodeMsgType(type);
+            long window = (key >>> (STEP_BITS + MSG_TYPE_BITS)) & ((1L << WINDOW_BITS) - 1);
+            windowStartMillis = (originNanos + window * windowNanos) / 1_000_000L;
+            session = (int) (key >>> (STEP_BITS + MSG_TYPE_BITS + WINDOW_BITS));
+        }
+
+        public int getSession() {
+            return session;
+        }
+
+        public long getWindowStartMillis() {
+            return windowStartMillis;
+        }
+
+        public String getMsgType() {
+            return msgType;
+        }
+
+        public int getStep() {
+            return step;
+        }
+
+        public long getSent() {
+            return sent;
+        }
+
+        public long getAcked() {
+            return acked;
+        }
+
+        public long getTimedOut() {
+            return timedOut;
+        }
+
+        public long getSendFailed() {
+            return sendFailed;
+        }
+
+        // 延迟（微秒）
+        public long getLatencyAtPercentile(double percentile) {
+            return histogram.getValueAtPercentile(percentile);
+        }
+
+        public double getMeanLatency() {
+            return histogram.getMean();
+        }
+
+        public long getMaxLatency() {
+            return histogram.getMax();
+        }
+    }
+
+    /**
+     * 单线程可合并直方图，分桶与LatencyHistogram一致，桶数组按实际出现的最大值增长，
+     * 分组很多（如按会话×窗口）时比固定桶数组省内存
+     */
+    static final class Histogram {
+        private long[] counts = new long[LatencyHistogram.bucketCount() / 8];
+        private long count;
+        private long sum;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            int index = LatencyHistogram.indexOf(value);
+            if (index >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.min(LatencyHistogram.bucketCount(),
+                        Math.max(index + 1, counts.length * 2)));
+            }
+            counts[index]++;
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        void add(Histogram other) {
+            if (other.count == 0) {
+                return;
+            }
+            if (other.counts.length > counts.length) {
+                counts = Arrays.copyOf(counts, other.counts.length);
+            }
+            for (int i = 0; i < other.counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            count += other.count;
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+
+        double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        long getMax() {
+            return count == 0 ? 0 : max;
+        }
+
+        long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(LatencyHistogram.highestEquivalentValue(i), max);
+                }
+            }
+            return max;
+        }
+    }
+
+    /**
+     * 展开参数中的目录，只收集事件日志段文件
+     */
+    private static List<File> collectSegments(List<String> paths) {
+        List<File> segments = new ArrayList<>();
+        for (String path : paths) {
+            File file = new File(path);
+            if (file.isDirectory()) {
+                File[] children = file.listFiles((dir, name) -> name.startsWith(MessageJournal.SEGMENT_PREFIX)
+                        && name.endsWith(MessageJournal.SEGMENT_SUFFIX));
+                if (children != null) {
+                    Arrays.sort(children);
+                    segments.addAll(Arrays.asList(children));
+                }
+            } else {
+                segments.add(file);
+            }
+        }
+        return segments;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> paths = new ArrayList<>();
+        Set<Dimension> groupBy = EnumSet.of(Dimension.SESSION, Dimension.WINDOW);
+        long windowSeconds = 10;
+        LatencyOrigin origin = LatencyOrigin.SENT;
+        int top = 0;
+        String format = "csv";
+        String output = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            if ("--group".equals(args[i]) && i + 1 < args.length) {
+                groupBy = EnumSet.noneOf(Dimension.class);
+                for (String name : args[++i].split(",")) {
+                    if (!name.isBlank()) {
+                        groupBy.add(Dimension.parse(name));
+                    }
+                }
+            } else if ("--window".equals(args[i]) && i + 1 < args.length) {
+                windowSeconds = Long.parseLong(args[++i]);
+            } else if ("--latency".equals(args[i]) && i + 1 < args.length) {
+                origin = LatencyOrigin.valueOf(args[++i].toUpperCase(Locale.ROOT));
+            } else if ("--top".equals(args[i]) && i + 1 < args.length) {
+                top = Integer.parseInt(args[++i]);
+            } else if ("--format".equals(args[i]) && i + 1 < args.length) {
+                format = args[++i].toLowerCase(Locale.ROOT);
+            } else if ("--output".equals(args[i]) && i + 1 < args.length) {
+                output = args[++i];
+            } else if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                paths.add(args[i]);
+            }
+        }
+        if (paths.isEmpty()) {
+            System.err.println("Usage: JournalAnalyzer <segment-file-or-directory>... "
+                    + "[--group session,window,msgtype,step] [--window seconds] [--latency sent|scheduled] "
+                    + "[--top N] [--format csv|json] [--output file] [--threads N]");
+            System.exit(1);
+        }
+
+        List<File> segments = collectSegments(paths);
+        JournalAnalyzer analyzer = new JournalAnalyzer(groupBy, windowSeconds * 1000, origin, threads);
+        long start = System.nanoTime();
+        List<Group> groups = analyzer.analyze(segments);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        if (top > 0) {
+            groups = worst(groups, top);
+        }
+
+        Writer writer = output != null ? new FileWriter(output) : new OutputStreamWriter(System.out);
+        try {
+            if ("json".equals(format)) {
+                analyzer.writeJson(groups, writer);
+            } else {
+                analyzer.writeCsv(groups, writer);
+            }
+        } finally {
+            if (output != null) {
+                writer.close();
+            } else {
+                writer.flush();
+            }
+        }
+        System.err.println(analyzer.getRecordsScanned() + " records in " + segments.size() + " segments analyzed in "
+                + elapsedMillis + "ms, " + groups.size() + " groups");
+    }
+}
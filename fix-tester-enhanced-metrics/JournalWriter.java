@@ -0,0 +1,132 @@
+package com.finance.fix.tester;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 消息事件日志的单线程写入器，只能由所属线程调用append()
+ * 段文件创建时按固定大小预分配并整段映射，追加只是对映射区域的顺序写入；
+ * 写满后滚动到下一个段文件，滚动时不强制刷盘，由操作系统回写，close()时对本写入器的所有段文件统一刷盘
+ */
+public class JournalWriter {
+    private final File directory;
+    private final int writerId;
+    private final int segmentSize;
+
+    private int segmentNumber = 0;
+    private RandomAccessFile currentFile;
+    private MappedByteBuffer currentBuffer;
+    // 已滚动的段，close()时刷盘
+    private final List<MappedByteBuffer> rolledBuffers = new ArrayList<>();
+    private boolean failed = false;
+    // 只由写入线程更新，关闭后读取
+    private long records = 0;
+    private long dropped = 0;
+
+    JournalWriter(File directory, int writerId, int segmentSize) {
+        this.directory = directory;
+        this.writerId = writerId;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * 追加一条记录，段文件无法创建时记录被丢弃并计数，不影响发送
+     */
+    public void append(int sessionIndex, short msgType, short step, int seq, long scheduledNanos,
+                       long sentNanos, long ackNanos, byte status) {
+        MappedByteBuffer buffer = currentBuffer;
+        if (buffer == null || buffer.remaining() < MessageJournal.RECORD_SIZE) {
+            if (failed || !roll()) {
+                dropped++;
+                return;
+            }
+            buffer = currentBuffer;
+        }
+        buffer.putInt(sessionIndex);
+        buffer.putInt(seq);
+        buffer.putLong(scheduledNanos);
+        buffer.putLong(sentNanos);
+        buffer.putLong(ackNanos);
+        buffer.putShort(msgType);
+        buffer.putShort(step);
+        buffer.put(status);
+        buffer.put((byte) 0);
+        buffer.putShort((short) 0);
+        records++;
+    }
+
+    public void close() {
+        if (currentFile == null) {
+            return;
+        }
+        try {
+            for (MappedByteBuffer buffer : rolledBuffers) {
+                buffer.force();
+            }
+            rolledBuffers.clear();
+            currentBuffer.force();
+            currentFile.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close journal writer " + writerId + ": " + e.getMessage());
+        }
+        currentFile = null;
+    }
+
+    public int getWriterId() {
+        return writerId;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public int getSegmentCount() {
+        return segmentNumber;
+    }
+
+    private boolean roll() {
+        try {
+            if (currentFile != null) {
+                rolledBuffers.add(currentBuffer);
+                currentFile.close();
+                currentFile = null;
+            }
+            segmentNumber++;
+            File file = new File(directory, String.format("%s%04d-%06d%s",
+                    MessageJournal.SEGMENT_PREFIX, writerId, segmentNumber, MessageJournal.SEGMENT_SUFFIX));
+            currentFile = new RandomAccessFile(file, "rw");
+            // 先截断再扩展，未写入部分保证为0，段结束标记不会读到同名旧文件的记录
+            currentFile.setLength(0);
+            currentFile.setLength(segmentSize);
+            MappedByteBuffer buffer = currentFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            // 记录段起始时刻的墙钟与单调时钟对应关系
+            Instant now = Instant.now();
+            long baseNanoTime = System.nanoTime();
+            buffer.putInt(MessageJournal.MAGIC);
+            buffer.putInt(MessageJournal.VERSION);
+            buffer.putInt(MessageJournal.RECORD_SIZE);
+            buffer.putInt(writerId);
+            buffer.putLong(now.getEpochSecond() * 1_000_000_000L + now.getNano());
+            buffer.putLong(baseNanoTime);
+            currentBuffer = buffer;
+            return true;
+        } catch (IOException e) {
+            System.err.println("Journal writer " + writerId + " failed to roll segment, further events dropped: "
+                    + e.getMessage());
+            e.printStackTrace();
+            failed = true;
+            currentBuffer = null;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.finance.fix.tester;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.reflect.Method;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 压测端JVM自身遥测：GC停顿、分配速率、安全点耗时、发送线程CPU与分配量、直接内存
+ * 每次sample()生成一个时间片，与同一时间片内的响应延迟放在一起，便于判断延迟尖峰是否由压测端自身造成。
+ * 安全点统计依赖HotSpot内部接口，需要以 --add-exports java.management/sun.management=ALL-UNNAMED 启动，否则记为-1
+ */
+public class JvmTelemetry {
+
+    private final String senderThreadPrefix;
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final List<NotificationEmitter> gcEmitters = new ArrayList<>();
+    private final NotificationListener gcListener = this::onGcNotification;
+
+    // 全程GC停顿分布（微秒）
+    private final LatencyHistogram gcPauseHistogram = new LatencyHistogram();
+    // 当前时间片内的GC停顿
+    private final AtomicLong intervalGcPauses = new AtomicLong();
+    private final AtomicLong intervalGcPauseMicros = new AtomicLong();
+    private final AtomicLong intervalGcPauseMaxMicros = new AtomicLong();
+    // 当前时间片内的响应延迟（微秒）
+    private final AtomicReference<LatencyHistogram> intervalLatency = new AtomicReference<>(new LatencyHistogram());
+
+    // 线程ID -> 上次采样的CPU时间与分配量，只在采样线程上访问
+    private final Map<Long, ThreadState> threads = new HashMap<>();
+    private final Method safepointTime;
+    private final Method safepointCount;
+    private final Object hotspotRuntime;
+
+    private final List<Sample> timeline = new CopyOnWriteArrayList<>();
+    private long lastSampleNanos;
+    private long lastSafepointMillis;
+    private long lastSafepointCount;
+    private long peakDirectBytes;
+
+    private static class ThreadState {
+        final String name;
+        final boolean sender;
+        long lastCpuNanos;
+        long lastAllocatedBytes;
+        long totalCpuNanos;
+        long totalAllocatedBytes;
+
+        ThreadState(String name, boolean sender) {
+            this.name = name;
+            this.sender = sender;
+        }
+    }
+
+    /**
+     * 一个时间片的遥测数据
+     */
+    public static class Sample {
+        final long timestamp;               // 时间片结束时间（毫秒）
+        final long responses;               // 时间片内收到的响应数
+        final double latencyP99Millis;      // 时间片内响应延迟P99
+        final double latencyMaxMillis;      // 时间片内响应延迟最大值
+        final long gcPauses;                // GC停顿次数
+        final double gcPauseMillis;         // GC停顿总时长
+        final double gcPauseMaxMillis;      // 最长一次GC停顿
+        final long safepoints;              // 安全点次数，不可用时为-1
+        final long safepointMillis;         // 安全点总耗时，不可用时为-1
+        final double allocationMbPerSec;    // 全部线程分配速率
+        final double senderCpuPercent;      // 发送线程CPU合计（单核百分比）
+        final double senderCpuMaxPercent;   // 最忙的发送线程CPU
+        final double senderAllocationMbPerSec; // 发送线程分配速率
+        final long heapUsedBytes;
+        final long directBytes;             // 直接内存占用
+        final long mappedBytes;             // 内存映射文件占用
+
+        Sample(long timestamp, long responses, double latencyP99Millis, double latencyMaxMillis,
+               long gcPauses, double gcPauseMillis, double gcPauseMaxMillis, long safepoints, long safepointMillis,
+               double allocationMbPerSec, double senderCpuPercent, double senderCpuMaxPercent,
+               double senderAllocationMbPerSec, long heapUsedBytes, long directBytes, long mappedBytes) {
+            this.timestamp = timestamp;
+            this.responses = responses;
+            this.latencyP99Millis = latencyP99Millis;
+            this.latencyMaxMillis = latencyMaxMillis;
+            this.gcPauses = gcPauses;
+            this.gcPauseMillis = gcPauseMillis;
+            this.gcPauseMaxMillis = gcPauseMaxMillis;
+            this.safepoints = safepoints;
+            this.safepointMillis = safepointMillis;
+            this.allocationMbPerSec = allocationMbPerSec;
+            this.senderCpuPercent = senderCpuPercent;
+            this.senderCpuMaxPercent = senderCpuMaxPercent;
+            this.senderAllocationMbPerSec = senderAllocationMbPerSec;
+            this.heapUsedBytes = heapUsedBytes;
+            this.directBytes = directBytes;
+            this.mappedBytes = mappedBytes;
+        }
+
+        // 时间片内压测端自身造成的停顿（GC停顿与安全点取较大者，二者有重叠）
+        double selfPauseMillis() {
+            return Math.max(gcPauseMillis, Math.max(0, safepointMillis));
+        }
+    }
+
+    public JvmTelemetry(String senderThreadPrefix) {
+        this.senderThreadPrefix = senderThreadPrefix;
+        this.threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (threadBean.isThreadCpuTimeSupported()) {
+            threadBean.setThreadCpuTimeEnabled(true);
+        }
+        if (threadBean.isThreadAllocatedMemorySupported()) {
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+        }
+
+        Object runtime = null;
+        Method time = null;
+        Method count = null;
+        try {
+            Class<?> helper = Class.forName("sun.management.ManagementFactoryHelper");
+            Class<?> runtimeType = Class.forName("sun.management.HotspotRuntimeMBean");
+            runtime = helper.getMethod("getHotspotRuntimeMBean").invoke(null);
+            time = runtimeType.getMethod("getTotalSafepointTime");
+            count = runtimeType.getMethod("getSafepointCount");
+            time.invoke(runtime);
+        } catch (Throwable e) {
+            System.out.println("Safepoint statistics unavailable (start with --add-exports "
+                + "java.management/sun.management=ALL-UNNAMED to enable): " + e);
+            runtime = null;
+        }
+        this.hotspotRuntime = runtime;
+        this.safepointTime = runtime != null ? time : null;
+        this.safepointCount = runtime != null ? count : null;
+    }
+
+    /**
+     * 注册GC通知并建立各项计数的基线
+     */
+    public synchronized void start() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) gc;
+                emitter.addNotificationListener(gcListener, null, null);
+                gcEmitters.add(emitter);
+            }
+        }
+        lastSampleNanos = System.nanoTime();
+        lastSafepointMillis = readSafepoint(safepointTime);
+        lastSafepointCount = readSafepoint(safepointCount);
+        updateThreads(0);
+    }
+
+    public void stop() {
+        for (NotificationEmitter emitter : gcEmitters) {
+            try {
+                emitter.removeNotificationListener(gcListener);
+            } catch (Exception e) {
+                // 监听器已被移除
+            }
+        }
+        gcEmitters.clear();
+    }
+
+    /**
+     * 记录一次响应延迟，计入当前时间片
+     */
+    public void recordLatency(long millis) {
+        intervalLatency.get().record(millis * 1000);
+    }
+
+    /**
+     * 结束当前时间片并生成一个样本，由单个调度线程周期调用
+     */
+    public synchronized Sample sample() {
+        long now = System.nanoTime();
+        long elapsedNanos = Math.max(1, now - lastSampleNanos);
+        lastSampleNanos = now;
+        double seconds = elapsedNanos / 1_000_000_000.0;
+
+        LatencyHistogram latency = intervalLatency.getAndSet(new LatencyHistogram());
+        long gcPauses = intervalGcPauses.getAndSet(0);
+        long gcPauseMicros = intervalGcPauseMicros.getAndSet(0);
+        long gcPauseMaxMicros = intervalGcPauseMaxMicros.getAndSet(0);
+
+        long safepointMillis = -1;
+        long safepoints = -1;
+        if (hotspotRuntime != null) {
+            long totalMillis = readSafepoint(safepointTime);
+            long totalCount = readSafepoint(safepointCount);
+            safepointMillis = totalMillis - lastSafepointMillis;
+            safepoints = totalCount - lastSafepointCount;
+            lastSafepointMillis = totalMillis;
+            lastSafepointCount = totalCount;
+        }
+
+        ThreadDelta delta = updateThreads(elapsedNanos);
+
+        long directBytes = 0;
+        long mappedBytes = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                directBytes = pool.getMemoryUsed();
+            } else if ("mapped".equals(pool.getName())) {
+                mappedBytes = pool.getMemoryUsed();
+            }
+        }
+        peakDirectBytes = Math.max(peakDirectBytes, directBytes);
+
+        Sample sample = new Sample(System.currentTimeMillis(), latency.getCount(),
+            latency.getCount() > 0 ? latency.getValueAtPercentile(99) / 1000.0 : 0,
+            latency.getCount() > 0 ? latency.getMax() / 1000.0 : 0,
+            gcPauses, gcPauseMicros / 1000.0, gcPauseMaxMicros / 1000.0, safepoints, safepointMillis,
+            delta.allocatedBytes / seconds / (1024 * 1024),
+            delta.senderCpuNanos * 100.0 / elapsedNanos,
+            delta.senderCpuMaxNanos * 100.0 / elapsedNanos,
+            delta.senderAllocatedBytes / seconds / (1024 * 1024),
+            ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(),
+            directBytes, mappedBytes);
+        timeline.add(sample);
+        return sample;
+    }
+
+    private static class ThreadDelta {
+        long allocatedBytes;
+        long senderAllocatedBytes;
+        long senderCpuNanos;
+        long senderCpuMaxNanos;
+    }
+
+    // 读取所有存活线程的CPU时间与分配量，累加与上次采样的差值
+    private ThreadDelta updateThreads(long elapsedNanos) {
+        ThreadDelta delta = new ThreadDelta();
+        long[] ids = threadBean.getAllThreadIds();
+        long[] cpu = threadBean.isThreadCpuTimeEnabled() ? threadBean.getThreadCpuTime(ids) : null;
+        long[] allocated = threadBean.isThreadAllocatedMemoryEnabled() ? threadBean.getThreadAllocatedBytes(ids) : null;
+
+        Set<Long> alive = new HashSet<>();
+        for (int i = 0; i < ids.length; i++) {
+            ThreadState state = threads.get(ids[i]);
+            if (state == null) {
+                ThreadInfo info = threadBean.getThreadInfo(ids[i]);
+                if (info == null) {
+                    continue;
+                }
+                // 新线程从0开始计算，其首个时间片的增量即为存活以来的累计值
+                state = new ThreadState(info.getThreadName(), info.getThreadName().startsWith(senderThreadPrefix));
+                threads.put(ids[i], state);
+            }
+            alive.add(ids[i]);
+
+            long cpuNanos = cpu != null && cpu[i] >= 0 ? cpu[i] : state.lastCpuNanos;
+            long allocatedBytes = allocated != null && allocated[i] >= 0 ? allocated[i] : state.lastAllocatedBytes;
+            long cpuDelta = cpuNanos - state.lastCpuNanos;
+            long allocatedDelta = allocatedBytes - state.lastAllocatedBytes;
+            state.lastCpuNanos = cpuNanos;
+            state.lastAllocatedBytes = allocatedBytes;
+            if (elapsedNanos == 0) {
+                continue;
+            }
+
+            state.totalCpuNanos += cpuDelta;
+            state.totalAllocatedBytes += allocatedDelta;
+            delta.allocatedBytes += allocatedDelta;
+            if (state.sender) {
+                delta.senderAllocatedBytes += allocatedDelta;
+                delta.senderCpuNanos += cpuDelta;
+                delta.senderCpuMaxNanos = Math.max(delta.senderCpuMaxNanos, cpuDelta);
+            }
+        }
+        // 已结束的非发送线程不再保留，发送线程保留其累计值用于报告
+        threads.entrySet().removeIf(entry -> !alive.contains(entry.getKey()) && !entry.getValue().sender);
+        return delta;
+    }
+
+    private void onGcNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+            GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        // 并发收集器的周期（ZGC/Shenandoah Cycles、G1 Concurrent GC）不是停顿
+        String name = info.getGcName();
+        if (name.contains("Cycles") || name.contains("Concurrent")) {
+            return;
+        }
+        long micros = info.getGcInfo().getDuration() * 1000;
+        gcPauseHistogram.record(micros);
+        intervalGcPauses.incrementAndGet();
+        intervalGcPauseMicros.addAndGet(micros);
+        intervalGcPauseMaxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    private long readSafepoint(Method method) {
+        if (method == null) {
+            return -1;
+        }
+        try {
+            return (Long) method.invoke(hotspotRuntime);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    public LatencyHistogram getGcPauseHistogram() {
+        return gcPauseHistogram;
+    }
+
+    public List<Sample> getTimeline() {
+        return timeline;
+    }
+
+    public long getPeakDirectBytes() {
+        return peakDirectBytes;
+    }
+
+    public boolean isSafepointAvailable() {
+        return hotspotRuntime != null;
+    }
+
+    /**
+     * 写入报告摘要：GC、分配、安全点、直接内存、最忙的发送线程，以及延迟最高的时间片及其同期的压测端停顿
+     */
+    public void writeSummary(FileWriter writer) throws IOException {
+        List<Sample> samples = new ArrayList<>(timeline);
+        if (samples.isEmpty()) {
+            writer.write("  无数据\n");
+            return;
+        }
+
+        long gcPauses = 0;
+        double gcPauseMillis = 0;
+        long safepointMillis = 0;
+        double maxAllocation = 0;
+        double sumAllocation = 0;
+        for (Sample sample : samples) {
+            gcPauses += sample.gcPauses;
+            gcPauseMillis += sample.gcPauseMillis;
+            safepointMillis += Math.max(0, sample.safepointMillis);
+            maxAllocation = Math.max(maxAllocation, sample.allocationMbPerSec);
+            sumAllocation += sample.allocationMbPerSec;
+        }
+        LatencyHistogram pauses = gcPauseHistogram;
+        writer.write("  GC停顿: 次数=" + gcPauses + ", 总时长=" + String.format("%.2f", gcPauseMillis) + "ms"
+            + (pauses.getCount() > 0 ? String.format(", P99=%.2fms, 最大=%.2fms",
+                pauses.getValueAtPercentile(99) / 1000.0, pauses.getMax() / 1000.0) : "") + "\n");
+        writer.write("  安全点总耗时: " + (isSafepointAvailable() ? safepointMillis + "ms" : "不可用") + "\n");
+        writer.write("  分配速率: 平均=" + String.format("%.2f", sumAllocation / samples.size())
+            + "MB/s, 最大=" + String.format("%.2f", maxAllocation) + "MB/s\n");
+        writer.write("  直接内存峰值: " + String.format("%.2f", peakDirectBytes / (1024.0 * 1024)) + "MB\n");
+
+        List<ThreadState> senders = new ArrayList<>();
+        synchronized (this) {
+            for (ThreadState state : threads.values()) {
+                if (state.sender) {
+                    senders.add(state);
+                }
+            }
+        }
+        senders.sort((a, b) -> Long.compare(b.totalCpuNanos, a.totalCpuNanos));
+        writer.write("  发送线程数: " + senders.size() + "\n");
+        for (int i = 0; i < Math.min(5, senders.size()); i++) {
+            ThreadState state = senders.get(i);
+            writer.write(String.format("    %s: CPU=%.2fs, 分配=%.2fMB%n", state.name,
+                state.totalCpuNanos / 1_000_000_000.0, state.totalAllocatedBytes / (1024.0 * 1024)));
+        }
+
+        List<Sample> worst = new ArrayList<>();
+        for (Sample sample : samples) {
+            if (sample.responses > 0) {
+                worst.add(sample);
+            }
+        }
+        worst.sort((a, b) -> Double.compare(b.latencyP99Millis, a.latencyP99Millis));
+        writer.write("  延迟最高的时间片(P99 / 同期压测端停顿 / 发送线程最高CPU / 分配速率):\n");
+        SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss");
+        for (int i = 0; i < Math.min(5, worst.size()); i++) {
+            Sample sample = worst.get(i);
+            writer.write(String.format("    %s  %.2fms / %.2fms / %.1f%% / %.2fMB/s%n",
+                format.format(new Date(sample.timestamp)), sample.latencyP99Millis, sample.selfPauseMillis(),
+                sample.senderCpuMaxPercent, sample.allocationMbPerSec));
+        }
+    }
+
+    /**
+     * 时间线写为CSV，每个时间片一行
+     */
+    public void writeTimeline(String path) throws IOException {
+        try (FileWriter writer = new FileWriter(path)) {
+            writer.write("timestamp,responses,latency_p99_ms,latency_max_ms,gc_pauses,gc_pause_ms,gc_pause_max_ms,"
+                + "safepoints,safepoint_ms,alloc_mb_s,sender_cpu_pct,sender_cpu_max_pct,sender_alloc_mb_s,"
+                + "heap_used_mb,direct_mb,mapped_mb\n");
+            for (Sample sample : timeline) {
+                writer.write(String.format(Locale.ROOT,
+                    "%d,%d,%.3f,%.3f,%d,%.3f,%.3f,%d,%d,%.3f,%.2f,%.2f,%.3f,%.2f,%.2f,%.2f%n",
+                    sample.timestamp, sample.responses, sample.latencyP99Millis, sample.latencyMaxMillis,
+                    sample.gcPauses, sample.gcPauseMillis, sample.gcPauseMaxMillis,
+                    sample.safepoints, sample.safepointMillis, sample.allocationMbPerSec,
+                    sample.senderCpuPercent, sample.senderCpuMaxPercent, sample.senderAllocationMbPerSec,
+                    sample.heapUsedBytes / (1024.0 * 1024), sample.directBytes / (1024.0 * 1024),
+                    sample.mappedBytes / (1024.0 * 1024)));
+            }
+        }
+    }
+}
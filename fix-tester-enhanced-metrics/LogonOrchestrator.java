@@ -0,0 +1,303 @@
+package com.finance.fix.tester;
+
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.filter.ssl.SslFilter;
+import quickfix.ConfigError;
+import quickfix.Initiator;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.mina.SessionConnector;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 登录风暴编排器
+ * 限制同时进行中的登录数量，按设定速率（登录/秒）逐步放行会话，并在超时后按退避策略重试，
+ * 同时记录TCP建连、TLS握手、Logon发送到确认等各阶段耗时（微秒）。
+ * 建连与握手耗时取自会话自身连接上的MINA过滤器，不额外建立探测连接
+ */
+public class LogonOrchestrator {
+    private static final String TIMING_FILTER_NAME = "logonTiming";
+    private static final String TIMING_ATTRIBUTE = LogonOrchestrator.class.getName() + ".timing";
+
+    private final int maxConcurrentLogons;
+    private final long logonsPerSecond;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+    private final long logonTimeoutMillis;
+
+    private final Semaphore inFlightLogons;
+    // 为null时不限制放行速率，只受并发数限制，用于测量引擎最大登录吞吐量
+    private final Pacer rampPacer;
+    private final ConnectTimingFilter connectTimingFilter = new ConnectTimingFilter();
+    private final Map<SessionID, ConnectTiming> connectTimings = new ConcurrentHashMap<>();
+
+    // 各阶段耗时直方图（微秒）
+    private final LatencyHistogram tcpConnectHistogram = new LatencyHistogram();
+    private final LatencyHistogram tlsHandshakeHistogram = new LatencyHistogram();
+    private final LatencyHistogram connectPhaseHistogram = new LatencyHistogram();
+    private final LatencyHistogram logonAckHistogram = new LatencyHistogram();
+    private final LatencyHistogram totalLogonHistogram = new LatencyHistogram();
+
+    // 登录结果统计
+    private final AtomicLong logonSucceeded = new AtomicLong(0);
+    private final AtomicLong logonFailed = new AtomicLong(0);
+    private final AtomicLong logonRetries = new AtomicLong(0);
+    private final Map<Long, LongAdder> logonsPerEpochSecond = new ConcurrentHashMap<>();
+    private final AtomicLong firstLogonAckMillis = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong lastLogonAckMillis = new AtomicLong(0);
+
+    /**
+     * @param logonsPerSecond 登录放行速率，0表示不限速（只受并发数限制）
+     */
+    public LogonOrchestrator(int maxConcurrentLogons, long logonsPerSecond, int maxRetries,
+                             long retryBackoffMillis, long logonTimeoutMillis) {
+        if (maxConcurrentLogons <= 0 || logonsPerSecond < 0) {
+            throw new IllegalArgumentException("并发登录数必须大于0，登录速率不能为负数");
+        }
+        this.maxConcurrentLogons = maxConcurrentLogons;
+        this.logonsPerSecond = logonsPerSecond;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.logonTimeoutMillis = logonTimeoutMillis;
+        this.inFlightLogons = new Semaphore(maxConcurrentLogons, true);
+        // 所有会话线程共享一个节拍器，每次登录领取下一个时隙，严格按速率匀速放行；落后的时隙不追赶，避免突发
+        this.rampPacer = logonsPerSecond > 0 ? new Pacer(logonsPerSecond, false) : null;
+    }
+
+    /**
+     * 在initiator的MINA过滤器链头部挂载计时过滤器，需在initiator启动之前调用
+     */
+    public void attach(Initiator initiator) {
+        if (initiator instanceof SessionConnector) {
+            ((SessionConnector) initiator).setIoFilterChainBuilder(
+                    chain -> chain.addFirst(TIMING_FILTER_NAME, connectTimingFilter));
+        }
+    }
+
+    /**
+     * 一次登录尝试的启动与放弃动作
+     */
+    public interface LogonStarter {
+        void start() throws ConfigError;
+
+        void abort();
+    }
+
+    /**
+     * 在并发与速率限制下启动initiator并等待登录，失败时按指数退避重试
+     * @return 是否在重试次数内登录成功
+     */
+    public boolean logon(int sessionId, Initiator initiator, SessionSettings settings,
+                         TestSessionApplication application) throws ConfigError, InterruptedException {
+        SessionID sessionID = settings.sectionIterator().next();
+        attach(initiator);
+        return logon(sessionId, sessionID, settings, application, new LogonStarter() {
+            @Override
+            public void start() throws ConfigError {
+                initiator.start();
+            }
+
+            @Override
+            public void abort() {
+                initiator.stop(true);
+            }
+        });
+    }
+
+    /**
+     * 通用登录流程，启动动作由调用方提供（例如共享initiator中的动态会话）
+     */
+    public boolean logon(int sessionId, SessionID sessionID, SessionSettings settings,
+                         TestSessionApplication application, LogonStarter starter)
+            throws ConfigError, InterruptedException {
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            if (attempt > 0) {
+                logonRetries.incrementAndGet();
+                long backoff = retryBackoffMillis * (1L << Math.min(attempt - 1, 10));
+                System.err.println("Session " + sessionId + " retrying logon (attempt " + (attempt + 1)
+                        + ") after " + backoff + "ms");
+                Thread.sleep(backoff);
+            }
+
+            // 先取得并发名额再领取放行时隙，在信号量上排队的线程不会提前占用时隙
+            inFlightLogons.acquire();
+            try {
+                if (rampPacer != null) {
+                    rampPacer.acquire();
+                }
+                application.resetLogonTiming();
+                ConnectTiming timing = new ConnectTiming();
+                connectTimings.put(sessionID, timing);
+                long attemptStartNanos = System.nanoTime();
+                starter.start();
+
+                if (application.waitForLogon(logonTimeoutMillis)) {
+                    recordLogon(attemptStartNanos, timing, application);
+                    return true;
+                }
+                // 本次尝试超时，放弃当前连接以便下次重新发起
+                starter.abort();
+            } finally {
+                connectTimings.remove(sessionID);
+                inFlightLogons.release();
+            }
+        }
+        logonFailed.incrementAndGet();
+        return false;
+    }
+
+    private void recordLogon(long attemptStartNanos, ConnectTiming timing, TestSessionApplication application) {
+        long connectedNanos = timing.connectedNanos;
+        if (connectedNanos > 0) {
+            // 含initiator连接任务的调度时间
+            tcpConnectHistogram.record((connectedNanos - attemptStartNanos) / 1000);
+            if (timing.securedNanos > 0) {
+                tlsHandshakeHistogram.record((timing.securedNanos - connectedNanos) / 1000);
+            }
+        }
+        long sentNanos = application.getLogonSentNanos();
+        long ackNanos = application.getLogonAckNanos();
+        if (ackNanos == 0) {
+            ackNanos = System.nanoTime();
+        }
+        if (sentNanos > 0) {
+            connectPhaseHistogram.record((sentNanos - attemptStartNanos) / 1000);
+            logonAckHistogram.record((ackNanos - sentNanos) / 1000);
+        }
+        totalLogonHistogram.record((ackNanos - attemptStartNanos) / 1000);
+        logonSucceeded.incrementAndGet();
+
+        long nowMillis = System.currentTimeMillis();
+        logonsPerEpochSecond.computeIfAbsent(nowMillis / 1000, k -> new LongAdder()).increment();
+        firstLogonAckMillis.accumulateAndGet(nowMillis, Math::min);
+        lastLogonAckMillis.accumulateAndGet(nowMillis, Math::max);
+    }
+
+    /**
+     * 引擎最大登录吞吐量：按秒统计的登录确认数峰值。
+     * 开启放行速率限制时该值不会超过放行速率，只有不限速（logonsPerSecond为0）时才反映引擎能力
+     */
+    public long getMaxLogonThroughput() {
+        long max = 0;
+        for (LongAdder adder : logonsPerEpochSecond.values()) {
+            max = Math.max(max, adder.sum());
+        }
+        return max;
+    }
+
+    /**
+     * 平均登录吞吐量：首个到最后一个登录确认之间的平均速率
+     */
+    public double getAverageLogonThroughput() {
+        long first = firstLogonAckMillis.get();
+        long last = lastLogonAckMillis.get();
+        long succeeded = logonSucceeded.get();
+        if (succeeded == 0 || first == Long.MAX_VALUE) {
+            return 0;
+        }
+        long spanMillis = Math.max(last - first, 1000);
+        return succeeded * 1000.0 / spanMillis;
+    }
+
+    public int getMaxConcurrentLogons() {
+        return maxConcurrentLogons;
+    }
+
+    public long getLogonsPerSecond() {
+        return logonsPerSecond;
+    }
+
+    public boolean isRampLimited() {
+        return rampPacer != null;
+    }
+
+    public long getLogonSucceeded() {
+        return logonSucceeded.get();
+    }
+
+    public long getLogonFailed() {
+        return logonFailed.get();
+    }
+
+    public long getLogonRetries() {
+        return logonRetries.get();
+    }
+
+    public LatencyHistogram getTcpConnectHistogram() {
+        return tcpConnectHistogram;
+    }
+
+    public LatencyHistogram getTlsHandshakeHistogram() {
+        return tlsHandshakeHistogram;
+    }
+
+    public LatencyHistogram getConnectPhaseHistogram() {
+        return connectPhaseHistogram;
+    }
+
+    public LatencyHistogram getLogonAckHistogram() {
+        return logonAckHistogram;
+    }
+
+    public LatencyHistogram getTotalLogonHistogram() {
+        return totalLogonHistogram;
+    }
+
+    public long getLogonTimeoutMillis() {
+        return logonTimeoutMillis;
+    }
+
+    /**
+     * 单次登录尝试中连接阶段的时间点（纳秒），由I/O线程写入
+     */
+    private static class ConnectTiming {
+        volatile long connectedNanos = 0;
+        volatile long securedNanos = 0;
+    }
+
+    /**
+     * 位于SSL过滤器之前的计时过滤器：会话创建即TCP连接建立；
+     * 之后每收到一段原始数据，交给SSL过滤器处理完再检查握手是否已完成
+     */
+    private class ConnectTimingFilter extends IoFilterAdapter {
+        @Override
+        public void sessionCreated(NextFilter nextFilter, IoSession ioSession) throws Exception {
+            long connectedNanos = System.nanoTime();
+            // QuickFIX/J在会话创建回调中把Session挂到IoSession上，因此先向后传递再查找
+            nextFilter.sessionCreated(ioSession);
+            Object quickfixSession = ioSession.getAttribute(SessionConnector.QF_SESSION);
+            if (quickfixSession instanceof Session) {
+                ConnectTiming timing = connectTimings.get(((Session) quickfixSession).getSessionID());
+                if (timing != null && timing.connectedNanos == 0) {
+                    timing.connectedNanos = connectedNanos;
+                    if (ioSession.getFilterChain().get(SslFilter.class) != null) {
+                        ioSession.setAttribute(TIMING_ATTRIBUTE, timing);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void messageReceived(NextFilter nextFilter, IoSession ioSession, Object message) throws Exception {
+            nextFilter.messageReceived(ioSession, message);
+            ConnectTiming timing = (ConnectTiming) ioSession.getAttribute(TIMING_ATTRIBUTE);
+            if (timing == null) {
+                return;
+            }
+            SslFilter sslFilter = (SslFilter) ioSession.getFilterChain().get(SslFilter.class);
+            if (sslFilter == null) {
+                ioSession.removeAttribute(TIMING_ATTRIBUTE);
+            } else if (sslFilter.getSslSession(ioSession) != null) {
+                timing.securedNanos = System.nanoTime();
+                ioSession.removeAttribute(TIMING_ATTRIBUTE);
+            }
+        }
+    }
+}
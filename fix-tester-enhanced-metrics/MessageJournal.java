@@ -0,0 +1,149 @@
+package com.finance.fix.tester;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 逐条消息事件日志（可选），保留原始事件以便不重跑测试即可重新分析
+ * 每个事件写一条定长二进制记录到预分配的内存映射段文件。发送线程、会话I/O线程、超时检查线程
+ * 各自持有一个JournalWriter并写入独立的段文件，追加路径单写者、无锁、不分配对象。
+ * 段文件格式：文件头 [MAGIC(int) VERSION(int) RECORD_SIZE(int) writerId(int) baseEpochNanos(long) baseNanoTime(long)]，
+ * 随后为连续记录 [sessionIndex(int) seq(int) scheduledNanos(long) sentNanos(long) ackNanos(long)
+ * msgType(short) step(short) status(byte) 填充(3字节)]，status为0表示段结束（映射区域未写入部分天然为0）。
+ * 记录中的纳秒时间取自System.nanoTime()，可通过文件头的baseEpochNanos/baseNanoTime换算为墙钟时间
+ */
+public class MessageJournal {
+    public static final int MAGIC = 0x464A4E31; // "FJN1"
+    public static final int VERSION = 1;
+    public static final int FILE_HEADER_SIZE = 32;
+    public static final int RECORD_SIZE = 40;
+    public static final String SEGMENT_PREFIX = "journal-";
+    public static final String SEGMENT_SUFFIX = ".jnl";
+    public static final int MIN_SEGMENT_SIZE = 64 * 1024;
+
+    // 事件状态
+    public static final byte STATUS_SENT = 1;        // 已发出，等待响应
+    public static final byte STATUS_ACKED = 2;       // 收到响应
+    public static final byte STATUS_TIMED_OUT = 3;   // 超过超时时间未收到响应
+    public static final byte STATUS_SEND_FAILED = 4; // 发送失败
+
+    private final File directory;
+    private final int segmentSize;
+    private final AtomicInteger writerIds = new AtomicInteger(0);
+    private final List<JournalWriter> writers = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<JournalWriter> threadWriter = ThreadLocal.withInitial(this::newWriter);
+    // 负载阶梯序号，由驱动方在切换速率时设置，恒定速率测试为0
+    private volatile short step = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * @param directory 事件日志目录，每次运行使用一个不含段文件的目录
+     */
+    public MessageJournal(String directory, int segmentSize) throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("段文件过小: " + segmentSize);
+        }
+        this.directory = new File(directory);
+        if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+            throw new IOException("无法创建事件日志目录: " + directory);
+        }
+        // 写入器编号每次从1开始，段文件会与上次运行同名；分析时也会把残留段文件一起读入并拉前时间窗口起点
+        String[] existing = this.directory.list((dir, name) -> name.startsWith(SEGMENT_PREFIX)
+                && name.endsWith(SEGMENT_SUFFIX));
+        if (existing != null && existing.length > 0) {
+            throw new IOException("事件日志目录中已有" + existing.length + "个段文件，请为本次运行指定新目录或先清空: "
+                    + directory);
+        }
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * 由当前线程追加一条事件记录，每个线程首次调用时创建自己的写入器
+     * @param msgType FIX消息类型（最多两个字符）
+     * @param ackNanos 未收到响应时为0
+     */
+    public void append(int sessionIndex, String msgType, int seq, long scheduledNanos, long sentNanos,
+                       long ackNanos, byte status) {
+        if (closed) {
+            return;
+        }
+        threadWriter.get().append(sessionIndex, encodeMsgType(msgType), step, seq,
+                scheduledNanos, sentNanos, ackNanos, status);
+    }
+
+    public void setStep(int step) {
+        this.step = (short) step;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * 刷盘并关闭所有写入器（含已滚动的段文件），需在各写入线程停止后调用
+     */
+    public void close() {
+        closed = true;
+        for (JournalWriter writer : writers) {
+            writer.close();
+        }
+    }
+
+    public String getDirectory() {
+        return directory.getPath();
+    }
+
+    public int getWriterCount() {
+        return writers.size();
+    }
+
+    // 以下统计在close()之后读取才准确
+    public long getRecordCount() {
+        return writers.stream().mapToLong(JournalWriter::getRecords).sum();
+    }
+
+    public long getDropped() {
+        return writers.stream().mapToLong(JournalWriter::getDropped).sum();
+    }
+
+    public int getSegmentCount() {
+        return writers.stream().mapToInt(JournalWriter::getSegmentCount).sum();
+    }
+
+    // 消息类型按ASCII打包为short，单字符类型低字节为0
+    public static short encodeMsgType(String msgType) {
+        int high = msgType.length() > 0 ? msgType.charAt(0) & 0xFF : 0;
+        int low = msgType.length() > 1 ? msgType.charAt(1) & 0xFF : 0;
+        return (short) ((high << 8) | low);
+    }
+
+    public static String decodeMsgType(short msgType) {
+        char high = (char) ((msgType >> 8) & 0xFF);
+        char low = (char) (msgType & 0xFF);
+        return low == 0 ? String.valueOf(high) : new String(new char[] {high, low});
+    }
+
+    public static String statusName(byte status) {
+        switch (status) {
+            case STATUS_SENT:
+                return "SENT";
+            case STATUS_ACKED:
+                return "ACKED";
+            case STATUS_TIMED_OUT:
+                return "TIMED_OUT";
+            case STATUS_SEND_FAILED:
+                return "SEND_FAILED";
+            default:
+                return "UNKNOWN(" + status + ")";
+        }
+    }
+
+    private JournalWriter newWriter() {
+        JournalWriter writer = new JournalWriter(directory, writerIds.incrementAndGet(), segmentSize);
+        writers.add(writer);
+        return writer;
+    }
+}
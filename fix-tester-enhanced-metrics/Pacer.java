@@ -0,0 +1,49 @@
+package com.finance.fix.tester;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按固定间隔分配时隙的节拍器
+ * 每次acquire()领取下一个时隙（nextSlot += interval）并睡到该时刻，多个线程共享时也严格按速率放行，
+ * 不会像令牌桶那样让同时到达的线程各等一个间隔后一起放行。
+ * catchUp为true时计划时刻固定为 起点 + n·间隔，落后后不等待、连续追赶，返回的计划时刻可用于计算调度滞后；
+ * 为false时落后的时隙作废，从当前时刻重新排，不会因追赶产生突发
+ */
+public class Pacer {
+    private final long intervalNanos;
+    private final boolean catchUp;
+    private final AtomicLong nextSlotNanos;
+
+    public Pacer(double ratePerSecond, boolean catchUp) {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + ratePerSecond);
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.catchUp = catchUp;
+        this.nextSlotNanos = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 领取下一个时隙并等待到该时刻
+     * @return 该时隙的计划时刻（System.nanoTime()时基）
+     */
+    public long acquire() throws InterruptedException {
+        long slot = reserve();
+        long wait = slot - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        return slot;
+    }
+
+    private long reserve() {
+        while (true) {
+            long next = nextSlotNanos.get();
+            long slot = catchUp ? next : Math.max(next, System.nanoTime());
+            if (nextSlotNanos.compareAndSet(next, slot + intervalNanos)) {
+                return slot;
+            }
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.finance.fix.tester;
+
+import quickfix.Message;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionState;
+import quickfix.field.BeginSeqNo;
+import quickfix.field.EndSeqNo;
+import quickfix.field.GapFillFlag;
+import quickfix.field.MsgType;
+import quickfix.field.NewSeqNo;
+import quickfix.field.TestReqID;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 序列号恢复压力场景
+ * 按固定间隔同时对一定比例的会话制造序列号缺口：跳过发送序号、请求大范围重发、连续发送SequenceReset-GapFill。
+ * 注入动作在各会话自己的发送线程中执行（见beforeSend），避免与正常发送争抢序号。
+ * 每次注入后发送一个探测TestRequest，引擎必须先完成恢复才会按序处理它，
+ * 因此探测请求的Heartbeat返回时间即为恢复耗时；同时对比恢复期间与平稳期间健康会话的吞吐量和延迟
+ */
+public class SequenceRecoveryScenario implements TestSessionApplication.SessionEventListener {
+    /**
+     * 场景类型
+     */
+    public enum Type {
+        SKIP_OUTBOUND_SEQNUMS,  // 发送序号直接跳过magnitude个，引擎需向测试端发ResendRequest
+        LARGE_RESEND_REQUEST,   // 向引擎请求重发最近magnitude条消息
+        GAP_FILL_STORM          // 连续发送magnitude条SequenceReset-GapFill，每条向前推进序号
+    }
+
+    private static final String PROBE_PREFIX = "RCV_";
+    // GapFill每次推进的序号数
+    private static final int GAP_FILL_STEP = 10;
+
+    private final Type type;
+    private final double sessionFraction;
+    private final int magnitude;
+    private final long intervalMillis;
+    private final long recoveryTimeoutMillis;
+
+    private final Map<Integer, SessionID> targets = new ConcurrentHashMap<>();
+    private final Map<Integer, TestSessionApplication> applications = new ConcurrentHashMap<>();
+    // 等待在发送线程中执行注入的会话
+    private final Set<Integer> pendingInjections = ConcurrentHashMap.newKeySet();
+    // 进行中的恢复：会话序号 -> 注入时间（纳秒）
+    private final Map<Integer, Long> recovering = new ConcurrentHashMap<>();
+    // 跳号场景中已收到引擎ResendRequest、尚未开始答复的会话
+    private final Set<Integer> resendPending = ConcurrentHashMap.newKeySet();
+    // 跳号场景中已答复引擎ResendRequest的会话，之后的任意Heartbeat都说明引擎已完成恢复
+    private final Set<Integer> resendServed = ConcurrentHashMap.newKeySet();
+    private final AtomicLong probeSequence = new AtomicLong(0);
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "recovery-scenario");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 恢复耗时（微秒）
+    private final LatencyHistogram recoveryHistogram = new LatencyHistogram();
+    // 健康会话在恢复期间/平稳期间的响应延迟（微秒）
+    private final LatencyHistogram healthyLatencyDuringRecovery = new LatencyHistogram();
+    private final LatencyHistogram healthyLatencySteady = new LatencyHistogram();
+
+    private final AtomicLong injections = new AtomicLong(0);
+    private final AtomicLong injectionFailures = new AtomicLong(0);
+    private final AtomicLong recoveryTimeouts = new AtomicLong(0);
+    private final LongAdder resendRequestsReceived = new LongAdder();
+    private final LongAdder resendRequestsSent = new LongAdder();
+    private final LongAdder gapFillsSent = new LongAdder();
+    private final LongAdder replayedInbound = new LongAdder();
+    private final LongAdder healthyResponsesDuringRecovery = new LongAdder();
+    private final LongAdder healthyResponsesSteady = new LongAdder();
+
+    // 恢复窗口计时：至少有一个会话处于恢复中的累计时长
+    private final AtomicInteger activeRecoveries = new AtomicInteger(0);
+    private long recoveryWindowStartNanos = 0;
+    private long recoveryWindowNanos = 0;
+    private long startNanos = 0;
+    private long stopNanos = 0;
+
+    /**
+     * @param type 场景类型
+     * @param sessionFraction 每轮同时注入的会话比例（0~1）
+     * @param magnitude 跳过的序号数 / 请求重发的消息数 / 连续GapFill条数
+     * @param intervalMillis 两轮注入之间的间隔
+     * @param recoveryTimeoutMillis 探测请求超过该时间未返回视为恢复失败
+     */
+    public SequenceRecoveryScenario(Type type, double sessionFraction, int magnitude, long intervalMillis,
+                                    long recoveryTimeoutMillis) {
+        if (sessionFraction <= 0 || sessionFraction > 1) {
+            throw new IllegalArgumentException("会话比例必须在(0, 1]之间: " + sessionFraction);
+        }
+        if (magnitude <= 0) {
+            throw new IllegalArgumentException("场景强度必须大于0: " + magnitude);
+        }
+        this.type = type;
+        this.sessionFraction = sessionFraction;
+        this.magnitude = magnitude;
+        this.intervalMillis = intervalMillis;
+        this.recoveryTimeoutMillis = recoveryTimeoutMillis;
+    }
+
+    public void register(int sessionId, SessionID sessionID, TestSessionApplication application) {
+        targets.put(sessionId, sessionID);
+        applications.put(sessionId, application);
+        application.addEventListener(this);
+    }
+
+    public void start(long initialDelayMillis) {
+        synchronized (this) {
+            startNanos = System.nanoTime();
+        }
+        scheduler.scheduleWithFixedDelay(this::tick, initialDelayMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        System.out.println("Recovery scenario " + type + " started: " + (sessionFraction * 100)
+                + "% of sessions every " + intervalMillis + "ms, magnitude=" + magnitude);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+        pendingInjections.clear();
+        synchronized (this) {
+            stopNanos = System.nanoTime();
+            if (activeRecoveries.get() > 0) {
+                recoveryWindowNanos += stopNanos - recoveryWindowStartNanos;
+            }
+        }
+        recoveryTimeouts.addAndGet(recovering.size());
+        recovering.clear();
+        resendPending.clear();
+        resendServed.clear();
+    }
+
+    private void tick() {
+        try {
+            expireTimedOutRecoveries();
+            injectAcrossSessions();
+        } catch (RuntimeException e) {
+            System.err.println("Recovery scenario error: " + e.getMessage());
+        }
+    }
+
+    private void expireTimedOutRecoveries() {
+        long now = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(recoveryTimeoutMillis);
+        for (Map.Entry<Integer, Long> entry : recovering.entrySet()) {
+            if (now - entry.getValue() > timeoutNanos && recovering.remove(entry.getKey(), entry.getValue())) {
+                resendPending.remove(entry.getKey());
+                resendServed.remove(entry.getKey());
+                recoveryTimeouts.incrementAndGet();
+                endRecovery();
+                System.err.println("Session " + entry.getKey() + " did not recover from " + type
+                        + " within " + recoveryTimeoutMillis + "ms");
+            }
+        }
+    }
+
+    private void injectAcrossSessions() {
+        List<Integer> candidates = new ArrayList<>();
+        for (Map.Entry<Integer, TestSessionApplication> entry : applications.entrySet()) {
+            if (entry.getValue().isConnected() && !recovering.containsKey(entry.getKey())
+                    && !pendingInjections.contains(entry.getKey())) {
+                candidates.add(entry.getKey());
+            }
+        }
+        Collections.shuffle(candidates);
+        int count = Math.min(candidates.size(), (int) Math.ceil(targets.size() * sessionFraction));
+        // 同一轮选中的会话在各自下一次发送时同时注入
+        pendingInjections.addAll(candidates.subList(0, count));
+    }
+
+    /**
+     * 在会话发送线程中每次发送前调用，若该会话本轮被选中则在此执行注入
+     */
+    public void beforeSend(int sessionId) {
+        if (!pendingInjections.isEmpty() && pendingInjections.remove(sessionId)) {
+            inject(sessionId);
+        }
+    }
+
+    private void inject(int sessionId) {
+        Session session = Session.lookupSession(targets.get(sessionId));
+        if (session == null || !session.isLoggedOn()) {
+            injectionFailures.incrementAndGet();
+            return;
+        }
+
+        long injectedAt = System.nanoTime();
+        if (recovering.putIfAbsent(sessionId, injectedAt) != null) {
+            return;
+        }
+        beginRecovery();
+        try {
+            switch (type) {
+                case SKIP_OUTBOUND_SEQNUMS:
+                    // 序号只增不减，与QuickFIX/J心跳线程并发发送时也不会产生过小的序号
+                    resendPending.remove(sessionId);
+                    resendServed.remove(sessionId);
+                    session.setNextSenderMsgSeqNum(session.getExpectedSenderNum() + magnitude);
+                    break;
+                case LARGE_RESEND_REQUEST:
+                    int endSeqNo = session.getExpectedTargetNum() - 1;
+                    int beginSeqNo = Math.max(1, endSeqNo - magnitude + 1);
+                    Message resendRequest = newAdminMessage(MsgType.RESEND_REQUEST);
+                    resendRequest.setInt(BeginSeqNo.FIELD, beginSeqNo);
+                    resendRequest.setInt(EndSeqNo.FIELD, endSeqNo);
+                    session.send(resendRequest);
+                    break;
+                case GAP_FILL_STORM:
+                    // 发送GapFill与推进序号必须在发送序号锁内一起完成，否则心跳等消息可能在两步之间占用序号
+                    SessionState state = sessionStateOf(session);
+                    for (int i = 0; i < magnitude; i++) {
+                        state.lockSenderMsgSeqNum();
+                        try {
+                            int newSeqNo = session.getExpectedSenderNum() + GAP_FILL_STEP;
+                            Message gapFill = newAdminMessage(MsgType.SEQUENCE_RESET);
+                            gapFill.setBoolean(GapFillFlag.FIELD, true);
+                            gapFill.setInt(NewSeqNo.FIELD, newSeqNo);
+                            session.send(gapFill);
+                            session.setNextSenderMsgSeqNum(newSeqNo);
+                        } finally {
+                            state.unlockSenderMsgSeqNum();
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+            injections.incrementAndGet();
+
+            // 探测请求排在缺口之后，引擎完成恢复后才会响应；跳号场景中它同时让引擎立即发现缺口
+            sendProbe(session, sessionId);
+        } catch (Exception e) {
+            System.err.println("Failed to inject " + type + " into session " + sessionId + ": " + e.getMessage());
+            injectionFailures.incrementAndGet();
+            if (recovering.remove(sessionId, injectedAt)) {
+                endRecovery();
+            }
+        }
+    }
+
+    private void sendProbe(Session session, int sessionId) {
+        Message probe = newAdminMessage(MsgType.TEST_REQUEST);
+        probe.setString(TestReqID.FIELD, PROBE_PREFIX + sessionId + "_" + probeSequence.incrementAndGet());
+        session.send(probe);
+    }
+
+    // Session.send()在SessionState的发送序号锁（可重入）内分配序号，该字段不公开，通过反射获取
+    private static SessionState sessionStateOf(Session session) throws ReflectiveOperationException {
+        Field field = Session.class.getDeclaredField("state");
+        field.setAccessible(true);
+        return (SessionState) field.get(session);
+    }
+
+    private static Message newAdminMessage(String msgType) {
+        Message message = new Message();
+        message.getHeader().setString(MsgType.FIELD, msgType);
+        return message;
+    }
+
+    private synchronized void beginRecovery() {
+        if (activeRecoveries.getAndIncrement() == 0) {
+            recoveryWindowStartNanos = System.nanoTime();
+        }
+    }
+
+    private synchronized void endRecovery() {
+        if (activeRecoveries.decrementAndGet() == 0) {
+            recoveryWindowNanos += System.nanoTime() - recoveryWindowStartNanos;
+        }
+    }
+
+    @Override
+    public void onHeartbeat(int sessionId, String testReqID) {
+        Long injectedAt = recovering.get(sessionId);
+        if (injectedAt == null) {
+            return;
+        }
+        // 跳号场景中缺口之后发出的探测请求会被我方的GapFill覆盖，
+        // 以ResendRequest之后收到的第一个Heartbeat作为恢复完成的标志
+        boolean recovered = type == Type.SKIP_OUTBOUND_SEQNUMS
+                ? resendServed.contains(sessionId) : testReqID.startsWith(PROBE_PREFIX);
+        if (recovered && recovering.remove(sessionId, injectedAt)) {
+            resendPending.remove(sessionId);
+            resendServed.remove(sessionId);
+            recoveryHistogram.record((System.nanoTime() - injectedAt) / 1000);
+            endRecovery();
+        }
+    }
+
+    @Override
+    public void onResponse(int sessionId, long responseTimeMillis) {
+        if (recovering.containsKey(sessionId)) {
+            return;
+        }
+        if (activeRecoveries.get() > 0) {
+            healthyResponsesDuringRecovery.increment();
+            healthyLatencyDuringRecovery.record(responseTimeMillis * 1000);
+        } else {
+            healthyResponsesSteady.increment();
+            healthyLatencySteady.record(responseTimeMillis * 1000);
+        }
+    }
+
+    @Override
+    public void onResendRequest(int sessionId, boolean inbound, int beginSeqNo, int endSeqNo) {
+        if (inbound) {
+            resendRequestsReceived.increment();
+            if (type == Type.SKIP_OUTBOUND_SEQNUMS && recovering.containsKey(sessionId)
+                    && !resendServed.contains(sessionId)) {
+                // QuickFIX/J在本回调返回后才答复，探测请求等到答复开始发出时再发，使其不被GapFill覆盖
+                resendPending.add(sessionId);
+            }
+        } else {
+            resendRequestsSent.increment();
+        }
+    }
+
+    @Override
+    public void onReplayedMessage(int sessionId, boolean inbound, boolean gapFill) {
+        if (inbound) {
+            replayedInbound.increment();
+            return;
+        }
+        if (gapFill) {
+            gapFillsSent.increment();
+        }
+        if (resendPending.remove(sessionId)) {
+            resendServed.add(sessionId);
+            // 当前线程正在发送答复，探测请求交给调度线程，会在答复释放发送序号锁后取得更大的序号
+            scheduler.execute(() -> {
+                Session session = Session.lookupSession(targets.get(sessionId));
+                if (session != null && session.isLoggedOn()) {
+                    sendProbe(session, sessionId);
+                }
+            });
+        }
+    }
+
+    /**
+     * 恢复期间健康会话的吞吐量（响应/秒）
+     */
+    public synchronized double getHealthyThroughputDuringRecovery() {
+        return recoveryWindowNanos == 0 ? 0
+                : healthyResponsesDuringRecovery.sum() * 1_000_000_000.0 / recoveryWindowNanos;
+    }
+
+    /**
+     * 平稳期间（无会话处于恢复中）健康会话的吞吐量（响应/秒）
+     */
+    public synchronized double getHealthyThroughputSteady() {
+        long end = stopNanos > 0 ? stopNanos : System.nanoTime();
+        long steadyNanos = end - startNanos - recoveryWindowNanos;
+        return steadyNanos <= 0 ? 0 : healthyResponsesSteady.sum() * 1_000_000_000.0 / steadyNanos;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getMagnitude() {
+        return magnitude;
+    }
+
+    public long getInjections() {
+        return injections.get();
+    }
+
+    public long getInjectionFailures() {
+        return injectionFailures.get();
+    }
+
+    public long getRecoveryTimeouts() {
+        return recoveryTimeouts.get();
+    }
+
+    public long getResendRequestsReceived() {
+        return resendRequestsReceived.sum();
+    }
+
+    public long getResendRequestsSent() {
+        return resendRequestsSent.sum();
+    }
+
+    public long getGapFillsSent() {
+        return gapFillsSent.sum();
+    }
+
+    public long getReplayedInbound() {
+        return replayedInbound.sum();
+    }
+
+    public LatencyHistogram getRecoveryHistogram() {
+        return recoveryHistogram;
+    }
+
+    public LatencyHistogram getHealthyLatencyDuringRecovery() {
+        return healthyLatencyDuringRecovery;
+    }
+
+    public LatencyHistogram getHealthyLatencySteady() {
+        return healthyLatencySteady;
+    }
+}
@@ -0,0 +1,231 @@
+package com.finance.fix.tester;
+
+import quickfix.*;
+import quickfix.mina.initiator.AbstractSocketInitiator;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 会话宿主：所有会话共享同一个initiator（同一组定时器、重连线程与事件处理线程），
+ * 避免每个会话各自创建SocketInitiator带来的线程与内存开销
+ */
+public class SessionHost {
+    private static final String DYNAMIC_SESSION = "DynamicSession";
+
+    /**
+     * 事件处理模型
+     */
+    public enum EventModel {
+        SINGLE_THREADED,     // SocketInitiator：所有会话共用一个消息处理线程
+        THREAD_PER_SESSION   // ThreadedSocketInitiator：每个会话一个消息处理线程
+    }
+
+    private final EventModel eventModel;
+    private final int ioThreads;
+    private final AbstractSocketInitiator initiator;
+    private final Map<SessionID, Application> applications = new ConcurrentHashMap<>();
+    private final Set<SessionID> createdSessions = ConcurrentHashMap.newKeySet();
+    private final ExecutorService longLivedExecutor;
+    private final ExecutorService shortLivedExecutor;
+
+    public SessionHost(SessionSettings settings, MessageStoreFactory storeFactory, LogFactory logFactory,
+                       MessageFactory messageFactory, EventModel eventModel, int ioThreads,
+                       int queueCapacity) throws ConfigError {
+        this.eventModel = eventModel;
+        this.ioThreads = Math.max(1, ioThreads);
+
+        // 所有会话标记为动态会话，start()时不立即连接，由connect()逐个创建，便于登录编排器控制节奏
+        Iterator<SessionID> sections = settings.sectionIterator();
+        while (sections.hasNext()) {
+            settings.setBool(sections.next(), DYNAMIC_SESSION, true);
+        }
+
+        Application dispatcher = new SessionDispatcher();
+        if (eventModel == EventModel.THREAD_PER_SESSION) {
+            initiator = ThreadedSocketInitiator.newBuilder()
+                    .withApplication(dispatcher)
+                    .withMessageStoreFactory(storeFactory)
+                    .withSettings(settings)
+                    .withLogFactory(logFactory)
+                    .withMessageFactory(messageFactory)
+                    .withQueueCapacity(queueCapacity)
+                    .withReconnectThreads(this.ioThreads)
+                    .build();
+        } else {
+            initiator = SocketInitiator.newBuilder()
+                    .withApplication(dispatcher)
+                    .withMessageStoreFactory(storeFactory)
+                    .withSettings(settings)
+                    .withLogFactory(logFactory)
+                    .withMessageFactory(messageFactory)
+                    .withQueueCapacity(queueCapacity)
+                    .withReconnectThreads(this.ioThreads)
+                    .build();
+        }
+
+        // 共享的线程池：长期线程承载消息处理，短期线程承载连接相关的短任务
+        longLivedExecutor = Executors.newCachedThreadPool(namedThreadFactory("qfj-host-event-"));
+        shortLivedExecutor = Executors.newFixedThreadPool(this.ioThreads, namedThreadFactory("qfj-host-io-"));
+        initiator.setExecutorFactory(new ExecutorFactory() {
+            @Override
+            public Executor getLongLivedExecutor() {
+                return longLivedExecutor;
+            }
+
+            @Override
+            public Executor getShortLivedExecutor() {
+                return shortLivedExecutor;
+            }
+        });
+    }
+
+    /**
+     * 注册某个会话的应用回调，需在connect()之前调用
+     */
+    public void register(SessionID sessionID, Application application) {
+        applications.put(sessionID, application);
+    }
+
+    public void start() throws ConfigError {
+        initiator.start();
+    }
+
+    /**
+     * 发起会话连接：首次调用时创建动态会话，之后重新启用已登出的会话
+     */
+    public void connect(SessionID sessionID) throws ConfigError {
+        if (createdSessions.add(sessionID)) {
+            initiator.createDynamicSession(sessionID);
+        } else {
+            Session session = Session.lookupSession(sessionID);
+            if (session != null) {
+                session.logon();
+            }
+        }
+    }
+
+    /**
+     * 登出会话并停止其自动重连
+     */
+    public void disconnect(SessionID sessionID) {
+        Session session = Session.lookupSession(sessionID);
+        if (session != null) {
+            session.logout();
+        }
+    }
+
+    public void stop() {
+        initiator.stop(true);
+        longLivedExecutor.shutdownNow();
+        shortLivedExecutor.shutdownNow();
+    }
+
+    public Initiator getInitiator() {
+        return initiator;
+    }
+
+    public EventModel getEventModel() {
+        return eventModel;
+    }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    /**
+     * 登录编排器使用的启动动作：首次创建会话，超时后登出等待重试
+     */
+    public LogonOrchestrator.LogonStarter logonStarter(SessionID sessionID) {
+        return new LogonOrchestrator.LogonStarter() {
+            @Override
+            public void start() throws ConfigError {
+                connect(sessionID);
+            }
+
+            @Override
+            public void abort() {
+                disconnect(sessionID);
+            }
+        };
+    }
+
+    static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger(0);
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 按SessionID把QuickFIX/J回调分发给各会话自己的应用实例
+     */
+    private class SessionDispatcher implements Application {
+        @Override
+        public void onCreate(SessionID sessionId) {
+            Application application = applications.get(sessionId);
+            if (application != null) {
+                application.onCreate(sessionId);
+            }
+        }
+
+        @Override
+        public void onLogon(SessionID sessionId) {
+            Application application = applications.get(sessionId);
+            if (application != null) {
+                application.onLogon(sessionId);
+            }
+        }
+
+        @Override
+        public void onLogout(SessionID sessionId) {
+            Application application = applications.get(sessionId);
+            if (application != null) {
+                application.onLogout(sessionId);
+            }
+        }
+
+        @Override
+        public void toAdmin(Message message, SessionID sessionId) {
+            Application application = applications.get(sessionId);
+            if (application != null) {
+                application.toAdmin(message, sessionId);
+            }
+        }
+
+        @Override
+        public void fromAdmin(Message message, SessionID sessionId)
+                throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, RejectLogon {
+            Application application = applications.get(sessionId);
+            if (application != null) {
+                application.fromAdmin(message, sessionId);
+            }
+        }
+
+        @Override
+        public void toApp(Message message, SessionID sessionId) throws DoNotSend {
+            Application application = applications.get(sessionId);
+            if (application != null) {
+                application.toApp(message, sessionId);
+            }
+        }
+
+        @Override
+        public void fromApp(Message message, SessionID sessionId)
+                throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, UnsupportedMessageType {
+            Application application = applications.get(sessionId);
+            if (application != null) {
+                application.fromApp(message, sessionId);
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.finance.fix.tester;
+
+import quickfix.*;
+import quickfix.field.MsgType;
+import quickfix.field.TestReqID;
+import quickfix.fix44.TestRequest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 会话承载模型对比基准：每会话独立SocketInitiator、共享单线程initiator、共享每会话线程initiator，
+ * 在相同会话数与发送速率下比较吞吐量、线程数与堆内存占用
+ */
+public class SessionHostBenchmark {
+    private final String configTemplatePath;
+    private final int sessionCount;
+    private final int durationSeconds;
+    private final int tpsPerSession;
+    private final int ioThreads;
+    // 所有模型共用同一个日志工厂，保证对比只反映承载模型本身的差异
+    private final LogFactory logFactory;
+    private SessionSettingsBuilder settingsBuilder;
+
+    public SessionHostBenchmark(String configTemplatePath, int sessionCount, int durationSeconds,
+                                int tpsPerSession, int ioThreads, LogFactory logFactory) {
+        this.configTemplatePath = configTemplatePath;
+        this.sessionCount = sessionCount;
+        this.durationSeconds = durationSeconds;
+        this.tpsPerSession = tpsPerSession;
+        this.ioThreads = ioThreads;
+        this.logFactory = logFactory;
+    }
+
+    /**
+     * 单个模型的测量结果
+     */
+    public static class Result {
+        final String model;
+        final long logonMillis;
+        final long sent;
+        final long acked;
+        final double sentPerSecond;
+        final double ackedPerSecond;
+        final int liveThreads;
+        final int peakThreads;
+        final long heapUsedBytes;
+
+        Result(String model, long logonMillis, long sent, long acked, double sentPerSecond,
+               double ackedPerSecond, int liveThreads, int peakThreads, long heapUsedBytes) {
+            this.model = model;
+            this.logonMillis = logonMillis;
+            this.sent = sent;
+            this.acked = acked;
+            this.sentPerSecond = sentPerSecond;
+            this.ackedPerSecond = ackedPerSecond;
+            this.liveThreads = liveThreads;
+            this.peakThreads = peakThreads;
+            this.heapUsedBytes = heapUsedBytes;
+        }
+    }
+
+    public List<Result> runAll() throws Exception {
+        settingsBuilder = SessionSettingsBuilder.fromFile(configTemplatePath);
+        List<Result> results = new ArrayList<>();
+        results.add(runPerSessionInitiators());
+        results.add(runSharedHost(SessionHost.EventModel.SINGLE_THREADED));
+        results.add(runSharedHost(SessionHost.EventModel.THREAD_PER_SESSION));
+        return results;
+    }
+
+    // 基线：每个会话各自创建SocketInitiator
+    private Result runPerSessionInitiators() throws Exception {
+        settleJvm();
+        BenchmarkApplication application = new BenchmarkApplication(sessionCount);
+        List<Initiator> initiators = new ArrayList<>();
+        List<SessionID> sessionIds = new ArrayList<>();
+
+        long logonStart = System.currentTimeMillis();
+        for (int i = 0; i < sessionCount; i++) {
+            SessionSettings settings = settingsBuilder.build(i);
+            sessionIds.add(settings.sectionIterator().next());
+            Initiator initiator = new SocketInitiator(application, new MemoryStoreFactory(), settings,
+                    logFactory, new DefaultMessageFactory());
+            initiator.start();
+            initiators.add(initiator);
+        }
+        try {
+            return measure("PER_SESSION_INITIATOR", application, sessionIds, logonStart);
+        } finally {
+            for (Initiator initiator : initiators) {
+                initiator.stop(true);
+            }
+        }
+    }
+
+    // 所有会话共享一个initiator
+    private Result runSharedHost(SessionHost.EventModel eventModel) throws Exception {
+        settleJvm();
+        BenchmarkApplication application = new BenchmarkApplication(sessionCount);
+        SessionSettings settings = settingsBuilder.buildAll(0, sessionCount);
+        List<SessionID> sessionIds = new ArrayList<>();
+        settings.sectionIterator().forEachRemaining(sessionIds::add);
+
+        SessionHost host = new SessionHost(settings, new MemoryStoreFactory(), logFactory,
+                new DefaultMessageFactory(), eventModel, ioThreads, 10000);
+        long logonStart = System.currentTimeMillis();
+        host.start();
+        for (SessionID sessionID : sessionIds) {
+            host.register(sessionID, application);
+            host.connect(sessionID);
+        }
+        try {
+            return measure("SHARED_" + eventModel, application, sessionIds, logonStart);
+        } finally {
+            host.stop();
+        }
+    }
+
+    private Result measure(String model, BenchmarkApplication application, List<SessionID> sessionIds,
+                           long logonStart) throws Exception {
+        if (!application.logonLatch.await(60, TimeUnit.SECONDS)) {
+            System.err.println(model + ": only " + (sessionCount - application.logonLatch.getCount())
+                    + "/" + sessionCount + " sessions logged on within 60s");
+        }
+        long logonMillis = System.currentTimeMillis() - logonStart;
+
+        ExecutorService senders = Executors.newFixedThreadPool(sessionIds.size());
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        for (SessionID sessionID : sessionIds) {
+            senders.submit(() -> {
+                RateLimiter limiter = new RateLimiter(tpsPerSession);
+                long seq = 0;
+                while (System.nanoTime() < deadline) {
+                    limiter.acquire();
+                    TestRequest request = new TestRequest(new TestReqID(sessionID.getSenderCompID() + "_" + seq++));
+                    if (Session.sendToTarget(request, sessionID)) {
+                        application.sent.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        senders.shutdown();
+        senders.awaitTermination(durationSeconds + 30L, TimeUnit.SECONDS);
+        double elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        int liveThreads = threadBean.getThreadCount();
+        int peakThreads = threadBean.getPeakThreadCount();
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+        return new Result(model, logonMillis, application.sent.get(), application.acked.get(),
+                application.sent.get() / elapsedSeconds, application.acked.get() / elapsedSeconds,
+                liveThreads, peakThreads, heapUsed);
+    }
+
+    // 两轮测量之间回收内存并重置线程峰值，减少相互干扰
+    private void settleJvm() throws InterruptedException {
+        System.gc();
+        Thread.sleep(2000);
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+    }
+
+    public static void printResults(List<Result> results) {
+        System.out.println("\n===== 会话承载模型对比 =====");
+        System.out.println(String.format("%-34s %10s %12s %12s %10s %10s %12s",
+                "模型", "登录(ms)", "发送/秒", "确认/秒", "线程数", "峰值线程", "堆内存(MB)"));
+        for (Result r : results) {
+            System.out.println(String.format("%-34s %10d %12.1f %12.1f %10d %10d %12.1f",
+                    r.model, r.logonMillis, r.sentPerSecond, r.ackedPerSecond,
+                    r.liveThreads, r.peakThreads, r.heapUsedBytes / (1024.0 * 1024.0)));
+        }
+        System.out.println("===========================");
+    }
+
+    /**
+     * 基准用的轻量应用：统计登录数与带TestReqID的Heartbeat确认数
+     */
+    private static class BenchmarkApplication implements Application {
+        final CountDownLatch logonLatch;
+        final AtomicLong sent = new AtomicLong(0);
+        final AtomicLong acked = new AtomicLong(0);
+
+        BenchmarkApplication(int sessionCount) {
+            this.logonLatch = new CountDownLatch(sessionCount);
+        }
+
+        @Override
+        public void onCreate(SessionID sessionId) {
+        }
+
+        @Override
+        public void onLogon(SessionID sessionId) {
+            logonLatch.countDown();
+        }
+
+        @Override
+        public void onLogout(SessionID sessionId) {
+        }
+
+        @Override
+        public void toAdmin(Message message, SessionID sessionId) {
+        }
+
+        @Override
+        public void fromAdmin(Message message, SessionID sessionId) {
+            try {
+                if (MsgType.HEARTBEAT.equals(message.getHeader().getString(MsgType.FIELD))
+                        && message.isSetField(TestReqID.FIELD)) {
+                    acked.incrementAndGet();
+                }
+            } catch (FieldNotFound e) {
+                // 没有MsgType的消息，忽略
+            }
+        }
+
+        @Override
+        public void toApp(Message message, SessionID sessionId) {
+        }
+
+        @Override
+        public void fromApp(Message message, SessionID sessionId) {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String configTemplatePath = args.length > 0 ? args[0] : "fixconfig.template";
+        int sessionCount = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int durationSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        int tpsPerSession = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        int ioThreads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        BinaryLogFactory logFactory = new BinaryLogFactory("benchmark-fixlogs_" + System.currentTimeMillis());
+        try {
+            SessionHostBenchmark benchmark = new SessionHostBenchmark(
+                    configTemplatePath, sessionCount, durationSeconds, tpsPerSession, ioThreads, logFactory);
+            printResults(benchmark.runAll());
+        } finally {
+            logFactory.close();
+        }
+    }
+}
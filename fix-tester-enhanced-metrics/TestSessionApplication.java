@@ -1,11 +1,18 @@
 package com.finance.fix.tester;
 
 import quickfix.*;
+import quickfix.field.BeginSeqNo;
+import quickfix.field.EndSeqNo;
+import quickfix.field.GapFillFlag;
+import quickfix.field.MsgType;
+import quickfix.field.PossDupFlag;
 import quickfix.field.TestReqID;
 import quickfix.fix44.Heartbeat;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -22,8 +29,32 @@ public class TestSessionApplication implements Application {
     // 会话状态跟踪
     private final AtomicBoolean isLoggedOn = new AtomicBoolean(false);
     private final CountDownLatch logonLatch = new CountDownLatch(1);
-    private final Map<String, Long> pendingRequests = new ConcurrentHashMap<>();
+    private final Map<String, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+    // 登录阶段计时（纳秒），供登录编排器统计Logon发送到确认的耗时
+    private volatile long logonSentNanos = 0;
+    private volatile long logonAckNanos = 0;
+    // JFR事件中的会话标识，首次回调时取自SessionID
+    private volatile String sessionName;
     private final ScheduledExecutorService timeoutChecker = Executors.newSingleThreadScheduledExecutor();
+    // 会话事件监听器（混沌测试、序列号恢复场景等使用），为空时不做额外解析
+    private final List<SessionEventListener> eventListeners = new CopyOnWriteArrayList<>();
+    // 逐条消息事件日志：为null时不记录
+    private volatile MessageJournal journal;
+
+    // 待响应请求：发送时间（毫秒），以及写事件日志所需的序号与纳秒时间戳
+    private static final class PendingRequest {
+        final long sendTime;
+        final int seq;
+        final long scheduledNanos;
+        final long sentNanos;
+
+        PendingRequest(long sendTime, int seq, long scheduledNanos, long sentNanos) {
+            this.sendTime = sendTime;
+            this.seq = seq;
+            this.scheduledNanos = scheduledNanos;
+            this.sentNanos = sentNanos;
+        }
+    }
 
     // 函数式接口：回调
     @FunctionalInterface
@@ -31,6 +62,33 @@ public class TestSessionApplication implements Application {
         void call(T value);
     }
 
+    /**
+     * 会话恢复相关事件的监听器，按需覆盖
+     */
+    public interface SessionEventListener {
+        default void onLogon(int sessionId) {
+        }
+
+        default void onResponse(int sessionId, long responseTimeMillis) {
+        }
+
+        // 请求超过timeoutMillis未收到响应
+        default void onTimeout(int sessionId, long waitedMillis) {
+        }
+
+        // 收到带TestReqID的Heartbeat，包括不在pendingRequests中的探测请求
+        default void onHeartbeat(int sessionId, String testReqID) {
+        }
+
+        // endSeqNo为0表示请求到最新序号
+        default void onResendRequest(int sessionId, boolean inbound, int beginSeqNo, int endSeqNo) {
+        }
+
+        // 重发的消息（PossDupFlag=Y）或SequenceReset-GapFill
+        default void onReplayedMessage(int sessionId, boolean inbound, boolean gapFill) {
+        }
+    }
+
     public TestSessionApplication(int sessionId, long timeoutMillis,
                                  Callback<Long> responseCallback,
                                  Runnable connectionEstablishedCallback,
@@ -52,22 +110,61 @@ public class TestSessionApplication implements Application {
         return logonLatch.await(timeout, TimeUnit.MILLISECONDS);
     }
 
+    // 重置登录计时，每次发起登录尝试前调用
+    public void resetLogonTiming() {
+        logonSentNanos = 0;
+        logonAckNanos = 0;
+    }
+
+    public long getLogonSentNanos() {
+        return logonSentNanos;
+    }
+
+    public long getLogonAckNanos() {
+        return logonAckNanos;
+    }
+
+    public void addEventListener(SessionEventListener eventListener) {
+        eventListeners.add(eventListener);
+    }
+
+    public void setMessageJournal(MessageJournal journal) {
+        this.journal = journal;
+    }
+
     // 跟踪请求消息
     public void trackRequest(String testReqID, long sendTime) {
-        pendingRequests.put(testReqID, sendTime);
+        trackRequest(testReqID, sendTime, 0, 0, 0);
+    }
+
+    // 跟踪请求消息，并保留序号与计划/实际发送时刻，响应或超时时写入事件日志；
+    // scheduledNanos为发送节奏中的计划时刻，不是限速器放行时刻，二者之差才能反映协调遗漏
+    public void trackRequest(String testReqID, long sendTime, int seq, long scheduledNanos, long sentNanos) {
+        pendingRequests.put(testReqID, new PendingRequest(sendTime, seq, scheduledNanos, sentNanos));
     }
 
     // 检查超时请求
     private void checkTimeouts() {
         long currentTime = System.currentTimeMillis();
         List<String> timedOutRequests = pendingRequests.entrySet().stream()
-            .filter(entry -> currentTime - entry.getValue() > timeoutMillis)
+            .filter(entry -> currentTime - entry.getValue().sendTime > timeoutMillis)
             .map(Map.Entry::getKey)
             .toList();
         
         for (String testReqID : timedOutRequests) {
-            pendingRequests.remove(testReqID);
-            FixPressureTester.totalTimeouts.incrementAndGet();
+            PendingRequest request = pendingRequests.remove(testReqID);
+            if (request != null) {
+                long waited = currentTime - request.sendTime;
+                FixFlightEvents.timedOut(sessionName, MsgType.TEST_REQUEST, TimeUnit.MILLISECONDS.toNanos(waited));
+                MessageJournal journal = this.journal;
+                if (journal != null) {
+                    journal.append(this.sessionId, MsgType.TEST_REQUEST, request.seq, request.scheduledNanos,
+                        request.sentNanos, 0, MessageJournal.STATUS_TIMED_OUT);
+                }
+                for (SessionEventListener listener : eventListeners) {
+                    listener.onTimeout(this.sessionId, waited);
+                }
+            }
             // System.out.println("Session " + sessionId + " request " + testReqID + " timed out");
         }
     }
@@ -75,48 +172,79 @@ public class TestSessionApplication implements Application {
     @Override
     public void onCreate(SessionID sessionId) {
         // 会话创建时调用
+        sessionName = sessionId.toString();
     }
 
     @Override
     public void onLogon(SessionID sessionId) {
+        logonAckNanos = System.nanoTime();
+        sessionName = sessionId.toString();
+        FixFlightEvents.logon(sessionName, logonSentNanos > 0 ? logonAckNanos - logonSentNanos : 0);
         System.out.println("Session " + this.sessionId + " logged on successfully");
-        // 检查是否是重连（之前已经登录过）
-        if (isLoggedOn.get()) {
+        isLoggedOn.set(true);
+        // 检查是否是重连（之前已经登录过；登出时isLoggedOn会被清除，因此以首次登录闭锁判断）
+        if (logonLatch.getCount() == 0) {
             System.out.println("Session " + this.sessionId + " reconnected");
             reconnectionCallback.run();
         } else {
             // 首次连接
-            isLoggedOn.set(true);
             logonLatch.countDown();
             connectionEstablishedCallback.run();
         }
+        for (SessionEventListener listener : eventListeners) {
+            listener.onLogon(this.sessionId);
+        }
     }
 
     @Override
     public void onLogout(SessionID sessionId) {
         System.out.println("Session " + this.sessionId + " logged out");
-        isLoggedOn.set(false);
+        if (isLoggedOn.getAndSet(false)) {
+            FixFlightEvents.logout(sessionId.toString(), System.nanoTime() - logonAckNanos);
+        }
     }
 
     @Override
     public void toAdmin(Message message, SessionID sessionId) {
         // 发送管理消息时调用（如登录请求）
+        try {
+            if (MsgType.LOGON.equals(message.getHeader().getString(MsgType.FIELD))) {
+                logonSentNanos = System.nanoTime();
+            }
+        } catch (FieldNotFound e) {
+            // 没有MsgType的消息，忽略
+        }
+        inspectRecovery(message, false);
     }
 
     @Override
     public void fromAdmin(Message message, SessionID sessionId) throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, RejectLogon {
+        inspectRecovery(message, true);
         // 处理收到的管理消息
         try {
             if (message instanceof Heartbeat) {
                 Heartbeat heartbeat = (Heartbeat) message;
                 TestReqID testReqID = heartbeat.getTestReqID();
                 String reqId = testReqID.getValue();
+                for (SessionEventListener listener : eventListeners) {
+                    listener.onHeartbeat(this.sessionId, reqId);
+                }
                 
                 // 查找并处理匹配的请求
-                Long sendTime = pendingRequests.remove(reqId);
-                if (sendTime != null) {
-                    long responseTime = System.currentTimeMillis() - sendTime;
+                PendingRequest request = pendingRequests.remove(reqId);
+                if (request != null) {
+                    long ackNanos = System.nanoTime();
+                    long responseTime = System.currentTimeMillis() - request.sendTime;
+                    MessageJournal journal = this.journal;
+                    if (journal != null) {
+                        journal.append(this.sessionId, MsgType.TEST_REQUEST, request.seq, request.scheduledNanos,
+                            request.sentNanos, ackNanos, MessageJournal.STATUS_ACKED);
+                    }
+                    FixFlightEvents.acked(sessionName, MsgType.TEST_REQUEST, TimeUnit.MILLISECONDS.toNanos(responseTime));
                     responseCallback.call(responseTime);
+                    for (SessionEventListener listener : eventListeners) {
+                        listener.onResponse(this.sessionId, responseTime);
+                    }
                 }
             }
         } catch (FieldNotFound e) {
@@ -141,11 +269,42 @@ public class TestSessionApplication implements Application {
     @Override
     public void toApp(Message message, SessionID sessionId) throws DoNotSend {
         // 发送应用消息时调用
+        inspectRecovery(message, false);
     }
 
     @Override
     public void fromApp(Message message, SessionID sessionId) throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, UnsupportedMessageType {
         // 处理收到的应用消息（TestRequest通常用Heartbeat响应，这里可能不需要处理）
+        inspectRecovery(message, true);
+    }
+
+    // 识别ResendRequest、重发消息与GapFill，通知事件监听器
+    private void inspectRecovery(Message message, boolean inbound) {
+        if (eventListeners.isEmpty()) {
+            return;
+        }
+        try {
+            Message.Header header = message.getHeader();
+            String msgType = header.getString(MsgType.FIELD);
+            if (MsgType.RESEND_REQUEST.equals(msgType)) {
+                int beginSeqNo = message.getInt(BeginSeqNo.FIELD);
+                int endSeqNo = message.getInt(EndSeqNo.FIELD);
+                for (SessionEventListener listener : eventListeners) {
+                    listener.onResendRequest(sessionId, inbound, beginSeqNo, endSeqNo);
+                }
+            } else if (MsgType.SEQUENCE_RESET.equals(msgType)) {
+                boolean gapFill = message.isSetField(GapFillFlag.FIELD) && message.getBoolean(GapFillFlag.FIELD);
+                for (SessionEventListener listener : eventListeners) {
+                    listener.onReplayedMessage(sessionId, inbound, gapFill);
+                }
+            } else if (header.isSetField(PossDupFlag.FIELD) && header.getBoolean(PossDupFlag.FIELD)) {
+                for (SessionEventListener listener : eventListeners) {
+                    listener.onReplayedMessage(sessionId, inbound, false);
+                }
+            }
+        } catch (FieldNotFound e) {
+            // 字段不完整的消息，忽略
+        }
     }
     
     // 清理资源
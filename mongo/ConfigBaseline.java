@@ -0,0 +1,73 @@
+package com.finance.fix.tester.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 某个测试配置当前的性能基线：最近若干次已完成测试的TPS与P99中位数
+ */
+public class ConfigBaseline {
+
+    private String configId;                    // 测试配置ID
+    private String configName;                  // 测试配置名称
+    private long completedRuns;                 // 已完成测试总次数
+    private int baselineRuns;                   // 参与基线计算的次数
+    private LocalDateTime lastRunTime;          // 最近一次测试开始时间
+    private double medianRate;                  // TPS中位数
+    private double medianP99;                   // P99中位数(ms)
+
+    public String getConfigId() {
+        return configId;
+    }
+
+    public void setConfigId(String configId) {
+        this.configId = configId;
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    public void setConfigName(String configName) {
+        this.configName = configName;
+    }
+
+    public long getCompletedRuns() {
+        return completedRuns;
+    }
+
+    public void setCompletedRuns(long completedRuns) {
+        this.completedRuns = completedRuns;
+    }
+
+    public int getBaselineRuns() {
+        return baselineRuns;
+    }
+
+    public void setBaselineRuns(int baselineRuns) {
+        this.baselineRuns = baselineRuns;
+    }
+
+    public LocalDateTime getLastRunTime() {
+        return lastRunTime;
+    }
+
+    public void setLastRunTime(LocalDateTime lastRunTime) {
+        this.lastRunTime = lastRunTime;
+    }
+
+    public double getMedianRate() {
+        return medianRate;
+    }
+
+    public void setMedianRate(double medianRate) {
+        this.medianRate = medianRate;
+    }
+
+    public double getMedianP99() {
+        return medianP99;
+    }
+
+    public void setMedianP99(double medianP99) {
+        this.medianP99 = medianP99;
+    }
+}
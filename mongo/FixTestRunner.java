@@ -1,6 +1,7 @@
 package com.finance.fix.tester.api;
 
 import com.finance.fix.tester.FixPressureTester;
+import com.finance.fix.tester.model.RegressionCheck;
 import com.finance.fix.tester.model.TestReport;
 import com.finance.fix.tester.service.TestReportService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +11,7 @@ import quickfix.ConfigError;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -20,6 +22,15 @@ import java.util.function.Consumer;
 @Component
 public class FixTestRunner implements Runnable {
 
+    // 系统指标名称 -> 单位
+    private static final Map<String, String> METRIC_UNITS = new LinkedHashMap<>();
+    static {
+        METRIC_UNITS.put("cpu", "%");
+        METRIC_UNITS.put("memory", "%");
+        METRIC_UNITS.put("networkSend", "Kbps");
+        METRIC_UNITS.put("networkReceive", "Kbps");
+    }
+
     private final String taskId;
     private final TestParameters parameters;
     private final String configId;
@@ -50,19 +61,20 @@ public class FixTestRunner implements Runnable {
         // 创建初始报告并保存到MongoDB
         TestReport report = initializeReport();
         reportService.createReport(report);
+        reportService.startProgressUpdates(report, METRIC_UNITS);
         
         try {
             // 初始化压力测试器
             tester = new FixPressureTester(parameters.getConfigPath());
             
-            // 设置进度回调，定期更新报告
+            // 设置进度回调，进度由报告服务按间隔合并后写入
             tester.setProgressListener(progress -> {
                 if (isRunning) {
                     progressCallback.accept(progress);
                     // 更新报告进度
                     report.setStatus("RUNNING");
                     updateReportWithCurrentStats(report, progress);
-                    reportService.updateReport(report);
+                    reportService.submitProgress(report, progress, selectSystemMetrics());
                 }
             });
             
@@ -88,24 +100,31 @@ public class FixTestRunner implements Runnable {
             
             // 测试完成，更新报告
             if (isRunning) {
+                reportService.finishProgressUpdates(taskId);
                 report.setStatus("COMPLETED");
                 report.setEndTime(LocalDateTime.now());
                 populateReportWithResults(report, results);
+                reportService.flushSystemMetrics(report);
+                markRegression(report);
                 reportService.updateReport(report);
                 completionCallback.accept(report);
             }
         } catch (ConfigError e) {
             // 配置错误处理
+            reportService.finishProgressUpdates(taskId);
             report.setStatus("FAILED");
             report.setEndTime(LocalDateTime.now());
             report.setErrorMessage("配置错误: " + e.getMessage());
+            reportService.flushSystemMetrics(report);
             reportService.updateReport(report);
             completionCallback.accept(report);
         } catch (Exception e) {
             // 其他异常处理
+            reportService.finishProgressUpdates(taskId);
             report.setStatus("FAILED");
             report.setEndTime(LocalDateTime.now());
             report.setErrorMessage("测试执行失败: " + e.getMessage());
+            reportService.flushSystemMetrics(report);
             reportService.updateReport(report);
             completionCallback.accept(report);
         }
@@ -129,16 +148,24 @@ public class FixTestRunner implements Runnable {
         report.setDurationMinutes(parameters.getDuration());
         report.setTimeoutSeconds(parameters.getTimeout());
         
-        // 初始化系统指标存储
-        report.setSystemMetrics(new HashMap<>());
-        report.getSystemMetrics().put("cpu", new ArrayList<>());
-        report.getSystemMetrics().put("memory", new ArrayList<>());
-        report.getSystemMetrics().put("networkSend", new ArrayList<>());
-        report.getSystemMetrics().put("networkReceive", new ArrayList<>());
+        // 系统指标时间序列写入report_metric_buckets，报告中只保存汇总
+        report.setMetricSeries(new LinkedHashMap<>());
         
         return report;
     }
 
+    // 与同配置历史基线对比，对比失败不影响报告保存
+    private void markRegression(TestReport report) {
+        try {
+            RegressionCheck check = reportService.markRegression(report);
+            if (RegressionCheck.REGRESSION.equals(check.getVerdict())) {
+                System.out.println("测试 " + taskId + " 相对历史基线出现性能回归: " + check.getReasons());
+            }
+        } catch (Exception e) {
+            System.err.println("历史基线对比失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 用当前统计信息更新报告
      */
@@ -156,50 +183,32 @@ public class FixTestRunner implements Runnable {
         if (elapsedSeconds > 0) {
             report.setActualRate((double) tester.getSentCount() / elapsedSeconds);
         }
-        
-        // 记录系统指标(每30秒记录一次)
-        if (tester.getSystemMetrics() != null && 
-            System.currentTimeMillis() % 30000 < 1000) { // 每30秒左右记录一次
-            recordSystemMetrics(report);
-        }
     }
 
     /**
-     * 记录系统指标到报告
+     * 记录系统指标，采样点追加到分桶集合，报告中刷新汇总
      */
     private void recordSystemMetrics(TestReport report) {
-        LocalDateTime now = LocalDateTime.now();
-        Map<String, Double> metrics = tester.getSystemMetrics();
-        
-        if (metrics == null) return;
+        Map<String, Double> values = selectSystemMetrics();
+        if (values == null) return;
         
-        // 记录CPU使用率
-        if (metrics.containsKey("cpu")) {
-            report.getSystemMetrics().get("cpu").add(
-                new TestReport.SystemMetric(now, metrics.get("cpu"), "%")
-            );
-        }
-        
-        // 记录内存使用率
-        if (metrics.containsKey("memory")) {
-            report.getSystemMetrics().get("memory").add(
-                new TestReport.SystemMetric(now, metrics.get("memory"), "%")
-            );
-        }
-        
-        // 记录网络发送速率
-        if (metrics.containsKey("networkSend")) {
-            report.getSystemMetrics().get("networkSend").add(
-                new TestReport.SystemMetric(now, metrics.get("networkSend"), "Kbps")
-            );
-        }
+        reportService.appendSystemMetrics(report, LocalDateTime.now(), values, METRIC_UNITS);
+    }
+
+    /**
+     * 取出需要记录的系统指标：CPU、内存使用率和网络收发速率
+     */
+    private Map<String, Double> selectSystemMetrics() {
+        Map<String, Double> metrics = tester.getSystemMetrics();
+        if (metrics == null) return null;
         
-        // 记录网络接收速率
-        if (metrics.containsKey("networkReceive")) {
-            report.getSystemMetrics().get("networkReceive").add(
-                new TestReport.SystemMetric(now, metrics.get("networkReceive"), "Kbps")
-            );
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (String metric : METRIC_UNITS.keySet()) {
+            if (metrics.containsKey(metric)) {
+                values.put(metric, metrics.get(metric));
+            }
         }
+        return values;
     }
 
     /**
@@ -244,10 +253,12 @@ public class FixTestRunner implements Runnable {
         }
         
         // 更新报告状态为已停止
+        reportService.finishProgressUpdates(taskId);
         reportService.getReportById(taskId).ifPresent(report -> {
             report.setStatus("STOPPED");
             report.setEndTime(LocalDateTime.now());
             updateReportWithCurrentStats(report, 0);
+            reportService.flushSystemMetrics(report);
             reportService.updateReport(report);
         });
     }
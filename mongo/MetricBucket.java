@@ -0,0 +1,184 @@
+package com.finance.fix.tester.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 系统指标时间序列分桶，一个文档存放某报告某指标的连续固定数量采样点
+ * 分桶写满后整体插入，之后不再修改；报告文档本身只保留各指标的汇总(TestReport.MetricSeries)
+ */
+@Document(collection = "report_metric_buckets")
+@CompoundIndex(name = "report_metric_bucket", def = "{'reportId': 1, 'metric': 1, 'bucketIndex': 1}", unique = true)
+public class MetricBucket {
+
+    @Id
+    private String id;
+    private String reportId;                    // 所属报告ID
+    private String metric;                      // 指标名称：cpu, memory, networkSend, networkReceive
+    private String unit;                        // 单位
+    private int bucketIndex;                    // 分桶序号，从0开始
+    private LocalDateTime startTime;            // 第一个采样点时间
+    private LocalDateTime endTime;              // 最后一个采样点时间
+    private int count;                          // 采样点数
+    private double min;
+    private double max;
+    private double sum;
+    private List<Sample> samples = new ArrayList<>();
+
+    // 内部类：采样点
+    public static class Sample {
+        private LocalDateTime timestamp;  // 时间戳
+        private double value;             // 指标值
+
+        public Sample(LocalDateTime timestamp, double value) {
+            this.timestamp = timestamp;
+            this.value = value;
+        }
+
+        public LocalDateTime getTimestamp() {
+            return timestamp;
+        }
+
+        public void setTimestamp(LocalDateTime timestamp) {
+            this.timestamp = timestamp;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        public void setValue(double value) {
+            this.value = value;
+        }
+    }
+
+    public MetricBucket() {
+    }
+
+    public MetricBucket(String reportId, String metric, String unit, int bucketIndex) {
+        this.reportId = reportId;
+        this.metric = metric;
+        this.unit = unit;
+        this.bucketIndex = bucketIndex;
+    }
+
+    /**
+     * 追加一个采样点并更新桶内聚合
+     */
+    public void add(LocalDateTime timestamp, double value) {
+        if (count == 0) {
+            startTime = timestamp;
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        endTime = timestamp;
+        sum += value;
+        count++;
+        samples.add(new Sample(timestamp, value));
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getReportId() {
+        return reportId;
+    }
+
+    public void setReportId(String reportId) {
+        this.reportId = reportId;
+    }
+
+    public String getMetric() {
+        return metric;
+    }
+
+    public void setMetric(String metric) {
+        this.metric = metric;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    public void setUnit(String unit) {
+        this.unit = unit;
+    }
+
+    public int getBucketIndex() {
+        return bucketIndex;
+    }
+
+    public void setBucketIndex(int bucketIndex) {
+        this.bucketIndex = bucketIndex;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalDateTime endTime) {
+        this.endTime = endTime;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public void setMin(double min) {
+        this.min = min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public void setMax(double max) {
+        this.max = max;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public void setSum(double sum) {
+        this.sum = sum;
+    }
+
+    public List<Sample> getSamples() {
+        return samples;
+    }
+
+    public void setSamples(List<Sample> samples) {
+        this.samples = samples;
+    }
+}
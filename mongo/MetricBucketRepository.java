@@ -0,0 +1,28 @@
+package com.finance.fix.tester.repository;
+
+import com.finance.fix.tester.model.MetricBucket;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 系统指标分桶数据访问接口
+ */
+@Repository
+public interface MetricBucketRepository extends MongoRepository<MetricBucket, String> {
+
+    /**
+     * 按分桶顺序查询某报告某指标的全部分桶
+     * @param reportId 报告ID
+     * @param metric 指标名称
+     * @return 分桶列表
+     */
+    List<MetricBucket> findByReportIdAndMetricOrderByBucketIndexAsc(String reportId, String metric);
+
+    /**
+     * 删除某报告的全部分桶
+     * @param reportId 报告ID
+     */
+    void deleteByReportId(String reportId);
+}
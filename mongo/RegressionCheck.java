@@ -0,0 +1,167 @@
+package com.finance.fix.tester.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单次测试与同配置历史基线的对比结果
+ * 基线取该次测试之前最近若干次已完成测试的中位数，离散度用中位数绝对偏差(MAD)估计，
+ * 偏离超过阈值个稳健标准差且相对变化超过最小幅度时判定为回归
+ */
+public class RegressionCheck {
+
+    public static final String OK = "OK";
+    public static final String REGRESSION = "REGRESSION";
+    public static final String INSUFFICIENT_BASELINE = "INSUFFICIENT_BASELINE";
+
+    public static final String REASON_THROUGHPUT = "THROUGHPUT";
+    public static final String REASON_P99 = "P99";
+
+    private String reportId;                    // 报告ID
+    private String configId;                    // 测试配置ID
+    private LocalDateTime startTime;            // 测试开始时间
+    private String verdict;                     // OK, REGRESSION, INSUFFICIENT_BASELINE
+    private List<String> reasons = new ArrayList<>(); // 回归的指标：THROUGHPUT, P99
+    private int baselineRuns;                   // 参与基线计算的测试次数
+
+    private double actualRate;                  // 本次实际TPS
+    private double baselineRate;                // 基线TPS(中位数)
+    private double rateMad;                     // 基线TPS的MAD
+    private double rateScore;                   // 本次TPS偏离基线的稳健z分数
+    private double rateChange;                  // 本次TPS相对基线的变化比例
+
+    private double p99ResponseTime;             // 本次P99(ms)
+    private double baselineP99;                 // 基线P99(中位数)
+    private double p99Mad;                      // 基线P99的MAD
+    private double p99Score;                    // 本次P99偏离基线的稳健z分数
+    private double p99Change;                   // 本次P99相对基线的变化比例
+
+    public String getReportId() {
+        return reportId;
+    }
+
+    public void setReportId(String reportId) {
+        this.reportId = reportId;
+    }
+
+    public String getConfigId() {
+        return configId;
+    }
+
+    public void setConfigId(String configId) {
+        this.configId = configId;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public String getVerdict() {
+        return verdict;
+    }
+
+    public void setVerdict(String verdict) {
+        this.verdict = verdict;
+    }
+
+    public List<String> getReasons() {
+        return reasons;
+    }
+
+    public void setReasons(List<String> reasons) {
+        this.reasons = reasons;
+    }
+
+    public int getBaselineRuns() {
+        return baselineRuns;
+    }
+
+    public void setBaselineRuns(int baselineRuns) {
+        this.baselineRuns = baselineRuns;
+    }
+
+    public double getActualRate() {
+        return actualRate;
+    }
+
+    public void setActualRate(double actualRate) {
+        this.actualRate = actualRate;
+    }
+
+    public double getBaselineRate() {
+        return baselineRate;
+    }
+
+    public void setBaselineRate(double baselineRate) {
+        this.baselineRate = baselineRate;
+    }
+
+    public double getRateMad() {
+        return rateMad;
+    }
+
+    public void setRateMad(double rateMad) {
+        this.rateMad = rateMad;
+    }
+
+    public double getRateScore() {
+        return rateScore;
+    }
+
+    public void setRateScore(double rateScore) {
+        this.rateScore = rateScore;
+    }
+
+    public double getRateChange() {
+        return rateChange;
+    }
+
+    public void setRateChange(double rateChange) {
+        this.rateChange = rateChange;
+    }
+
+    public double getP99ResponseTime() {
+        return p99ResponseTime;
+    }
+
+    public void setP99ResponseTime(double p99ResponseTime) {
+        this.p99ResponseTime = p99ResponseTime;
+    }
+
+    public double getBaselineP99() {
+        return baselineP99;
+    }
+
+    public void setBaselineP99(double baselineP99) {
+        this.baselineP99 = baselineP99;
+    }
+
+    public double getP99Mad() {
+        return p99Mad;
+    }
+
+    public void setP99Mad(double p99Mad) {
+        this.p99Mad = p99Mad;
+    }
+
+    public double getP99Score() {
+        return p99Score;
+    }
+
+    public void setP99Score(double p99Score) {
+        this.p99Score = p99Score;
+    }
+
+    public double getP99Change() {
+        return p99Change;
+    }
+
+    public void setP99Change(double p99Change) {
+        this.p99Change = p99Change;
+    }
+}
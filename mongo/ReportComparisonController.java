@@ -0,0 +1,75 @@
+package com.finance.fix.tester.controller;
+
+import com.finance.fix.tester.model.ConfigBaseline;
+import com.finance.fix.tester.model.RegressionCheck;
+import com.finance.fix.tester.model.RunSummary;
+import com.finance.fix.tester.service.ReportComparisonService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 历史测试对比API控制器，只返回摘要字段
+ */
+@RestController
+@RequestMapping("/api/test-reports")
+public class ReportComparisonController {
+
+    private final ReportComparisonService comparisonService;
+
+    @Autowired
+    public ReportComparisonController(ReportComparisonService comparisonService) {
+        this.comparisonService = comparisonService;
+    }
+
+    /**
+     * 多结果对比
+     * @param ids 报告ID列表
+     * @return 各报告的摘要
+     */
+    @PostMapping("/compare")
+    public ResponseEntity<List<RunSummary>> compare(@RequestBody List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(comparisonService.getSummaries(ids));
+    }
+
+    /**
+     * 将一次测试与同配置历史基线对比
+     * @param id 报告ID
+     * @return 对比结果
+     */
+    @GetMapping("/{id}/regression")
+    public ResponseEntity<RegressionCheck> checkRegression(@PathVariable String id) {
+        return comparisonService.checkRun(id).map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * 某配置最近若干次测试的滚动回归检查
+     * @param configId 配置ID
+     * @param limit 返回的测试次数
+     * @return 按时间升序的对比结果
+     */
+    @GetMapping("/config/{configId}/regressions")
+    public ResponseEntity<List<RegressionCheck>> getRegressionHistory(
+            @PathVariable String configId,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (limit <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(comparisonService.getRegressionHistory(configId, limit));
+    }
+
+    /**
+     * 所有配置当前的基线
+     * @return 基线列表
+     */
+    @GetMapping("/baselines")
+    public ResponseEntity<List<ConfigBaseline>> getBaselines() {
+        return ResponseEntity.ok(comparisonService.getBaselines());
+    }
+}
@@ -0,0 +1,286 @@
+package com.finance.fix.tester.service;
+
+import com.finance.fix.tester.model.ConfigBaseline;
+import com.finance.fix.tester.model.RegressionCheck;
+import com.finance.fix.tester.model.RunSummary;
+import com.finance.fix.tester.model.TestReport;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.DocumentOperators;
+import org.springframework.data.mongodb.core.aggregation.SetWindowFieldsOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 历史测试对比服务(需求3.5.3)
+ * 通过聚合管道在数据库端完成筛选、排序、截取与字段投影，只返回摘要字段；
+ * 基线为同一配置最近fix.report.regression.window次已完成测试的TPS与P99中位数，
+ * 窗口很小，中位数与MAD在服务端取回窗口内的数值后计算
+ */
+@Service
+public class ReportComparisonService {
+
+    private static final String COMPLETED = "COMPLETED";
+    // MAD换算为正态分布标准差的系数
+    private static final double MAD_TO_SIGMA = 1.4826;
+    // MAD为0(历史数值完全相同)时以基线的1%作为最小离散度
+    private static final double MIN_RELATIVE_SIGMA = 0.01;
+
+    private static final String[] SUMMARY_FIELDS = {"configId", "configName", "startTime", "endTime", "status",
+        "targetRate", "totalMessagesSent", "timeoutCount", "actualRate", "averageResponseTime",
+        "p95ResponseTime", "p99ResponseTime"};
+
+    private final MongoTemplate mongoTemplate;
+    private final int window;
+    private final int minRuns;
+    private final double scoreThreshold;
+    private final double minChange;
+
+    @Autowired
+    public ReportComparisonService(MongoTemplate mongoTemplate,
+                                   @Value("${fix.report.regression.window:10}") int window,
+                                   @Value("${fix.report.regression.min-runs:5}") int minRuns,
+                                   @Value("${fix.report.regression.score-threshold:3.0}") double scoreThreshold,
+                                   @Value("${fix.report.regression.min-change:0.05}") double minChange) {
+        if (window <= 0 || minRuns <= 0 || minRuns > window) {
+            throw new IllegalArgumentException("基线窗口配置无效: window=" + window + ", min-runs=" + minRuns);
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.window = window;
+        this.minRuns = minRuns;
+        this.scoreThreshold = scoreThreshold;
+        this.minChange = minChange;
+    }
+
+    /**
+     * 获取报告的摘要
+     * @param id 报告ID
+     * @return 报告摘要
+     */
+    public Optional<RunSummary> getSummary(String id) {
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("_id").is(id)),
+            Aggregation.project(SUMMARY_FIELDS));
+        return Optional.ofNullable(mongoTemplate.aggregate(aggregation, TestReport.class, RunSummary.class)
+            .getUniqueMappedResult());
+    }
+
+    /**
+     * 获取多个报告的摘要，用于多结果对比
+     * @param ids 报告ID列表
+     * @return 按开始时间排序的摘要
+     */
+    public List<RunSummary> getSummaries(List<String> ids) {
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("_id").in(ids)),
+            Aggregation.sort(Sort.Direction.ASC, "startTime"),
+            Aggregation.project(SUMMARY_FIELDS));
+        return mongoTemplate.aggregate(aggregation, TestReport.class, RunSummary.class).getMappedResults();
+    }
+
+    /**
+     * 将一次测试与其之前的同配置历史对比
+     * @param id 报告ID
+     * @return 对比结果，报告不存在时为空
+     */
+    public Optional<RegressionCheck> checkRun(String id) {
+        return getSummary(id).map(run -> evaluate(run, findBaselineRuns(run)));
+    }
+
+    /**
+     * 对比一次刚结束的测试，报告对象尚未保存时使用
+     * @param report 测试报告对象
+     * @return 对比结果
+     */
+    public RegressionCheck checkRun(TestReport report) {
+        RunSummary run = new RunSummary();
+        run.setId(report.getId());
+        run.setConfigId(report.getConfigId());
+        run.setStartTime(report.getStartTime());
+        run.setActualRate(report.getActualRate());
+        run.setP99ResponseTime(report.getP99ResponseTime());
+        return evaluate(run, findBaselineRuns(run));
+    }
+
+    /**
+     * 某配置最近若干次已完成测试的滚动回归检查，每次测试以其之前的window次测试为基线
+     * @param configId 配置ID
+     * @param limit 返回的测试次数
+     * @return 按开始时间升序的对比结果
+     */
+    public List<RegressionCheck> getRegressionHistory(String configId, int limit) {
+        // 一次取回limit+window条摘要，滑动窗口在内存中计算
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("configId").is(configId).and("status").is(COMPLETED)),
+            Aggregation.sort(Sort.Direction.DESC, "startTime"),
+            Aggregation.limit((long) limit + window),
+            Aggregation.project("configId", "startTime", "actualRate", "p99ResponseTime"));
+        List<RunSummary> runs = new ArrayList<>(
+            mongoTemplate.aggregate(aggregation, TestReport.class, RunSummary.class).getMappedResults());
+        Collections.reverse(runs);
+
+        List<RegressionCheck> history = new ArrayList<>();
+        for (int i = Math.max(0, runs.size() - limit); i < runs.size(); i++) {
+            history.add(evaluate(runs.get(i), runs.subList(Math.max(0, i - window), i)));
+        }
+        return history;
+    }
+
+    /**
+     * 所有配置当前的基线
+     * @return 每个配置一条基线
+     */
+    public List<ConfigBaseline> getBaselines() {
+        // 按配置分区、时间倒序编号，只保留每个配置最近window次再分组，历史再长也不会整组收集进数组
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("status").is(COMPLETED)),
+            SetWindowFieldsOperation.builder()
+                .partitionByField("configId")
+                .sortBy(Sort.by(Sort.Direction.DESC, "startTime"))
+                .output(DocumentOperators.documentNumber()).as("runIndex")
+                // 不指定窗口时为整个分区，即该配置的已完成次数
+                .output(context -> new Document("$sum", 1)).as("completedRuns")
+                .build(),
+            Aggregation.match(Criteria.where("runIndex").lte(window)),
+            Aggregation.sort(Sort.by(Sort.Order.asc("configId"), Sort.Order.desc("startTime"))),
+            Aggregation.group("configId")
+                .first("configName").as("configName")
+                .first("startTime").as("lastRunTime")
+                .first("completedRuns").as("completedRuns")
+                .push("actualRate").as("rates")
+                .push("p99ResponseTime").as("p99s"),
+            Aggregation.sort(Sort.Direction.DESC, "lastRunTime"))
+            .withOptions(Aggregation.newAggregationOptions().allowDiskUse(true).build());
+
+        List<ConfigBaseline> baselines = new ArrayList<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, TestReport.class, Document.class).getMappedResults()) {
+            List<Double> rates = toDoubles(row.getList("rates", Number.class));
+            List<Double> p99s = toDoubles(row.getList("p99s", Number.class));
+            ConfigBaseline baseline = new ConfigBaseline();
+            baseline.setConfigId(row.getString("_id"));
+            baseline.setConfigName(row.getString("configName"));
+            baseline.setCompletedRuns(((Number) row.get("completedRuns")).longValue());
+            baseline.setBaselineRuns(rates.size());
+            Date lastRunTime = row.getDate("lastRunTime");
+            if (lastRunTime != null) {
+                baseline.setLastRunTime(LocalDateTime.ofInstant(lastRunTime.toInstant(), ZoneId.systemDefault()));
+            }
+            baseline.setMedianRate(median(rates));
+            baseline.setMedianP99(median(p99s));
+            baselines.add(baseline);
+        }
+        return baselines;
+    }
+
+    // 该次测试之前最近window次同配置已完成测试，只投影对比需要的字段
+    private List<RunSummary> findBaselineRuns(RunSummary run) {
+        if (run.getConfigId() == null || run.getStartTime() == null) {
+            return Collections.emptyList();
+        }
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("configId").is(run.getConfigId())
+                .and("status").is(COMPLETED)
+                .and("startTime").lt(run.getStartTime())
+                .and("_id").ne(run.getId())),
+            Aggregation.sort(Sort.Direction.DESC, "startTime"),
+            Aggregation.limit(window),
+            Aggregation.project("actualRate", "p99ResponseTime"));
+        return mongoTemplate.aggregate(aggregation, TestReport.class, RunSummary.class).getMappedResults();
+    }
+
+    private RegressionCheck evaluate(RunSummary run, List<RunSummary> baselineRuns) {
+        RegressionCheck check = new RegressionCheck();
+        check.setReportId(run.getId());
+        check.setConfigId(run.getConfigId());
+        check.setStartTime(run.getStartTime());
+        check.setActualRate(run.getActualRate());
+        check.setP99ResponseTime(run.getP99ResponseTime());
+        check.setBaselineRuns(baselineRuns.size());
+        if (baselineRuns.size() < minRuns) {
+            check.setVerdict(RegressionCheck.INSUFFICIENT_BASELINE);
+            return check;
+        }
+
+        List<Double> rates = new ArrayList<>();
+        List<Double> p99s = new ArrayList<>();
+        for (RunSummary baselineRun : baselineRuns) {
+            rates.add(baselineRun.getActualRate());
+            p99s.add(baselineRun.getP99ResponseTime());
+        }
+
+        double rateMedian = median(rates);
+        double rateMad = mad(rates, rateMedian);
+        check.setBaselineRate(rateMedian);
+        check.setRateMad(rateMad);
+        check.setRateScore(score(run.getActualRate(), rateMedian, rateMad));
+        check.setRateChange(change(run.getActualRate(), rateMedian));
+
+        double p99Median = median(p99s);
+        double p99Mad = mad(p99s, p99Median);
+        check.setBaselineP99(p99Median);
+        check.setP99Mad(p99Mad);
+        check.setP99Score(score(run.getP99ResponseTime(), p99Median, p99Mad));
+        check.setP99Change(change(run.getP99ResponseTime(), p99Median));
+
+        // 吞吐下降、P99上升才算回归，需同时满足统计显著与最小变化幅度
+        if (check.getRateScore() <= -scoreThreshold && check.getRateChange() <= -minChange) {
+            check.getReasons().add(RegressionCheck.REASON_THROUGHPUT);
+        }
+        if (check.getP99Score() >= scoreThreshold && check.getP99Change() >= minChange) {
+            check.getReasons().add(RegressionCheck.REASON_P99);
+        }
+        check.setVerdict(check.getReasons().isEmpty() ? RegressionCheck.OK : RegressionCheck.REGRESSION);
+        return check;
+    }
+
+    private static double score(double value, double median, double mad) {
+        double sigma = Math.max(MAD_TO_SIGMA * mad, Math.abs(median) * MIN_RELATIVE_SIGMA);
+        return sigma > 0 ? (value - median) / sigma : 0;
+    }
+
+    private static double change(double value, double median) {
+        return median != 0 ? (value - median) / median : 0;
+    }
+
+    private static double median(List<Double> values) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+        List<Double> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        int middle = sorted.size() / 2;
+        return sorted.size() % 2 == 1 ? sorted.get(middle) : (sorted.get(middle - 1) + sorted.get(middle)) / 2;
+    }
+
+    private static double mad(List<Double> values, double median) {
+        List<Double> deviations = new ArrayList<>(values.size());
+        for (double value : values) {
+            deviations.add(Math.abs(value - median));
+        }
+        return median(deviations);
+    }
+
+    private static List<Double> toDoubles(List<Number> numbers) {
+        List<Double> values = new ArrayList<>();
+        if (numbers != null) {
+            for (Number number : numbers) {
+                if (number != null) {
+                    values.add(number.doubleValue());
+                }
+            }
+        }
+        return values;
+    }
+}
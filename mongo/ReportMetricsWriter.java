@@ -0,0 +1,160 @@
+package com.finance.fix.tester.service;
+
+import com.finance.fix.tester.model.MetricBucket;
+import com.finance.fix.tester.model.TestReport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 报告系统指标的分桶写入器
+ * 每个报告每个指标在内存中维护一个未满的分桶，写满fix.report.metrics.bucket-size个点后
+ * 与同一批次中其他写满的分桶一起批量插入report_metric_buckets；已插入的分桶不再更新，
+ * 测试结束时由flush写出未满的分桶。报告文档只保存各指标的汇总
+ */
+@Service
+public class ReportMetricsWriter {
+
+    private final MongoTemplate mongoTemplate;
+    private final int bucketSize;
+
+    // 报告ID -> 该报告的指标序列状态
+    private final Map<String, ReportSeries> reports = new ConcurrentHashMap<>();
+
+    /**
+     * 单个报告的写入状态
+     */
+    private static class ReportSeries {
+        final Map<String, MetricBucket> openBuckets = new HashMap<>();
+        final Map<String, TestReport.MetricSeries> summaries = new LinkedHashMap<>();
+    }
+
+    @Autowired
+    public ReportMetricsWriter(MongoTemplate mongoTemplate,
+                               @Value("${fix.report.metrics.bucket-size:120}") int bucketSize) {
+        if (bucketSize <= 0) {
+            throw new IllegalArgumentException("分桶大小必须大于0: " + bucketSize);
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.bucketSize = bucketSize;
+    }
+
+    /**
+     * 追加同一时刻的一组采样点，写满的分桶批量插入
+     * @param reportId 报告ID
+     * @param timestamp 采样时间
+     * @param values 指标名称 -> 指标值
+     * @param units 指标名称 -> 单位
+     */
+    public void append(String reportId, LocalDateTime timestamp, Map<String, Double> values, Map<String, String> units) {
+        ReportSeries series = reports.computeIfAbsent(reportId, id -> new ReportSeries());
+        List<MetricBucket> fullBuckets = new ArrayList<>();
+
+        synchronized (series) {
+            for (Map.Entry<String, Double> entry : values.entrySet()) {
+                String metric = entry.getKey();
+                Double value = entry.getValue();
+                if (value == null) {
+                    continue;
+                }
+                String unit = units.get(metric);
+                TestReport.MetricSeries summary = series.summaries.computeIfAbsent(
+                    metric, m -> new TestReport.MetricSeries(unit));
+                MetricBucket bucket = series.openBuckets.computeIfAbsent(
+                    metric, m -> new MetricBucket(reportId, m, unit, summary.getBucketCount()));
+
+                bucket.add(timestamp, value);
+                summary.add(timestamp, value);
+
+                if (bucket.getCount() >= bucketSize) {
+                    series.openBuckets.remove(metric);
+                    summary.setBucketCount(summary.getBucketCount() + 1);
+                    fullBuckets.add(bucket);
+                }
+            }
+        }
+
+        if (!fullBuckets.isEmpty()) {
+            insert(fullBuckets);
+        }
+    }
+
+    /**
+     * 写出报告所有未满的分桶并结束该报告的写入
+     * @param reportId 报告ID
+     * @return 各指标汇总，报告不在写入中(没有采样点或已结束)时返回null
+     */
+    public Map<String, TestReport.MetricSeries> flush(String reportId) {
+        ReportSeries series = reports.remove(reportId);
+        if (series == null) {
+            return null;
+        }
+
+        List<MetricBucket> remaining;
+        Map<String, TestReport.MetricSeries> summaries;
+        synchronized (series) {
+            remaining = new ArrayList<>(series.openBuckets.values());
+            series.openBuckets.clear();
+            for (MetricBucket bucket : remaining) {
+                TestReport.MetricSeries summary = series.summaries.get(bucket.getMetric());
+                summary.setBucketCount(summary.getBucketCount() + 1);
+            }
+            summaries = copyOf(series.summaries);
+        }
+
+        if (!remaining.isEmpty()) {
+            insert(remaining);
+        }
+        return summaries;
+    }
+
+    /**
+     * 获取报告当前的指标汇总快照
+     * @param reportId 报告ID
+     * @return 各指标汇总，报告未在写入时返回null
+     */
+    public Map<String, TestReport.MetricSeries> getSummaries(String reportId) {
+        ReportSeries series = reports.get(reportId);
+        if (series == null) {
+            return null;
+        }
+        synchronized (series) {
+            return copyOf(series.summaries);
+        }
+    }
+
+    private void insert(List<MetricBucket> buckets) {
+        try {
+            mongoTemplate.insert(buckets, MetricBucket.class);
+        } catch (Exception e) {
+            System.err.println("写入系统指标分桶失败: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, TestReport.MetricSeries> copyOf(Map<String, TestReport.MetricSeries> summaries) {
+        Map<String, TestReport.MetricSeries> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, TestReport.MetricSeries> entry : summaries.entrySet()) {
+            TestReport.MetricSeries source = entry.getValue();
+            TestReport.MetricSeries target = new TestReport.MetricSeries(source.getUnit());
+            target.setBucketCount(source.getBucketCount());
+            target.setSampleCount(source.getSampleCount());
+            target.setFirstTime(source.getFirstTime());
+            target.setLastTime(source.getLastTime());
+            target.setMin(source.getMin());
+            target.setMax(source.getMax());
+            target.setSum(source.getSum());
+            target.setLatest(source.getLatest());
+            copy.put(entry.getKey(), target);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,203 @@
+package com.finance.fix.tester.service;
+
+import com.finance.fix.tester.model.TestReport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 运行中报告的节流写入器
+ * 测试线程的进度回调只把最新进度放入待写表（同一报告后到的覆盖先到的），
+ * 后台线程每fix.report.progress.interval-ms对每个有变化的报告执行一次字段级更新：
+ * 状态、进度、速率及有变化的计数都用$set写入当前快照值，不再整文档替换；
+ * 快照值是幂等的，更新超时后重试或驱动层重发不会重复累计。
+ * 系统指标按fix.report.metrics.sample-interval-ms采样，追加到分桶集合并$set汇总
+ */
+@Service
+public class ReportProgressWriter {
+
+    private final MongoTemplate mongoTemplate;
+    private final ReportMetricsWriter metricsWriter;
+    private final long metricsSampleIntervalMillis;
+
+    // 报告ID -> 尚未写出的最新进度
+    private final Map<String, Progress> pending = new ConcurrentHashMap<>();
+    // 报告ID -> 已写入的状态
+    private final Map<String, ReportState> states = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "report-progress-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 某一时刻的报告进度，在测试线程上从报告对象复制
+     */
+    public static class Progress {
+        final String status;
+        final int progress;
+        final long sent;
+        final long received;
+        final long timeouts;
+        final double actualRate;
+        final Map<String, Double> systemMetrics;
+        final LocalDateTime timestamp = LocalDateTime.now();
+
+        Progress(TestReport report, int progress, Map<String, Double> systemMetrics) {
+            this.status = report.getStatus();
+            this.progress = progress;
+            this.sent = report.getTotalMessagesSent();
+            this.received = report.getTotalResponsesReceived();
+            this.timeouts = report.getTimeoutCount();
+            this.actualRate = report.getActualRate();
+            this.systemMetrics = systemMetrics;
+        }
+    }
+
+    /**
+     * 单个报告已写入数据库的计数及上次采样时间，只在写入线程上访问
+     */
+    private static class ReportState {
+        final Map<String, String> units;
+        long sent;
+        long received;
+        long timeouts;
+        long lastMetricsSampleMillis;
+
+        ReportState(Map<String, String> units) {
+            this.units = units;
+        }
+    }
+
+    @Autowired
+    public ReportProgressWriter(MongoTemplate mongoTemplate, ReportMetricsWriter metricsWriter,
+                                @Value("${fix.report.progress.interval-ms:2000}") long intervalMillis,
+                                @Value("${fix.report.metrics.sample-interval-ms:30000}") long metricsSampleIntervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("报告写入间隔必须大于0: " + intervalMillis);
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.metricsWriter = metricsWriter;
+        this.metricsSampleIntervalMillis = metricsSampleIntervalMillis;
+        executor.scheduleWithFixedDelay(this::writePending, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 开始跟踪一个已创建的报告
+     * @param reportId 报告ID
+     * @param units 系统指标名称 -> 单位
+     */
+    public void start(String reportId, Map<String, String> units) {
+        states.put(reportId, new ReportState(units));
+    }
+
+    /**
+     * 提交最新进度，只替换待写内容，不访问数据库
+     * @param report 测试报告对象，统计字段已更新
+     * @param progress 进度(0-100)
+     * @param systemMetrics 当前系统指标，可为null
+     */
+    public void submit(TestReport report, int progress, Map<String, Double> systemMetrics) {
+        if (states.containsKey(report.getId())) {
+            pending.put(report.getId(), new Progress(report, progress, systemMetrics));
+        }
+    }
+
+    /**
+     * 结束跟踪：丢弃未写出的进度并等待进行中的写入完成，之后由调用方保存最终报告
+     * @param reportId 报告ID
+     */
+    public void finish(String reportId) {
+        ReportState state = states.remove(reportId);
+        pending.remove(reportId);
+        if (state != null) {
+            // 写入线程持有该锁时等待其完成，避免进行中的更新覆盖最终报告
+            synchronized (state) {
+                pending.remove(reportId);
+            }
+        }
+    }
+
+    private void writePending() {
+        for (String reportId : pending.keySet()) {
+            ReportState state = states.get(reportId);
+            if (state == null) {
+                pending.remove(reportId);
+                continue;
+            }
+            synchronized (state) {
+                Progress progress = pending.remove(reportId);
+                if (progress == null || !states.containsKey(reportId)) {
+                    continue;
+                }
+                try {
+                    write(reportId, state, progress);
+                } catch (Exception e) {
+                    // 写入失败时保留待写内容（若期间没有更新的进度），下个周期重试
+                    pending.putIfAbsent(reportId, progress);
+                    System.err.println("更新测试报告进度失败: " + reportId + ", " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void write(String reportId, ReportState state, Progress progress) {
+        Update update = new Update()
+            .set("status", progress.status)
+            .set("actualRate", progress.actualRate)
+            .set("extraFields.progress", progress.progress)
+            .set("extraFields.lastUpdateTime", progress.timestamp);
+
+        // 计数写绝对值：上次更新是否已落库未知时重试也不会重复累计
+        if (progress.sent != state.sent) {
+            update.set("totalMessagesSent", progress.sent);
+        }
+        if (progress.received != state.received) {
+            update.set("totalResponsesReceived", progress.received);
+        }
+        if (progress.timeouts != state.timeouts) {
+            update.set("timeoutCount", progress.timeouts);
+        }
+
+        long now = System.currentTimeMillis();
+        if (progress.systemMetrics != null && now - state.lastMetricsSampleMillis >= metricsSampleIntervalMillis) {
+            // 先记下采样时间，更新失败重试时不会重复追加同一采样点
+            state.lastMetricsSampleMillis = now;
+            metricsWriter.append(reportId, progress.timestamp, progress.systemMetrics, state.units);
+            Map<String, TestReport.MetricSeries> summaries = metricsWriter.getSummaries(reportId);
+            if (summaries != null) {
+                update.set("metricSeries", summaries);
+            }
+        }
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(reportId)), update, TestReport.class);
+
+        state.sent = progress.sent;
+        state.received = progress.received;
+        state.timeouts = progress.timeouts;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writePending();
+    }
+}
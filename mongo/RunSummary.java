@@ -0,0 +1,127 @@
+package com.finance.fix.tester.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 测试报告的摘要投影，历史对比只读取这些字段，不加载完整报告文档
+ */
+public class RunSummary {
+
+    private String id;                          // 报告ID
+    private String configId;                    // 关联的测试配置ID
+    private String configName;                  // 关联的测试配置名称
+    private LocalDateTime startTime;            // 测试开始时间
+    private LocalDateTime endTime;              // 测试结束时间
+    private String status;                      // 测试状态
+    private int targetRate;                     // 目标TPS
+    private long totalMessagesSent;             // 实际发送消息数
+    private long timeoutCount;                  // 超时消息数
+    private double actualRate;                  // 实际平均TPS
+    private double averageResponseTime;         // 平均响应时间(ms)
+    private double p95ResponseTime;             // 95%响应时间(ms)
+    private double p99ResponseTime;             // 99%响应时间(ms)
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getConfigId() {
+        return configId;
+    }
+
+    public void setConfigId(String configId) {
+        this.configId = configId;
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    public void setConfigName(String configName) {
+        this.configName = configName;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalDateTime endTime) {
+        this.endTime = endTime;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getTargetRate() {
+        return targetRate;
+    }
+
+    public void setTargetRate(int targetRate) {
+        this.targetRate = targetRate;
+    }
+
+    public long getTotalMessagesSent() {
+        return totalMessagesSent;
+    }
+
+    public void setTotalMessagesSent(long totalMessagesSent) {
+        this.totalMessagesSent = totalMessagesSent;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public void setTimeoutCount(long timeoutCount) {
+        this.timeoutCount = timeoutCount;
+    }
+
+    public double getActualRate() {
+        return actualRate;
+    }
+
+    public void setActualRate(double actualRate) {
+        this.actualRate = actualRate;
+    }
+
+    public double getAverageResponseTime() {
+        return averageResponseTime;
+    }
+
+    public void setAverageResponseTime(double averageResponseTime) {
+        this.averageResponseTime = averageResponseTime;
+    }
+
+    public double getP95ResponseTime() {
+        return p95ResponseTime;
+    }
+
+    public void setP95ResponseTime(double p95ResponseTime) {
+        this.p95ResponseTime = p95ResponseTime;
+    }
+
+    public double getP99ResponseTime() {
+        return p99ResponseTime;
+    }
+
+    public void setP99ResponseTime(double p99ResponseTime) {
+        this.p99ResponseTime = p99ResponseTime;
+    }
+}
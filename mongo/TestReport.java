@@ -1,6 +1,10 @@
 package com.finance.fix.tester.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.IndexDirection;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -11,12 +15,19 @@ import java.util.Map;
  * 测试报告实体类，存储在MongoDB中
  */
 @Document(collection = "test_reports")
+@CompoundIndexes({
+    // 按配置查询历史与基线：configId、status等值匹配，startTime排序/范围
+    @CompoundIndex(name = "config_status_start", def = "{'configId': 1, 'status': 1, 'startTime': -1}"),
+    // 按状态查询并按时间倒序
+    @CompoundIndex(name = "status_start", def = "{'status': 1, 'startTime': -1}")
+})
 public class TestReport {
 
     @Id
     private String id;                          // 报告ID，与测试任务ID一致
     private String configId;                    // 关联的测试配置ID
     private String configName;                  // 关联的测试配置名称
+    @Indexed(name = "start_time", direction = IndexDirection.DESCENDING)
     private LocalDateTime startTime;            // 测试开始时间
     private LocalDateTime endTime;              // 测试结束时间
     private String status;                      // 测试状态：RUNNING, COMPLETED, FAILED, STOPPED
@@ -43,7 +54,7 @@ public class TestReport {
     private List<ConnectionError> connectionErrors; // 连接错误详情
     
     // 系统指标
-    private Map<String, List<SystemMetric>> systemMetrics; // 系统指标时间序列数据
+    private Map<String, MetricSeries> metricSeries; // 系统指标汇总，时间序列存放在report_metric_buckets
     
     // 错误信息(如果测试失败)
     private String errorMessage;
@@ -127,6 +138,120 @@ public class TestReport {
         }
     }
 
+    // 内部类：系统指标汇总，采样点按固定大小分桶存放在MetricBucket中
+    public static class MetricSeries {
+        private String unit;                 // 单位
+        private int bucketCount;             // 已写入的分桶数
+        private long sampleCount;            // 采样点总数
+        private LocalDateTime firstTime;     // 第一个采样点时间
+        private LocalDateTime lastTime;      // 最后一个采样点时间
+        private double min;                  // 最小值
+        private double max;                  // 最大值
+        private double sum;                  // 累计值，用于求平均
+        private double latest;               // 最新值
+
+        public MetricSeries() {
+        }
+
+        public MetricSeries(String unit) {
+            this.unit = unit;
+        }
+
+        /**
+         * 计入一个采样点
+         */
+        public void add(LocalDateTime timestamp, double value) {
+            if (sampleCount == 0) {
+                firstTime = timestamp;
+                min = value;
+                max = value;
+            } else {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            lastTime = timestamp;
+            latest = value;
+            sum += value;
+            sampleCount++;
+        }
+
+        public double getAverage() {
+            return sampleCount == 0 ? 0 : sum / sampleCount;
+        }
+
+        public String getUnit() {
+            return unit;
+        }
+
+        public void setUnit(String unit) {
+            this.unit = unit;
+        }
+
+        public int getBucketCount() {
+            return bucketCount;
+        }
+
+        public void setBucketCount(int bucketCount) {
+            this.bucketCount = bucketCount;
+        }
+
+        public long getSampleCount() {
+            return sampleCount;
+        }
+
+        public void setSampleCount(long sampleCount) {
+            this.sampleCount = sampleCount;
+        }
+
+        public LocalDateTime getFirstTime() {
+            return firstTime;
+        }
+
+        public void setFirstTime(LocalDateTime firstTime) {
+            this.firstTime = firstTime;
+        }
+
+        public LocalDateTime getLastTime() {
+            return lastTime;
+        }
+
+        public void setLastTime(LocalDateTime lastTime) {
+            this.lastTime = lastTime;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public void setMin(double min) {
+            this.min = min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        public void setMax(double max) {
+            this.max = max;
+        }
+
+        public double getSum() {
+            return sum;
+        }
+
+        public void setSum(double sum) {
+            this.sum = sum;
+        }
+
+        public double getLatest() {
+            return latest;
+        }
+
+        public void setLatest(double latest) {
+            this.latest = latest;
+        }
+    }
+
     // Getters and Setters
     public String getId() {
         return id;
@@ -296,12 +421,12 @@ public class TestReport {
         this.connectionErrors = connectionErrors;
     }
 
-    public Map<String, List<SystemMetric>> getSystemMetrics() {
-        return systemMetrics;
+    public Map<String, MetricSeries> getMetricSeries() {
+        return metricSeries;
     }
 
-    public void setSystemMetrics(Map<String, List<SystemMetric>> systemMetrics) {
-        this.systemMetrics = systemMetrics;
+    public void setMetricSeries(Map<String, MetricSeries> metricSeries) {
+        this.metricSeries = metricSeries;
     }
 
     public String getErrorMessage() {
@@ -1,12 +1,19 @@
 package com.finance.fix.tester.service;
 
+import com.finance.fix.tester.model.MetricBucket;
+import com.finance.fix.tester.model.RegressionCheck;
 import com.finance.fix.tester.model.TestReport;
+import com.finance.fix.tester.repository.MetricBucketRepository;
 import com.finance.fix.tester.repository.TestReportRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -16,10 +23,20 @@ import java.util.Optional;
 public class TestReportService {
 
     private final TestReportRepository reportRepository;
+    private final MetricBucketRepository bucketRepository;
+    private final ReportMetricsWriter metricsWriter;
+    private final ReportProgressWriter progressWriter;
+    private final ReportComparisonService comparisonService;
 
     @Autowired
-    public TestReportService(TestReportRepository reportRepository) {
+    public TestReportService(TestReportRepository reportRepository, MetricBucketRepository bucketRepository,
+                             ReportMetricsWriter metricsWriter, ReportProgressWriter progressWriter,
+                             ReportComparisonService comparisonService) {
         this.reportRepository = reportRepository;
+        this.bucketRepository = bucketRepository;
+        this.metricsWriter = metricsWriter;
+        this.progressWriter = progressWriter;
+        this.comparisonService = comparisonService;
     }
 
     /**
@@ -40,6 +57,98 @@ public class TestReportService {
         return reportRepository.save(report);
     }
 
+    /**
+     * 开始节流写入运行中报告的进度
+     * @param report 已创建的测试报告
+     * @param units 系统指标名称 -> 单位
+     */
+    public void startProgressUpdates(TestReport report, Map<String, String> units) {
+        progressWriter.start(report.getId(), units);
+    }
+
+    /**
+     * 提交运行中报告的最新进度，由后台线程按间隔合并写入，调用方不会阻塞在数据库上
+     * @param report 测试报告对象，统计字段已更新
+     * @param progress 进度(0-100)
+     * @param systemMetrics 当前系统指标，可为null
+     */
+    public void submitProgress(TestReport report, int progress, Map<String, Double> systemMetrics) {
+        progressWriter.submit(report, progress, systemMetrics);
+    }
+
+    /**
+     * 停止进度写入，之后可以安全地保存最终报告
+     * @param id 报告ID
+     */
+    public void finishProgressUpdates(String id) {
+        progressWriter.finish(id);
+    }
+
+    /**
+     * 追加一组系统指标采样点到分桶集合，并刷新报告中的指标汇总
+     * @param report 测试报告对象
+     * @param timestamp 采样时间
+     * @param values 指标名称 -> 指标值
+     * @param units 指标名称 -> 单位
+     */
+    public void appendSystemMetrics(TestReport report, LocalDateTime timestamp,
+                                    Map<String, Double> values, Map<String, String> units) {
+        metricsWriter.append(report.getId(), timestamp, values, units);
+        Map<String, TestReport.MetricSeries> summaries = metricsWriter.getSummaries(report.getId());
+        if (summaries != null) {
+            report.setMetricSeries(summaries);
+        }
+    }
+
+    /**
+     * 测试结束时写出未满的指标分桶，并把最终汇总写入报告对象(不保存报告)
+     * @param report 测试报告对象
+     */
+    public void flushSystemMetrics(TestReport report) {
+        Map<String, TestReport.MetricSeries> summaries = metricsWriter.flush(report.getId());
+        if (summaries != null) {
+            report.setMetricSeries(summaries);
+        }
+    }
+
+    /**
+     * 读取报告某个指标的完整时间序列
+     * @param id 报告ID
+     * @param metric 指标名称
+     * @return 按时间排序的采样点
+     */
+    public List<TestReport.SystemMetric> getSystemMetricSeries(String id, String metric) {
+        List<TestReport.SystemMetric> series = new ArrayList<>();
+        for (MetricBucket bucket : bucketRepository.findByReportIdAndMetricOrderByBucketIndexAsc(id, metric)) {
+            for (MetricBucket.Sample sample : bucket.getSamples()) {
+                series.add(new TestReport.SystemMetric(sample.getTimestamp(), sample.getValue(), bucket.getUnit()));
+            }
+        }
+        return series;
+    }
+
+    /**
+     * 将刚完成的测试与同配置历史基线对比，结论写入报告的extraFields.regression(不保存报告)
+     * @param report 测试报告对象
+     * @return 对比结果
+     */
+    public RegressionCheck markRegression(TestReport report) {
+        RegressionCheck check = comparisonService.checkRun(report);
+        Map<String, Object> regression = new LinkedHashMap<>();
+        regression.put("verdict", check.getVerdict());
+        regression.put("reasons", check.getReasons());
+        regression.put("baselineRuns", check.getBaselineRuns());
+        regression.put("baselineRate", check.getBaselineRate());
+        regression.put("baselineP99", check.getBaselineP99());
+        regression.put("rateChange", check.getRateChange());
+        regression.put("p99Change", check.getP99Change());
+        if (report.getExtraFields() == null) {
+            report.setExtraFields(new HashMap<>());
+        }
+        report.getExtraFields().put("regression", regression);
+        return check;
+    }
+
     /**
      * 获取所有测试报告
      * @return 所有测试报告列表
@@ -91,6 +200,7 @@ public class TestReportService {
      */
     public void deleteReport(String id) {
         reportRepository.deleteById(id);
+        bucketRepository.deleteByReportId(id);
     }
 }
     
\ No newline at end of file
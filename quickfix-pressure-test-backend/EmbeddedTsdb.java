@@ -0,0 +1,614 @@
+package com.fix.test.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * 嵌入式时序库，无InfluxDB时替代MetricsSink（fix.metrics.store=embedded）
+ * 每个(表, 任务)一个目录，数据先在内存块中按列累积，块满或超过封存间隔后编码
+ * （时间戳二阶差分、数值XOR，见TsdbCodec）追加到内存映射的段文件；
+ * 封存在后台线程完成，写入线程不接触段文件；段文件只追加，重启后扫描块头并校验CRC重建索引；
+ * 任务结束时释放该任务的序列与映射。支持时间范围扫描与按步长降采样查询
+ */
+@Service
+@ConditionalOnProperty(name = "fix.metrics.store", havingValue = "embedded")
+public class EmbeddedTsdb implements MetricsStore {
+
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String SEGMENT_SUFFIX = ".tsdb";
+
+    @Value("${fix.metrics.embedded.dir:data/tsdb}")
+    private String directory;
+
+    @Value("${fix.metrics.embedded.segment-size-mb:8}")
+    private int segmentSizeMb;
+
+    @Value("${fix.metrics.embedded.block-points:1024}")
+    private int blockPoints;
+
+    @Value("${fix.metrics.embedded.seal-interval-ms:10000}")
+    private long sealIntervalMs;
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sealer = Executors.newSingleThreadScheduledExecutor();
+
+    // 统计
+    private final AtomicLong pointsWritten = new AtomicLong(0);
+    private final AtomicLong blocksSealed = new AtomicLong(0);
+    private final AtomicLong bytesWritten = new AtomicLong(0);
+    private final AtomicLong writeFailures = new AtomicLong(0);
+
+    /**
+     * 范围扫描结果，按时间升序；某点缺少的字段为NaN
+     */
+    public static class SeriesData {
+        public final long[] timestamps;
+        public final Map<String, double[]> fields;
+
+        SeriesData(long[] timestamps, Map<String, double[]> fields) {
+            this.timestamps = timestamps;
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * 降采样的一个时间桶
+     */
+    public static class Bucket {
+        public final long startNanos;
+        public double min = Double.POSITIVE_INFINITY;
+        public double max = Double.NEGATIVE_INFINITY;
+        public double sum = 0;
+        public long count = 0;
+
+        Bucket(long startNanos) {
+            this.startNanos = startNanos;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        sealer.scheduleWithFixedDelay(this::sealExpired, sealIntervalMs, sealIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sealer.shutdownNow();
+        try {
+            sealer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Series s : series.values()) {
+            synchronized (s) {
+                s.detach();
+            }
+            s.sealPending();
+            s.force();
+        }
+    }
+
+    /**
+     * 写入内存块；块写满时交给后台线程编码落盘，调用线程不做文件操作
+     */
+    @Override
+    public void write(String measurement, String taskId, long timestampNanos, Map<String, ?> fields) {
+        Series s = series(measurement, taskId);
+        boolean sealNeeded;
+        synchronized (s) {
+            sealNeeded = s.append(timestampNanos, fields);
+        }
+        if (sealNeeded && !sealer.isShutdown()) {
+            sealer.execute(s::sealPending);
+        }
+        pointsWritten.incrementAndGet();
+    }
+
+    /**
+     * 任务结束：在后台线程封存剩余数据，释放该任务全部序列的内存块与映射，并把最后一个段文件截断到实际长度
+     */
+    @Override
+    public void release(String taskId) {
+        if (sealer.isShutdown()) {
+            return;
+        }
+        sealer.execute(() -> {
+            String suffix = "/" + taskId;
+            Iterator<Map.Entry<String, Series>> iterator = series.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Series> entry = iterator.next();
+                if (!entry.getKey().endsWith(suffix)) {
+                    continue;
+                }
+                iterator.remove();
+                Series s = entry.getValue();
+                synchronized (s) {
+                    s.detach();
+                }
+                s.sealPending();
+                s.close(true);
+            }
+        });
+    }
+
+    /**
+     * 时间范围扫描，包含尚未封存的内存块；已释放的任务临时打开段文件，扫描后即关闭
+     */
+    public SeriesData scan(String measurement, String taskId, long fromNanos, long toNanos) {
+        Series s = series.get(key(measurement, taskId));
+        if (s != null) {
+            return s.scan(fromNanos, toNanos);
+        }
+        Series closed = new Series(seriesDir(measurement, taskId));
+        try {
+            return closed.scan(fromNanos, toNanos);
+        } finally {
+            closed.close(false);
+        }
+    }
+
+    /**
+     * 按步长降采样单个字段，跳过NaN
+     */
+    public List<Bucket> downsample(String measurement, String taskId, String field,
+                                   long fromNanos, long toNanos, long stepNanos) {
+        if (stepNanos <= 0) {
+            throw new IllegalArgumentException("降采样步长必须大于0");
+        }
+        SeriesData data = scan(measurement, taskId, fromNanos, toNanos);
+        double[] values = data.fields.get(field);
+        List<Bucket> buckets = new ArrayList<>();
+        if (values == null) {
+            return buckets;
+        }
+        Bucket current = null;
+        for (int i = 0; i < data.timestamps.length; i++) {
+            double value = values[i];
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            long start = fromNanos + (data.timestamps[i] - fromNanos) / stepNanos * stepNanos;
+            if (current == null || current.startNanos != start) {
+                current = new Bucket(start);
+                buckets.add(current);
+            }
+            current.min = Math.min(current.min, value);
+            current.max = Math.max(current.max, value);
+            current.sum += value;
+            current.count++;
+        }
+        return buckets;
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("series", series.size());
+        statistics.put("pointsWritten", pointsWritten.get());
+        statistics.put("blocksSealed", blocksSealed.get());
+        statistics.put("bytesWritten", bytesWritten.get());
+        statistics.put("writeFailures", writeFailures.get());
+        return statistics;
+    }
+
+    private Series series(String measurement, String taskId) {
+        return series.computeIfAbsent(key(measurement, taskId), k -> new Series(seriesDir(measurement, taskId)));
+    }
+
+    private static String key(String measurement, String taskId) {
+        return measurement + "/" + taskId;
+    }
+
+    private File seriesDir(String measurement, String taskId) {
+        return new File(new File(directory, sanitize(measurement)), sanitize(taskId));
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^A-Za-z0-9_.-]", "_");
+    }
+
+    private void sealExpired() {
+        long now = System.currentTimeMillis();
+        for (Series s : series.values()) {
+            synchronized (s) {
+                if (s.count > 0 && now - s.blockOpenedAt >= sealIntervalMs) {
+                    s.detach();
+                }
+            }
+            s.sealPending();
+            s.force();
+        }
+    }
+
+    /**
+     * 段文件中一个已封存块的位置
+     */
+    private static class BlockRef {
+        final int segment;
+        final int offset;
+        final long first;
+        final long last;
+
+        BlockRef(int segment, int offset, long first, long last) {
+            this.segment = segment;
+            this.offset = offset;
+            this.first = first;
+            this.last = last;
+        }
+    }
+
+    /**
+     * 已写满或已超时、等待后台封存的内存块
+     */
+    private static class OpenBlock {
+        final long[] timestamps;
+        final Map<String, double[]> columns;
+        final int count;
+
+        OpenBlock(long[] timestamps, Map<String, double[]> columns, int count) {
+            this.timestamps = timestamps;
+            this.columns = columns;
+            this.count = count;
+        }
+    }
+
+    /**
+     * 单个序列：内存块 + 待封存块 + 段文件
+     * 块格式：[int 块长][int CRC32][int 点数][long 首时间][long 末时间][int 时间戳列长][时间戳列]
+     *        [short 字段数]{[short 名称长][名称][int 列长][数值列]}*，块长与CRC不计前8字节；
+     * 先写块体和CRC，最后写块长作为提交标记，块长为0或CRC不符表示段内后续无有效数据。
+     * 锁顺序：fileLock → 序列对象；写入线程只持有序列对象锁，不接触段文件
+     */
+    private class Series {
+        private final File dir;
+        private final Object fileLock = new Object();
+
+        // 以下由fileLock保护
+        private final List<File> segmentFiles = new ArrayList<>();
+        private final List<MappedByteBuffer> segments = new ArrayList<>();
+        private final List<BlockRef> blocks = new ArrayList<>();
+        private boolean dirty = false;
+
+        // 以下由序列对象锁保护
+        private long[] timestamps = new long[blockPoints];
+        private Map<String, double[]> columns = new LinkedHashMap<>();
+        private int count = 0;
+        private long blockOpenedAt;
+        private final Deque<OpenBlock> pending = new ArrayDeque<>();
+
+        Series(File dir) {
+            this.dir = dir;
+            load();
+        }
+
+        /**
+         * 追加一个点，返回内存块是否已写满并移入待封存队列
+         */
+        boolean append(long timestampNanos, Map<String, ?> fields) {
+            if (count == 0) {
+                blockOpenedAt = System.currentTimeMillis();
+            }
+            timestamps[count] = timestampNanos;
+            for (Map.Entry<String, ?> field : fields.entrySet()) {
+                double[] column = columns.get(field.getKey());
+                if (column == null) {
+                    // 块内新出现的字段，之前的点补NaN
+                    column = new double[blockPoints];
+                    Arrays.fill(column, Double.NaN);
+                    columns.put(field.getKey(), column);
+                }
+                column[count] = toDouble(field.getValue());
+            }
+            // 本点缺少的字段补NaN
+            if (columns.size() > fields.size()) {
+                for (Map.Entry<String, double[]> column : columns.entrySet()) {
+                    if (!fields.containsKey(column.getKey())) {
+                        column.getValue()[count] = Double.NaN;
+                    }
+                }
+            }
+            count++;
+            if (count == blockPoints) {
+                detach();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * 把当前内存块移入待封存队列并换上新数组，调用方须持有序列对象锁
+         */
+        void detach() {
+            if (count == 0) {
+                return;
+            }
+            pending.addLast(new OpenBlock(timestamps, columns, count));
+            timestamps = new long[blockPoints];
+            columns = new LinkedHashMap<>();
+            count = 0;
+        }
+
+        /**
+         * 编码待封存块并追加到段文件，只在封存线程上调用
+         */
+        void sealPending() {
+            synchronized (fileLock) {
+                List<OpenBlock> batch;
+                synchronized (this) {
+                    batch = new ArrayList<>(pending);
+                }
+                for (OpenBlock block : batch) {
+                    seal(block);
+                    synchronized (this) {
+                        pending.pollFirst();
+                    }
+                }
+            }
+        }
+
+        private void seal(OpenBlock block) {
+            long[] blockTimestamps = block.timestamps;
+            int points = block.count;
+            byte[] encodedTimestamps = TsdbCodec.encodeTimestamps(blockTimestamps, points);
+            List<byte[]> names = new ArrayList<>();
+            List<byte[]> encodedColumns = new ArrayList<>();
+            int length = 4 + 8 + 8 + 4 + encodedTimestamps.length + 2;
+            for (Map.Entry<String, double[]> column : block.columns.entrySet()) {
+                byte[] name = column.getKey().getBytes(StandardCharsets.UTF_8);
+                byte[] encoded = TsdbCodec.encodeValues(column.getValue(), points);
+                names.add(name);
+                encodedColumns.add(encoded);
+                length += 2 + name.length + 4 + encoded.length;
+            }
+
+            try {
+                MappedByteBuffer segment = segmentWithSpace(8 + length);
+                int offset = segment.position();
+                segment.position(offset + 8);
+                segment.putInt(points);
+                segment.putLong(blockTimestamps[0]);
+                segment.putLong(blockTimestamps[points - 1]);
+                segment.putInt(encodedTimestamps.length);
+                segment.put(encodedTimestamps);
+                segment.putShort((short) names.size());
+                for (int i = 0; i < names.size(); i++) {
+                    segment.putShort((short) names.get(i).length);
+                    segment.put(names.get(i));
+                    segment.putInt(encodedColumns.get(i).length);
+                    segment.put(encodedColumns.get(i));
+                }
+                // 清掉下一块的块长位置（可能是上次崩溃留下的残块），再写CRC，最后写块长提交
+                segment.putInt(offset + 8 + length, 0);
+                segment.putInt(offset + 4, checksum(segment, offset + 8, length));
+                segment.putInt(offset, length);
+                blocks.add(new BlockRef(segments.size() - 1, offset, blockTimestamps[0], blockTimestamps[points - 1]));
+                blocksSealed.incrementAndGet();
+                bytesWritten.addAndGet(8 + length);
+                dirty = true;
+            } catch (IOException e) {
+                writeFailures.incrementAndGet();
+                System.err.println("Failed to write tsdb block to " + dir + ": " + e.getMessage());
+            }
+        }
+
+        void force() {
+            synchronized (fileLock) {
+                if (dirty && !segments.isEmpty()) {
+                    segments.get(segments.size() - 1).force();
+                    dirty = false;
+                }
+            }
+        }
+
+        /**
+         * 刷盘并丢弃全部映射和索引；truncate为true时把最后一个段文件截断到已用长度，归还预分配的空间
+         */
+        void close(boolean truncate) {
+            synchronized (fileLock) {
+                force();
+                if (segments.isEmpty()) {
+                    return;
+                }
+                int used = segments.get(segments.size() - 1).position();
+                File last = segmentFiles.get(segmentFiles.size() - 1);
+                segments.clear();
+                segmentFiles.clear();
+                blocks.clear();
+                if (truncate) {
+                    try (RandomAccessFile raf = new RandomAccessFile(last, "rw")) {
+                        raf.setLength(used);
+                    } catch (IOException e) {
+                        // 映射尚未被回收的平台上截断会失败，只是少回收一些磁盘空间
+                        System.err.println("Failed to truncate tsdb segment " + last + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        SeriesData scan(long fromNanos, long toNanos) {
+            List<long[]> timestampChunks = new ArrayList<>();
+            List<Map<String, double[]>> valueChunks = new ArrayList<>();
+            Set<String> fieldNames = new LinkedHashSet<>();
+
+            synchronized (fileLock) {
+                // 持有fileLock时待封存队列不会变成已封存块，两边各取一次不会重复或遗漏
+                List<OpenBlock> unsealed = new ArrayList<>();
+                synchronized (this) {
+                    unsealed.addAll(pending);
+                    if (count > 0) {
+                        Map<String, double[]> open = new LinkedHashMap<>();
+                        for (Map.Entry<String, double[]> column : columns.entrySet()) {
+                            open.put(column.getKey(), Arrays.copyOf(column.getValue(), count));
+                        }
+                        unsealed.add(new OpenBlock(Arrays.copyOf(timestamps, count), open, count));
+                    }
+                }
+
+                for (BlockRef block : blocks) {
+                    if (block.last < fromNanos || block.first > toNanos) {
+                        continue;
+                    }
+                    ByteBuffer buffer = segments.get(block.segment).duplicate();
+                    buffer.position(block.offset + 8);
+                    int points = buffer.getInt();
+                    buffer.getLong();
+                    buffer.getLong();
+                    int timestampLength = buffer.getInt();
+                    long[] blockTimestamps = TsdbCodec.decodeTimestamps(buffer.slice(), points);
+                    buffer.position(buffer.position() + timestampLength);
+                    int fieldCount = buffer.getShort();
+                    Map<String, double[]> blockValues = new LinkedHashMap<>();
+                    for (int i = 0; i < fieldCount; i++) {
+                        byte[] name = new byte[buffer.getShort()];
+                        buffer.get(name);
+                        int columnLength = buffer.getInt();
+                        blockValues.put(new String(name, StandardCharsets.UTF_8),
+                                TsdbCodec.decodeValues(buffer, columnLength, points));
+                    }
+                    timestampChunks.add(blockTimestamps);
+                    valueChunks.add(blockValues);
+                    fieldNames.addAll(blockValues.keySet());
+                }
+                for (OpenBlock block : unsealed) {
+                    if (block.timestamps.length == block.count) {
+                        timestampChunks.add(block.timestamps);
+                    } else {
+                        timestampChunks.add(Arrays.copyOf(block.timestamps, block.count));
+                    }
+                    valueChunks.add(block.columns);
+                    fieldNames.addAll(block.columns.keySet());
+                }
+            }
+
+            // 按范围过滤并拼接
+            int total = 0;
+            for (long[] chunk : timestampChunks) {
+                for (long t : chunk) {
+                    if (t >= fromNanos && t <= toNanos) {
+                        total++;
+                    }
+                }
+            }
+            long[] resultTimestamps = new long[total];
+            Map<String, double[]> resultFields = new LinkedHashMap<>();
+            for (String name : fieldNames) {
+                double[] values = new double[total];
+                Arrays.fill(values, Double.NaN);
+                resultFields.put(name, values);
+            }
+            int row = 0;
+            for (int c = 0; c < timestampChunks.size(); c++) {
+                long[] chunk = timestampChunks.get(c);
+                Map<String, double[]> chunkValues = valueChunks.get(c);
+                for (int i = 0; i < chunk.length; i++) {
+                    if (chunk[i] < fromNanos || chunk[i] > toNanos) {
+                        continue;
+                    }
+                    resultTimestamps[row] = chunk[i];
+                    for (Map.Entry<String, double[]> column : chunkValues.entrySet()) {
+                        resultFields.get(column.getKey())[row] = column.getValue()[i];
+                    }
+                    row++;
+                }
+            }
+            return new SeriesData(resultTimestamps, resultFields);
+        }
+
+        private MappedByteBuffer segmentWithSpace(int required) throws IOException {
+            if (!segments.isEmpty()) {
+                MappedByteBuffer current = segments.get(segments.size() - 1);
+                // 预留4字节写结束标记
+                if (current.remaining() >= required + 4) {
+                    return current;
+                }
+                current.force();
+            }
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Cannot create directory " + dir);
+            }
+            int size = Math.max(segmentSizeMb * 1024 * 1024, required + 4);
+            File file = new File(dir, String.format("%s%06d%s", SEGMENT_PREFIX, segments.size() + 1, SEGMENT_SUFFIX));
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                // 先截断再扩展，新段文件全为0，不会读到同名旧文件的内容
+                raf.setLength(0);
+                raf.setLength(size);
+                MappedByteBuffer segment = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+                segments.add(segment);
+                segmentFiles.add(file);
+                return segment;
+            }
+        }
+
+        /**
+         * 打开已有段文件，扫描块头并校验CRC重建索引，遇到未提交或损坏的块即停止
+         */
+        private void load() {
+            File[] files = dir.listFiles((d, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+            if (files == null) {
+                return;
+            }
+            Arrays.sort(files);
+            for (File file : files) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    MappedByteBuffer segment = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+                    int index = segments.size();
+                    segments.add(segment);
+                    segmentFiles.add(file);
+                    while (segment.remaining() >= 8 + 26) {
+                        int offset = segment.position();
+                        int length = segment.getInt();
+                        int crc = segment.getInt();
+                        if (length < 26 || length > segment.remaining()
+                                || crc != checksum(segment, offset + 8, length)) {
+                            segment.position(offset);
+                            break;
+                        }
+                        long first = segment.getLong(offset + 12);
+                        long last = segment.getLong(offset + 20);
+                        blocks.add(new BlockRef(index, offset, first, last));
+                        segment.position(offset + 8 + length);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Failed to open tsdb segment " + file + ": " + e.getMessage());
+                }
+            }
+        }
+
+        private int checksum(ByteBuffer segment, int offset, int length) {
+            ByteBuffer body = segment.duplicate();
+            body.limit(offset + length);
+            body.position(offset);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            return (int) crc.getValue();
+        }
+
+        private double toDouble(Object value) {
+            if (value instanceof Number) {
+                return ((Number) value).doubleValue();
+            }
+            if (value instanceof Boolean) {
+                return (Boolean) value ? 1 : 0;
+            }
+            return Double.NaN;
+        }
+    }
+}
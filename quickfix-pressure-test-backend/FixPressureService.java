@@ -2,6 +2,7 @@ package com.fix.test.service;
 
 import com.fix.test.entity.TestPlan;
 import com.fix.test.entity.TestTask;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import quickfix.*;
 import quickfix.field.*;
@@ -15,15 +16,27 @@ import java.util.concurrent.atomic.AtomicLong;
 @Service
 public class FixPressureService {
     
-    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    @Autowired
+    private SessionPool sessionPool;
+    
+    @Autowired
+    private LoadTestMetrics loadTestMetrics;
+    
+    @Autowired
+    private GeneratorSaturationWatchdog saturationWatchdog;
+    
+    // 每个任务从会话池租用的会话，任务停止时归还
+    private final Map<String, List<SessionID>> taskSessions = new ConcurrentHashMap<>();
     private final Map<String, TestTaskContext> taskContexts = new ConcurrentHashMap<>();
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(10);
-    private final ExecutorService messageExecutor = Executors.newFixedThreadPool(20);
+    // 发送线程以fix-sender-命名，压测端饱和检测按名称统计其CPU；队列长度用于判断发送积压
+    private final ThreadPoolExecutor messageExecutor = new ThreadPoolExecutor(20, 20, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), senderThreadFactory());
     
-    // 监控数据收集
-    private final AtomicLong totalSent = new AtomicLong(0);
-    private final AtomicLong totalReceived = new AtomicLong(0);
-    private final AtomicLong totalFailed = new AtomicLong(0);
+    // 任务计数器下标，先发生的计数放在小下标上（见StripedCounter.snapshot）
+    static final int SENT = 0;
+    static final int RECEIVED = 1;
+    static final int FAILED = 2;
     
     public static class TestTaskContext {
         private final String taskId;
@@ -33,6 +46,13 @@ public class FixPressureService {
         private final AtomicInteger currentTps = new AtomicInteger(0);
         private final AtomicLong currentStepStartTime = new AtomicLong(0);
         private ScheduledFuture<?> currentTask;
+        // 监控数据收集，按任务隔离
+        private final StripedCounter counters = new StripedCounter(3);
+        private LoadTestMetrics.TaskMeters meters;
+        // 每秒由监控采集取出，供降采样合并
+        private final LatencyBuckets latency = new LatencyBuckets();
+        // 上次饱和评估以来的最大调度滞后（纳秒）
+        private final AtomicLong maxScheduleLag = new AtomicLong(0);
         
         public TestTaskContext(String taskId, TestPlan plan) {
             this.taskId = taskId;
@@ -43,23 +63,11 @@ public class FixPressureService {
     }
     
     /**
-     * 初始化并发FIX会话
+     * 初始化并发FIX会话：从会话池租用，已预热的会话直接复用并重置序列号
      */
-    public void initializeSessions(String taskId, TestPlan plan) throws ConfigError {
-        SessionSettings settings = createSessionSettings(plan);
-        
-        for (int i = 1; i <= plan.getSessionCount(); i++) {
-            String sessionId = plan.getPlanName() + "_" + i;
-            SessionID sessionID = new SessionID(
-                plan.getFixVersion().toString(), 
-                "CLIENT_" + String.format("%03d", i), 
-                "SERVER"
-            );
-            
-            // 创建会话配置
-            Session session = SessionFactory.createSession(settings, sessionID);
-            sessions.put(sessionId, session);
-        }
+    public void initializeSessions(String taskId, TestPlan plan) throws ConfigError, InterruptedException {
+        List<SessionID> leased = sessionPool.lease(taskId, SessionPool.sessionIDsFor(plan));
+        taskSessions.put(taskId, leased);
     }
     
     /**
@@ -67,6 +75,7 @@ public class FixPressureService {
      */
     public void startPressureTest(String taskId, TestPlan plan) {
         TestTaskContext context = new TestTaskContext(taskId, plan);
+        context.meters = loadTestMetrics.register(taskId, context.counters, () -> countSessionsOnline(taskId));
         taskContexts.put(taskId, context);
         
         // 按TPS阶梯执行
@@ -89,8 +98,15 @@ public class FixPressureService {
         
         // 计算每条消息的发送间隔
         long intervalMs = 1000L / step.getTps();
+        // 计划触发时间，用于统计调度滞后
+        long firstFireNanos = System.nanoTime();
+        AtomicLong ticks = new AtomicLong(0);
         
         ScheduledFuture<?> task = scheduler.scheduleAtFixedRate(() -> {
+            long expectedNanos = firstFireNanos + ticks.getAndIncrement() * TimeUnit.MILLISECONDS.toNanos(intervalMs);
+            long lagNanos = System.nanoTime() - expectedNanos;
+            context.meters.recordScheduleLag(lagNanos);
+            context.maxScheduleLag.accumulateAndGet(lagNanos, Math::max);
             if (!context.running || context.paused) return;
             
             // 发送消息
@@ -125,10 +141,14 @@ public class FixPressureService {
             for (int i = 0; i < messageCount; i++) {
                 messageExecutor.submit(() -> {
                     try {
+                        long start = System.nanoTime();
                         sendFixMessage(taskId, config);
-                        totalSent.incrementAndGet();
+                        long elapsed = System.nanoTime() - start;
+                        context.meters.recordSendLatency(elapsed);
+                        context.latency.record(elapsed);
+                        context.counters.increment(SENT);
                     } catch (Exception e) {
-                        totalFailed.incrementAndGet();
+                        context.counters.increment(FAILED);
                     }
                 });
             }
@@ -178,15 +198,27 @@ public class FixPressureService {
      * 获取随机会话
      */
     private SessionID getRandomSession(String taskId) {
-        TestTaskContext context = taskContexts.get(taskId);
-        if (context == null) return null;
+        List<SessionID> leased = taskSessions.get(taskId);
+        if (leased == null || leased.isEmpty()) return null;
         
-        int sessionIndex = (int) (Math.random() * context.plan.getSessionCount()) + 1;
-        return new SessionID(
-            context.plan.getFixVersion().toString(),
-            "CLIENT_" + String.format("%03d", sessionIndex),
-            "SERVER"
-        );
+        return leased.get(ThreadLocalRandom.current().nextInt(leased.size()));
+    }
+    
+    /**
+     * 任务租用的会话中已登录的数量
+     */
+    private int countSessionsOnline(String taskId) {
+        List<SessionID> leased = taskSessions.get(taskId);
+        if (leased == null) return 0;
+        
+        int online = 0;
+        for (SessionID sessionID : leased) {
+            Session session = Session.lookupSession(sessionID);
+            if (session != null && session.isLoggedOn()) {
+                online++;
+            }
+        }
+        return online;
     }
     
     /**
@@ -226,8 +258,13 @@ public class FixPressureService {
             if (context.currentTask != null) {
                 context.currentTask.cancel(true);
             }
+            context.meters.close();
             taskContexts.remove(taskId);
         }
+        // 会话归还会话池，保持登录供下一个任务使用
+        if (taskSessions.remove(taskId) != null) {
+            sessionPool.release(taskId);
+        }
     }
     
     /**
@@ -237,35 +274,57 @@ public class FixPressureService {
         TestTaskContext context = taskContexts.get(taskId);
         if (context == null) return Collections.emptyMap();
         
+        long[] counts = context.counters.snapshot();
         Map<String, Object> metrics = new HashMap<>();
         metrics.put("taskId", taskId);
         metrics.put("currentTps", context.currentTps.get());
-        metrics.put("totalSent", totalSent.get());
-        metrics.put("totalReceived", totalReceived.get());
-        metrics.put("totalFailed", totalFailed.get());
+        metrics.put("totalSent", counts[SENT]);
+        metrics.put("totalReceived", counts[RECEIVED]);
+        metrics.put("totalFailed", counts[FAILED]);
         metrics.put("sessionCount", context.plan.getSessionCount());
         metrics.put("isRunning", context.running);
         metrics.put("isPaused", context.paused);
         
+        // 压测端饱和检测结果
+        GeneratorSaturationWatchdog.TaskVerdict verdict = saturationWatchdog.getVerdict(taskId);
+        if (verdict != null) {
+            GeneratorSaturationWatchdog.Interval last = verdict.getLastInterval();
+            metrics.put("generatorLimited", last != null && last.isGeneratorLimited());
+            metrics.put("generatorLimitedReasons", last != null ? last.getReasons() : Collections.emptyList());
+            metrics.put("generatorLimitedSeconds", verdict.getLimitedIntervals());
+            metrics.put("generatorLimitedRun", saturationWatchdog.isRunLimited(verdict));
+            metrics.put("generatorVerdict", saturationWatchdog.describe(verdict));
+        }
+        
         return metrics;
     }
     
     /**
-     * 创建会话设置
+     * 评估上次调用以来压测端自身是否饱和，由监控采集每秒调用，任务不存在时返回null
      */
-    private SessionSettings createSessionSettings(TestPlan plan) {
-        SessionSettings settings = new SessionSettings();
-        
-        // 基本设置
-        settings.setString("ConnectionType", "initiator");
-        settings.setString("StartTime", "00:00:00");
-        settings.setString("EndTime", "00:00:00");
-        settings.setString("HeartBtInt", "30");
-        settings.setString("ReconnectInterval", "5");
-        settings.setString("FileStorePath", "data/fix");
-        settings.setString("FileLogPath", "log/fix");
+    public GeneratorSaturationWatchdog.Interval evaluateSaturation(String taskId) {
+        TestTaskContext context = taskContexts.get(taskId);
+        if (context == null) return null;
         
-        return settings;
+        return saturationWatchdog.evaluate(taskId, context.maxScheduleLag.getAndSet(0),
+                messageExecutor.getQueue().size());
+    }
+    
+    /**
+     * 取出上次调用以来的发送延迟分桶计数，任务不存在时返回null
+     */
+    public long[] drainLatency(String taskId) {
+        TestTaskContext context = taskContexts.get(taskId);
+        return context == null ? null : context.latency.drain();
+    }
+    
+    private static ThreadFactory senderThreadFactory() {
+        AtomicInteger counter = new AtomicInteger(0);
+        return runnable -> {
+            Thread thread = new Thread(runnable, "fix-sender-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
     
     // 辅助方法
@@ -0,0 +1,332 @@
+package com.fix.test.service;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 压测端自身饱和检测
+ * 每秒按任务评估一次：调度滞后、发送线程池队列积压、发送线程CPU、GC停顿，任一超过阈值该秒即记为"压测端受限"；
+ * GC停顿来自GC通知，只累计停顿型收集器，并发收集周期不计入；
+ * 受限秒数占比超过fix.generator.watchdog.run-limited-ratio时整个任务判定为压测端受限，
+ * 此时测得的吞吐与延迟反映的是压测机而不是被测引擎，应横向扩展压测机后重测
+ */
+@Service
+public class GeneratorSaturationWatchdog {
+
+    public static final String REASON_SCHEDULE_LAG = "SCHEDULE_LAG";
+    public static final String REASON_QUEUE_BACKLOG = "QUEUE_BACKLOG";
+    public static final String REASON_SENDER_CPU = "SENDER_CPU";
+    public static final String REASON_GC_PAUSE = "GC_PAUSE";
+
+    private final long scheduleLagThresholdNanos;
+    private final int queueDepthThreshold;
+    private final double senderCpuThresholdPercent;
+    private final long pauseThresholdMillis;
+    private final double runLimitedRatio;
+    private final String senderThreadPrefix;
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final Map<String, TaskVerdict> verdicts = new ConcurrentHashMap<>();
+
+    // 进程级采样，多个任务在同一秒内共用一次结果
+    private ProcessSample lastProcessSample;
+    private long lastGcMillis = -1;
+    private final Map<Long, Long> lastThreadCpu = new HashMap<>();
+
+    // GC通知线程累计的停顿时间
+    private final AtomicLong gcPauseMillis = new AtomicLong(0);
+    private final NotificationListener gcListener = this::onGcNotification;
+    private final List<NotificationEmitter> gcEmitters = new ArrayList<>();
+
+    private static class ProcessSample {
+        final long nanos;
+        final double senderCpuPercent;
+        final long gcPauseMillis;
+
+        ProcessSample(long nanos, double senderCpuPercent, long gcPauseMillis) {
+            this.nanos = nanos;
+            this.senderCpuPercent = senderCpuPercent;
+            this.gcPauseMillis = gcPauseMillis;
+        }
+    }
+
+    /**
+     * 一秒的评估结果
+     */
+    public static class Interval {
+        private final long epochSecond;
+        private final double scheduleLagMs;
+        private final int queueDepth;
+        private final double senderCpuPercent;
+        private final long gcPauseMs;
+        private final List<String> reasons;
+
+        Interval(long epochSecond, double scheduleLagMs, int queueDepth, double senderCpuPercent,
+                 long gcPauseMs, List<String> reasons) {
+            this.epochSecond = epochSecond;
+            this.scheduleLagMs = scheduleLagMs;
+            this.queueDepth = queueDepth;
+            this.senderCpuPercent = senderCpuPercent;
+            this.gcPauseMs = gcPauseMs;
+            this.reasons = reasons;
+        }
+
+        public boolean isGeneratorLimited() {
+            return !reasons.isEmpty();
+        }
+
+        public long getEpochSecond() {
+            return epochSecond;
+        }
+
+        public double getScheduleLagMs() {
+            return scheduleLagMs;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public double getSenderCpuPercent() {
+            return senderCpuPercent;
+        }
+
+        public long getGcPauseMs() {
+            return gcPauseMs;
+        }
+
+        public List<String> getReasons() {
+            return reasons;
+        }
+    }
+
+    /**
+     * 任务级累计结果
+     */
+    public static class TaskVerdict {
+        private long intervals;
+        private long limitedIntervals;
+        private final Map<String, Long> reasonCounts = new LinkedHashMap<>();
+        private Interval lastInterval;
+
+        public synchronized long getIntervals() {
+            return intervals;
+        }
+
+        public synchronized long getLimitedIntervals() {
+            return limitedIntervals;
+        }
+
+        public synchronized Map<String, Long> getReasonCounts() {
+            return new LinkedHashMap<>(reasonCounts);
+        }
+
+        public synchronized Interval getLastInterval() {
+            return lastInterval;
+        }
+
+        synchronized void add(Interval interval) {
+            intervals++;
+            lastInterval = interval;
+            if (interval.isGeneratorLimited()) {
+                limitedIntervals++;
+                for (String reason : interval.reasons) {
+                    reasonCounts.merge(reason, 1L, Long::sum);
+                }
+            }
+        }
+    }
+
+    public GeneratorSaturationWatchdog(
+            @Value("${fix.generator.watchdog.schedule-lag-ms:50}") long scheduleLagMs,
+            @Value("${fix.generator.watchdog.queue-depth:10000}") int queueDepth,
+            @Value("${fix.generator.watchdog.sender-cpu-percent:90}") double senderCpuPercent,
+            @Value("${fix.generator.watchdog.pause-ms-per-second:100}") long pauseMillis,
+            @Value("${fix.generator.watchdog.run-limited-ratio:0.05}") double runLimitedRatio,
+            @Value("${fix.generator.watchdog.sender-thread-prefix:fix-sender-}") String senderThreadPrefix) {
+        this.scheduleLagThresholdNanos = TimeUnit.MILLISECONDS.toNanos(scheduleLagMs);
+        this.queueDepthThreshold = queueDepth;
+        this.senderCpuThresholdPercent = senderCpuPercent;
+        this.pauseThresholdMillis = pauseMillis;
+        this.runLimitedRatio = runLimitedRatio;
+        this.senderThreadPrefix = senderThreadPrefix;
+        if (threadBean.isThreadCpuTimeSupported()) {
+            threadBean.setThreadCpuTimeEnabled(true);
+        }
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) gc;
+                emitter.addNotificationListener(gcListener, null, null);
+                gcEmitters.add(emitter);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (NotificationEmitter emitter : gcEmitters) {
+            try {
+                emitter.removeNotificationListener(gcListener);
+            } catch (ListenerNotFoundException e) {
+                // 已移除
+            }
+        }
+        gcEmitters.clear();
+    }
+
+    /**
+     * 评估任务最近一秒，由监控采集每秒调用
+     * @param maxScheduleLagNanos 这一秒内的最大调度滞后
+     * @param queueDepth 发送线程池当前排队的任务数
+     */
+    public Interval evaluate(String taskId, long maxScheduleLagNanos, int queueDepth) {
+        ProcessSample process = sampleProcess();
+
+        List<String> reasons = new ArrayList<>();
+        if (maxScheduleLagNanos > scheduleLagThresholdNanos) {
+            reasons.add(REASON_SCHEDULE_LAG);
+        }
+        if (queueDepth > queueDepthThreshold) {
+            reasons.add(REASON_QUEUE_BACKLOG);
+        }
+        if (process.senderCpuPercent > senderCpuThresholdPercent) {
+            reasons.add(REASON_SENDER_CPU);
+        }
+        if (process.gcPauseMillis > pauseThresholdMillis) {
+            reasons.add(REASON_GC_PAUSE);
+        }
+
+        Interval interval = new Interval(System.currentTimeMillis() / 1000, maxScheduleLagNanos / 1_000_000.0,
+                queueDepth, process.senderCpuPercent, process.gcPauseMillis, reasons);
+        verdicts.computeIfAbsent(taskId, id -> new TaskVerdict()).add(interval);
+        return interval;
+    }
+
+    /**
+     * 任务当前的累计结果，任务未评估过时返回null
+     */
+    public TaskVerdict getVerdict(String taskId) {
+        return verdicts.get(taskId);
+    }
+
+    /**
+     * 整个任务是否判定为压测端受限
+     */
+    public boolean isRunLimited(TaskVerdict verdict) {
+        return verdict != null && verdict.getIntervals() > 0
+                && verdict.getLimitedIntervals() > verdict.getIntervals() * runLimitedRatio;
+    }
+
+    /**
+     * 给出结论与建议
+     */
+    public String describe(TaskVerdict verdict) {
+        if (verdict == null || verdict.getIntervals() == 0) {
+            return "无评估数据";
+        }
+        if (!isRunLimited(verdict)) {
+            return String.format("压测端未成为瓶颈（受限%d/%d秒）", verdict.getLimitedIntervals(), verdict.getIntervals());
+        }
+        StringBuilder reasons = new StringBuilder();
+        for (Map.Entry<String, Long> entry : verdict.getReasonCounts().entrySet()) {
+            if (reasons.length() > 0) {
+                reasons.append("、");
+            }
+            reasons.append(reasonLabel(entry.getKey())).append(entry.getValue()).append("秒");
+        }
+        return String.format("压测端受限%d/%d秒（%s），吞吐与延迟结果不代表被测引擎容量，建议增加压测机横向扩展或降低单机TPS后重测",
+                verdict.getLimitedIntervals(), verdict.getIntervals(), reasons);
+    }
+
+    /**
+     * 任务结束，移除并返回累计结果
+     */
+    public TaskVerdict finish(String taskId) {
+        return verdicts.remove(taskId);
+    }
+
+    private static String reasonLabel(String reason) {
+        switch (reason) {
+            case REASON_SCHEDULE_LAG:
+                return "调度滞后";
+            case REASON_QUEUE_BACKLOG:
+                return "发送队列积压";
+            case REASON_SENDER_CPU:
+                return "发送线程CPU";
+            case REASON_GC_PAUSE:
+                return "GC停顿";
+            default:
+                return reason;
+        }
+    }
+
+    private void onGcNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        // 并发收集器的周期（ZGC/Shenandoah Cycles、G1 Concurrent GC、CMS）与应用线程并行，不是停顿
+        String name = info.getGcName();
+        if (name.contains("Cycles") || name.contains("Concurrent")) {
+            return;
+        }
+        gcPauseMillis.addAndGet(info.getGcInfo().getDuration());
+    }
+
+    // 发送线程的CPU占用与GC停顿时间的增量，距上次采样不足半秒时复用上次结果
+    private synchronized ProcessSample sampleProcess() {
+        long now = System.nanoTime();
+        if (lastProcessSample != null && now - lastProcessSample.nanos < TimeUnit.MILLISECONDS.toNanos(500)) {
+            return lastProcessSample;
+        }
+        long elapsedNanos = lastProcessSample == null ? 0 : now - lastProcessSample.nanos;
+
+        long gcMillis = gcPauseMillis.get();
+        long gcPause = lastGcMillis < 0 ? 0 : gcMillis - lastGcMillis;
+        lastGcMillis = gcMillis;
+
+        long cpuDelta = 0;
+        int senders = 0;
+        Map<Long, Long> current = new HashMap<>();
+        if (threadBean.isThreadCpuTimeEnabled()) {
+            for (java.lang.management.ThreadInfo info : threadBean.getThreadInfo(threadBean.getAllThreadIds())) {
+                if (info == null || !info.getThreadName().startsWith(senderThreadPrefix)) {
+                    continue;
+                }
+                long cpu = threadBean.getThreadCpuTime(info.getThreadId());
+                if (cpu < 0) {
+                    continue;
+                }
+                current.put(info.getThreadId(), cpu);
+                Long previous = lastThreadCpu.get(info.getThreadId());
+                cpuDelta += cpu - (previous != null ? previous : cpu);
+                senders++;
+            }
+        }
+        lastThreadCpu.clear();
+        lastThreadCpu.putAll(current);
+
+        // 以发送线程最多能用满的核数为基准，线程数多于核数时全部核被占满即为100%
+        int usableCores = Math.min(senders, Runtime.getRuntime().availableProcessors());
+        double senderCpu = elapsedNanos == 0 || usableCores == 0 ? 0 : cpuDelta * 100.0 / elapsedNanos / usableCores;
+        // 首次采样没有基准，不计入GC停顿
+        lastProcessSample = new ProcessSample(now, senderCpu, elapsedNanos == 0 ? 0 : gcPause);
+        return lastProcessSample;
+    }
+}
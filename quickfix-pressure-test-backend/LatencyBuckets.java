@@ -0,0 +1,86 @@
+package com.fix.test.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 可合并的延迟直方图：按微秒做对数-线性分桶，每个2的幂区间再细分为32个子桶，相对误差约3%
+ * （与压测端LatencyHistogram的分桶方式一致），超过2^40微秒的值计入最后一桶。
+ * 记录无锁；汇总时取出并清零，得到一个周期内的分桶计数，多个周期的计数逐桶相加即可合并
+ */
+public class LatencyBuckets {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE = 39;
+
+    public static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketOf(nanos / 1000));
+    }
+
+    /**
+     * 取出当前计数并清零
+     */
+    public long[] drain() {
+        long[] values = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            values[i] = counts.getAndSet(i, 0);
+        }
+        return values;
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKET_COUNT) {
+            return (int) Math.max(0, micros);
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        if (magnitude > MAX_MAGNITUDE) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) (micros >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long lowerBoundMicros(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int subBucket = (bucket - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return ((long) (SUB_BUCKET_COUNT + subBucket)) << shift;
+    }
+
+    /**
+     * 第i桶的上界（微秒，含）
+     */
+    public static long upperBoundMicros(int bucket) {
+        return bucket + 1 >= BUCKET_COUNT ? Long.MAX_VALUE : lowerBoundMicros(bucket + 1) - 1;
+    }
+
+    /**
+     * 按分桶计数估算分位数，返回所在桶的上界（微秒），无数据时返回0
+     */
+    public static long percentileMicros(long[] buckets, double percentile) {
+        long total = 0;
+        for (long count : buckets) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long threshold = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= threshold) {
+                // 最后一桶没有上界，取其下界
+                return i + 1 >= BUCKET_COUNT ? lowerBoundMicros(i) : upperBoundMicros(i);
+            }
+        }
+        return lowerBoundMicros(buckets.length - 1);
+    }
+}
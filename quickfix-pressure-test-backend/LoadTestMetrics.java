@@ -0,0 +1,127 @@
+package com.fix.test.service;
+
+import io.micrometer.core.instrument.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 压测指标的Micrometer注册，经/actuator/prometheus暴露
+ * 发送/接收/失败计数直接读取任务的StripedCounter（抓取时求和，热路径无额外开销），
+ * 发送耗时与调度滞后使用带Prometheus原生分桶的Timer；
+ * 限制同时注册指标的任务数，超出的任务不注册指标，任务结束移除指标后释放名额。
+ * 进程CPU（process_cpu_usage）等JVM指标由actuator自动注册
+ */
+@Component
+public class LoadTestMetrics {
+
+    private static final String PREFIX = "fix.test";
+    private static final String TASK_TAG = "task";
+
+    private final MeterRegistry registry;
+    private final int maxTasks;
+    // 当前已注册指标的任务数。不用MeterFilter.maximumAllowableTags：它记住出现过的所有标签值且从不清除
+    private final AtomicInteger liveTasks = new AtomicInteger(0);
+
+    public LoadTestMetrics(MeterRegistry registry,
+                           @Value("${fix.metrics.max-tasks:20}") int maxTasks) {
+        this.registry = registry;
+        this.maxTasks = maxTasks;
+    }
+
+    /**
+     * 注册任务指标，任务结束时调用TaskMeters.close移除并释放名额；
+     * 同时存在的任务数达到上限时返回空操作句柄
+     */
+    public TaskMeters register(String taskId, StripedCounter counters, Supplier<Number> sessionsOnline) {
+        if (liveTasks.incrementAndGet() > maxTasks) {
+            liveTasks.decrementAndGet();
+            return new TaskMeters(null, null, new ArrayList<>(), false);
+        }
+        Tags tags = Tags.of(TASK_TAG, taskId);
+        List<Meter> meters = new ArrayList<>();
+
+        meters.add(messageCounter(tags, "sent", counters, FixPressureService.SENT));
+        meters.add(messageCounter(tags, "received", counters, FixPressureService.RECEIVED));
+        meters.add(messageCounter(tags, "failed", counters, FixPressureService.FAILED));
+
+        meters.add(Gauge.builder(PREFIX + ".sessions.online", sessionsOnline)
+                .tags(tags)
+                .description("已登录的会话数")
+                .register(registry));
+
+        Timer sendLatency = Timer.builder(PREFIX + ".send.latency")
+                .tags(tags)
+                .description("单条消息发送耗时")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1000))
+                .maximumExpectedValue(Duration.ofSeconds(1))
+                .register(registry);
+        meters.add(sendLatency);
+
+        Timer scheduleLag = Timer.builder(PREFIX + ".schedule.lag")
+                .tags(tags)
+                .description("发送调度实际触发时间相对计划时间的滞后")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1000))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry);
+        meters.add(scheduleLag);
+
+        return new TaskMeters(sendLatency, scheduleLag, meters, true);
+    }
+
+    private Meter messageCounter(Tags tags, String outcome, StripedCounter counters, int counter) {
+        return FunctionCounter.builder(PREFIX + ".messages", counters, c -> c.sum(counter))
+                .tags(tags.and("outcome", outcome))
+                .description("消息计数")
+                .register(registry);
+    }
+
+    /**
+     * 单个任务的指标句柄，超出基数上限时记录操作为空操作
+     */
+    public class TaskMeters {
+        private final Timer sendLatency;
+        private final Timer scheduleLag;
+        private final List<Meter> meters;
+        // 是否占用了一个任务名额，close时只释放一次
+        private final AtomicBoolean holdsSlot;
+
+        TaskMeters(Timer sendLatency, Timer scheduleLag, List<Meter> meters, boolean holdsSlot) {
+            this.sendLatency = sendLatency;
+            this.scheduleLag = scheduleLag;
+            this.meters = meters;
+            this.holdsSlot = new AtomicBoolean(holdsSlot);
+        }
+
+        public void recordSendLatency(long nanos) {
+            if (sendLatency != null) {
+                sendLatency.record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        public void recordScheduleLag(long nanos) {
+            if (scheduleLag != null) {
+                scheduleLag.record(Math.max(0, nanos), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        public void close() {
+            if (!holdsSlot.compareAndSet(true, false)) {
+                return;
+            }
+            for (Meter meter : meters) {
+                registry.remove(meter);
+            }
+            liveTasks.decrementAndGet();
+        }
+    }
+}
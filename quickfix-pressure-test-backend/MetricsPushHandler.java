@@ -0,0 +1,171 @@
+package com.fix.test.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fix.test.service.FixPressureService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 监控数据WebSocket推送：/ws/metrics?taskId=xxx
+ * 每个任务每个周期只采集一次指标并编码一次帧，所有订阅者共享同一帧。
+ * 帧为JSON：full帧携带全部字段，delta帧只携带相对上一周期变化的字段；
+ * 发送缓冲未清空的慢客户端跳过本周期，下次改发full帧，相当于把积压的增量合并为一帧
+ */
+@Component
+public class MetricsPushHandler extends TextWebSocketHandler {
+
+    private static final int SEND_TIME_LIMIT_MS = 5000;
+    private static final int BUFFER_SIZE_LIMIT = 256 * 1024;
+
+    @Autowired
+    private FixPressureService fixPressureService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, TaskChannel> channels = new ConcurrentHashMap<>();
+
+    /**
+     * 单个任务的订阅者与上一周期的指标
+     */
+    private static class TaskChannel {
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private Map<String, Object> lastMetrics = Collections.emptyMap();
+        private long seq = 0;
+    }
+
+    private static class Subscriber {
+        private final ConcurrentWebSocketSessionDecorator session;
+        // 新连接或错过帧后需要先收到full帧
+        private volatile boolean needsFull = true;
+
+        Subscriber(WebSocketSession session) {
+            this.session = new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, BUFFER_SIZE_LIMIT);
+        }
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        String taskId = taskIdOf(session);
+        if (taskId == null) {
+            session.close(CloseStatus.BAD_DATA.withReason("缺少taskId参数"));
+            return;
+        }
+        session.getAttributes().put("taskId", taskId);
+        Subscriber subscriber = new Subscriber(session);
+        channels.compute(taskId, (id, channel) -> {
+            TaskChannel target = channel == null ? new TaskChannel() : channel;
+            target.subscribers.add(subscriber);
+            return target;
+        });
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        String taskId = (String) session.getAttributes().get("taskId");
+        TaskChannel channel = taskId == null ? null : channels.get(taskId);
+        if (channel != null) {
+            channel.subscribers.removeIf(subscriber -> subscriber.session.getDelegate() == session);
+            channels.computeIfPresent(taskId, (id, c) -> c.subscribers.isEmpty() ? null : c);
+        }
+    }
+
+    /**
+     * 按周期为有订阅者的任务生成并推送一帧
+     */
+    @Scheduled(fixedRateString = "${fix.metrics.push-interval-ms:1000}")
+    public void publish() {
+        for (Map.Entry<String, TaskChannel> entry : channels.entrySet()) {
+            try {
+                publish(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                System.err.println("Failed to publish metrics for task " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void publish(String taskId, TaskChannel channel) throws JsonProcessingException {
+        if (channel.subscribers.isEmpty()) {
+            return;
+        }
+        Map<String, Object> metrics = fixPressureService.getRealTimeMetrics(taskId);
+        if (metrics.isEmpty()) {
+            // 任务已结束或尚未开始
+            if (!channel.lastMetrics.isEmpty()) {
+                fanOut(channel, null, new TextMessage(encode("end", ++channel.seq, Collections.emptyMap())));
+                channel.lastMetrics = Collections.emptyMap();
+            }
+            return;
+        }
+
+        Map<String, Object> delta = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> field : metrics.entrySet()) {
+            if (!Objects.equals(field.getValue(), channel.lastMetrics.get(field.getKey()))) {
+                delta.put(field.getKey(), field.getValue());
+            }
+        }
+        long seq = ++channel.seq;
+        channel.lastMetrics = metrics;
+
+        // 每周期每任务只编码一次，full帧仅在有订阅者需要时编码
+        TextMessage deltaFrame = new TextMessage(encode("delta", seq, delta));
+        TextMessage fullFrame = null;
+        for (Subscriber subscriber : channel.subscribers) {
+            if (subscriber.needsFull && fullFrame == null) {
+                fullFrame = new TextMessage(encode("full", seq, metrics));
+                break;
+            }
+        }
+        fanOut(channel, fullFrame, deltaFrame);
+    }
+
+    private void fanOut(TaskChannel channel, TextMessage fullFrame, TextMessage deltaFrame) {
+        for (Subscriber subscriber : channel.subscribers) {
+            if (!subscriber.session.isOpen()) {
+                continue;
+            }
+            // 上一帧还没发完，合并到下一周期的full帧
+            if (subscriber.session.getBufferSize() > 0) {
+                subscriber.needsFull = true;
+                continue;
+            }
+            boolean full = subscriber.needsFull && fullFrame != null;
+            try {
+                subscriber.session.sendMessage(full ? fullFrame : deltaFrame);
+                if (full) {
+                    subscriber.needsFull = false;
+                }
+            } catch (IOException | RuntimeException e) {
+                // 超时或缓冲区超限时装饰器会关闭连接，afterConnectionClosed中移除
+                subscriber.needsFull = true;
+            }
+        }
+    }
+
+    private String encode(String type, long seq, Map<String, Object> data) throws JsonProcessingException {
+        Map<String, Object> frame = new LinkedHashMap<>();
+        frame.put("type", type);
+        frame.put("seq", seq);
+        frame.put("ts", System.currentTimeMillis());
+        frame.put("data", data);
+        return objectMapper.writeValueAsString(frame);
+    }
+
+    private static String taskIdOf(WebSocketSession session) {
+        if (session.getUri() == null) {
+            return null;
+        }
+        return UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst("taskId");
+    }
+}
@@ -0,0 +1,265 @@
+package com.fix.test.service;
+
+import com.influxdb.client.InfluxDBClient;
+import com.influxdb.client.domain.WritePrecision;
+import com.influxdb.client.write.Point;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 共享的InfluxDB指标写入器
+ * 采集线程只把数据点放入有界队列（满时丢弃并计数，不阻塞采集），
+ * 后台线程按条数或时间间隔批量写入，失败时退避重试，重试耗尽后落盘为行协议文件，
+ * 数据库恢复后再补写落盘数据
+ */
+@Service
+@ConditionalOnProperty(name = "fix.metrics.store", havingValue = "influxdb", matchIfMissing = true)
+public class MetricsSink implements MetricsStore {
+
+    private static final String SPILL_PREFIX = "metrics-spill-";
+    private static final String SPILL_SUFFIX = ".lp";
+
+    @Autowired
+    private InfluxDBClient influxDBClient;
+
+    @Value("${influxdb.bucket}")
+    private String bucket;
+
+    @Value("${influxdb.org}")
+    private String org;
+
+    @Value("${influxdb.write.queue-capacity:100000}")
+    private int queueCapacity;
+
+    @Value("${influxdb.write.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${influxdb.write.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${influxdb.write.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${influxdb.write.retry-backoff-ms:500}")
+    private long retryBackoffMs;
+
+    @Value("${influxdb.write.spill-dir:data/metrics-spill}")
+    private String spillDir;
+
+    private BlockingQueue<String> queue;
+    private Thread writerThread;
+    private volatile boolean running = true;
+    // 上次写入失败并落盘后置位，写入成功时补写落盘文件
+    private volatile boolean spilled = false;
+
+    // 统计
+    private final AtomicLong pointsWritten = new AtomicLong(0);
+    private final AtomicLong pointsDropped = new AtomicLong(0);
+    private final AtomicLong pointsSpilled = new AtomicLong(0);
+    private final AtomicLong writeFailures = new AtomicLong(0);
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        spilled = hasSpillFiles();
+        writerThread = new Thread(this::writeLoop, "influxdb-metrics-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 写入数据点，队列满时丢弃
+     */
+    @Override
+    public void write(String measurement, String taskId, long timestampNanos, Map<String, ?> fields) {
+        Point point = Point.measurement(measurement)
+            .addTag("task_id", taskId)
+            .addFields(new HashMap<>(fields))
+            .time(timestampNanos, WritePrecision.NS);
+        // 在调用线程转换为行协议，队列中只保存字符串
+        if (!queue.offer(point.toLineProtocol())) {
+            pointsDropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * 停止写入线程，写完队列中剩余的数据
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<String> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                long deadline = System.currentTimeMillis() + flushIntervalMs;
+                // 攒够一批或到达刷新间隔
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    String line = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (line == null) {
+                        break;
+                    }
+                    batch.add(line);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                // 关闭时被中断，退出循环后写完剩余数据
+            }
+        }
+        // 清除中断标记，保证剩余数据的写入不被打断
+        Thread.interrupted();
+        queue.drainTo(batch);
+        while (!batch.isEmpty()) {
+            List<String> tail = new ArrayList<>(batch.subList(0, Math.min(batchSize, batch.size())));
+            batch.subList(0, tail.size()).clear();
+            flush(tail);
+        }
+    }
+
+    private void flush(List<String> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (writeWithRetry(batch)) {
+            pointsWritten.addAndGet(batch.size());
+            if (spilled) {
+                replaySpillFiles();
+            }
+        } else {
+            spill(batch);
+        }
+        batch.clear();
+    }
+
+    private boolean writeWithRetry(List<String> lines) {
+        long backoff = retryBackoffMs;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                influxDBClient.getWriteApiBlocking().writeRecords(bucket, org, WritePrecision.NS, lines);
+                return true;
+            } catch (Exception e) {
+                writeFailures.incrementAndGet();
+                // 关闭过程中不再等待重试，直接落盘
+                if (attempt >= maxRetries || !running) {
+                    System.err.println("InfluxDB write failed after " + (attempt + 1) + " attempts: " + e.getMessage());
+                    return false;
+                }
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                return false;
+            }
+            backoff *= 2;
+        }
+    }
+
+    /**
+     * 数据库不可用时把数据按行协议追加到当天的落盘文件
+     */
+    private void spill(List<String> lines) {
+        File dir = new File(spillDir);
+        if (!dir.exists() && !dir.mkdirs()) {
+            System.err.println("Cannot create metrics spill directory: " + spillDir);
+            pointsDropped.addAndGet(lines.size());
+            return;
+        }
+        String day = LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE);
+        File file = new File(dir, SPILL_PREFIX + day + SPILL_SUFFIX);
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+            pointsSpilled.addAndGet(lines.size());
+            spilled = true;
+        } catch (IOException e) {
+            System.err.println("Failed to spill metrics to " + file + ": " + e.getMessage());
+            pointsDropped.addAndGet(lines.size());
+        }
+    }
+
+    /**
+     * 补写落盘文件，全部成功的文件删除，失败则保留到下次
+     */
+    private void replaySpillFiles() {
+        File[] files = spillFiles();
+        for (File file : files) {
+            try {
+                List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+                for (int from = 0; from < lines.size(); from += batchSize) {
+                    List<String> chunk = lines.subList(from, Math.min(from + batchSize, lines.size()));
+                    if (!writeWithRetry(chunk)) {
+                        // 已写入的部分从文件中去掉，避免重复补写
+                        Files.write(file.toPath(), lines.subList(from, lines.size()), StandardCharsets.UTF_8);
+                        return;
+                    }
+                    pointsWritten.addAndGet(chunk.size());
+                }
+                Files.delete(file.toPath());
+                System.out.println("Replayed " + lines.size() + " spilled metric points from " + file.getName());
+            } catch (IOException e) {
+                System.err.println("Failed to replay spilled metrics " + file + ": " + e.getMessage());
+                return;
+            }
+        }
+        spilled = hasSpillFiles();
+    }
+
+    private File[] spillFiles() {
+        File[] files = new File(spillDir).listFiles(
+                (dir, name) -> name.startsWith(SPILL_PREFIX) && name.endsWith(SPILL_SUFFIX));
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    private boolean hasSpillFiles() {
+        return spillFiles().length > 0;
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("queued", queue.size());
+        statistics.put("pointsWritten", pointsWritten.get());
+        statistics.put("pointsDropped", pointsDropped.get());
+        statistics.put("pointsSpilled", pointsSpilled.get());
+        statistics.put("writeFailures", writeFailures.get());
+        return statistics;
+    }
+}
@@ -0,0 +1,30 @@
+package com.fix.test.service;
+
+import java.util.Map;
+
+/**
+ * 监控指标存储，由fix.metrics.store选择实现：
+ * influxdb（默认，MetricsSink）或embedded（EmbeddedTsdb，本地内存映射文件，适用于无InfluxDB的环境）
+ */
+public interface MetricsStore {
+
+    /**
+     * 写入一个数据点，实现不得阻塞调用线程
+     * @param measurement 表名
+     * @param taskId 任务ID（唯一的标签）
+     * @param timestampNanos 纪元纳秒时间戳
+     * @param fields 字段值，数值或布尔
+     */
+    void write(String measurement, String taskId, long timestampNanos, Map<String, ?> fields);
+
+    /**
+     * 任务结束后调用，释放该任务占用的缓冲与文件资源；之后仍可查询已写入的数据
+     */
+    default void release(String taskId) {
+    }
+
+    /**
+     * 写入统计
+     */
+    Map<String, Object> getStatistics();
+}
@@ -0,0 +1,24 @@
+package com.fix.test.config;
+
+import com.fix.test.websocket.MetricsPushHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * 监控数据推送的WebSocket端点
+ */
+@Configuration
+@EnableWebSocket
+public class MetricsWebSocketConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private MetricsPushHandler metricsPushHandler;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(metricsPushHandler, "/ws/metrics").setAllowedOriginPatterns("*");
+    }
+}
@@ -1,52 +1,50 @@
 package com.fix.test.service;
 
-import com.influxdb.client.InfluxDBClient;
-import com.influxdb.client.WriteApi;
-import com.influxdb.client.domain.WritePrecision;
-import com.influxdb.client.write.Point;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class MonitorDataCollector {
     
     @Autowired
-    private InfluxDBClient influxDBClient;
+    private MetricsStore metricsStore;
     
     @Autowired
     private FixPressureService fixPressureService;
     
-    private final Map<String, AtomicBoolean> collectingFlags = new ConcurrentHashMap<>();
-    private final Map<String, Thread> collectorThreads = new ConcurrentHashMap<>();
+    @Autowired
+    private RollupEngine rollupEngine;
+    
+    // 所有任务共用的采集调度线程，写入由配置的MetricsStore（MetricsSink或EmbeddedTsdb）异步完成，采集本身很轻
+    private final ScheduledExecutorService collector = Executors.newScheduledThreadPool(2);
+    private final Map<String, ScheduledFuture<?>> collectorTasks = new ConcurrentHashMap<>();
     
     /**
      * 开始采集监控数据
      */
     public void startCollection(String taskId) {
-        collectingFlags.put(taskId, new AtomicBoolean(true));
-        
-        Thread collectorThread = new Thread(() -> {
-            while (collectingFlags.get(taskId).get()) {
-                try {
-                    collectMetrics(taskId);
-                    Thread.sleep(1000); // 每秒采集一次
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+        ScheduledFuture<?> task = collector.scheduleAtFixedRate(() -> {
+            try {
+                collectMetrics(taskId);
+            } catch (Exception e) {
+                e.printStackTrace();
             }
-        });
+        }, 0, 1, TimeUnit.SECONDS); // 每秒采集一次
         
-        collectorThread.start();
-        collectorThreads.put(taskId, collectorThread);
+        ScheduledFuture<?> previous = collectorTasks.put(taskId, task);
+        if (previous != null) {
+            previous.cancel(false);
+        }
     }
     
     /**
@@ -54,16 +52,15 @@ public class MonitorDataCollector {
      */
     private void collectMetrics(String taskId) {
         Map<String, Object> metrics = fixPressureService.getRealTimeMetrics(taskId);
+        Instant now = Instant.now();
         
-        Point point = Point.measurement("test_metrics")
-            .addTag("task_id", taskId)
-            .addField("tps", metrics.getOrDefault("currentTps", 0))
-            .addField("total_sent", metrics.getOrDefault("totalSent", 0L))
-            .addField("total_received", metrics.getOrDefault("totalReceived", 0L))
-            .addField("total_failed", metrics.getOrDefault("totalFailed", 0L))
-            .addField("session_count", metrics.getOrDefault("sessionCount", 0))
-            .addField("is_running", metrics.getOrDefault("isRunning", false))
-            .time(Instant.now(), WritePrecision.NS);
+        Map<String, Object> point = new LinkedHashMap<>();
+        point.put("tps", metrics.getOrDefault("currentTps", 0));
+        point.put("total_sent", metrics.getOrDefault("totalSent", 0L));
+        point.put("total_received", metrics.getOrDefault("totalReceived", 0L));
+        point.put("total_failed", metrics.getOrDefault("totalFailed", 0L));
+        point.put("session_count", metrics.getOrDefault("sessionCount", 0));
+        point.put("is_running", metrics.getOrDefault("isRunning", false));
         
         // 采集系统资源
         Runtime runtime = Runtime.getRuntime();
@@ -71,12 +68,35 @@ public class MonitorDataCollector {
         long freeMemory = runtime.freeMemory();
         long usedMemory = totalMemory - freeMemory;
         
-        point.addField("memory_used", usedMemory / 1024 / 1024); // MB
-        point.addField("memory_total", totalMemory / 1024 / 1024); // MB
+        point.put("memory_used", usedMemory / 1024 / 1024); // MB
+        point.put("memory_total", totalMemory / 1024 / 1024); // MB
         
-        // 写入InfluxDB
-        try (WriteApi writeApi = influxDBClient.getWriteApi()) {
-            writeApi.writePoint(point);
+        // 压测端饱和检测，与吞吐、延迟写在同一个点上
+        GeneratorSaturationWatchdog.Interval saturation = fixPressureService.evaluateSaturation(taskId);
+        if (saturation != null) {
+            point.put("schedule_lag_ms", saturation.getScheduleLagMs());
+            point.put("executor_queue", saturation.getQueueDepth());
+            point.put("sender_cpu_pct", saturation.getSenderCpuPercent());
+            point.put("gc_pause_ms", saturation.getGcPauseMs());
+            point.put("generator_limited", saturation.isGeneratorLimited());
+        }
+        
+        // 写入指标存储（异步，不阻塞采集）
+        metricsStore.write("test_metrics", taskId, now.getEpochSecond() * 1_000_000_000L + now.getNano(), point);
+        
+        // 同时送入降采样，生成分钟与小时聚合
+        if (!metrics.isEmpty()) {
+            Map<String, Number> values = new LinkedHashMap<>();
+            values.put("tps", (Number) metrics.getOrDefault("currentTps", 0));
+            values.put("total_sent", (Number) metrics.getOrDefault("totalSent", 0L));
+            values.put("total_received", (Number) metrics.getOrDefault("totalReceived", 0L));
+            values.put("total_failed", (Number) metrics.getOrDefault("totalFailed", 0L));
+            values.put("memory_used", usedMemory / 1024 / 1024);
+            if (saturation != null) {
+                values.put("schedule_lag_ms", saturation.getScheduleLagMs());
+                values.put("generator_limited", saturation.isGeneratorLimited() ? 1 : 0);
+            }
+            rollupEngine.accept(taskId, now.getEpochSecond(), values, fixPressureService.drainLatency(taskId));
         }
     }
     
@@ -84,17 +104,16 @@ public class MonitorDataCollector {
      * 停止采集
      */
     public void stopCollection(String taskId) {
-        AtomicBoolean flag = collectingFlags.get(taskId);
-        if (flag != null) {
-            flag.set(false);
-        }
-        
-        Thread thread = collectorThreads.get(taskId);
-        if (thread != null) {
-            thread.interrupt();
-            collectorThreads.remove(taskId);
+        ScheduledFuture<?> task = collectorTasks.remove(taskId);
+        if (task != null) {
+            task.cancel(false);
         }
-        
-        collectingFlags.remove(taskId);
+        rollupEngine.flush(taskId);
+        metricsStore.release(taskId);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        collector.shutdownNow();
     }
-}
\ No newline at end of file
+}
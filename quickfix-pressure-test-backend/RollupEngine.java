@@ -0,0 +1,196 @@
+package com.fix.test.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指标降采样：秒级原始点流入后增量维护1分钟、1小时与1天窗口的min/max/sum/count及合并后的延迟直方图
+ * 分钟窗口结束时写出并合并进小时窗口，小时窗口结束时写出并合并进天窗口，天窗口结束时写出；
+ * 降采样结果与原始数据写入同一存储的test_metrics_1m / test_metrics_1h / test_metrics_1d，
+ * 长时间范围的看板按跨度查询对应的表（30天以上查天表）
+ */
+@Service
+public class RollupEngine {
+
+    public static final String MINUTE_MEASUREMENT = "test_metrics_1m";
+    public static final String HOUR_MEASUREMENT = "test_metrics_1h";
+    public static final String DAY_MEASUREMENT = "test_metrics_1d";
+
+    @Autowired
+    private MetricsStore metricsStore;
+
+    private final Map<String, TaskRollup> rollups = new ConcurrentHashMap<>();
+
+    /**
+     * 单个字段在窗口内的聚合值
+     */
+    static class Aggregate {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        long count = 0;
+
+        void add(double value) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+            count++;
+        }
+
+        void merge(Aggregate other) {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            sum += other.sum;
+            count += other.count;
+        }
+    }
+
+    /**
+     * 一个时间窗口
+     */
+    static class Window {
+        final long startSecond;
+        final Map<String, Aggregate> fields = new LinkedHashMap<>();
+        final long[] latency = new long[LatencyBuckets.BUCKET_COUNT];
+
+        Window(long startSecond) {
+            this.startSecond = startSecond;
+        }
+
+        void add(Map<String, Number> values, long[] latencyBuckets) {
+            for (Map.Entry<String, Number> value : values.entrySet()) {
+                fields.computeIfAbsent(value.getKey(), k -> new Aggregate()).add(value.getValue().doubleValue());
+            }
+            mergeLatency(latencyBuckets);
+        }
+
+        void merge(Window other) {
+            for (Map.Entry<String, Aggregate> field : other.fields.entrySet()) {
+                fields.computeIfAbsent(field.getKey(), k -> new Aggregate()).merge(field.getValue());
+            }
+            mergeLatency(other.latency);
+        }
+
+        private void mergeLatency(long[] latencyBuckets) {
+            if (latencyBuckets == null) {
+                return;
+            }
+            for (int i = 0; i < latency.length && i < latencyBuckets.length; i++) {
+                latency[i] += latencyBuckets[i];
+            }
+        }
+    }
+
+    private static class TaskRollup {
+        Window minute;
+        Window hour;
+        Window day;
+    }
+
+    /**
+     * 接收一个秒级原始点
+     * @param epochSecond 点的时间（秒）
+     * @param values 数值字段
+     * @param latencyBuckets 这一秒内的延迟分桶计数，可为null
+     */
+    public void accept(String taskId, long epochSecond, Map<String, Number> values, long[] latencyBuckets) {
+        TaskRollup rollup = rollups.computeIfAbsent(taskId, id -> new TaskRollup());
+        synchronized (rollup) {
+            long minuteStart = epochSecond - epochSecond % 60;
+            if (rollup.minute != null && rollup.minute.startSecond != minuteStart) {
+                closeMinute(taskId, rollup);
+            }
+            if (rollup.minute == null) {
+                rollup.minute = new Window(minuteStart);
+            }
+            rollup.minute.add(values, latencyBuckets);
+        }
+    }
+
+    /**
+     * 任务结束时写出未结束的窗口
+     */
+    public void flush(String taskId) {
+        TaskRollup rollup = rollups.remove(taskId);
+        if (rollup == null) {
+            return;
+        }
+        synchronized (rollup) {
+            if (rollup.minute != null) {
+                closeMinute(taskId, rollup);
+            }
+            if (rollup.hour != null) {
+                closeHour(taskId, rollup);
+            }
+            if (rollup.day != null) {
+                write(DAY_MEASUREMENT, taskId, rollup.day);
+                rollup.day = null;
+            }
+        }
+    }
+
+    private void closeMinute(String taskId, TaskRollup rollup) {
+        Window minute = rollup.minute;
+        rollup.minute = null;
+        write(MINUTE_MEASUREMENT, taskId, minute);
+
+        long hourStart = minute.startSecond - minute.startSecond % 3600;
+        if (rollup.hour != null && rollup.hour.startSecond != hourStart) {
+            closeHour(taskId, rollup);
+        }
+        if (rollup.hour == null) {
+            rollup.hour = new Window(hourStart);
+        }
+        rollup.hour.merge(minute);
+    }
+
+    private void closeHour(String taskId, TaskRollup rollup) {
+        Window hour = rollup.hour;
+        rollup.hour = null;
+        write(HOUR_MEASUREMENT, taskId, hour);
+
+        long dayStart = hour.startSecond - hour.startSecond % 86400;
+        if (rollup.day != null && rollup.day.startSecond != dayStart) {
+            write(DAY_MEASUREMENT, taskId, rollup.day);
+            rollup.day = null;
+        }
+        if (rollup.day == null) {
+            rollup.day = new Window(dayStart);
+        }
+        rollup.day.merge(hour);
+    }
+
+    private void write(String measurement, String taskId, Window window) {
+        Map<String, Object> point = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Aggregate> field : window.fields.entrySet()) {
+            String name = field.getKey();
+            Aggregate aggregate = field.getValue();
+            point.put(name + "_min", aggregate.min);
+            point.put(name + "_max", aggregate.max);
+            point.put(name + "_sum", aggregate.sum);
+            point.put(name + "_count", aggregate.count);
+        }
+
+        long latencyCount = 0;
+        for (int i = 0; i < window.latency.length; i++) {
+            if (window.latency[i] > 0) {
+                // 只写非空桶，字段名为桶上界（微秒，含），最后一桶没有上界
+                String bound = i + 1 < window.latency.length ? String.valueOf(LatencyBuckets.upperBoundMicros(i)) : "inf";
+                point.put("latency_le_" + bound, window.latency[i]);
+                latencyCount += window.latency[i];
+            }
+        }
+        if (latencyCount > 0) {
+            point.put("latency_count", latencyCount);
+            point.put("latency_p50_us", LatencyBuckets.percentileMicros(window.latency, 50));
+            point.put("latency_p99_us", LatencyBuckets.percentileMicros(window.latency, 99));
+        }
+
+        metricsStore.write(measurement, taskId, TimeUnit.SECONDS.toNanos(window.startSecond), point);
+    }
+}
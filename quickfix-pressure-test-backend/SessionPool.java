@@ -0,0 +1,331 @@
+package com.fix.test.service;
+
+import com.fix.test.entity.TestPlan;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import quickfix.*;
+import quickfix.field.ApplVerID;
+import quickfix.field.DefaultApplVerID;
+import quickfix.field.EncryptMethod;
+import quickfix.field.HeartBtInt;
+import quickfix.field.MsgType;
+import quickfix.field.ResetSeqNumFlag;
+import quickfix.field.TestReqID;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * FIX会话池：按(FIX版本, CompID, 对手方)保持已登录的会话，供连续的测试任务复用，
+ * 避免每个任务都重新建连和登录。
+ * 空闲会话定期做健康检查（TestRequest探测），超过最大空闲时间后登出回收（会话对象保留，再次租用时重新登录）；
+ * 租用已预热的会话时通过带ResetSeqNumFlag的Logon把双方序列号重置为1
+ */
+@Service
+public class SessionPool {
+
+    private static final String PROBE_PREFIX = "POOL_";
+
+    @Value("${quickfix.session-pool.host:localhost}")
+    private String host;
+
+    @Value("${quickfix.session-pool.port:9876}")
+    private int port;
+
+    @Value("${quickfix.session-pool.heartbeat-interval:30}")
+    private int heartbeatInterval;
+
+    @Value("${quickfix.session-pool.logon-timeout-seconds:30}")
+    private long logonTimeoutSeconds;
+
+    @Value("${quickfix.session-pool.max-idle-seconds:600}")
+    private long maxIdleSeconds;
+
+    @Value("${quickfix.session-pool.probe-timeout-seconds:10}")
+    private long probeTimeoutSeconds;
+
+    @Value("${quickfix.session-pool.reset-on-lease:true}")
+    private boolean resetOnLease;
+
+    private final SessionSettings settings = new SessionSettings();
+    private final Map<SessionID, PooledSession> pool = new ConcurrentHashMap<>();
+    private final MessageFactory messageFactory = new DefaultMessageFactory();
+    private ThreadedSocketInitiator initiator;
+
+    // 统计
+    private final AtomicLong warmLeases = new AtomicLong(0);
+    private final AtomicLong coldLeases = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+    private final AtomicLong healthCheckFailures = new AtomicLong(0);
+
+    private static class PooledSession {
+        private final SessionID sessionID;
+        private volatile String lessee;
+        private volatile long idleSince = System.currentTimeMillis();
+        private volatile long probeSentAt = 0;
+        private volatile CountDownLatch logonLatch = new CountDownLatch(1);
+
+        PooledSession(SessionID sessionID) {
+            this.sessionID = sessionID;
+        }
+    }
+
+    @PostConstruct
+    public void start() throws ConfigError {
+        // 会话均为动态创建，这里只配置默认值
+        settings.setString("ConnectionType", "initiator");
+        settings.setString("StartTime", "00:00:00");
+        settings.setString("EndTime", "00:00:00");
+        settings.setString("HeartBtInt", String.valueOf(heartbeatInterval));
+        settings.setString("ReconnectInterval", "5");
+        settings.setString("SocketConnectHost", host);
+        settings.setString("SocketConnectPort", String.valueOf(port));
+        // 每次（重新）登录都从序列号1开始
+        settings.setString("ResetOnLogon", "Y");
+
+        initiator = new ThreadedSocketInitiator(new PoolApplication(), new MemoryStoreFactory(),
+                settings, new SLF4JLogFactory(settings), messageFactory);
+        initiator.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (initiator != null) {
+            initiator.stop();
+        }
+        pool.clear();
+    }
+
+    /**
+     * 按测试计划生成会话标识
+     */
+    public static List<SessionID> sessionIDsFor(TestPlan plan) {
+        String beginString = beginStringOf(plan.getFixVersion());
+        List<SessionID> sessionIDs = new ArrayList<>();
+        for (int i = 1; i <= plan.getSessionCount(); i++) {
+            sessionIDs.add(new SessionID(beginString, "CLIENT_" + String.format("%03d", i), "SERVER"));
+        }
+        return sessionIDs;
+    }
+
+    private static String beginStringOf(TestPlan.FixVersion fixVersion) {
+        switch (fixVersion) {
+            case FIX_4_2:
+                return FixVersions.BEGINSTRING_FIX42;
+            case FIX_4_4:
+                return FixVersions.BEGINSTRING_FIX44;
+            case FIX_5_0_SP2:
+                return FixVersions.BEGINSTRING_FIXT11;
+            default:
+                throw new IllegalArgumentException("不支持的FIX版本: " + fixVersion);
+        }
+    }
+
+    /**
+     * 为任务租用一组会话，全部登录（或完成序列号重置）后返回
+     * 已预热的会话直接复用，其余的新建或等待重连
+     */
+    public List<SessionID> lease(String lessee, List<SessionID> sessionIDs) throws ConfigError, InterruptedException {
+        List<PooledSession> leased = new ArrayList<>();
+        try {
+            for (SessionID sessionID : sessionIDs) {
+                PooledSession entry = acquire(sessionID, lessee);
+                leased.add(entry);
+                prepare(entry);
+            }
+
+            // 统一等待，冷启动的会话并行建连
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(logonTimeoutSeconds);
+            int failed = 0;
+            for (PooledSession entry : leased) {
+                long remaining = deadline - System.nanoTime();
+                if (!entry.logonLatch.await(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                    failed++;
+                }
+            }
+            if (failed > 0) {
+                throw new IllegalStateException(failed + " 个会话登录超时");
+            }
+            return new ArrayList<>(sessionIDs);
+        } catch (ConfigError | InterruptedException | RuntimeException e) {
+            release(lessee);
+            throw e;
+        }
+    }
+
+    /**
+     * 归还任务租用的全部会话，会话保持登录状态进入空闲
+     */
+    public void release(String lessee) {
+        for (PooledSession entry : pool.values()) {
+            synchronized (entry) {
+                if (lessee.equals(entry.lessee)) {
+                    entry.lessee = null;
+                    entry.idleSince = System.currentTimeMillis();
+                    entry.probeSentAt = 0;
+                }
+            }
+        }
+    }
+
+    private PooledSession acquire(SessionID sessionID, String lessee) {
+        PooledSession entry = pool.computeIfAbsent(sessionID, PooledSession::new);
+        synchronized (entry) {
+            if (entry.lessee != null) {
+                throw new IllegalStateException("会话已被任务占用: " + sessionID + " -> " + entry.lessee);
+            }
+            entry.lessee = lessee;
+            return entry;
+        }
+    }
+
+    private void prepare(PooledSession entry) throws ConfigError {
+        Session session = Session.lookupSession(entry.sessionID);
+        if (session == null) {
+            // 冷启动：动态创建会话并建连
+            entry.logonLatch = new CountDownLatch(1);
+            if (FixVersions.BEGINSTRING_FIXT11.equals(entry.sessionID.getBeginString())) {
+                settings.setString(entry.sessionID, "DefaultApplVerID", FixVersions.FIX50SP2);
+            }
+            initiator.createDynamicSession(entry.sessionID);
+            coldLeases.incrementAndGet();
+        } else if (!session.isEnabled() || !session.isLoggedOn()) {
+            // 已被回收或连接断开：重新启用后等待重连登录（ResetOnLogon保证序列号从1开始）
+            entry.logonLatch = new CountDownLatch(1);
+            if (!session.isEnabled()) {
+                session.logon();
+            }
+            coldLeases.incrementAndGet();
+        } else {
+            if (resetOnLease) {
+                entry.logonLatch = new CountDownLatch(1);
+                sendSequenceReset(session);
+            }
+            warmLeases.incrementAndGet();
+        }
+    }
+
+    /**
+     * 会话内发送ResetSeqNumFlag=Y的Logon，对手方应答后双方序列号均从1开始
+     */
+    private void sendSequenceReset(Session session) {
+        SessionID sessionID = session.getSessionID();
+        Message logon = messageFactory.create(sessionID.getBeginString(), MsgType.LOGON);
+        logon.setInt(EncryptMethod.FIELD, EncryptMethod.NONE_OTHER);
+        logon.setInt(HeartBtInt.FIELD, heartbeatInterval);
+        logon.setBoolean(ResetSeqNumFlag.FIELD, true);
+        if (FixVersions.BEGINSTRING_FIXT11.equals(sessionID.getBeginString())) {
+            logon.setString(DefaultApplVerID.FIELD, ApplVerID.FIX50SP2);
+        }
+        session.send(logon);
+    }
+
+    /**
+     * 空闲会话健康检查与空闲回收
+     */
+    @Scheduled(fixedDelayString = "${quickfix.session-pool.health-check-interval-ms:30000}")
+    public void checkIdleSessions() {
+        long now = System.currentTimeMillis();
+        for (PooledSession entry : pool.values()) {
+            synchronized (entry) {
+                if (entry.lessee != null) {
+                    continue;
+                }
+                Session session = Session.lookupSession(entry.sessionID);
+                if (session == null || !session.isEnabled()) {
+                    continue;
+                }
+                if (now - entry.idleSince > TimeUnit.SECONDS.toMillis(maxIdleSeconds)) {
+                    evict(entry, session, "空闲超时");
+                } else if (!session.isLoggedOn()) {
+                    healthCheckFailures.incrementAndGet();
+                    evict(entry, session, "会话未登录");
+                } else if (entry.probeSentAt > 0) {
+                    if (now - entry.probeSentAt > TimeUnit.SECONDS.toMillis(probeTimeoutSeconds)) {
+                        healthCheckFailures.incrementAndGet();
+                        evict(entry, session, "健康检查无响应");
+                    }
+                } else {
+                    entry.probeSentAt = now;
+                    session.generateTestRequest(PROBE_PREFIX + now);
+                }
+            }
+        }
+    }
+
+    private void evict(PooledSession entry, Session session, String reason) {
+        // 登出后会话不再自动重连，保留会话对象以便下次租用时重新登录
+        evictions.incrementAndGet();
+        System.out.println("Evicting pooled session " + entry.sessionID + ": " + reason);
+        session.logout(reason);
+    }
+
+    /**
+     * 会话池统计
+     */
+    public Map<String, Object> getStatistics() {
+        long leasedCount = pool.values().stream().filter(entry -> entry.lessee != null).count();
+        long warmCount = pool.values().stream().filter(entry -> {
+            Session session = Session.lookupSession(entry.sessionID);
+            return session != null && session.isEnabled() && session.isLoggedOn();
+        }).count();
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("pooledSessions", pool.size());
+        statistics.put("warmSessions", warmCount);
+        statistics.put("leasedSessions", leasedCount);
+        statistics.put("warmLeases", warmLeases.get());
+        statistics.put("coldLeases", coldLeases.get());
+        statistics.put("evictions", evictions.get());
+        statistics.put("healthCheckFailures", healthCheckFailures.get());
+        return statistics;
+    }
+
+    /**
+     * 会话池共用的回调：跟踪登录与健康检查响应
+     */
+    private class PoolApplication implements Application {
+        @Override
+        public void onCreate(SessionID sessionID) {
+        }
+
+        @Override
+        public void onLogon(SessionID sessionID) {
+            PooledSession entry = pool.get(sessionID);
+            if (entry != null) {
+                entry.logonLatch.countDown();
+            }
+        }
+
+        @Override
+        public void onLogout(SessionID sessionID) {
+        }
+
+        @Override
+        public void toAdmin(Message message, SessionID sessionID) {
+        }
+
+        @Override
+        public void fromAdmin(Message message, SessionID sessionID) throws FieldNotFound {
+            if (MsgType.HEARTBEAT.equals(message.getHeader().getString(MsgType.FIELD))
+                    && message.isSetField(TestReqID.FIELD)
+                    && message.getString(TestReqID.FIELD).startsWith(PROBE_PREFIX)) {
+                PooledSession entry = pool.get(sessionID);
+                if (entry != null) {
+                    entry.probeSentAt = 0;
+                }
+            }
+        }
+
+        @Override
+        public void toApp(Message message, SessionID sessionID) {
+        }
+
+        @Override
+        public void fromApp(Message message, SessionID sessionID) {
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.fix.test.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 分段计数器组：同一组内的多个计数器按线程分段累加，读取时汇总
+ * 每个发送线程固定落在一个分段上，分段之间按缓存行填充，避免多线程争用同一缓存行
+ */
+public class StripedCounter {
+
+    // 每个分段占用的long个数，16个即128字节，覆盖相邻缓存行预取
+    private static final int PAD_LONGS = 16;
+    private static final AtomicInteger nextThreadIndex = new AtomicInteger(0);
+    private static final ThreadLocal<Integer> threadIndex =
+            ThreadLocal.withInitial(nextThreadIndex::getAndIncrement);
+
+    private final int counterCount;
+    private final int stride;
+    private final int stripeMask;
+    private final AtomicLongArray cells;
+
+    public StripedCounter(int counterCount) {
+        if (counterCount <= 0) {
+            throw new IllegalArgumentException("计数器个数必须大于0");
+        }
+        this.counterCount = counterCount;
+        this.stride = (counterCount + PAD_LONGS - 1) / PAD_LONGS * PAD_LONGS;
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        this.stripeMask = stripes - 1;
+        // 首尾各留一段填充，避免与数组头或相邻对象共享缓存行
+        this.cells = new AtomicLongArray((stripes + 2) * stride);
+    }
+
+    public void increment(int counter) {
+        add(counter, 1);
+    }
+
+    public void add(int counter, long delta) {
+        int stripe = threadIndex.get() & stripeMask;
+        cells.getAndAdd((stripe + 1) * stride + counter, delta);
+    }
+
+    /**
+     * 单个计数器的当前值
+     */
+    public long sum(int counter) {
+        long sum = 0;
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            sum += cells.get((stripe + 1) * stride + counter);
+        }
+        return sum;
+    }
+
+    /**
+     * 一次遍历得到全部计数器的快照
+     * 计数器按下标从大到小读取，调用方把“先发生”的计数器放在小下标上，
+     * 即可保证快照中后发生的计数不会超过先发生的计数（如完成数不超过发送数）
+     */
+    public long[] snapshot() {
+        long[] values = new long[counterCount];
+        for (int counter = counterCount - 1; counter >= 0; counter--) {
+            values[counter] = sum(counter);
+        }
+        return values;
+    }
+}
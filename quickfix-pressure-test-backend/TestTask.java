@@ -31,6 +31,13 @@ public class TestTask {
     @Column
     private String errorMessage;
     
+    // 压测端饱和检测：受限秒数超过阈值比例时本次结果不代表被测引擎容量
+    private Boolean generatorLimited;
+    private Long generatorLimitedSeconds;
+    
+    @Column(length = 500)
+    private String generatorVerdict;
+    
     public enum TaskStatus {
         STARTING, RUNNING, PAUSED, COMPLETED, FAILED, STOPPING
     }
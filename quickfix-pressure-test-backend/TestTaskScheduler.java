@@ -26,6 +26,9 @@ public class TestTaskScheduler {
     @Autowired
     private MonitorDataCollector monitorDataCollector;
     
+    @Autowired
+    private GeneratorSaturationWatchdog saturationWatchdog;
+    
     /**
      * 启动测试计划
      */
@@ -135,6 +138,9 @@ public class TestTaskScheduler {
             java.time.Duration.between(task.getStartTime(), task.getEndTime()).toMillis()
         );
         
+        recordSaturationVerdict(task);
+        testTaskRepository.save(task);
+        
         updateTaskStatus(taskId, TestTask.TaskStatus.COMPLETED);
     }
     
@@ -145,10 +151,30 @@ public class TestTaskScheduler {
         testTaskRepository.updateStatus(taskId, status);
     }
     
+    /**
+     * 记录压测端饱和检测结论并移除该任务的评估记录
+     */
+    private void recordSaturationVerdict(TestTask task) {
+        GeneratorSaturationWatchdog.TaskVerdict verdict = saturationWatchdog.finish(task.getTaskId());
+        if (verdict == null && task.getGeneratorVerdict() != null) {
+            // 失败路径可能调用两次，保留第一次记录的结论
+            return;
+        }
+        task.setGeneratorLimited(saturationWatchdog.isRunLimited(verdict));
+        task.setGeneratorLimitedSeconds(verdict != null ? verdict.getLimitedIntervals() : 0L);
+        task.setGeneratorVerdict(saturationWatchdog.describe(verdict));
+    }
+    
     /**
      * 处理测试失败
      */
     private void handleTestFailure(TestTask task, Exception e) {
+        // 停止已启动的发送并把已租用的会话归还会话池
+        fixPressureService.stopTest(task.getTaskId());
+        // 停止采集后再取结论，否则采集线程会为已结束的任务重新建立评估记录
+        monitorDataCollector.stopCollection(task.getTaskId());
+        
+        recordSaturationVerdict(task);
         task.setStatus(TestTask.TaskStatus.FAILED);
         task.setErrorMessage(e.getMessage());
         task.setEndTime(LocalDateTime.now());
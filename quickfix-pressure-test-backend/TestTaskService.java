@@ -323,6 +323,9 @@ public class TestTaskService {
      * 任务完成
      */
     private void completeTask(String taskId) {
+        // 归还租用的会话，否则会话一直被已结束的任务占用
+        fixPressureService.stopTest(taskId);
+        
         TestTask task = testTaskRepository.findByTaskId(taskId)
             .orElseThrow(() -> new IllegalArgumentException("测试任务不存在"));
         
@@ -340,6 +343,9 @@ public class TestTaskService {
      * 任务失败
      */
     private void failTask(String taskId, String errorMessage) {
+        // 归还租用的会话，否则会话一直被已结束的任务占用
+        fixPressureService.stopTest(taskId);
+        
         TestTask task = testTaskRepository.findByTaskId(taskId)
             .orElseThrow(() -> new IllegalArgumentException("测试任务不存在"));
         
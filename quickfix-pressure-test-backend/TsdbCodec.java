@@ -0,0 +1,194 @@
+package com.fix.test.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 嵌入式时序库的列编码
+ * 时间戳：首值原样，其后为二阶差分（delta-of-delta）的zigzag变长整数，等间隔采样时每点1字节；
+ * 数值：Gorilla式XOR位编码，与前值相同时每点1位，变化较小时只写有效位
+ */
+public final class TsdbCodec {
+
+    private TsdbCodec() {
+    }
+
+    /**
+     * 编码时间戳列
+     */
+    public static byte[] encodeTimestamps(long[] timestamps, int count) {
+        ByteBuffer buffer = ByteBuffer.allocate(count * 10 + 8);
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0) {
+                buffer.putLong(timestamps[0]);
+            } else {
+                long delta = timestamps[i] - previous;
+                writeVarLong(buffer, zigzag(delta - previousDelta));
+                previousDelta = delta;
+            }
+            previous = timestamps[i];
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    public static long[] decodeTimestamps(ByteBuffer buffer, int count) {
+        long[] timestamps = new long[count];
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0) {
+                timestamps[0] = buffer.getLong();
+            } else {
+                long delta = previousDelta + unzigzag(readVarLong(buffer));
+                timestamps[i] = previous + delta;
+                previousDelta = delta;
+            }
+            previous = timestamps[i];
+        }
+        return timestamps;
+    }
+
+    /**
+     * 编码数值列
+     */
+    public static byte[] encodeValues(double[] values, int count) {
+        BitWriter writer = new BitWriter(count * 9 + 16);
+        long previous = 0;
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = 0; i < count; i++) {
+            long bits = Double.doubleToRawLongBits(values[i]);
+            if (i == 0) {
+                writer.write(bits, 64);
+                previous = bits;
+                continue;
+            }
+            long xor = bits ^ previous;
+            previous = bits;
+            if (xor == 0) {
+                writer.write(0, 1);
+                continue;
+            }
+            writer.write(1, 1);
+            int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                // 有效位落在上一个窗口内，沿用窗口
+                writer.write(0, 1);
+                writer.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int significant = 64 - leading - trailing;
+                writer.write(1, 1);
+                writer.write(leading, 5);
+                writer.write(significant - 1, 6);
+                writer.write(xor >>> trailing, significant);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    public static double[] decodeValues(ByteBuffer buffer, int length, int count) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        BitReader reader = new BitReader(bytes);
+        double[] values = new double[count];
+        long previous = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0) {
+                previous = reader.read(64);
+            } else if (reader.read(1) != 0) {
+                if (reader.read(1) != 0) {
+                    leading = (int) reader.read(5);
+                    int significant = (int) reader.read(6) + 1;
+                    trailing = 64 - leading - significant;
+                }
+                long xor = reader.read(64 - leading - trailing) << trailing;
+                previous ^= xor;
+            }
+            values[i] = Double.longBitsToDouble(previous);
+        }
+        return values;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * 按位写入，高位在前
+     */
+    static class BitWriter {
+        private byte[] bytes;
+        private long bitPosition = 0;
+
+        BitWriter(int initialBytes) {
+            bytes = new byte[Math.max(16, initialBytes)];
+        }
+
+        void write(long value, int bits) {
+            for (int i = bits - 1; i >= 0; i--) {
+                int byteIndex = (int) (bitPosition >>> 3);
+                if (byteIndex >= bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                if (((value >>> i) & 1) != 0) {
+                    bytes[byteIndex] |= (byte) (0x80 >>> (bitPosition & 7));
+                }
+                bitPosition++;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, (int) ((bitPosition + 7) >>> 3));
+        }
+    }
+
+    static class BitReader {
+        private final byte[] bytes;
+        private long bitPosition = 0;
+
+        BitReader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        long read(int bits) {
+            long value = 0;
+            for (int i = 0; i < bits; i++) {
+                int bit = (bytes[(int) (bitPosition >>> 3)] >>> (7 - (bitPosition & 7))) & 1;
+                value = (value << 1) | bit;
+                bitPosition++;
+            }
+            return value;
+        }
+    }
+}
@@ -53,7 +53,47 @@ export const testTaskApi = {
 // 监控API
 export const monitorApi = {
   getMetrics: (taskId) => api.get(`/monitor/metrics/${taskId}`),
-  checkEnv: (targetIp) => api.get('/system/env-check', { params: { targetEngineIp: targetIp } })
+  checkEnv: (targetIp) => api.get('/system/env-check', { params: { targetEngineIp: targetIp } }),
+  subscribeMetrics: (taskId, onMetrics, onEnd) => subscribeMetrics(taskId, onMetrics, onEnd)
+}
+
+// 订阅监控数据推送：服务端先发full帧，之后只发变化字段的delta帧，断线后自动重连
+// 返回取消订阅函数
+const subscribeMetrics = (taskId, onMetrics, onEnd) => {
+  const protocol = window.location.protocol === 'https:' ? 'wss:' : 'ws:'
+  const url = `${protocol}//${window.location.host}/ws/metrics?taskId=${encodeURIComponent(taskId)}`
+  let socket = null
+  let closed = false
+  let retryTimer = null
+  let metrics = {}
+
+  const connect = () => {
+    socket = new WebSocket(url)
+    socket.onmessage = (event) => {
+      const frame = JSON.parse(event.data)
+      if (frame.type === 'full') {
+        metrics = { ...frame.data }
+      } else if (frame.type === 'delta') {
+        metrics = { ...metrics, ...frame.data }
+      } else if (frame.type === 'end') {
+        onEnd?.()
+        return
+      }
+      onMetrics(metrics)
+    }
+    socket.onclose = () => {
+      if (!closed) {
+        retryTimer = setTimeout(connect, 3000)
+      }
+    }
+  }
+
+  connect()
+  return () => {
+    closed = true
+    clearTimeout(retryTimer)
+    socket?.close()
+  }
 }
 
 export default api
\ No newline at end of file
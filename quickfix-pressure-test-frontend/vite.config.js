@@ -17,6 +17,10 @@ export default defineConfig({
         target: 'http://localhost:8080',
         changeOrigin: true,
         rewrite: (path) => path.replace(/^\/api/, '/api/v1')
+      },
+      '/ws': {
+        target: 'ws://localhost:8080',
+        ws: true
       }
     }
   },